@@ -1,5 +1,6 @@
 package org.example.config;
 
+import jakarta.servlet.DispatcherType;
 import org.example.service.JwtAuthenticationEntryPoint;
 import org.example.service.JwtAuthenticationFilter;
 import org.example.service.UserDetailsServiceImpl;
@@ -70,6 +71,8 @@ public class SecurityConfig {
                 auth
                 // Разрешаем OPTIONS запросы для всех эндпоинтов
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // Повторная диспетчеризация асинхронного ответа (Mono, SSE): запрос уже прошел проверку JWT
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 
                 // ВЫСШИЙ ПРИОРИТЕТ: Публичные эндпоинты (ДОЛЖНЫ БЫТЬ ПЕРВЫМИ)
                 .requestMatchers("/api/public/**").permitAll() // Все публичные API
@@ -2,8 +2,15 @@ package org.example.controller;
 
 import org.example.dto.admin.*;
 import org.example.entity.User;
+import org.example.service.AccountPurgeService;
 import org.example.service.AdminService;
 import org.example.service.JwtService;
+import org.example.service.PartitionMaintenance;
+import org.example.service.RetentionCompactor;
+import org.example.service.SellerSyncService;
+import org.example.service.SyncEventStreams;
+import org.example.service.SyncJobService;
+import org.example.service.WildberriesApiService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -13,6 +20,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.time.YearMonth;
 import java.util.Map;
 
 @RestController
@@ -26,6 +34,27 @@ public class AdminController {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private WildberriesApiService wildberriesApiService;
+
+    @Autowired
+    private SellerSyncService sellerSyncService;
+
+    @Autowired
+    private SyncJobService syncJobService;
+
+    @Autowired
+    private SyncEventStreams syncEventStreams;
+
+    @Autowired
+    private PartitionMaintenance partitionMaintenance;
+
+    @Autowired
+    private AccountPurgeService accountPurgeService;
+
+    @Autowired
+    private RetentionCompactor retentionCompactor;
+
     // Получение статистики системы
     @GetMapping("/stats")
     public ResponseEntity<AdminApiResponse<AdminStatsDto>> getStats(HttpServletRequest request) {
@@ -116,7 +145,7 @@ public class AdminController {
 
     // Удаление пользователя
     @DeleteMapping("/users/{userId}")
-    public ResponseEntity<AdminApiResponse<String>> deleteUser(
+    public ResponseEntity<AdminApiResponse<Map<String, Object>>> deleteUser(
             @PathVariable Long userId,
             HttpServletRequest request) {
         try {
@@ -128,10 +157,10 @@ public class AdminController {
                 return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
             }
 
-            adminService.deleteUser(userId);
-            System.out.println("✅ Admin: Пользователь удален");
+            Map<String, Object> job = adminService.deleteUser(userId);
+            System.out.println("✅ Admin: Пользователь удален, данные удаляются в фоне");
             
-            return ResponseEntity.ok(new AdminApiResponse<>(true, "Пользователь удален", null));
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Пользователь удален, данные удаляются в фоне", job));
             
         } catch (Exception e) {
             System.out.println("❌ Admin: Ошибка удаления пользователя: " + e.getMessage());
@@ -140,6 +169,121 @@ public class AdminController {
         }
     }
 
+    // Фоновые удаления аккаунтов и продавцов: ход и результат
+    @GetMapping("/purges")
+    public ResponseEntity<AdminApiResponse<Map<String, Object>>> getPurges(HttpServletRequest request) {
+        try {
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Удаления получены", accountPurgeService.describe()));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка получения удалений: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
+    @GetMapping("/purges/{jobId}")
+    public ResponseEntity<AdminApiResponse<Map<String, Object>>> getPurge(
+            @PathVariable String jobId,
+            HttpServletRequest request) {
+        try {
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            AccountPurgeService.PurgeJob job = accountPurgeService.findJob(jobId);
+            if (job == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Задание не найдено", null));
+            }
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Задание получено", job.toMap()));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка получения задания удаления: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
+    // Пересчет данных пользователя из архива ответов WB (без запросов к WB)
+    @PostMapping("/users/{userId}/replay-archive")
+    public ResponseEntity<AdminApiResponse<Map<String, Long>>> replayArchive(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "30") int days,
+            HttpServletRequest request) {
+        try {
+            System.out.println("♻️ Admin: Пересчет из архива WB для пользователя ID: " + userId);
+            
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            Map<String, Long> processed = adminService.replayArchive(userId, days);
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Данные пересчитаны из архива", processed));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка пересчета из архива: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
+    // Запуск синхронизации всех активных продавцов с ключом WB
+    @PostMapping("/sellers/sync")
+    public ResponseEntity<AdminApiResponse<Map<String, Object>>> startSellersSync(
+            @RequestParam(required = false) Integer days,
+            HttpServletRequest request) {
+        try {
+            System.out.println("🔄 Admin: Запуск синхронизации всех продавцов");
+            
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            Map<String, Object> run = sellerSyncService.startFullSync(days);
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Синхронизация продавцов запущена", run));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка запуска синхронизации продавцов: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
+    // Ход последней синхронизации продавцов
+    @GetMapping("/sellers/sync")
+    public ResponseEntity<AdminApiResponse<Map<String, Object>>> getSellersSyncProgress(HttpServletRequest request) {
+        try {
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            Map<String, Object> run = sellerSyncService.getProgress();
+            if (run == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Синхронизация продавцов еще не запускалась", null));
+            }
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Состояние синхронизации получено", run));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка получения состояния синхронизации: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
     // Получение API логов
     @GetMapping("/api-logs")
     public ResponseEntity<AdminApiResponse<Page<AdminApiLogDto>>> getApiLogs(
@@ -193,6 +337,118 @@ public class AdminController {
         }
     }
 
+    // Метрики клиента Wildberries (кеш ответов, лимиты)
+    @GetMapping("/wb-metrics")
+    public ResponseEntity<AdminApiResponse<Map<String, Object>>> getWbMetrics(HttpServletRequest request) {
+        try {
+            System.out.println("📈 Admin: Запрос метрик клиента WB");
+            
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            Map<String, Object> metrics = wildberriesApiService.getClientMetrics();
+            metrics.put("syncJobs", syncJobService.getStats());
+            metrics.put("eventStreams", syncEventStreams.getConnectionCount());
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Метрики получены", metrics));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка получения метрик WB: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
+    // Помесячные секции analytics_data и financial_report_raw
+    @GetMapping("/partitions")
+    public ResponseEntity<AdminApiResponse<Map<String, Object>>> getPartitions(HttpServletRequest request) {
+        try {
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Секции получены", partitionMaintenance.describe()));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка получения секций: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
+    // Отсоединение секции месяца (month в формате 2024-01): строки остаются в отдельной таблице или удаляются
+    @PostMapping("/partitions/{table}/{month}/detach")
+    public ResponseEntity<AdminApiResponse<String>> detachPartition(
+            @PathVariable String table,
+            @PathVariable String month,
+            @RequestParam(defaultValue = "false") boolean drop,
+            HttpServletRequest request) {
+        try {
+            System.out.println("🗂️ Admin: Отсоединение секции " + table + " за " + month);
+            
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            String partition = partitionMaintenance.detachMonth(table, YearMonth.parse(month), drop);
+            if (partition == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Секция за " + month + " не найдена", null));
+            }
+            return ResponseEntity.ok(new AdminApiResponse<>(true, drop ? "Секция удалена" : "Секция отсоединена", partition));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка отсоединения секции: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
+    // Сроки хранения по таблицам и тарифам, ход и итог прохода компактора
+    @GetMapping("/retention")
+    public ResponseEntity<AdminApiResponse<Map<String, Object>>> getRetention(HttpServletRequest request) {
+        try {
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Сроки хранения получены", retentionCompactor.describe()));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка получения сроков хранения: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
+    // Внеплановый проход компактора (без ожидания окна низкой нагрузки)
+    @PostMapping("/retention/run")
+    public ResponseEntity<AdminApiResponse<Map<String, Object>>> runRetention(HttpServletRequest request) {
+        try {
+            System.out.println("🧹 Admin: Запуск компактора хранения");
+            
+            // Проверяем авторизацию
+            String token = jwtService.extractTokenFromRequest(request);
+            if (token == null) {
+                return ResponseEntity.ok(new AdminApiResponse<>(false, "Не авторизован", null));
+            }
+
+            return ResponseEntity.ok(new AdminApiResponse<>(true, "Проход компактора завершен", retentionCompactor.run(false)));
+            
+        } catch (Exception e) {
+            System.out.println("❌ Admin: Ошибка компактора хранения: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.ok(new AdminApiResponse<>(false, "Ошибка сервера: " + e.getMessage(), null));
+        }
+    }
+
     // Получение данных юнит-экономики
     @PostMapping("/unit-economics")
     public ResponseEntity<AdminApiResponse<UnitEconomicsDto>> getUnitEconomics(
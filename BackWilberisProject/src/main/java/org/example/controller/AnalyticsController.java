@@ -1,13 +1,25 @@
 package org.example.controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import org.example.entity.AnalyticsData;
 import org.example.entity.Product;
+import org.example.entity.Seller;
 import org.example.entity.User;
+import org.example.entity.WeeklyFinancialReport;
 import org.example.repository.AnalyticsDataRepository;
 import org.example.repository.ProductRepository;
+import org.example.repository.SellerRepository;
 import org.example.repository.UserRepository;
+import org.example.repository.WeeklyFinancialReportRepository;
+import org.example.service.AbcAnalysisEngine;
+import org.example.service.SyncJobService;
 import org.example.service.WildberriesApiService;
+import org.example.service.wildberries.WbReport;
+import org.example.service.wildberries.WbReportBundle;
+import org.example.service.wildberries.WbSnapshotStore;
+import org.example.service.wildberries.WildberriesReactiveClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
@@ -17,11 +29,16 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -33,6 +50,12 @@ public class AnalyticsController {
     @Autowired
     private WildberriesApiService wildberriesApiService;
     
+    @Autowired
+    private WildberriesReactiveClient wildberriesReactiveClient;
+    
+    @Autowired
+    private WbSnapshotStore snapshotStore;
+    
     @Autowired
     private AnalyticsDataRepository analyticsDataRepository;
     
@@ -42,6 +65,18 @@ public class AnalyticsController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private WeeklyFinancialReportRepository weeklyFinancialReportRepository;
+    
+    @Autowired
+    private SyncJobService syncJobService;
+
+    @Autowired
+    private AbcAnalysisEngine abcAnalysisEngine;
+    
     /**
      * Helper метод для получения пользователя из Authentication
      */
@@ -51,6 +86,23 @@ public class AnalyticsController {
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
     }
     
+    /**
+     * Ответ, когда отчет от WB не получен (сервис вернул null: запрос упал или автомат хоста открыт):
+     * последний успешный снимок с пометкой stale или 503.
+     * Успешный пустой отчет сюда не попадает - за период просто нет данных.
+     */
+    private ResponseEntity<?> staleSnapshotOrUnavailable(String snapshotKey) {
+        Optional<WbSnapshotStore.Snapshot> snapshot = snapshotStore.find(snapshotKey);
+        if (snapshot.isPresent()) {
+            System.out.println("🗄️ WB недоступен, отдаем снимок возрастом " + snapshot.get().ageSeconds() + " сек");
+            return ResponseEntity.ok(snapshot.get().toStaleResponse());
+        }
+        return ResponseEntity.status(503).body(Map.of(
+            "success", false,
+            "message", "API Wildberries временно недоступен"
+        ));
+    }
+    
     /**
      * 🧪 ТЕСТОВЫЙ ENDPOINT ДЛЯ ОТЛАДКИ
      */
@@ -147,18 +199,17 @@ public class AnalyticsController {
             
             // Получаем данные из Finance API
             JsonNode financeReport = wildberriesApiService.getFinanceReport(apiKey, startDate, endDate);
+            String snapshotKey = WbSnapshotStore.key("financial", apiKey, days);
             
             Map<String, Object> financialData;
             
-            if (financeReport != null && financeReport.isArray() && financeReport.size() > 0) {
+            if (financeReport != null && financeReport.isArray()) {
                 System.out.println("✅ Используем данные Finance API: " + financeReport.size() + " записей");
                 financialData = processEnhancedFinancialReport(financeReport);
+                snapshotStore.save(snapshotKey, financialData);
             } else {
                 System.out.println("⚠️ Finance API недоступен");
-                return ResponseEntity.status(503).body(Map.of(
-                    "success", false,
-                    "message", "API Wildberries временно недоступен"
-                ));
+                return staleSnapshotOrUnavailable(snapshotKey);
             }
             
             return ResponseEntity.ok(Map.of(
@@ -181,7 +232,7 @@ public class AnalyticsController {
      * ФИНАНСОВЫЙ ОТЧЕТ - Основной отчет по продажам
      */
     @PostMapping("/financial-report")
-    public ResponseEntity<?> getFinancialReport(Authentication auth, 
+    public Mono<ResponseEntity<?>> getFinancialReport(Authentication auth, 
                                                @RequestParam(value = "days", defaultValue = "30") int days) {
         try {
             User user = getUserFromAuth(auth);
@@ -194,40 +245,43 @@ public class AnalyticsController {
             JsonNode financeReport = wildberriesApiService.getFinanceReport(
                 user.getWildberriesApiKey(), startDate, endDate);
             
-            Map<String, Object> financialData;
-            
             if (financeReport != null && financeReport.isArray() && financeReport.size() > 0) {
                 System.out.println("✅ Используем данные Finance API: " + financeReport.size() + " записей");
-                financialData = processEnhancedFinancialReport(financeReport);
-            } else {
-                System.out.println("⚠️ Finance API недоступен или пуст, используем Statistics API");
-                
-                // Fallback: получаем данные из Statistics API
-                JsonNode salesReport = wildberriesApiService.getSalesReport(
-                    user.getWildberriesApiKey(), startDate, endDate);
-                JsonNode stocksReport = wildberriesApiService.getStocksReport(
-                    user.getWildberriesApiKey(), startDate);
-                JsonNode ordersReport = wildberriesApiService.getOrdersReport(
-                    user.getWildberriesApiKey(), startDate);
-                
-                // Комбинируем данные из разных источников для построения финансовой картины
-                financialData = buildFinancialReportFromStatistics(salesReport, stocksReport, ordersReport);
+                return Mono.just(financialReportResponse(processEnhancedFinancialReport(financeReport)));
             }
+            System.out.println("⚠️ Finance API недоступен или пуст, используем Statistics API");
             
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "data", financialData
-            ));
+            // Fallback: получаем данные из Statistics API параллельно, не занимая поток запроса
+            return wildberriesReactiveClient
+                .fetchBundle(user.getWildberriesApiKey(), startDate, endDate,
+                             WbReport.SALES, WbReport.STOCKS, WbReport.ORDERS)
+                .timeout(WildberriesReactiveClient.FAN_OUT_TIMEOUT)
+                .publishOn(Schedulers.boundedElastic())
+                // Комбинируем данные из разных источников для построения финансовой картины
+                .<ResponseEntity<?>>map(reports -> financialReportResponse(buildFinancialReportFromStatistics(
+                    reports.getSales(), reports.getStocks(), reports.getOrders())))
+                .onErrorResume(e -> Mono.just(financialReportFailure(e)));
             
         } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.ok(Map.of(
-                "success", false,
-                "message", "Ошибка получения финансового отчета: " + e.getMessage()
-            ));
+            return Mono.just(financialReportFailure(e));
         }
     }
 
+    private ResponseEntity<?> financialReportResponse(Map<String, Object> financialData) {
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "data", financialData
+        ));
+    }
+
+    private ResponseEntity<?> financialReportFailure(Throwable e) {
+        e.printStackTrace();
+        return ResponseEntity.ok(Map.of(
+            "success", false,
+            "message", "Ошибка получения финансового отчета: " + e.getMessage()
+        ));
+    }
+
     /**
      * БАЛАНС ПРОДАВЦА - Текущий баланс и финансовое состояние
      */
@@ -502,53 +556,70 @@ public class AnalyticsController {
      * СВОДНЫЙ ОТЧЕТ - Комбинированная аналитика за период
      */
     @PostMapping("/summary-report")
-    public ResponseEntity<?> getSummaryReport(Authentication auth,
+    public Mono<ResponseEntity<?>> getSummaryReport(Authentication auth,
                                             @RequestParam(value = "days", defaultValue = "30") int days) {
         try {
             User user = getUserFromAuth(auth);
             
             if (user.getWildberriesApiKey() == null || user.getWildberriesApiKey().trim().isEmpty()) {
-                return ResponseEntity.ok(Map.of(
+                return Mono.just(ResponseEntity.ok(Map.of(
                     "success", false,
                     "message", "API ключ Wildberries не установлен"
-                ));
+                )));
             }
             
             LocalDate endDate = LocalDate.now();
             LocalDate startDate = endDate.minusDays(days);
+            String snapshotKey = WbSnapshotStore.key("summary-report", user.getWildberriesApiKey(), days);
             
-            // Получаем несколько отчетов для создания сводки
-            JsonNode salesReport = wildberriesApiService.getSalesReport(
-                user.getWildberriesApiKey(), startDate, endDate);
-            JsonNode stocksReport = wildberriesApiService.getStocksReport(
-                user.getWildberriesApiKey(), startDate);
-            JsonNode ordersReport = wildberriesApiService.getOrdersReport(
-                user.getWildberriesApiKey(), startDate);
-            
-            Map<String, Object> summaryData = new HashMap<>();
-            
-            if (salesReport != null) {
-                summaryData.put("sales", processFinancialReport(salesReport));
-            }
-            if (stocksReport != null) {
-                summaryData.put("stocks", processStocksReport(stocksReport));
-            }
-            if (ordersReport != null) {
-                summaryData.put("orders", processOrdersReport(ordersReport));
-            }
-            
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "data", summaryData
-            ));
+            // Получаем несколько отчетов для создания сводки (параллельно, не занимая поток запроса)
+            return wildberriesReactiveClient
+                .fetchBundle(user.getWildberriesApiKey(), startDate, endDate,
+                             WbReport.SALES, WbReport.STOCKS, WbReport.ORDERS)
+                .timeout(WildberriesReactiveClient.FAN_OUT_TIMEOUT)
+                .publishOn(Schedulers.boundedElastic())
+                .<ResponseEntity<?>>map(reports -> buildSummaryReport(reports, snapshotKey))
+                .onErrorResume(e -> Mono.just(summaryReportFailure(e)));
             
         } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.ok(Map.of(
-                "success", false,
-                "message", "Ошибка получения сводного отчета: " + e.getMessage()
-            ));
+            return Mono.just(summaryReportFailure(e));
+        }
+    }
+
+    private ResponseEntity<?> buildSummaryReport(WbReportBundle reports, String snapshotKey) {
+        JsonNode salesReport = reports.getSales();
+        JsonNode stocksReport = reports.getStocks();
+        JsonNode ordersReport = reports.getOrders();
+        
+        if (salesReport == null && stocksReport == null && ordersReport == null) {
+            return staleSnapshotOrUnavailable(snapshotKey);
+        }
+        
+        Map<String, Object> summaryData = new HashMap<>();
+        
+        if (salesReport != null) {
+            summaryData.put("sales", processFinancialReport(salesReport));
         }
+        if (stocksReport != null) {
+            summaryData.put("stocks", processStocksReport(stocksReport));
+        }
+        if (ordersReport != null) {
+            summaryData.put("orders", processOrdersReport(ordersReport));
+        }
+        snapshotStore.save(snapshotKey, summaryData);
+        
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "data", summaryData
+        ));
+    }
+
+    private ResponseEntity<?> summaryReportFailure(Throwable e) {
+        e.printStackTrace();
+        return ResponseEntity.ok(Map.of(
+            "success", false,
+            "message", "Ошибка получения сводного отчета: " + e.getMessage()
+        ));
     }
 
     /**
@@ -627,15 +698,14 @@ public class AnalyticsController {
             LocalDate startDate = endDate.minusDays(90); // 3 месяца для ABC-анализа
             
             JsonNode salesReport = wildberriesApiService.getSalesReport(apiKey, startDate, endDate);
+            String snapshotKey = WbSnapshotStore.key("abc-analysis", apiKey);
             
-            if (salesReport == null || !salesReport.isArray() || salesReport.size() == 0) {
-                return ResponseEntity.status(503).body(Map.of(
-                    "success", false,
-                    "message", "API Wildberries временно недоступен"
-                ));
+            if (salesReport == null || !salesReport.isArray()) {
+                return staleSnapshotOrUnavailable(snapshotKey);
             }
             
             Map<String, Object> abcData = processAbcAnalysisData(salesReport);
+            snapshotStore.save(snapshotKey, abcData);
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -742,37 +812,83 @@ public class AnalyticsController {
     }
 
     /**
-     * СИНХРОНИЗАЦИЯ - Загрузка данных из Wildberries API
+     * СИНХРОНИЗАЦИЯ - Постановка загрузки данных из Wildberries API в очередь.
+     * Возвращает id задания; ход загрузки - GET /sync/{jobId}
      */
     @PostMapping("/sync")
     public ResponseEntity<?> syncAnalytics(Authentication auth,
-                                         @RequestParam(value = "days", defaultValue = "30") int days) {
+                                         @RequestParam(value = "days", defaultValue = "30") int days,
+                                         @RequestParam(value = "sellerId", required = false) Long sellerId) {
         try {
             User user = getUserFromAuth(auth);
             
-            if (user.getWildberriesApiKey() == null || user.getWildberriesApiKey().trim().isEmpty()) {
-                return ResponseEntity.ok(Map.of(
-                    "success", false,
-                    "message", "API ключ Wildberries не установлен"
-                ));
+            SyncJobService.SyncJob job;
+            if (sellerId != null) {
+                Optional<Seller> seller = sellerRepository.findByIdWithUser(sellerId)
+                    .filter(found -> found.getUser().getId().equals(user.getId()));
+                if (seller.isEmpty()) {
+                    return ResponseEntity.ok(Map.of(
+                        "success", false,
+                        "message", "Продавец не найден"
+                    ));
+                }
+                if (seller.get().getWbApiKey() == null || seller.get().getWbApiKey().trim().isEmpty()) {
+                    return ResponseEntity.ok(Map.of(
+                        "success", false,
+                        "message", "API ключ не установлен для данного продавца"
+                    ));
+                }
+                job = syncJobService.submitSellerSync(seller.get(), days);
+            } else {
+                if (user.getWildberriesApiKey() == null || user.getWildberriesApiKey().trim().isEmpty()) {
+                    return ResponseEntity.ok(Map.of(
+                        "success", false,
+                        "message", "API ключ Wildberries не установлен"
+                    ));
+                }
+                job = syncJobService.submitUserSync(user, days);
             }
             
-            LocalDate endDate = LocalDate.now();
-            LocalDate startDate = endDate.minusDays(days);
+            return ResponseEntity.accepted().body(Map.of(
+                "success", true,
+                "message", "Синхронизация поставлена в очередь",
+                "data", job.toMap()
+            ));
             
-            // Выполняем синхронизацию данных
-            wildberriesApiService.syncAnalyticsData(user, startDate, endDate);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.ok(Map.of(
+                "success", false,
+                "message", "Ошибка синхронизации: " + e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * СТАТУС СИНХРОНИЗАЦИИ - фаза, обработанные строки и оценка оставшегося времени
+     */
+    @GetMapping("/sync/{jobId}")
+    public ResponseEntity<?> getSyncJob(Authentication auth, @PathVariable String jobId) {
+        try {
+            User user = getUserFromAuth(auth);
+            SyncJobService.SyncJob job = syncJobService.findJob(jobId, user.getId());
+            if (job == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                    "success", false,
+                    "message", "Задание синхронизации не найдено"
+                ));
+            }
             
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "message", "Синхронизация завершена успешно"
+                "data", job.toMap()
             ));
             
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.ok(Map.of(
                 "success", false,
-                "message", "Ошибка синхронизации: " + e.getMessage()
+                "message", "Ошибка получения статуса синхронизации: " + e.getMessage()
             ));
         }
     }
@@ -1432,212 +1548,6 @@ public class AnalyticsController {
         return result;
     }
     
-    /**
-     * ABC АНАЛИЗ - Обработка данных для ABC анализа товаров
-     */
-    private Map<String, Object> processAbcAnalysis(JsonNode salesReport, String supplierId) {
-        Map<String, Object> result = new HashMap<>();
-        List<Map<String, Object>> products = new ArrayList<>();
-        
-        try {
-            if (salesReport.isArray()) {
-                double totalRevenue = 0;
-                
-                // Собираем данные по товарам
-                for (JsonNode item : salesReport) {
-                    Map<String, Object> productData = new HashMap<>();
-                    
-                    // Основные поля
-                    Long nmId = item.has("nmId") ? item.get("nmId").asLong() : 0L;
-                    String vendorCode = item.has("supplierArticle") ? item.get("supplierArticle").asText() : "N/A";
-                    String brandName = item.has("brand") ? item.get("brand").asText() : "N/A";
-                    String subjectName = item.has("subject") ? item.get("subject").asText() : "N/A";
-                    
-                    productData.put("nmId", nmId);
-                    productData.put("vendorCode", vendorCode);
-                    productData.put("brandName", brandName);
-                    productData.put("subjectName", subjectName);
-                    productData.put("name", brandName + " - " + subjectName);
-                    
-                    // Семейка (группа товаров)
-                    productData.put("family", 1); // Базовое значение, можно группировать по категориям
-                    
-                    // Количество заказов
-                    int orders = 0;
-                    if (item.has("quantity")) {
-                        orders = item.get("quantity").asInt();
-                    }
-                    productData.put("orders", orders);
-                    
-                    // Выручка
-                    double revenue = 0;
-                    if (item.has("forPay")) {
-                        revenue = item.get("forPay").asDouble();
-                    } else if (item.has("totalPrice")) {
-                        revenue = item.get("totalPrice").asDouble();
-                    }
-                    productData.put("revenue", revenue);
-                    totalRevenue += revenue;
-                    
-                    // Средняя цена
-                    double avgPrice = orders > 0 ? revenue / orders : 0;
-                    productData.put("avgPrice", avgPrice);
-                    
-                    // Дополнительные поля для анализа
-                    if (item.has("ppvzForPay")) {
-                        productData.put("commission", item.get("ppvzForPay").asDouble());
-                    }
-                    if (item.has("salePrice")) {
-                        productData.put("salePrice", item.get("salePrice").asDouble());
-                    }
-                    if (item.has("priceWithDisc")) {
-                        productData.put("priceWithDiscount", item.get("priceWithDisc").asDouble());
-                    }
-                    
-                    // Склад
-                    if (item.has("warehouseName")) {
-                        productData.put("warehouse", item.get("warehouseName").asText());
-                    }
-                    
-                    // Дата
-                    if (item.has("date")) {
-                        productData.put("date", item.get("date").asText());
-                    }
-                    
-                    products.add(productData);
-                }
-                
-                // Сортируем по выручке по убыванию
-                products.sort((a, b) -> Double.compare(
-                    (Double) b.get("revenue"), (Double) a.get("revenue")));
-                
-                // Вычисляем проценты и кумулятивные значения
-                for (int i = 0; i < products.size(); i++) {
-                    Map<String, Object> product = products.get(i);
-                    double revenue = (Double) product.get("revenue");
-                    
-                    // Процент от общей выручки
-                    double revenuePercent = totalRevenue > 0 ? (revenue / totalRevenue) * 100 : 0;
-                    product.put("revenuePercent", revenuePercent);
-                    
-                    // Кумулятивный процент
-                    double cumulativePercent = 0;
-                    for (int j = 0; j <= i; j++) {
-                        cumulativePercent += (Double) products.get(j).get("revenuePercent");
-                    }
-                    product.put("cumulativePercent", cumulativePercent);
-                    
-                    // Определяем ABC категорию
-                    String abcCategory;
-                    if (cumulativePercent <= 80) {
-                        abcCategory = "A";
-                    } else if (cumulativePercent <= 95) {
-                        abcCategory = "B";
-                    } else {
-                        abcCategory = "C";
-                    }
-                    product.put("abcCategory", abcCategory);
-                    
-                    // Номер по порядку
-                    product.put("number", i + 1);
-                    
-                    // Коэффициент отклонения от среднего
-                    double avgRevenue = totalRevenue / products.size();
-                    double deviation = avgRevenue > 0 ? revenue / avgRevenue : 0;
-                    product.put("deviationCoeff", deviation);
-                }
-                
-                // Группируем по категориям A, B, C
-                List<Map<String, Object>> categoryA = new ArrayList<>();
-                List<Map<String, Object>> categoryB = new ArrayList<>();
-                List<Map<String, Object>> categoryC = new ArrayList<>();
-                
-                for (Map<String, Object> product : products) {
-                    String category = (String) product.get("abcCategory");
-                    switch (category) {
-                        case "A":
-                            categoryA.add(product);
-                            break;
-                        case "B":
-                            categoryB.add(product);
-                            break;
-                        case "C":
-                            categoryC.add(product);
-                            break;
-                    }
-                }
-                
-                // Считаем проценты категорий
-                double categoryAPercent = totalRevenue > 0 ? 
-                    categoryA.stream().mapToDouble(p -> (Double) p.get("revenue")).sum() / totalRevenue * 100 : 0;
-                double categoryBPercent = totalRevenue > 0 ? 
-                    categoryB.stream().mapToDouble(p -> (Double) p.get("revenue")).sum() / totalRevenue * 100 : 0;
-                double categoryCPercent = totalRevenue > 0 ? 
-                    categoryC.stream().mapToDouble(p -> (Double) p.get("revenue")).sum() / totalRevenue * 100 : 0;
-                
-                // Создаем структуру результата
-                Map<String, Object> categories = new HashMap<>();
-                categories.put("A", Map.of(
-                    "count", categoryA.size(),
-                    "products", categoryA,
-                    "percentage", categoryAPercent
-                ));
-                categories.put("B", Map.of(
-                    "count", categoryB.size(),
-                    "products", categoryB,
-                    "percentage", categoryBPercent
-                ));
-                categories.put("C", Map.of(
-                    "count", categoryC.size(),
-                    "products", categoryC,
-                    "percentage", categoryCPercent
-                ));
-                
-                result.put("products", products);
-                result.put("categories", categories);
-                result.put("totalSales", totalRevenue);
-                result.put("totalProducts", products.size());
-                
-                // Сводная информация
-                Map<String, Object> summary = new HashMap<>();
-                summary.put("totalProducts", products.size());
-                summary.put("totalRevenue", totalRevenue);
-                summary.put("categoryACount", categoryA.size());
-                summary.put("categoryBCount", categoryB.size());
-                summary.put("categoryCCount", categoryC.size());
-                summary.put("categoryAPercent", categoryAPercent);
-                summary.put("categoryBPercent", categoryBPercent);
-                summary.put("categoryCPercent", categoryCPercent);
-                
-                result.put("summary", summary);
-                
-            } else {
-                result.put("products", new ArrayList<>());
-                result.put("categories", Map.of(
-                    "A", Map.of("count", 0, "products", new ArrayList<>(), "percentage", 0.0),
-                    "B", Map.of("count", 0, "products", new ArrayList<>(), "percentage", 0.0),
-                    "C", Map.of("count", 0, "products", new ArrayList<>(), "percentage", 0.0)
-                ));
-                result.put("totalSales", 0.0);
-                result.put("totalProducts", 0);
-                result.put("message", "Нет данных для ABC анализа");
-            }
-            
-        } catch (Exception e) {
-            result.put("error", "Ошибка обработки ABC анализа: " + e.getMessage());
-            result.put("products", new ArrayList<>());
-            result.put("categories", Map.of(
-                "A", Map.of("count", 0, "products", new ArrayList<>(), "percentage", 0.0),
-                "B", Map.of("count", 0, "products", new ArrayList<>(), "percentage", 0.0),
-                "C", Map.of("count", 0, "products", new ArrayList<>(), "percentage", 0.0)
-            ));
-            result.put("totalSales", 0.0);
-            result.put("totalProducts", 0);
-        }
-        
-        return result;
-    }
-
     /**
      * Обработка расширенного финансового отчета из Finance API
      * Включает детализацию по всем финансовым показателям
@@ -2333,45 +2243,41 @@ public class AnalyticsController {
     }
 
     /**
-     * Создание данных недельного финансового отчета
+     * Создание данных недельного финансового отчета из недельных агрегатов продавцов пользователя
      */
     private Map<String, Object> createWeeklyFinancialReportData(User user, int days) {
         List<Map<String, Object>> weeklyData = new ArrayList<>();
         
-        // Генерируем данные по неделям за последние 4 недели
-        for (int week = 1; week <= 4; week++) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(days).with(DayOfWeek.MONDAY);
+        List<Seller> sellers = sellerRepository.findByUserAndIsActiveTrue(user);
+        List<WeeklyFinancialReport> reports = sellers.isEmpty()
+            ? List.of()
+            : weeklyFinancialReportRepository.findSellerTotalsByDateRange(sellers, startDate, endDate);
+        
+        // Недели нескольких продавцов складываются
+        Map<LocalDate, List<WeeklyFinancialReport>> byWeek = reports.stream()
+            .collect(Collectors.groupingBy(WeeklyFinancialReport::getDatePeriod, TreeMap::new, Collectors.toList()));
+        for (Map.Entry<LocalDate, List<WeeklyFinancialReport>> week : byWeek.entrySet()) {
+            List<WeeklyFinancialReport> rows = week.getValue();
+            LocalDate weekStart = week.getKey();
             Map<String, Object> weekData = new HashMap<>();
             
-            weekData.put("week", "Неделя " + week);
-            weekData.put("date", String.format("0%d.06 - %d.06", week * 7 - 6, week * 7));
-            
-            int buyoutQty = 50 + (week * 20);
-            double salesWb = buyoutQty * (1500 + week * 200);
-            double paymentForProduct = salesWb * 0.85; // к перечислению за товар
-            double logistics = buyoutQty * 120; // логистика
-            double storage = buyoutQty * 25; // хранение
-            double acceptance = buyoutQty * 15; // приемка
-            double fine = Math.max(0, (week - 2) * 500); // штраф
-            double advertising = salesWb * 0.12; // удержания/реклама
-            double toPay = paymentForProduct - logistics - storage - acceptance - fine - advertising;
-            double tax = toPay * 0.07; // налог
-            double otherExpenses = salesWb * 0.03; // прочие расходы
-            double costOfGoodsSold = buyoutQty * (600 + week * 50); // себестоимость проданного товара
-            double netProfit = toPay - tax - otherExpenses - costOfGoodsSold;
-            
-            weekData.put("buyoutQty", buyoutQty);
-            weekData.put("salesWb", (double) Math.round(salesWb));
-            weekData.put("paymentForProduct", (double) Math.round(paymentForProduct));
-            weekData.put("logistics", (double) Math.round(logistics));
-            weekData.put("storage", (double) Math.round(storage));
-            weekData.put("acceptance", (double) Math.round(acceptance));
-            weekData.put("fine", (double) Math.round(fine));
-            weekData.put("advertising", (double) Math.round(advertising));
-            weekData.put("toPay", (double) Math.round(toPay));
-            weekData.put("tax", (double) Math.round(tax));
-            weekData.put("otherExpenses", (double) Math.round(otherExpenses));
-            weekData.put("costOfGoodsSold", (double) Math.round(costOfGoodsSold));
-            weekData.put("netProfit", (double) Math.round(netProfit));
+            weekData.put("week", "Неделя " + rows.get(0).getWeekNumber());
+            weekData.put("date", weekStart + " - " + weekStart.plusDays(6));
+            weekData.put("buyoutQty", (int) sumWeekly(rows, WeeklyFinancialReport::getBuyoutQuantity));
+            weekData.put("salesWb", sumWeekly(rows, WeeklyFinancialReport::getWbSales));
+            weekData.put("paymentForProduct", sumWeekly(rows, WeeklyFinancialReport::getToRecalculationForGoods));
+            weekData.put("logistics", sumWeekly(rows, WeeklyFinancialReport::getLogistics));
+            weekData.put("storage", sumWeekly(rows, WeeklyFinancialReport::getStorage));
+            weekData.put("acceptance", sumWeekly(rows, WeeklyFinancialReport::getAcceptance));
+            weekData.put("fine", sumWeekly(rows, WeeklyFinancialReport::getPenalty));
+            weekData.put("advertising", sumWeekly(rows, WeeklyFinancialReport::getDeductionsAdvertising));
+            weekData.put("toPay", sumWeekly(rows, WeeklyFinancialReport::getToPayout));
+            weekData.put("tax", sumWeekly(rows, WeeklyFinancialReport::getTax));
+            weekData.put("otherExpenses", sumWeekly(rows, WeeklyFinancialReport::getOtherExpenses));
+            weekData.put("costOfGoodsSold", sumWeekly(rows, WeeklyFinancialReport::getCostOfGoodsSold));
+            weekData.put("netProfit", sumWeekly(rows, WeeklyFinancialReport::getNetProfit));
             
             weeklyData.add(weekData);
         }
@@ -2387,6 +2293,15 @@ public class AnalyticsController {
         return Map.of("weeklyData", weeklyData, "summary", summary);
     }
 
+    private static double sumWeekly(List<WeeklyFinancialReport> rows,
+                                    Function<WeeklyFinancialReport, BigDecimal> metric) {
+        return rows.stream()
+            .map(metric)
+            .filter(Objects::nonNull)
+            .mapToDouble(BigDecimal::doubleValue)
+            .sum();
+    }
+
     /**
      * Создание данных учета акций
      */
@@ -2563,10 +2478,19 @@ public class AnalyticsController {
                 ));
             }
             
-            // В реальном приложении здесь был бы вызов API
+            // Продажи за 3 месяца, как в /abc-analysis; без продаж - демо данные
+            LocalDate endDate = LocalDate.now();
+            JsonNode salesReport = wildberriesApiService.getSalesReport(apiKey, endDate.minusDays(90), endDate);
+            if (salesReport == null || !salesReport.isArray() || salesReport.size() == 0) {
+                return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "data", getDemoAbcData()
+                ));
+            }
+            
             return ResponseEntity.ok(Map.of(
                 "success", true,
-                "data", getDemoAbcData()
+                "data", processAbcAnalysisData(salesReport)
             ));
             
         } catch (Exception e) {
@@ -2625,92 +2549,29 @@ public class AnalyticsController {
     }
     
     /**
-     * Возвращает демо данные для ABC анализа
+     * Возвращает демо данные для ABC анализа: демо строки продаж проходят через AbcAnalysisEngine,
+     * поэтому ответ имеет ту же форму {items, summary}, что и по реальным продажам
      */
     private Map<String, Object> getDemoAbcData() {
-        Map<String, Object> demoData = new HashMap<>();
-        
-        // Группа A - топ товары (> 150% от среднего)
-        List<Map<String, Object>> groupA = new ArrayList<>();
-        groupA.add(Map.of(
-            "product", "Кроссовки спортивные", 
-            "revenue", 210000, 
-            "margin", 53.8, 
-            "category", "A", 
-            "percent", 24.5,
-            "cumulativePercent", 24.5,
-            "deviationCoeff", 1.8,
-            "avgPrice", 5000,
-            "orders", 48
-        ));
-        groupA.add(Map.of(
-            "product", "Худи с принтом", 
-            "revenue", 174000, 
-            "margin", 42.9, 
-            "category", "A", 
-            "percent", 20.3,
-            "cumulativePercent", 44.8,
-            "deviationCoeff", 1.6,
-            "avgPrice", 3000,
-            "orders", 63
-        ));
-        
-        // Группа B - средние товары (100-150% от среднего)
-        List<Map<String, Object>> groupB = new ArrayList<>();
-        groupB.add(Map.of(
-            "product", "Джинсы классические", 
-            "revenue", 167500, 
-            "margin", 53.9, 
-            "category", "B", 
-            "percent", 19.5,
-            "cumulativePercent", 64.3,
-            "deviationCoeff", 1.3,
-            "avgPrice", 2500,
-            "orders", 74
-        ));
-        groupB.add(Map.of(
-            "product", "Футболка базовая", 
-            "revenue", 127500, 
-            "margin", 42.8, 
-            "category", "B", 
-            "percent", 14.9,
-            "cumulativePercent", 79.2,
-            "deviationCoeff", 1.1,
-            "avgPrice", 1500,
-            "orders", 92
-        ));
-        
-        // Группа C - слабые товары (< 100% от среднего)
-        List<Map<String, Object>> groupC = new ArrayList<>();
-        groupC.add(Map.of(
-            "product", "Рюкзак городской", 
-            "revenue", 93000, 
-            "margin", 42.8, 
-            "category", "C", 
-            "percent", 10.8,
-            "cumulativePercent", 90.0,
-            "deviationCoeff", 0.8,
-            "avgPrice", 3000,
-            "orders", 35
-        ));
-        groupC.add(Map.of(
-            "product", "Кепка летняя", 
-            "revenue", 86000, 
-            "margin", 38.2, 
-            "category", "C", 
-            "percent", 10.0,
-            "cumulativePercent", 100.0,
-            "deviationCoeff", 0.7,
-            "avgPrice", 800,
-            "orders", 28
-        ));
-        
-        demoData.put("groupA", groupA);
-        demoData.put("groupB", groupB);
-        demoData.put("groupC", groupC);
-        demoData.put("totalProducts", groupA.size() + groupB.size() + groupC.size());
-        
-        return demoData;
+        ArrayNode lines = JsonNodeFactory.instance.arrayNode();
+        addDemoAbcLine(lines, 100001L, "Кроссовки спортивные", "Обувь", 210000, 48);
+        addDemoAbcLine(lines, 100002L, "Худи с принтом", "Одежда", 174000, 63);
+        addDemoAbcLine(lines, 100003L, "Джинсы классические", "Одежда", 167500, 74);
+        addDemoAbcLine(lines, 100004L, "Футболка базовая", "Одежда", 127500, 92);
+        addDemoAbcLine(lines, 100005L, "Рюкзак городской", "Аксессуары", 93000, 35);
+        addDemoAbcLine(lines, 100006L, "Кепка летняя", "Аксессуары", 86000, 28);
+        return abcAnalysisEngine.analyze(lines);
+    }
+
+    private static void addDemoAbcLine(ArrayNode lines, long nmId, String product, String subject,
+                                       double revenue, long orders) {
+        lines.addObject()
+            .put("nmId", nmId)
+            .put("supplierArticle", product)
+            .put("subject", subject)
+            .put("brand", "Demo")
+            .put("forPay", revenue)
+            .put("quantity", orders);
     }
     
     /**
@@ -3247,123 +3108,11 @@ public class AnalyticsController {
     */
 
     /**
-     * Обработка данных для ABC-анализа
+     * Обработка данных для ABC-анализа (AbcAnalysisEngine: свертка по nmId и один проход по отсортированным товарам)
      */
     private Map<String, Object> processAbcAnalysisData(JsonNode salesReport) {
-        Map<String, Object> result = new HashMap<>();
-        
-        try {
-            // Группируем данные по товарам (nmId)
-            Map<Long, Map<String, Object>> productMap = new HashMap<>();
-            
-            for (JsonNode item : salesReport) {
-                if (!item.has("nmid")) continue;
-                
-                Long nmId = item.get("nmid").asLong();
-                double revenue = 0;
-                int quantity = 0;
-                
-                // Суммируем выручку и количество
-                if (item.has("ppvz_reward")) {
-                    revenue += item.get("ppvz_reward").asDouble();
-                }
-                if (item.has("quantity")) {
-                    quantity += item.get("quantity").asInt();
-                }
-                
-                productMap.computeIfAbsent(nmId, k -> {
-                    Map<String, Object> product = new HashMap<>();
-                    product.put("nmId", nmId);
-                    product.put("revenue", 0.0);
-                    product.put("quantity", 0);
-                    if (item.has("sa_name")) product.put("brandName", item.get("sa_name").asText());
-                    if (item.has("ts_name")) product.put("subjectName", item.get("ts_name").asText());
-                    return product;
-                });
-                
-                Map<String, Object> product = productMap.get(nmId);
-                product.put("revenue", (Double) product.get("revenue") + revenue);
-                product.put("quantity", (Integer) product.get("quantity") + quantity);
-            }
-            
-            // Сортируем по выручке
-            List<Map<String, Object>> products = new ArrayList<>(productMap.values());
-            products.sort((a, b) -> Double.compare((Double) b.get("revenue"), (Double) a.get("revenue")));
-            
-            // Рассчитываем общую выручку
-            double totalRevenue = products.stream()
-                .mapToDouble(p -> (Double) p.get("revenue"))
-                .sum();
-            
-            // Присваиваем классы ABC
-            double cumulativeRevenue = 0;
-            int classACount = 0, classBCount = 0, classCCount = 0;
-            double classARevenue = 0, classBRevenue = 0, classCRevenue = 0;
-            
-            for (Map<String, Object> product : products) {
-                double revenue = (Double) product.get("revenue");
-                cumulativeRevenue += revenue;
-                double percentage = (cumulativeRevenue / totalRevenue) * 100;
-                
-                String abcClass;
-                if (percentage <= 80) {
-                    abcClass = "A";
-                    classACount++;
-                    classARevenue += revenue;
-                } else if (percentage <= 95) {
-                    abcClass = "B";
-                    classBCount++;
-                    classBRevenue += revenue;
-                } else {
-                    abcClass = "C";
-                    classCCount++;
-                    classCRevenue += revenue;
-                }
-                
-                product.put("abcClass", abcClass);
-                product.put("revenuePercent", (revenue / totalRevenue) * 100);
-                product.put("cumulativePercent", percentage);
-            }
-            
-            // Формируем итоговые данные
-            Map<String, Object> summary = new HashMap<>();
-            summary.put("totalProducts", products.size());
-            summary.put("totalRevenue", totalRevenue);
-            
-            summary.put("classA", Map.of(
-                "count", classACount,
-                "revenue", classARevenue,
-                "percent", (classARevenue / totalRevenue) * 100
-            ));
-            summary.put("classB", Map.of(
-                "count", classBCount,
-                "revenue", classBRevenue,
-                "percent", (classBRevenue / totalRevenue) * 100
-            ));
-            summary.put("classC", Map.of(
-                "count", classCCount,
-                "revenue", classCRevenue,
-                "percent", (classCRevenue / totalRevenue) * 100
-            ));
-            
-            result.put("products", products);
-            result.put("summary", summary);
-            
-            System.out.println("✅ ABC-анализ обработан: " + products.size() + " товаров");
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            result.put("error", "Ошибка обработки ABC-анализа: " + e.getMessage());
-            result.put("products", new ArrayList<>());
-            result.put("summary", Map.of(
-                "totalProducts", 0,
-                "totalRevenue", 0.0,
-                "classA", Map.of("count", 0, "revenue", 0.0, "percent", 0.0),
-                "classB", Map.of("count", 0, "revenue", 0.0, "percent", 0.0),
-                "classC", Map.of("count", 0, "revenue", 0.0, "percent", 0.0)
-            ));
-        }
-        
+        Map<String, Object> result = abcAnalysisEngine.analyze(salesReport);
+        System.out.println("✅ ABC-анализ обработан: " + ((List<?>) result.get("items")).size() + " товаров");
         return result;
     }
 }
@@ -0,0 +1,44 @@
+package org.example.controller;
+
+import org.example.entity.User;
+import org.example.repository.UserRepository;
+import org.example.service.SyncEventStreams;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:3002"})
+public class AnalyticsEventsController {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SyncEventStreams syncEventStreams;
+
+    /**
+     * Helper метод для получения пользователя из Authentication
+     */
+    private User getUserFromAuth(Authentication auth) {
+        String userEmail = auth.getName();
+        return userRepository.findByEmail(userEmail)
+                .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+    }
+
+    /**
+     * СОБЫТИЯ - поток хода синхронизации пользователя (Server-Sent Events).
+     * События: report-started, rows-ingested, report-fetched, report-failed,
+     * rollups-rebuilt, sync-done, sync-failed; при переполнении буфера - events-dropped.
+     * Заменяет периодический опрос GET /sync/{jobId}.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(Authentication auth) {
+        User user = getUserFromAuth(auth);
+        System.out.println("📡 SSE подписка на события синхронизации: " + user.getEmail());
+        return syncEventStreams.open(user.getId());
+    }
+}
@@ -122,20 +122,16 @@ public class EnhancedAnalyticsController {
             LocalDate endDate = LocalDate.now();
             LocalDate startDate = endDate.minusWeeks(weeks);
             
-            List<WeeklyFinancialReport> reports = weeklyFinancialReportRepository.findBySellerAndDateRange(
-                seller, startDate, endDate);
-
-            // Создаем тестовые данные если таблица пуста
-            if (reports.isEmpty()) {
-                reports = generateTestWeeklyReports(seller, weeks);
-            }
+            // Недельные итоги продавца готовы в weekly_financial_reports (агрегаты детализации реализации)
+            List<WeeklyFinancialReport> reports = weeklyFinancialReportRepository.findSellerTotalsByDateRange(
+                List.of(seller), startDate, endDate);
 
             Map<String, Object> response = new HashMap<>();
             response.put("seller", Map.of(
                 "id", seller.getId(),
                 "name", seller.getSellerName()
             ));
-            response.put("data", reports);
+            response.put("data", reports.stream().map(this::weeklyReportRow).toList());
             response.put("dateRange", Map.of(
                 "start", startDate,
                 "end", endDate
@@ -293,9 +289,9 @@ public class EnhancedAnalyticsController {
 
             // Недельные отчеты (последние 4 недели)
             LocalDate fourWeeksAgo = LocalDate.now().minusWeeks(4);
-            List<WeeklyFinancialReport> recentReports = weeklyFinancialReportRepository.findBySellerAndDateRange(
-                seller, fourWeeksAgo, LocalDate.now());
-            dashboardData.put("weeklyReports", recentReports);
+            List<WeeklyFinancialReport> recentReports = weeklyFinancialReportRepository.findSellerTotalsByDateRange(
+                List.of(seller), fourWeeksAgo, LocalDate.now());
+            dashboardData.put("weeklyReports", recentReports.stream().map(this::weeklyReportRow).toList());
 
             // Критичные остатки
             List<SupplyPlanning> criticalStock = supplyPlanningRepository.findCriticalStock(seller, BigDecimal.valueOf(7));
@@ -362,23 +358,25 @@ public class EnhancedAnalyticsController {
         return testData;
     }
 
-    private List<WeeklyFinancialReport> generateTestWeeklyReports(Seller seller, int weeks) {
-        List<WeeklyFinancialReport> testData = new ArrayList<>();
-        
-        for (int i = 0; i < weeks; i++) {
-            WeeklyFinancialReport report = new WeeklyFinancialReport();
-            report.setSeller(seller);
-            report.setWeekNumber(52 - i);
-            report.setDatePeriod(LocalDate.now().minusWeeks(i));
-            report.setBuyoutQuantity(BigDecimal.valueOf(100 + i * 10));
-            report.setWbSales(BigDecimal.valueOf(50000 + i * 5000));
-            report.setLogistics(BigDecimal.valueOf(5000 + i * 500));
-            report.setNetProfit(BigDecimal.valueOf(15000 + i * 1500));
-            
-            testData.add(report);
-        }
-        
-        return testData;
+    /**
+     * Строка недельного отчета для ответа (без ленивых связей сущности)
+     */
+    private Map<String, Object> weeklyReportRow(WeeklyFinancialReport report) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("weekNumber", report.getWeekNumber());
+        row.put("datePeriod", report.getDatePeriod());
+        row.put("buyoutQuantity", report.getBuyoutQuantity());
+        row.put("wbSales", report.getWbSales());
+        row.put("toRecalculationForGoods", report.getToRecalculationForGoods());
+        row.put("logistics", report.getLogistics());
+        row.put("storage", report.getStorage());
+        row.put("penalty", report.getPenalty());
+        row.put("deductionsAdvertising", report.getDeductionsAdvertising());
+        row.put("toPayout", report.getToPayout());
+        row.put("costOfGoodsSold", report.getCostOfGoodsSold());
+        row.put("netProfit", report.getNetProfit());
+        row.put("updatedAt", report.getUpdatedAt());
+        return row;
     }
 
     private List<PromotionsTracking> generateTestPromotions(Seller seller) {
@@ -5,13 +5,19 @@ import org.example.entity.*;
 import org.example.repository.*;
 import org.example.service.WildberriesApiService;
 import org.example.service.SubscriptionService;
+import org.example.service.wildberries.WbReport;
+import org.example.service.wildberries.WbReportBundle;
+import org.example.service.wildberries.WildberriesReactiveClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -28,6 +34,9 @@ public class ExcelAnalyticsController {
     @Autowired
     private WildberriesApiService wildberriesApiService;
 
+    @Autowired
+    private WildberriesReactiveClient wildberriesReactiveClient;
+
     @Autowired
     private UnitEconomicsRepository unitEconomicsRepository;
 
@@ -37,6 +46,9 @@ public class ExcelAnalyticsController {
     @Autowired
     private WeeklyFinancialReportRepository weeklyFinancialReportRepository;
 
+    @Autowired
+    private ArticleDailyRollupRepository articleDailyRollupRepository;
+
     @Autowired
     private PromotionsTrackingRepository promotionsTrackingRepository;
 
@@ -86,13 +98,24 @@ public class ExcelAnalyticsController {
         return sellers.get(0); // Берем первого активного продавца
     }
 
+    /**
+     * Ответ с ошибкой в формате эндпоинтов контроллера
+     */
+    private ResponseEntity<?> failure(String message, Throwable e) {
+        e.printStackTrace();
+        return ResponseEntity.ok(Map.of(
+            "success", false,
+            "message", message + e.getMessage()
+        ));
+    }
+
     /**
      * ФИНАНСОВАЯ ТАБЛИЦА - аналог листа "Фин таблица" из Excel
      * Реализует ВПР-логику для связывания данных между таблицами
      * ИСПОЛЬЗУЕТ РЕАЛЬНЫЕ ДАННЫЕ ИЗ API WILDBERRIES
      */
     @GetMapping("/financial-table")
-    public ResponseEntity<?> getFinancialTable(
+    public Mono<ResponseEntity<?>> getFinancialTable(
             Authentication auth,
             @RequestParam(value = "days", defaultValue = "30") int days) {
         try {
@@ -100,82 +123,88 @@ public class ExcelAnalyticsController {
             
             // 🔒 ПРОВЕРКА ПОДПИСКИ
             ResponseEntity<?> subscriptionCheck = checkSubscriptionAccess(user);
-            if (subscriptionCheck != null) return subscriptionCheck;
+            if (subscriptionCheck != null) return Mono.just(subscriptionCheck);
             
             if (user.getWildberriesApiKey() == null || user.getWildberriesApiKey().trim().isEmpty()) {
-                return ResponseEntity.ok(Map.of(
+                return Mono.just(ResponseEntity.ok(Map.of(
                     "success", false,
                     "message", "API ключ Wildberries не установлен"
-                ));
+                )));
             }
 
             LocalDate endDate = LocalDate.now();
             LocalDate startDate = endDate.minusDays(days);
 
-            // 🔥 РЕАЛЬНЫЕ ДАННЫЕ: Получаем финансовый отчет из WB API
-            JsonNode financeReport = wildberriesApiService.getFinanceReport(
-                user.getWildberriesApiKey(), startDate, endDate);
-            
-            // 🔥 РЕАЛЬНЫЕ ДАННЫЕ: Получаем отчет по продажам
-            JsonNode salesReport = wildberriesApiService.getSalesReport(
-                user.getWildberriesApiKey(), startDate, endDate);
-
-            // 🔥 РЕАЛЬНЫЕ ДАННЫЕ: Получаем остатки
-            JsonNode stocksReport = wildberriesApiService.getStocksReport(
-                user.getWildberriesApiKey(), startDate);
-
             // Получаем данные юнит-экономики из БД
             Seller seller = getSellerFromUser(user);
             List<UnitEconomics> unitEconomics = unitEconomicsRepository.findBySellerOrderByCalculationDateDesc(seller);
             
-            // Получаем финансовые данные из БД
-            List<WeeklyFinancialReport> weeklyReports = weeklyFinancialReportRepository.findBySellerOrderByDatePeriodDesc(seller);
+            // Недельные итоги продавца за период - готовые агрегаты детализации реализации
+            List<WeeklyFinancialReport> weeklyReports = weeklyFinancialReportRepository.findSellerTotalsByDateRange(
+                List.of(seller), startDate.with(DayOfWeek.MONDAY), endDate);
             
-            List<Map<String, Object>> financialTableData = new ArrayList<>();
+            // 🔥 РЕАЛЬНЫЕ ДАННЫЕ: продажи и остатки запрашиваем из WB API параллельно,
+            // поток запроса при этом не ждет - ответ допишется, когда придут оба отчета
+            return wildberriesReactiveClient
+                .fetchBundle(user.getWildberriesApiKey(), startDate, endDate, WbReport.SALES, WbReport.STOCKS)
+                .timeout(WildberriesReactiveClient.FAN_OUT_TIMEOUT)
+                .publishOn(Schedulers.boundedElastic())
+                .<ResponseEntity<?>>map(reports -> buildFinancialTable(reports, seller, unitEconomics, weeklyReports, startDate, endDate))
+                .onErrorResume(e -> Mono.just(failure("Ошибка получения финансовой таблицы: ", e)));
             
-            // Группируем данные из API по артикулам
-            Map<String, Map<String, Object>> apiDataByArticle = groupApiDataByArticle(financeReport, salesReport, stocksReport);
+        } catch (Exception e) {
+            return Mono.just(failure("Ошибка получения финансовой таблицы: ", e));
+        }
+    }
+
+    /**
+     * Сборка финансовой таблицы по загруженным отчетам WB и данным продавца из БД
+     */
+    private ResponseEntity<?> buildFinancialTable(WbReportBundle reports, Seller seller, List<UnitEconomics> unitEconomics,
+                                                  List<WeeklyFinancialReport> weeklyReports, LocalDate startDate, LocalDate endDate) {
+        // Финансовый отчет берется из того же отчета продаж (getFinanceReport делегирует в getSalesReport),
+        // поэтому второй раз его не скачиваем
+        JsonNode salesReport = reports.getSales();
+        JsonNode financeReport = salesReport;
+        JsonNode stocksReport = reports.getStocks();
+
+        List<Map<String, Object>> financialTableData = new ArrayList<>();
+        
+        // Группируем данные из API по артикулам
+        Map<String, Map<String, Object>> apiDataByArticle = groupApiDataByArticle(financeReport, salesReport, stocksReport);
+        
+        for (int i = 0; i < unitEconomics.size(); i++) {
+            UnitEconomics ue = unitEconomics.get(i);
+            Map<String, Object> row = new HashMap<>();
             
-            for (int i = 0; i < unitEconomics.size(); i++) {
-                UnitEconomics ue = unitEconomics.get(i);
-                Map<String, Object> row = new HashMap<>();
-                
-                // Нумерация для автоматизации (столбец A)
-                row.put("rowNumber", i + 1);
-                
-                // ВПР данные из юнит-экономики (столбцы B-E)
-                row.put("wbArticle", ue.getWbArticle());
-                row.put("supplierArticle", ue.getSupplierArticle());
-                row.put("grossProfit", ue.getGrossProfit());
-                row.put("costPrice", ue.getCostPrice());
-                
-                // 🔥 РЕАЛЬНЫЕ РАСЧЕТЫ: Формулы как в Excel, но с данными из API
-                Map<String, Object> calculations = calculateRealFinancialMetrics(ue, apiDataByArticle.get(ue.getWbArticle()));
-                row.putAll(calculations);
-                
-                financialTableData.add(row);
-            }
+            // Нумерация для автоматизации (столбец A)
+            row.put("rowNumber", i + 1);
             
-            // Сводная таблица понедельно (анализ с 29 строки как в Excel)
-            Map<String, Object> pivotTableData = createRealWeeklyPivotTable(financeReport, weeklyReports);
+            // ВПР данные из юнит-экономики (столбцы B-E)
+            row.put("wbArticle", ue.getWbArticle());
+            row.put("supplierArticle", ue.getSupplierArticle());
+            row.put("grossProfit", ue.getGrossProfit());
+            row.put("costPrice", ue.getCostPrice());
             
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "data", Map.of(
-                    "financialTable", financialTableData,
-                    "pivotTable", pivotTableData,
-                    "weeklyReports", getWeeklyReportSummary(weeklyReports),
-                    "apiDataSummary", createApiDataSummary(financeReport, salesReport, stocksReport)
-                )
-            ));
+            // 🔥 РЕАЛЬНЫЕ РАСЧЕТЫ: Формулы как в Excel, но с данными из API
+            Map<String, Object> calculations = calculateRealFinancialMetrics(ue, apiDataByArticle.get(ue.getWbArticle()));
+            row.putAll(calculations);
             
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.ok(Map.of(
-                "success", false,
-                "message", "Ошибка получения финансовой таблицы: " + e.getMessage()
-            ));
+            financialTableData.add(row);
         }
+        
+        // Сводная таблица понедельно (анализ с 29 строки как в Excel)
+        Map<String, Object> pivotTableData = createRealWeeklyPivotTable(seller, weeklyReports, startDate, endDate);
+        
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "data", Map.of(
+                "financialTable", financialTableData,
+                "pivotTable", pivotTableData,
+                "weeklyReports", getWeeklyReportSummary(weeklyReports),
+                "apiDataSummary", createApiDataSummary(financeReport, salesReport, stocksReport)
+            )
+        ));
     }
 
     /**
@@ -183,7 +212,7 @@ public class ExcelAnalyticsController {
      * ИСПОЛЬЗУЕТ РЕАЛЬНЫЕ ДАННЫЕ ИЗ API "ВОРОНКА ПРОДАЖ МЕСЯЦ"
      */
     @GetMapping("/abc-analysis-enhanced")
-    public ResponseEntity<?> getEnhancedAbcAnalysis(
+    public Mono<ResponseEntity<?>> getEnhancedAbcAnalysis(
             Authentication auth,
             @RequestParam(value = "days", defaultValue = "30") int days) {
         try {
@@ -191,110 +220,118 @@ public class ExcelAnalyticsController {
             
             // 🔒 ПРОВЕРКА ПОДПИСКИ
             ResponseEntity<?> subscriptionCheck = checkSubscriptionAccess(user);
-            if (subscriptionCheck != null) return subscriptionCheck;
+            if (subscriptionCheck != null) return Mono.just(subscriptionCheck);
             
             if (user.getWildberriesApiKey() == null || user.getWildberriesApiKey().trim().isEmpty()) {
-                return ResponseEntity.ok(Map.of(
+                return Mono.just(ResponseEntity.ok(Map.of(
                     "success", false,
                     "message", "API ключ Wildberries не установлен"
-                ));
+                )));
             }
 
             LocalDate endDate = LocalDate.now();
             LocalDate startDate = endDate.minusDays(days);
 
-            // 🔥 РЕАЛЬНЫЕ ДАННЫЕ: Получаем данные "воронки продаж месяц" из API
-            JsonNode salesReport = wildberriesApiService.getSalesReport(user.getWildberriesApiKey(), startDate, endDate);
-            JsonNode ordersReport = wildberriesApiService.getOrdersReport(user.getWildberriesApiKey(), startDate);
-            
             // Получаем данные карточек для склеек (если есть в БД, иначе из артикулов)
             Seller seller = getSellerFromUser(user);
             List<UnitEconomics> unitEconomics = unitEconomicsRepository.findBySellerOrderByCalculationDateDesc(seller);
             
-            // 🔥 РЕАЛЬНАЯ ОБРАБОТКА: Создаем воронку продаж из реальных данных API
-            List<Map<String, Object>> salesFunnelData = createRealSalesFunnelData(salesReport, ordersReport, unitEconomics);
-            
-            List<Map<String, Object>> abcAnalysisData = new ArrayList<>();
-            
-            for (int i = 0; i < salesFunnelData.size(); i++) {
-                Map<String, Object> salesRow = salesFunnelData.get(i);
-                Map<String, Object> row = new HashMap<>();
-                
-                // Столбец A - нумерация для автоматизации
-                row.put("rowNumber", i + 1);
-                
-                // ВПР данные (столбцы B-G) - теперь из реальных данных
-                String wbArticle = (String) salesRow.get("wbArticle");
-                String clusterGroup = (String) salesRow.get("clusterGroup");
-                
-                row.put("wbArticle", wbArticle);
-                row.put("supplierArticle", salesRow.get("supplierArticle"));
-                row.put("productName", salesRow.get("productName"));
-                row.put("clusterGroup", clusterGroup);
-                row.put("ordersCount", salesRow.get("ordersCount"));
-                row.put("averagePrice", salesRow.get("averagePrice"));
-                row.put("revenue", salesRow.get("revenue"));
-                
-                // 🔥 ФОРМУЛА СУММЕСЛИ из Excel - % выручки в группе (столбец H)
-                BigDecimal revenue = (BigDecimal) salesRow.get("revenue");
-                BigDecimal groupRevenue = calculateGroupRevenue(salesFunnelData, clusterGroup);
-                BigDecimal revenuePercent = groupRevenue.compareTo(BigDecimal.ZERO) > 0 
-                    ? revenue.divide(groupRevenue, 4, RoundingMode.HALF_UP) 
-                    : BigDecimal.ZERO;
-                row.put("revenuePercentInGroup", revenuePercent);
-                
-                // 🔥 Кумулятивный % выручки в группе (столбец I)
-                BigDecimal cumulativePercent = calculateCumulativePercent(abcAnalysisData, clusterGroup, revenuePercent);
-                row.put("cumulativeRevenuePercent", cumulativePercent);
-                
-                // 🔥 СрЗначЕсли из Excel - среднее значение в группе (столбец J)
-                BigDecimal avgRevenueInGroup = calculateAverageRevenueInGroup(salesFunnelData, clusterGroup);
-                row.put("avgRevenueInGroup", avgRevenueInGroup);
-                
-                // 🔥 Коэффициент отклонения от среднего (столбец K)
-                BigDecimal deviationCoeff = avgRevenueInGroup.compareTo(BigDecimal.ZERO) > 0 
-                    ? revenue.divide(avgRevenueInGroup, 4, RoundingMode.HALF_UP) 
-                    : BigDecimal.ZERO;
-                row.put("deviationCoefficient", deviationCoeff);
-                
-                // 🔥 Присвоение группы ABC (столбец L) - формула из Excel
-                String abcGroup = assignAbcGroup(deviationCoeff);
-                row.put("abcGroup", abcGroup);
-                
-                abcAnalysisData.add(row);
-            }
-            
-            // Общий анализ без группировки
-            Map<String, Object> overallAnalysis = createOverallAbcAnalysis(abcAnalysisData);
-            
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "data", Map.of(
-                    "abcAnalysis", abcAnalysisData,
-                    "overallAnalysis", overallAnalysis,
-                    "groupSummary", createGroupSummary(abcAnalysisData),
-                    "apiDataSummary", Map.of(
-                        "salesRecords", salesReport != null && salesReport.isArray() ? salesReport.size() : 0,
-                        "ordersRecords", ordersReport != null && ordersReport.isArray() ? ordersReport.size() : 0
-                    )
-                )
-            ));
+            // 🔥 РЕАЛЬНЫЕ ДАННЫЕ: Получаем данные "воронки продаж месяц" из API (продажи и заказы параллельно)
+            return wildberriesReactiveClient
+                .fetchBundle(user.getWildberriesApiKey(), startDate, endDate, WbReport.SALES, WbReport.ORDERS)
+                .timeout(WildberriesReactiveClient.FAN_OUT_TIMEOUT)
+                .publishOn(Schedulers.boundedElastic())
+                .<ResponseEntity<?>>map(reports -> buildEnhancedAbcAnalysis(reports, unitEconomics))
+                .onErrorResume(e -> Mono.just(failure("Ошибка получения ABC анализа: ", e)));
             
         } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.ok(Map.of(
-                "success", false,
-                "message", "Ошибка получения ABC анализа: " + e.getMessage()
-            ));
+            return Mono.just(failure("Ошибка получения ABC анализа: ", e));
         }
     }
 
+    /**
+     * ABC анализ по воронке продаж из загруженных отчетов WB
+     */
+    private ResponseEntity<?> buildEnhancedAbcAnalysis(WbReportBundle reports, List<UnitEconomics> unitEconomics) {
+        JsonNode salesReport = reports.getSales();
+        JsonNode ordersReport = reports.getOrders();
+        
+        // 🔥 РЕАЛЬНАЯ ОБРАБОТКА: Создаем воронку продаж из реальных данных API
+        List<Map<String, Object>> salesFunnelData = createRealSalesFunnelData(salesReport, ordersReport, unitEconomics);
+        
+        List<Map<String, Object>> abcAnalysisData = new ArrayList<>();
+        
+        for (int i = 0; i < salesFunnelData.size(); i++) {
+            Map<String, Object> salesRow = salesFunnelData.get(i);
+            Map<String, Object> row = new HashMap<>();
+            
+            // Столбец A - нумерация для автоматизации
+            row.put("rowNumber", i + 1);
+            
+            // ВПР данные (столбцы B-G) - теперь из реальных данных
+            String wbArticle = (String) salesRow.get("wbArticle");
+            String clusterGroup = (String) salesRow.get("clusterGroup");
+            
+            row.put("wbArticle", wbArticle);
+            row.put("supplierArticle", salesRow.get("supplierArticle"));
+            row.put("productName", salesRow.get("productName"));
+            row.put("clusterGroup", clusterGroup);
+            row.put("ordersCount", salesRow.get("ordersCount"));
+            row.put("averagePrice", salesRow.get("averagePrice"));
+            row.put("revenue", salesRow.get("revenue"));
+            
+            // 🔥 ФОРМУЛА СУММЕСЛИ из Excel - % выручки в группе (столбец H)
+            BigDecimal revenue = (BigDecimal) salesRow.get("revenue");
+            BigDecimal groupRevenue = calculateGroupRevenue(salesFunnelData, clusterGroup);
+            BigDecimal revenuePercent = groupRevenue.compareTo(BigDecimal.ZERO) > 0 
+                ? revenue.divide(groupRevenue, 4, RoundingMode.HALF_UP) 
+                : BigDecimal.ZERO;
+            row.put("revenuePercentInGroup", revenuePercent);
+            
+            // 🔥 Кумулятивный % выручки в группе (столбец I)
+            BigDecimal cumulativePercent = calculateCumulativePercent(abcAnalysisData, clusterGroup, revenuePercent);
+            row.put("cumulativeRevenuePercent", cumulativePercent);
+            
+            // 🔥 СрЗначЕсли из Excel - среднее значение в группе (столбец J)
+            BigDecimal avgRevenueInGroup = calculateAverageRevenueInGroup(salesFunnelData, clusterGroup);
+            row.put("avgRevenueInGroup", avgRevenueInGroup);
+            
+            // 🔥 Коэффициент отклонения от среднего (столбец K)
+            BigDecimal deviationCoeff = avgRevenueInGroup.compareTo(BigDecimal.ZERO) > 0 
+                ? revenue.divide(avgRevenueInGroup, 4, RoundingMode.HALF_UP) 
+                : BigDecimal.ZERO;
+            row.put("deviationCoefficient", deviationCoeff);
+            
+            // 🔥 Присвоение группы ABC (столбец L) - формула из Excel
+            String abcGroup = assignAbcGroup(deviationCoeff);
+            row.put("abcGroup", abcGroup);
+            
+            abcAnalysisData.add(row);
+        }
+        
+        // Общий анализ без группировки
+        Map<String, Object> overallAnalysis = createOverallAbcAnalysis(abcAnalysisData);
+        
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "data", Map.of(
+                "abcAnalysis", abcAnalysisData,
+                "overallAnalysis", overallAnalysis,
+                "groupSummary", createGroupSummary(abcAnalysisData),
+                "apiDataSummary", Map.of(
+                    "salesRecords", salesReport != null && salesReport.isArray() ? salesReport.size() : 0,
+                    "ordersRecords", ordersReport != null && ordersReport.isArray() ? ordersReport.size() : 0
+                )
+            )
+        ));
+    }
+
     /**
      * ПЛАН ПОСТАВОК - аналог листа "План поставок"
      * ИСПОЛЬЗУЕТ РЕАЛЬНЫЕ ДАННЫЕ ИЗ API ОСТАТКОВ И ЗАКАЗОВ
      */
     @GetMapping("/supply-planning")
-    public ResponseEntity<?> getSupplyPlanning(
+    public Mono<ResponseEntity<?>> getSupplyPlanning(
             Authentication auth,
             @RequestParam(value = "days", defaultValue = "30") int days) {
         try {
@@ -302,43 +339,51 @@ public class ExcelAnalyticsController {
             
             // 🔒 ПРОВЕРКА ПОДПИСКИ
             ResponseEntity<?> subscriptionCheck = checkSubscriptionAccess(user);
-            if (subscriptionCheck != null) return subscriptionCheck;
+            if (subscriptionCheck != null) return Mono.just(subscriptionCheck);
             
             if (user.getWildberriesApiKey() == null || user.getWildberriesApiKey().trim().isEmpty()) {
-                return ResponseEntity.ok(Map.of(
+                return Mono.just(ResponseEntity.ok(Map.of(
                     "success", false,
                     "message", "API ключ Wildberries не установлен"
-                ));
+                )));
             }
 
             LocalDate endDate = LocalDate.now();
             LocalDate startDate = endDate.minusDays(days);
 
-            // 🔥 РЕАЛЬНЫЕ ДАННЫЕ: Получаем остатки и заказы из API
-            JsonNode stocksReport = wildberriesApiService.getStocksReport(user.getWildberriesApiKey(), startDate);
-            JsonNode ordersReport = wildberriesApiService.getOrdersReport(user.getWildberriesApiKey(), startDate);
-            
-            // 🔥 РЕАЛЬНАЯ ОБРАБОТКА: Создаем план поставок из данных API
-            List<Map<String, Object>> planningData = createRealSupplyPlanningData(stocksReport, ordersReport, days);
-            
-            return ResponseEntity.ok(Map.of(
-                "success", true,
-                "data", planningData,
-                "apiDataSummary", Map.of(
-                    "stocksRecords", stocksReport != null && stocksReport.isArray() ? stocksReport.size() : 0,
-                    "ordersRecords", ordersReport != null && ordersReport.isArray() ? ordersReport.size() : 0
-                )
-            ));
+            // 🔥 РЕАЛЬНЫЕ ДАННЫЕ: Получаем остатки и заказы из API параллельно
+            return wildberriesReactiveClient
+                .fetchBundle(user.getWildberriesApiKey(), startDate, endDate, WbReport.STOCKS, WbReport.ORDERS)
+                .timeout(WildberriesReactiveClient.FAN_OUT_TIMEOUT)
+                .publishOn(Schedulers.boundedElastic())
+                .<ResponseEntity<?>>map(reports -> buildSupplyPlanning(reports, days))
+                .onErrorResume(e -> Mono.just(failure("Ошибка получения плана поставок: ", e)));
             
         } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.ok(Map.of(
-                "success", false,
-                "message", "Ошибка получения плана поставок: " + e.getMessage()
-            ));
+            return Mono.just(failure("Ошибка получения плана поставок: ", e));
         }
     }
 
+    /**
+     * План поставок по загруженным остаткам и заказам
+     */
+    private ResponseEntity<?> buildSupplyPlanning(WbReportBundle reports, int days) {
+        JsonNode stocksReport = reports.getStocks();
+        JsonNode ordersReport = reports.getOrders();
+        
+        // 🔥 РЕАЛЬНАЯ ОБРАБОТКА: Создаем план поставок из данных API
+        List<Map<String, Object>> planningData = createRealSupplyPlanningData(stocksReport, ordersReport, days);
+        
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "data", planningData,
+            "apiDataSummary", Map.of(
+                "stocksRecords", stocksReport != null && stocksReport.isArray() ? stocksReport.size() : 0,
+                "ordersRecords", ordersReport != null && ordersReport.isArray() ? ordersReport.size() : 0
+            )
+        ));
+    }
+
     /**
      * УЧЕТ АКЦИЙ - аналог листа "Учет акций"
      * ИСПОЛЬЗУЕТ РЕАЛЬНЫЕ ДАННЫЕ ИЗ БД И API
@@ -820,10 +865,50 @@ public class ExcelAnalyticsController {
         return metrics;
     }
 
-    // Методы для сводных таблиц (пока базовая реализация)
-    private Map<String, Object> createRealWeeklyPivotTable(JsonNode financeReport, List<WeeklyFinancialReport> weeklyReports) {
+    /**
+     * Сводная таблица понедельно: показатели по неделям из недельных агрегатов,
+     * итоги периода и разбивка по артикулам из дневных агрегатов - без пересчета детализации
+     */
+    private Map<String, Object> createRealWeeklyPivotTable(Seller seller, List<WeeklyFinancialReport> weeklyReports,
+                                                           LocalDate startDate, LocalDate endDate) {
+        List<Map<String, Object>> weeks = new ArrayList<>();
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        for (WeeklyFinancialReport report : weeklyReports) {
+            Map<String, Object> week = new LinkedHashMap<>();
+            week.put("weekNumber", report.getWeekNumber());
+            week.put("datePeriod", report.getDatePeriod());
+            Map<String, BigDecimal> metrics = new LinkedHashMap<>();
+            metrics.put("buyoutQuantity", report.getBuyoutQuantity());
+            metrics.put("wbSales", report.getWbSales());
+            metrics.put("toRecalculationForGoods", report.getToRecalculationForGoods());
+            metrics.put("logistics", report.getLogistics());
+            metrics.put("storage", report.getStorage());
+            metrics.put("penalty", report.getPenalty());
+            metrics.put("toPayout", report.getToPayout());
+            metrics.put("netProfit", report.getNetProfit());
+            metrics.forEach((metric, value) -> {
+                BigDecimal amount = value != null ? value : BigDecimal.ZERO;
+                week.put(metric, amount);
+                totals.merge(metric, amount, BigDecimal::add);
+            });
+            weeks.add(week);
+        }
+
+        List<Map<String, Object>> byArticle = new ArrayList<>();
+        for (Object[] article : articleDailyRollupRepository.sumByArticle(seller, startDate, endDate)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("wbArticle", article[0]);
+            row.put("buyoutQuantity", article[1]);
+            row.put("wbSales", article[2]);
+            row.put("toPayout", article[3]);
+            row.put("netProfit", article[4]);
+            byArticle.add(row);
+        }
+
         Map<String, Object> pivotData = new HashMap<>();
-        // TODO: Реализация группировки по неделям из реальных данных
+        pivotData.put("weeks", weeks);
+        pivotData.put("totals", totals);
+        pivotData.put("byArticle", byArticle);
         return pivotData;
     }
 
@@ -4,12 +4,17 @@ import org.example.entity.Seller;
 import org.example.entity.User;
 import org.example.repository.SellerRepository;
 import org.example.repository.UserRepository;
+import org.example.service.AccountPurgeService;
+import org.example.service.SellerSyncService;
+import org.example.service.SyncJobService;
 import org.example.service.WildberriesApiService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -30,6 +35,15 @@ public class SellerController {
     @Autowired
     private WildberriesApiService wildberriesApiService;
 
+    @Autowired
+    private SellerSyncService sellerSyncService;
+
+    @Autowired
+    private SyncJobService syncJobService;
+
+    @Autowired
+    private AccountPurgeService accountPurgeService;
+
     /**
      * Helper метод для получения пользователя из Authentication
      */
@@ -46,7 +60,7 @@ public class SellerController {
     public ResponseEntity<?> getAllSellers(Authentication auth) {
         try {
             User user = getUserFromAuth(auth);
-            List<Seller> sellers = sellerRepository.findByUser(user);
+            List<Seller> sellers = sellerRepository.findByUserAndDeletedAtIsNull(user);
 
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -275,6 +289,40 @@ public class SellerController {
         }
     }
 
+    /**
+     * Удаление продавца: он сразу пропадает из списка и не синхронизируется,
+     * его данные удаляются в фоне порциями
+     */
+    @DeleteMapping("/{sellerId}")
+    public ResponseEntity<?> deleteSeller(Authentication auth, @PathVariable Long sellerId) {
+        try {
+            User user = getUserFromAuth(auth);
+            Optional<Seller> sellerOpt = sellerRepository.findByIdWithUser(sellerId)
+                .filter(found -> found.getUser().getId().equals(user.getId()));
+
+            if (sellerOpt.isEmpty()) {
+                return ResponseEntity.ok(Map.of(
+                    "success", false,
+                    "message", "Продавец не найден"
+                ));
+            }
+
+            AccountPurgeService.PurgeJob job = accountPurgeService.deleteSeller(sellerOpt.get());
+            return ResponseEntity.accepted().body(Map.of(
+                "success", true,
+                "message", "Продавец удален, данные удаляются в фоне",
+                "data", job.toMap()
+            ));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.ok(Map.of(
+                "success", false,
+                "message", "Ошибка удаления продавца: " + e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Тестирование API ключа продавца
      */
@@ -348,15 +396,24 @@ public class SellerController {
                 ));
             }
 
-            // Синхронизируем данные через WildberriesApiService
-            // TODO: Обновить WildberriesApiService для работы с Seller entity
-            
-            seller.setLastSyncAt(LocalDateTime.now());
-            sellerRepository.save(seller);
+            // Синхронизируем отчеты продавца (результат сохраняется в last_sync_* продавца)
+            SellerSyncService.SellerProgress progress = sellerSyncService.syncSeller(seller, days);
+
+            if (SellerSyncService.STATUS_SKIPPED.equals(progress.getStatus())) {
+                return ResponseEntity.ok(Map.of(
+                    "success", false,
+                    "message", "Синхронизация по ключу этого продавца уже выполняется",
+                    "data", progress.toMap()
+                ));
+            }
 
+            boolean success = !SellerSyncService.STATUS_FAILED.equals(progress.getStatus());
             return ResponseEntity.ok(Map.of(
-                "success", true,
-                "message", "Синхронизация данных завершена для продавца: " + seller.getSellerName()
+                "success", success,
+                "message", success
+                    ? "Синхронизация данных завершена для продавца: " + seller.getSellerName()
+                    : "Ошибка синхронизации данных продавца: " + seller.getSellerName(),
+                "data", progress.toMap()
             ));
 
         } catch (Exception e) {
@@ -368,6 +425,54 @@ public class SellerController {
         }
     }
 
+    /**
+     * Загрузка детализации отчета реализации продавца за период в financial_report_raw.
+     * Ставится в очередь заданий синхронизации; ход загрузки - GET /api/analytics/sync/{jobId}
+     */
+    @PostMapping("/{sellerId}/realization")
+    public ResponseEntity<?> loadRealizationReport(Authentication auth, @PathVariable Long sellerId,
+                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
+        try {
+            User user = getUserFromAuth(auth);
+            Optional<Seller> sellerOpt = sellerRepository.findByIdWithUser(sellerId)
+                .filter(found -> found.getUser().getId().equals(user.getId()));
+
+            if (sellerOpt.isEmpty()) {
+                return ResponseEntity.ok(Map.of(
+                    "success", false,
+                    "message", "Продавец не найден"
+                ));
+            }
+            if (sellerOpt.get().getWbApiKey() == null || sellerOpt.get().getWbApiKey().trim().isEmpty()) {
+                return ResponseEntity.ok(Map.of(
+                    "success", false,
+                    "message", "API ключ не установлен для данного продавца"
+                ));
+            }
+            if (dateTo.isBefore(dateFrom)) {
+                return ResponseEntity.ok(Map.of(
+                    "success", false,
+                    "message", "Дата окончания раньше даты начала"
+                ));
+            }
+
+            SyncJobService.SyncJob job = syncJobService.submitRealizationLoad(sellerOpt.get(), dateFrom, dateTo);
+            return ResponseEntity.accepted().body(Map.of(
+                "success", true,
+                "message", "Загрузка детализации поставлена в очередь",
+                "data", job.toMap()
+            ));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.ok(Map.of(
+                "success", false,
+                "message", "Ошибка загрузки детализации: " + e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Получение статистики по продавцам
      */
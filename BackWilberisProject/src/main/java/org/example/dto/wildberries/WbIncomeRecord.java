@@ -0,0 +1,23 @@
+package org.example.dto.wildberries;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка отчета /api/v1/supplier/incomes (поставка)
+ */
+public record WbIncomeRecord(
+    long incomeId,
+    String number,
+    LocalDateTime date,
+    LocalDateTime lastChangeDate,
+    LocalDateTime dateClose,
+    long nmId,
+    String supplierArticle,
+    String barcode,
+    String techSize,
+    String warehouseName,
+    int quantity,
+    double totalPrice,
+    String status
+) {
+}
@@ -0,0 +1,27 @@
+package org.example.dto.wildberries;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка отчета /api/v1/supplier/orders
+ */
+public record WbOrderRecord(
+    String srid,
+    String gNumber,
+    Long odid,
+    LocalDateTime date,
+    LocalDateTime lastChangeDate,
+    long nmId,
+    String supplierArticle,
+    String barcode,
+    String subject,
+    String brand,
+    String warehouseName,
+    Integer quantity,
+    double totalPrice,
+    double discountPercent,
+    double finishedPrice,
+    double priceWithDisc,
+    boolean isCancel
+) {
+}
@@ -0,0 +1,27 @@
+package org.example.dto.wildberries;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка детализации отчета реализации /api/v5/supplier/reportDetailByPeriod
+ */
+public record WbRealizationRecord(
+    long rrdId,
+    long realizationReportId,
+    long nmId,
+    String supplierArticle,
+    String supplierOperName,
+    LocalDateTime rrDate,
+    LocalDateTime createDate,
+    int quantity,
+    double retailAmount,
+    double commissionPercent,
+    double salesCommission,
+    double deliveryRub,
+    double storageFee,
+    double deduction,
+    double forPay,
+    double penalty,
+    double additionalPayment
+) {
+}
@@ -0,0 +1,27 @@
+package org.example.dto.wildberries;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка отчета /api/v1/supplier/sales (продажа или возврат)
+ */
+public record WbSaleRecord(
+    String srid,
+    String saleId,
+    String gNumber,
+    LocalDateTime date,
+    LocalDateTime lastChangeDate,
+    long nmId,
+    String supplierArticle,
+    String barcode,
+    String subject,
+    String brand,
+    String warehouseName,
+    Integer quantity,
+    double totalPrice,
+    double price,
+    double forPay,
+    double finishedPrice,
+    double priceWithDisc
+) {
+}
@@ -0,0 +1,24 @@
+package org.example.dto.wildberries;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка отчета /api/v1/supplier/stocks (остаток по складу)
+ */
+public record WbStockRecord(
+    LocalDateTime lastChangeDate,
+    long nmId,
+    String supplierArticle,
+    String barcode,
+    String subject,
+    String brand,
+    String techSize,
+    String warehouseName,
+    Integer quantity,
+    int quantityFull,
+    int inWayToClient,
+    int inWayFromClient,
+    double price,
+    double discount
+) {
+}
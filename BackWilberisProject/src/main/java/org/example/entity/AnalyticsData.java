@@ -7,11 +7,16 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
+// Уникальность естественного ключа строк WB (wb_row_id, period_start) - частичные индексы в миграциях V2/V3.
+// Таблица секционирована по месяцам period_start (V3), первичный ключ в БД - (id, period_start)
 @Table(name = "analytics_data")
 public class AnalyticsData {
     
+    // Идентификаторы из последовательности с шагом 50: Hibernate выдает их пачкой
+    // без обращения к БД на каждую строку, что позволяет пакетную вставку (с IDENTITY она невозможна)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analytics_data_seq")
+    @SequenceGenerator(name = "analytics_data_seq", sequenceName = "analytics_data_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -22,14 +27,28 @@ public class AnalyticsData {
     @JoinColumn(name = "seller_id")
     private Seller seller;
     
-    @Column(name = "period_start")
-    private LocalDate periodStart;
+    // Естественные идентификаторы строки WB: повторная загрузка той же строки
+    // обновляет запись, а не добавляет новую
+    @Column(name = "wb_row_id", length = 100)
+    private String wbRowId; // Ключ строки: saleID для продаж и возвратов, srid для заказов
+
+    @Column(name = "srid", length = 100)
+    private String srid; // Уникальный id строки заказа (общий у продажи и ее возврата)
+
+    @Column(name = "g_number", length = 50)
+    private String gNumber; // Номер корзины покупателя
+
+    @Column(name = "odid")
+    private Long odid; // Устаревший id позиции заказа
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart; // Ключ секционирования
     
     @Column(name = "period_end")
     private LocalDate periodEnd;
     
     @Column(name = "period_type")
-    private String periodType; // "WEEK", "MONTH"
+    private String periodType; // "WEEK", "MONTH", строки WB: "SALES_REPORT", "ORDER_LINE", "INCOME_LINE"
     
     // Основные метрики из Excel таблицы
     @Column(name = "orders_count")
@@ -129,6 +148,18 @@ public class AnalyticsData {
     public Seller getSeller() { return seller; }
     public void setSeller(Seller seller) { this.seller = seller; }
     
+    public String getWbRowId() { return wbRowId; }
+    public void setWbRowId(String wbRowId) { this.wbRowId = wbRowId; }
+    
+    public String getSrid() { return srid; }
+    public void setSrid(String srid) { this.srid = srid; }
+    
+    public String getGNumber() { return gNumber; }
+    public void setGNumber(String gNumber) { this.gNumber = gNumber; }
+    
+    public Long getOdid() { return odid; }
+    public void setOdid(Long odid) { this.odid = odid; }
+    
     public LocalDate getPeriodStart() { return periodStart; }
     public void setPeriodStart(LocalDate periodStart) { this.periodStart = periodStart; }
     
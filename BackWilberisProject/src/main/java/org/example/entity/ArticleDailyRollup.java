@@ -0,0 +1,121 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Дневной агрегат детализации реализации по артикулу продавца.
+ * Строки пишет только функция refresh_financial_rollups (миграция V4) при загрузке детализации;
+ * из них же собираются недельные строки WeeklyFinancialReport.
+ */
+@Entity
+@Table(name = "article_daily_rollups")
+public class ArticleDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "seller_id", nullable = false)
+    private Seller seller;
+
+    @Column(name = "wb_article", nullable = false, length = 100)
+    private String wbArticle; // Артикул ВБ, пустая строка - операции без артикула
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day; // День операции
+
+    @Column(name = "buyout_quantity", precision = 10, scale = 0)
+    private BigDecimal buyoutQuantity; // Выкуп ШТ (продажи минус возвраты)
+
+    @Column(name = "wb_sales", precision = 14, scale = 2)
+    private BigDecimal wbSales; // Продажи ВБ
+
+    @Column(name = "to_recalculation_for_goods", precision = 14, scale = 2)
+    private BigDecimal toRecalculationForGoods; // К перечислению за товар
+
+    @Column(name = "logistics", precision = 14, scale = 2)
+    private BigDecimal logistics; // Логистика
+
+    @Column(name = "storage", precision = 14, scale = 2)
+    private BigDecimal storage; // Хранение
+
+    @Column(name = "penalty", precision = 14, scale = 2)
+    private BigDecimal penalty; // Штрафы
+
+    @Column(name = "deductions", precision = 14, scale = 2)
+    private BigDecimal deductions; // Прочие удержания
+
+    @Column(name = "bonus", precision = 14, scale = 2)
+    private BigDecimal bonus; // Доплаты
+
+    @Column(name = "to_payout", precision = 14, scale = 2)
+    private BigDecimal toPayout; // К выплате
+
+    @Column(name = "cost_of_goods_sold", precision = 14, scale = 2)
+    private BigDecimal costOfGoodsSold; // Себестоимость выкупленного товара
+
+    @Column(name = "net_profit", precision = 14, scale = 2)
+    private BigDecimal netProfit; // Чистая прибыль
+
+    @Column(name = "rows_count", nullable = false)
+    private Integer rowsCount; // Строк детализации в корзине
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Seller getSeller() { return seller; }
+    public void setSeller(Seller seller) { this.seller = seller; }
+
+    public String getWbArticle() { return wbArticle; }
+    public void setWbArticle(String wbArticle) { this.wbArticle = wbArticle; }
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public BigDecimal getBuyoutQuantity() { return buyoutQuantity; }
+    public void setBuyoutQuantity(BigDecimal buyoutQuantity) { this.buyoutQuantity = buyoutQuantity; }
+
+    public BigDecimal getWbSales() { return wbSales; }
+    public void setWbSales(BigDecimal wbSales) { this.wbSales = wbSales; }
+
+    public BigDecimal getToRecalculationForGoods() { return toRecalculationForGoods; }
+    public void setToRecalculationForGoods(BigDecimal toRecalculationForGoods) { this.toRecalculationForGoods = toRecalculationForGoods; }
+
+    public BigDecimal getLogistics() { return logistics; }
+    public void setLogistics(BigDecimal logistics) { this.logistics = logistics; }
+
+    public BigDecimal getStorage() { return storage; }
+    public void setStorage(BigDecimal storage) { this.storage = storage; }
+
+    public BigDecimal getPenalty() { return penalty; }
+    public void setPenalty(BigDecimal penalty) { this.penalty = penalty; }
+
+    public BigDecimal getDeductions() { return deductions; }
+    public void setDeductions(BigDecimal deductions) { this.deductions = deductions; }
+
+    public BigDecimal getBonus() { return bonus; }
+    public void setBonus(BigDecimal bonus) { this.bonus = bonus; }
+
+    public BigDecimal getToPayout() { return toPayout; }
+    public void setToPayout(BigDecimal toPayout) { this.toPayout = toPayout; }
+
+    public BigDecimal getCostOfGoodsSold() { return costOfGoodsSold; }
+    public void setCostOfGoodsSold(BigDecimal costOfGoodsSold) { this.costOfGoodsSold = costOfGoodsSold; }
+
+    public BigDecimal getNetProfit() { return netProfit; }
+    public void setNetProfit(BigDecimal netProfit) { this.netProfit = netProfit; }
+
+    public Integer getRowsCount() { return rowsCount; }
+    public void setRowsCount(Integer rowsCount) { this.rowsCount = rowsCount; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
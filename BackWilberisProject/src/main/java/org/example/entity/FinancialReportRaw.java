@@ -15,6 +15,13 @@ public class FinancialReportRaw {
     @JoinColumn(name = "seller_id", nullable = false)
     private Seller seller;
 
+    // Идентификаторы строки детализации WB (reportDetailByPeriod)
+    @Column(name = "rrd_id")
+    private Long rrdId; // Номер строки отчета, по нему идут страницы загрузки
+
+    @Column(name = "realization_report_id")
+    private Long realizationReportId; // Номер отчета реализации
+
     // Основные поля отчета WB
     @Column(name = "wb_article", length = 100)
     private String wbArticle; // Артикул ВБ
@@ -25,8 +32,8 @@ public class FinancialReportRaw {
     @Column(name = "operation_type", length = 50)
     private String operationType; // Тип операции (продажа, возврат, и т.д.) - столбец J
 
-    @Column(name = "operation_date")
-    private LocalDateTime operationDate; // Дата операции
+    @Column(name = "operation_date", nullable = false)
+    private LocalDateTime operationDate; // Дата операции, ключ помесячного секционирования (V3)
 
     @Column(name = "sale_amount", precision = 12, scale = 2)
     private BigDecimal saleAmount; // Сумма продажи
@@ -105,6 +112,12 @@ public class FinancialReportRaw {
     public Seller getSeller() { return seller; }
     public void setSeller(Seller seller) { this.seller = seller; }
 
+    public Long getRrdId() { return rrdId; }
+    public void setRrdId(Long rrdId) { this.rrdId = rrdId; }
+
+    public Long getRealizationReportId() { return realizationReportId; }
+    public void setRealizationReportId(Long realizationReportId) { this.realizationReportId = realizationReportId; }
+
     public String getWbArticle() { return wbArticle; }
     public void setWbArticle(String wbArticle) { this.wbArticle = wbArticle; }
 
@@ -36,9 +36,18 @@ public class Seller {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt; // Продавец удален, данные удаляются в фоне
+
     @Column(name = "last_sync_at")
     private LocalDateTime lastSyncAt; // Последняя синхронизация с WB API
 
+    @Column(name = "last_sync_status", length = 20)
+    private String lastSyncStatus; // SUCCESS, PARTIAL, FAILED
+
+    @Column(name = "last_sync_error", length = 1000)
+    private String lastSyncError; // Ошибки отчетов последней синхронизации
+
     // Связи с аналитическими данными
     @OneToMany(mappedBy = "seller", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<AnalyticsData> analyticsData;
@@ -132,6 +141,14 @@ public class Seller {
         this.updatedAt = updatedAt;
     }
 
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
     public LocalDateTime getLastSyncAt() {
         return lastSyncAt;
     }
@@ -140,6 +157,22 @@ public class Seller {
         this.lastSyncAt = lastSyncAt;
     }
 
+    public String getLastSyncStatus() {
+        return lastSyncStatus;
+    }
+
+    public void setLastSyncStatus(String lastSyncStatus) {
+        this.lastSyncStatus = lastSyncStatus;
+    }
+
+    public String getLastSyncError() {
+        return lastSyncError;
+    }
+
+    public void setLastSyncError(String lastSyncError) {
+        this.lastSyncError = lastSyncError;
+    }
+
     public List<AnalyticsData> getAnalyticsData() {
         return analyticsData;
     }
@@ -0,0 +1,88 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Курсор инкрементальной синхронизации: последний увиденный lastChangeDate
+ * по каждому отчету Statistics API для пользователя/продавца.
+ * Следующая синхронизация запрашивает dateFrom=lastChangeDate&flag=0.
+ */
+@Entity
+@Table(name = "sync_watermarks")
+public class SyncWatermark {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "seller_id")
+    private Seller seller; // null - синхронизация по ключу пользователя
+
+    @Column(name = "report_type", nullable = false, length = 50)
+    private String reportType; // sales, orders, stocks, realization:<dateFrom>:<dateTo>
+
+    @Column(name = "last_change_date")
+    private LocalDateTime lastChangeDate; // Максимальный lastChangeDate из уже загруженных строк
+
+    @Column(name = "last_rrd_id")
+    private Long lastRrdId; // Последний загруженный rrd_id детализации реализации
+
+    @Column(name = "covered_from")
+    private LocalDate coveredFrom; // С какой даты данные уже загружены в БД
+
+    @Column(name = "rows_synced")
+    private Long rowsSynced = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Конструкторы
+    public SyncWatermark() {}
+
+    public SyncWatermark(User user, Seller seller, String reportType) {
+        this.user = user;
+        this.seller = seller;
+        this.reportType = reportType;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public Seller getSeller() { return seller; }
+    public void setSeller(Seller seller) { this.seller = seller; }
+
+    public String getReportType() { return reportType; }
+    public void setReportType(String reportType) { this.reportType = reportType; }
+
+    public LocalDateTime getLastChangeDate() { return lastChangeDate; }
+    public void setLastChangeDate(LocalDateTime lastChangeDate) { this.lastChangeDate = lastChangeDate; }
+
+    public Long getLastRrdId() { return lastRrdId; }
+    public void setLastRrdId(Long lastRrdId) { this.lastRrdId = lastRrdId; }
+
+    public LocalDate getCoveredFrom() { return coveredFrom; }
+    public void setCoveredFrom(LocalDate coveredFrom) { this.coveredFrom = coveredFrom; }
+
+    public Long getRowsSynced() { return rowsSynced; }
+    public void setRowsSynced(Long rowsSynced) { this.rowsSynced = rowsSynced; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -53,6 +53,9 @@ public class User implements UserDetails {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt; // Аккаунт удален, данные удаляются в фоне
+    
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -171,6 +174,14 @@ public class User implements UserDetails {
         this.updatedAt = updatedAt;
     }
     
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+    
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+    
     // Методы UserDetails
     
     @Override
@@ -200,7 +211,8 @@ public class User implements UserDetails {
     
     @Override
     public boolean isEnabled() {
-        return true;
+        // Удаленный аккаунт не входит в систему и не проходит проверку токена
+        return deletedAt == null;
     }
     
     // Дополнительные методы для совместимости
@@ -1,13 +1,17 @@
 package org.example.repository;
 
 import org.example.entity.AnalyticsData;
+import org.example.entity.Seller;
 import org.example.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,7 +24,46 @@ public interface AnalyticsDataRepository extends JpaRepository<AnalyticsData, Lo
     
     Optional<AnalyticsData> findByUserAndPeriodStartAndPeriodEnd(User user, LocalDate periodStart, LocalDate periodEnd);
     
-    @Query("SELECT a FROM AnalyticsData a WHERE a.user = :user AND a.periodStart >= :startDate AND a.periodEnd <= :endDate ORDER BY a.periodStart DESC")
+    Optional<AnalyticsData> findFirstByUserAndSellerIsNullAndPeriodTypeAndPeriodStart(User user, String periodType, LocalDate periodStart);
+    
+    Optional<AnalyticsData> findFirstBySellerAndPeriodTypeAndPeriodStart(Seller seller, String periodType, LocalDate periodStart);
+    
+    // Уже сохраненные строки WB по естественному ключу - для слияния при повторной загрузке.
+    // Дни строк ограничивают поиск секциями их месяцев
+    List<AnalyticsData> findByUserAndSellerIsNullAndPeriodTypeAndPeriodStartInAndWbRowIdIn(User user, String periodType,
+                                                                                          Collection<LocalDate> days,
+                                                                                          Collection<String> wbRowIds);
+    
+    List<AnalyticsData> findBySellerAndPeriodTypeAndPeriodStartInAndWbRowIdIn(Seller seller, String periodType,
+                                                                             Collection<LocalDate> days,
+                                                                             Collection<String> wbRowIds);
+    
+    // Количество и сумма строк заказов по дням - пересчет дневных сводок ORDERS_SUMMARY
+    @Query("SELECT a.periodStart, COUNT(a), COALESCE(SUM(a.salesAmount), 0) FROM AnalyticsData a " +
+           "WHERE a.user = :user AND a.seller IS NULL AND a.periodType = 'ORDER_LINE' AND a.periodStart IN :days " +
+           "GROUP BY a.periodStart")
+    List<Object[]> sumOrderLinesByUser(@Param("user") User user, @Param("days") Collection<LocalDate> days);
+    
+    @Query("SELECT a.periodStart, COUNT(a), COALESCE(SUM(a.salesAmount), 0) FROM AnalyticsData a " +
+           "WHERE a.seller = :seller AND a.periodType = 'ORDER_LINE' AND a.periodStart IN :days " +
+           "GROUP BY a.periodStart")
+    List<Object[]> sumOrderLinesBySeller(@Param("seller") Seller seller, @Param("days") Collection<LocalDate> days);
+    
+    // Принятые единицы по дням - пересчет дневных записей INCOMES_SUMMARY из строк поставок
+    @Query("SELECT a.periodStart, COALESCE(SUM(a.purchasesCount), 0) FROM AnalyticsData a " +
+           "WHERE a.user = :user AND a.seller IS NULL AND a.periodType = 'INCOME_LINE' AND a.periodStart IN :days " +
+           "GROUP BY a.periodStart")
+    List<Object[]> sumIncomeLinesByUser(@Param("user") User user, @Param("days") Collection<LocalDate> days);
+    
+    @Query("SELECT a.periodStart, COALESCE(SUM(a.purchasesCount), 0) FROM AnalyticsData a " +
+           "WHERE a.seller = :seller AND a.periodType = 'INCOME_LINE' AND a.periodStart IN :days " +
+           "GROUP BY a.periodStart")
+    List<Object[]> sumIncomeLinesBySeller(@Param("seller") Seller seller, @Param("days") Collection<LocalDate> days);
+    
+    // Условие periodStart <= endDate следует из periodEnd <= endDate, но нужно планировщику:
+    // по нему отбрасываются секции месяцев после конца периода
+    @Query("SELECT a FROM AnalyticsData a WHERE a.user = :user AND a.periodStart >= :startDate AND a.periodStart <= :endDate " +
+           "AND a.periodEnd <= :endDate ORDER BY a.periodStart DESC")
     List<AnalyticsData> findByUserAndDateRange(@Param("user") User user, 
                                               @Param("startDate") LocalDate startDate, 
                                               @Param("endDate") LocalDate endDate);
@@ -32,4 +75,12 @@ public interface AnalyticsDataRepository extends JpaRepository<AnalyticsData, Lo
     List<AnalyticsData> findByUserAndPeriodStartGreaterThanEqual(User user, LocalDate startDate);
     
     long countByUser(User user);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AnalyticsData a WHERE a.user = :user AND a.seller IS NULL AND a.periodType = :periodType AND a.periodStart BETWEEN :startDate AND :endDate")
+    int deleteByUserAndPeriodTypeInRange(@Param("user") User user,
+                                         @Param("periodType") String periodType,
+                                         @Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate);
 } 
\ No newline at end of file
@@ -0,0 +1,23 @@
+package org.example.repository;
+
+import org.example.entity.ArticleDailyRollup;
+import org.example.entity.Seller;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ArticleDailyRollupRepository extends JpaRepository<ArticleDailyRollup, Long> {
+
+    // Итоги по артикулам за период: [wbArticle, buyoutQuantity, wbSales, toPayout, netProfit]
+    @Query("SELECT r.wbArticle, SUM(r.buyoutQuantity), SUM(r.wbSales), SUM(r.toPayout), SUM(r.netProfit) " +
+           "FROM ArticleDailyRollup r WHERE r.seller = :seller AND r.day >= :fromDate AND r.day <= :toDate " +
+           "GROUP BY r.wbArticle ORDER BY SUM(r.netProfit) DESC")
+    List<Object[]> sumByArticle(@Param("seller") Seller seller,
+                                @Param("fromDate") LocalDate fromDate,
+                                @Param("toDate") LocalDate toDate);
+}
@@ -3,10 +3,13 @@ package org.example.repository;
 import org.example.entity.Seller;
 import org.example.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +20,12 @@ public interface SellerRepository extends JpaRepository<Seller, Long> {
     
     List<Seller> findByUserAndIsActiveTrue(User user);
     
+    List<Seller> findByUserAndDeletedAtIsNull(User user);
+    
+    // Удаленные продавцы, данные которых еще удаляются в фоне
+    @Query("SELECT s FROM Seller s JOIN FETCH s.user WHERE s.deletedAt IS NOT NULL")
+    List<Seller> findDeleted();
+    
     Optional<Seller> findByUserAndId(User user, Long sellerId);
     
     Optional<Seller> findByInn(String inn);
@@ -28,4 +37,20 @@ public interface SellerRepository extends JpaRepository<Seller, Long> {
     long countActiveByUser(@Param("user") User user);
     
     boolean existsByUserAndInn(User user, String inn);
+    
+    // Продавцы для фоновой синхронизации: пользователь подгружается сразу, вне сессии он понадобится
+    @Query("SELECT s FROM Seller s JOIN FETCH s.user WHERE s.isActive = true AND s.wbApiKey IS NOT NULL AND s.wbApiKey != ''")
+    List<Seller> findActiveWithApiKey();
+    
+    @Query("SELECT s FROM Seller s JOIN FETCH s.user WHERE s.id = :id")
+    Optional<Seller> findByIdWithUser(@Param("id") Long id);
+    
+    // Результат синхронизации; время последней синхронизации не меняется, если она не удалась
+    @Modifying
+    @Transactional
+    @Query("UPDATE Seller s SET s.lastSyncAt = COALESCE(:syncedAt, s.lastSyncAt), s.lastSyncStatus = :status, s.lastSyncError = :error WHERE s.id = :id")
+    int updateSyncResult(@Param("id") Long id,
+                         @Param("syncedAt") LocalDateTime syncedAt,
+                         @Param("status") String status,
+                         @Param("error") String error);
 } 
\ No newline at end of file
@@ -0,0 +1,20 @@
+package org.example.repository;
+
+import org.example.entity.Seller;
+import org.example.entity.SyncWatermark;
+import org.example.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SyncWatermarkRepository extends JpaRepository<SyncWatermark, Long> {
+    
+    Optional<SyncWatermark> findByUserAndSellerIsNullAndReportType(User user, String reportType);
+    
+    Optional<SyncWatermark> findBySellerAndReportType(Seller seller, String reportType);
+    
+    List<SyncWatermark> findByUser(User user);
+}
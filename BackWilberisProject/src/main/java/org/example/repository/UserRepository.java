@@ -4,6 +4,7 @@ import org.example.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +17,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByTelegramChatId(String telegramChatId);
     
     boolean existsByEmail(String email);
+    
+    // Удаленные аккаунты, данные которых еще удаляются в фоне
+    List<User> findByDeletedAtIsNotNull();
 } 
\ No newline at end of file
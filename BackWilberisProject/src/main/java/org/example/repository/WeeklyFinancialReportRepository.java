@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +26,13 @@ public interface WeeklyFinancialReportRepository extends JpaRepository<WeeklyFin
                                                         @Param("fromDate") LocalDate fromDate,
                                                         @Param("toDate") LocalDate toDate);
     
+    // Недельные итоги продавцов (строки без товара, их собирает refresh_financial_rollups)
+    @Query("SELECT w FROM WeeklyFinancialReport w WHERE w.seller IN :sellers AND w.product IS NULL " +
+           "AND w.datePeriod >= :fromDate AND w.datePeriod <= :toDate ORDER BY w.datePeriod")
+    List<WeeklyFinancialReport> findSellerTotalsByDateRange(@Param("sellers") Collection<Seller> sellers,
+                                                            @Param("fromDate") LocalDate fromDate,
+                                                            @Param("toDate") LocalDate toDate);
+    
     @Query("SELECT SUM(w.netProfit) FROM WeeklyFinancialReport w WHERE w.seller = :seller")
     java.math.BigDecimal getTotalNetProfitBySeller(@Param("seller") Seller seller);
     
@@ -0,0 +1,196 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ABC-анализ товаров по выручке.
+ * Строки продаж сначала сворачиваются в товары по nmId (возвраты вычитаются из выручки и заказов),
+ * товары сортируются один раз по выручке,
+ * накопленные доли по всем товарам и внутри предмета считаются за один проход.
+ * Класс товара определяется долей, накопленной до него: A - пока меньше 80%, B - пока меньше 95%, иначе C,
+ * поэтому самый крупный товар всегда попадает в A.
+ */
+@Component
+public class AbcAnalysisEngine {
+
+    private static final double CLASS_A_LIMIT = 80.0;
+    private static final double CLASS_B_LIMIT = 95.0;
+    private static final String[] CLASSES = {"A", "B", "C"};
+
+    /**
+     * Анализ строк отчета WB: продаж (nmId, forPay, supplierArticle, subject)
+     * или детализации реализации (nmid, ppvz_for_pay, sa_name, subject_name)
+     * @return items по убыванию выручки и summary с итогами классов
+     */
+    public Map<String, Object> analyze(JsonNode lines) {
+        Map<Long, Product> products = new HashMap<>();
+        Map<String, Group> groups = new HashMap<>();
+        if (lines != null && lines.isArray()) {
+            for (JsonNode line : lines) {
+                JsonNode nmIdNode = first(line, "nmId", "nmid");
+                if (nmIdNode == null) {
+                    continue;
+                }
+                long nmId = nmIdNode.asLong();
+                Product product = products.get(nmId);
+                if (product == null) {
+                    product = new Product(nmId, text(line, "supplierArticle", "sa_name"),
+                        text(line, "subject", "subject_name"), text(line, "brand", "brand_name"));
+                    products.put(nmId, product);
+                }
+                JsonNode revenueNode = first(line, "forPay", "ppvz_for_pay", "totalPrice");
+                JsonNode quantity = first(line, "quantity");
+                double revenue = revenueNode != null ? revenueNode.asDouble() : 0;
+                // В отчете продаж строка - одна единица товара
+                long units = quantity != null ? Math.abs(quantity.asLong()) : 1;
+                if (isReturn(line, revenue)) {
+                    // Возврат уменьшает и выручку, и число заказов товара
+                    product.revenue -= Math.abs(revenue);
+                    product.orders -= units;
+                } else {
+                    product.revenue += revenue;
+                    product.orders += units;
+                }
+            }
+        }
+
+        List<Product> sorted = new ArrayList<>(products.values());
+        double totalRevenue = 0;
+        for (Product product : sorted) {
+            totalRevenue += product.revenue;
+            Group group = groups.computeIfAbsent(product.subject, subject -> new Group());
+            group.revenue += product.revenue;
+            group.count++;
+        }
+        sorted.sort((a, b) -> Double.compare(b.revenue, a.revenue));
+
+        double avgTotal = sorted.isEmpty() ? 0 : totalRevenue / sorted.size();
+        double cumulativeTotal = 0;
+        int[] classCounts = new int[CLASSES.length];
+        double[] classRevenue = new double[CLASSES.length];
+        List<Map<String, Object>> items = new ArrayList<>(sorted.size());
+
+        for (int i = 0; i < sorted.size(); i++) {
+            Product product = sorted.get(i);
+            Group group = groups.get(product.subject);
+
+            int totalClass = classOf(share(cumulativeTotal, totalRevenue));
+            int groupClass = classOf(share(group.cumulative, group.revenue));
+            cumulativeTotal += product.revenue;
+            group.cumulative += product.revenue;
+            classCounts[totalClass]++;
+            classRevenue[totalClass] += product.revenue;
+
+            double avgInGroup = group.revenue / group.count;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("position", i + 1);
+            item.put("nmId", product.nmId);
+            item.put("vendorCode", product.vendorCode);
+            item.put("subject", product.subject);
+            item.put("brandName", product.brand);
+            item.put("ordersCount", product.orders);
+            item.put("avgPrice", product.orders > 0 ? product.revenue / product.orders : 0.0);
+            item.put("revenue", product.revenue);
+            item.put("revenuePercentInGroup", share(product.revenue, group.revenue));
+            item.put("cumulativePercentInGroup", share(group.cumulative, group.revenue));
+            item.put("avgValueInGroup", avgInGroup);
+            item.put("deviationCoeffInGroup", avgInGroup > 0 ? product.revenue / avgInGroup : 0.0);
+            item.put("classInGroup", CLASSES[groupClass]);
+            item.put("revenuePercentTotal", share(product.revenue, totalRevenue));
+            item.put("cumulativePercentTotal", share(cumulativeTotal, totalRevenue));
+            item.put("avgValueTotal", avgTotal);
+            item.put("deviationCoeffTotal", avgTotal > 0 ? product.revenue / avgTotal : 0.0);
+            item.put("classTotal", CLASSES[totalClass]);
+            items.add(item);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("totalItems", sorted.size());
+        summary.put("totalRevenue", totalRevenue);
+        for (int c = 0; c < CLASSES.length; c++) {
+            Map<String, Object> classTotals = new LinkedHashMap<>();
+            classTotals.put("count", classCounts[c]);
+            classTotals.put("revenue", classRevenue[c]);
+            classTotals.put("percent", share(classRevenue[c], totalRevenue));
+            summary.put("class" + CLASSES[c], classTotals);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("items", items);
+        result.put("summary", summary);
+        return result;
+    }
+
+    private static int classOf(double accumulatedBefore) {
+        if (accumulatedBefore < CLASS_A_LIMIT) {
+            return 0;
+        }
+        return accumulatedBefore < CLASS_B_LIMIT ? 1 : 2;
+    }
+
+    private static double share(double value, double total) {
+        return total > 0 ? value / total * 100 : 0.0;
+    }
+
+    /**
+     * Строка возврата: saleID "R..." или отрицательная сумма в отчете продаж,
+     * doc_type_name "Возврат" в детализации (там сумма возврата положительная)
+     */
+    private static boolean isReturn(JsonNode line, double revenue) {
+        JsonNode saleId = first(line, "saleID");
+        JsonNode docType = first(line, "doc_type_name");
+        return revenue < 0
+            || (saleId != null && saleId.asText().startsWith("R"))
+            || (docType != null && "Возврат".equalsIgnoreCase(docType.asText()));
+    }
+
+    private static JsonNode first(JsonNode line, String... fields) {
+        for (String field : fields) {
+            JsonNode value = line.get(field);
+            if (value != null && !value.isNull()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String text(JsonNode line, String... fields) {
+        JsonNode value = first(line, fields);
+        return value != null ? value.asText() : "N/A";
+    }
+
+    /**
+     * Товар: выручка и заказы, свернутые из строк отчета
+     */
+    private static final class Product {
+        private final long nmId;
+        private final String vendorCode;
+        private final String subject;
+        private final String brand;
+        private double revenue;
+        private long orders;
+
+        Product(long nmId, String vendorCode, String subject, String brand) {
+            this.nmId = nmId;
+            this.vendorCode = vendorCode;
+            this.subject = subject;
+            this.brand = brand;
+        }
+    }
+
+    /**
+     * Предмет: выручка товаров и накопленная сумма при проходе по отсортированному списку
+     */
+    private static final class Group {
+        private double revenue;
+        private int count;
+        private double cumulative;
+    }
+}
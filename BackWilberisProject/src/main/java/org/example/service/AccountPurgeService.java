@@ -0,0 +1,426 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.entity.Seller;
+import org.example.entity.User;
+import org.example.repository.SellerRepository;
+import org.example.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Удаление аккаунтов и продавцов в фоне.
+ * Запрос только помечает запись удаленной (deleted_at) и ставит задание в очередь;
+ * задание удаляет строки дочерних таблиц порциями по ключу - каждая порция отдельная короткая транзакция,
+ * без загрузки сущностей. Секции фактов, в которых есть только строки удаляемого владельца,
+ * очищаются целиком. Незавершенные удаления продолжаются после рестарта.
+ */
+@Service
+public class AccountPurgeService {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    // Попытки удалить саму запись: синхронизация, начатая до пометки, могла дописать строки
+    private static final int FINAL_DELETE_ATTEMPTS = 3;
+
+    // Таблицы продавца в порядке удаления: ссылающиеся на products - раньше самих products
+    private static final List<PurgeStep> SELLER_STEPS = List.of(
+        new PurgeStep("analytics_data", "id, period_start", "seller_id"),
+        new PurgeStep("financial_report_raw", "id, operation_date", "seller_id"),
+        new PurgeStep("article_daily_rollups", "id", "seller_id"),
+        new PurgeStep("weekly_financial_reports", "id", "seller_id"),
+        new PurgeStep("unit_economics", "id", "seller_id"),
+        new PurgeStep("supply_planning", "id", "seller_id"),
+        new PurgeStep("promotions_tracking", "id", "seller_id"),
+        new PurgeStep("advertising_campaigns", "id", "seller_id"),
+        new PurgeStep("current_prices", "id", "seller_id"),
+        new PurgeStep("wildberries_card_data", "id", "seller_id"),
+        new PurgeStep("products", "id", "seller_id"),
+        new PurgeStep("sync_watermarks", "id", "seller_id"));
+
+    // Строки пользователя вне продавцов (продавцы к этому моменту уже удалены)
+    private static final List<PurgeStep> USER_STEPS = List.of(
+        new PurgeStep("analytics_data", "id, period_start", "user_id"),
+        new PurgeStep("products", "id", "user_id"),
+        new PurgeStep("sync_watermarks", "id", "user_id"),
+        new PurgeStep("subscriptions", "id", "user_id"));
+
+    // Секционированные таблицы (миграция V3), секции которых можно очистить целиком
+    private static final List<String> PARTITIONED = List.of("analytics_data", "financial_report_raw");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long pauseMs;
+    private final ThreadPoolExecutor worker;
+    // Владельцы: "user:1", "seller:5"
+    private final BackgroundJobRegistry<PurgeJob> jobs;
+
+    public AccountPurgeService(PlatformTransactionManager transactionManager,
+                               @Value("${wildberries.purge.chunk-size:5000}") int chunkSize,
+                               @Value("${wildberries.purge.pause-ms:50}") long pauseMs,
+                               @Value("${wildberries.purge.queue-capacity:100}") int queueCapacity,
+                               @Value("${wildberries.purge.retention-minutes:1440}") long retentionMinutes) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.pauseMs = pauseMs;
+        // Один поток: удаление не должно конкурировать за базу с синхронизацией сильнее одного запроса
+        this.worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "account-purge");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.jobs = new BackgroundJobRegistry<>(worker, Duration.ofMinutes(retentionMinutes));
+    }
+
+    /**
+     * Продолжение удалений, прерванных рестартом
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        try {
+            for (User user : userRepository.findByDeletedAtIsNotNull()) {
+                submitUserPurge(user.getId());
+            }
+            for (Seller seller : sellerRepository.findDeleted()) {
+                if (seller.getUser().getDeletedAt() == null) {
+                    submitSellerPurge(seller.getId(), seller.getUser().getId());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Не удалось продолжить удаление аккаунтов: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Пометка пользователя и его продавцов удаленными и постановка удаления данных.
+     * Повторный вызов для уже помеченного пользователя снова ставит удаление (если оно не идет)
+     */
+    public PurgeJob deleteUser(User user) {
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (user.getDeletedAt() == null) {
+                user.setDeletedAt(now);
+                userRepository.save(user);
+            }
+            List<Seller> sellers = sellerRepository.findByUser(user);
+            for (Seller seller : sellers) {
+                seller.setActive(false);
+                if (seller.getDeletedAt() == null) {
+                    seller.setDeletedAt(now);
+                }
+            }
+            sellerRepository.saveAll(sellers);
+        });
+        System.out.println("🗑️ Пользователь " + user.getEmail() + " помечен удаленным");
+        return submitUserPurge(user.getId());
+    }
+
+    /**
+     * Пометка продавца удаленным и постановка удаления его данных;
+     * продавец должен быть загружен вместе с пользователем
+     */
+    public PurgeJob deleteSeller(Seller seller) {
+        if (seller.getDeletedAt() == null) {
+            seller.setActive(false);
+            seller.setDeletedAt(LocalDateTime.now());
+            sellerRepository.save(seller);
+        }
+        System.out.println("🗑️ Продавец " + seller.getSellerName() + " помечен удаленным");
+        return submitSellerPurge(seller.getId(), seller.getUser().getId());
+    }
+
+    public PurgeJob findJob(String jobId) {
+        return jobs.find(jobId);
+    }
+
+    /**
+     * Задания удаления, новые первыми, и состояние очереди
+     */
+    public Map<String, Object> describe() {
+        List<Map<String, Object>> recent = new ArrayList<>();
+        jobs.jobs().stream()
+            .sorted(Comparator.comparing((PurgeJob job) -> job.createdAt).reversed())
+            .forEach(job -> recent.add(job.toMap()));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("active", worker.getActiveCount());
+        result.put("queued", worker.getQueue().size());
+        result.put("jobs", recent);
+        return result;
+    }
+
+    private PurgeJob submitUserPurge(Long userId) {
+        return submit("user:" + userId, userId, null, job -> {
+            for (Long sellerId : jdbcTemplate.queryForList("SELECT id FROM sellers WHERE user_id = ?", Long.class, userId)) {
+                purgeOwner(job, SELLER_STEPS, "seller_id", sellerId, "sellers");
+            }
+            purgeOwner(job, USER_STEPS, "user_id", userId, "users");
+        });
+    }
+
+    private PurgeJob submitSellerPurge(Long sellerId, Long userId) {
+        return submit("seller:" + sellerId, userId, sellerId,
+            job -> purgeOwner(job, SELLER_STEPS, "seller_id", sellerId, "sellers"));
+    }
+
+    private PurgeJob submit(String ownerKey, Long userId, Long sellerId, PurgeTask task) {
+        BackgroundJobRegistry.Submission<PurgeJob> submission = jobs.submit(ownerKey,
+            key -> new PurgeJob(key, userId, sellerId),
+            job -> execute(job, task),
+            "Очередь удаления переполнена, повторите позже");
+        if (submission.created()) {
+            System.out.println("📥 Удаление " + ownerKey + " поставлено в очередь, задание " + submission.job().id);
+        }
+        return submission.job();
+    }
+
+    @FunctionalInterface
+    private interface PurgeTask {
+        void run(PurgeJob job);
+    }
+
+    private void execute(PurgeJob job, PurgeTask task) {
+        job.start();
+        try {
+            task.run(job);
+            job.finish(null);
+            System.out.println("✅ Удаление " + job.ownerKey + " завершено: " + job.totalDeleted() + " строк");
+        } catch (Exception e) {
+            System.err.println("❌ Удаление " + job.ownerKey + " завершилось ошибкой: " + e.getMessage());
+            job.finish(e.getMessage());
+        }
+    }
+
+    /**
+     * Строки владельца по шагам, затем сама запись владельца (sellers или users)
+     */
+    private void purgeOwner(PurgeJob job, List<PurgeStep> steps, String ownerColumn, Long ownerId, String ownerTable) {
+        for (int attempt = 1; ; attempt++) {
+            for (String table : PARTITIONED) {
+                job.phase(table + " (секции)");
+                truncateOwnedPartitions(job, table, ownerColumn, ownerId);
+            }
+            for (PurgeStep step : steps) {
+                job.phase(step.table);
+                deleteInChunks(job, step, ownerColumn, ownerId);
+            }
+            job.phase(ownerTable);
+            try {
+                job.deleted(ownerTable, jdbcTemplate.update("DELETE FROM " + ownerTable + " WHERE id = ?", ownerId));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= FINAL_DELETE_ATTEMPTS) {
+                    throw e;
+                }
+                System.out.println("🔁 За время удаления у " + ownerTable + " " + ownerId + " появились строки, повторяем");
+            }
+        }
+    }
+
+    /**
+     * Порции "DELETE ... WHERE ключ IN (SELECT ключ ... LIMIT n)" в режиме autocommit -
+     * блокировки держатся только на время одной порции, между порциями пауза
+     */
+    private void deleteInChunks(PurgeJob job, PurgeStep step, String ownerColumn, Long ownerId) {
+        if (!step.ownerColumn.equals(ownerColumn)) {
+            return;
+        }
+        String sql = "DELETE FROM " + step.table + " WHERE (" + step.keys + ") IN (SELECT " + step.keys
+            + " FROM " + step.table + " WHERE " + step.ownerColumn + " = ? LIMIT ?)";
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, ownerId, chunkSize);
+            job.deleted(step.table, deleted);
+            pause();
+        } while (deleted == chunkSize);
+    }
+
+    /**
+     * Очистка секций, все строки которых принадлежат владельцу: TRUNCATE вместо построчного удаления.
+     * Секция остается присоединенной - в тот же месяц пишут другие продавцы.
+     * Если блокировку не удается взять быстро, секция остается для порционного удаления.
+     */
+    private void truncateOwnedPartitions(PurgeJob job, String table, String ownerColumn, Long ownerId) {
+        if (!"seller_id".equals(ownerColumn) && "financial_report_raw".equals(table)) {
+            return;
+        }
+        List<String> partitions = jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname", String.class, table);
+        String ownedOnly = "SELECT EXISTS (SELECT 1 FROM %1$s WHERE %2$s = ?) "
+            + "AND NOT EXISTS (SELECT 1 FROM %1$s WHERE %2$s IS DISTINCT FROM ?)";
+        for (String partition : partitions) {
+            // Проверка без блокировки отсеивает секции с чужими строками
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(String.format(ownedOnly, partition, ownerColumn),
+                    Boolean.class, ownerId, ownerId))) {
+                continue;
+            }
+            try {
+                Boolean truncated = transactionTemplate.execute(status -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = '2s'");
+                    jdbcTemplate.execute("LOCK TABLE " + partition + " IN ACCESS EXCLUSIVE MODE");
+                    // Под блокировкой - повторно: в секцию могли успеть записать другие
+                    if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(String.format(ownedOnly, partition, ownerColumn),
+                            Boolean.class, ownerId, ownerId))) {
+                        return false;
+                    }
+                    jdbcTemplate.execute("TRUNCATE " + partition);
+                    return true;
+                });
+                if (Boolean.TRUE.equals(truncated)) {
+                    job.truncated(partition);
+                }
+            } catch (Exception e) {
+                System.out.println("⚠️ Секция " + partition + " будет удалена порциями: " + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void pause() {
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Удаление прервано");
+        }
+    }
+
+    /**
+     * Таблица, ее ключ (для секционированных - вместе с ключом секционирования) и колонка владельца
+     */
+    private static final class PurgeStep {
+        private final String table;
+        private final String keys;
+        private final String ownerColumn;
+
+        PurgeStep(String table, String keys, String ownerColumn) {
+            this.table = table;
+            this.keys = keys;
+            this.ownerColumn = ownerColumn;
+        }
+    }
+
+    /**
+     * Задание удаления: текущая таблица, удаленные строки по таблицам и очищенные секции
+     */
+    public final class PurgeJob implements BackgroundJobRegistry.Job {
+        private final String id = UUID.randomUUID().toString();
+        private final String ownerKey;
+        private final Long userId;
+        private final Long sellerId;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private String status = STATUS_QUEUED;
+        private String phase = "queued";
+        private final Map<String, Long> deletedRows = new LinkedHashMap<>();
+        private final List<String> truncatedPartitions = new ArrayList<>();
+        private long startedAtMs;
+        private long finishedAtMs;
+        private String error;
+
+        PurgeJob(String ownerKey, Long userId, Long sellerId) {
+            this.ownerKey = ownerKey;
+            this.userId = userId;
+            this.sellerId = sellerId;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getOwnerKey() {
+            return ownerKey;
+        }
+
+        @Override
+        public synchronized boolean isFinished() {
+            return STATUS_DONE.equals(status) || STATUS_FAILED.equals(status);
+        }
+
+        synchronized void start() {
+            status = STATUS_RUNNING;
+            phase = "starting";
+            startedAtMs = System.currentTimeMillis();
+        }
+
+        synchronized void finish(String errorMessage) {
+            finishedAtMs = System.currentTimeMillis();
+            error = errorMessage;
+            status = errorMessage == null ? STATUS_DONE : STATUS_FAILED;
+            phase = errorMessage == null ? "done" : "failed";
+        }
+
+        synchronized void phase(String table) {
+            phase = table;
+        }
+
+        synchronized void deleted(String table, long rows) {
+            deletedRows.merge(table, rows, Long::sum);
+        }
+
+        synchronized void truncated(String partition) {
+            truncatedPartitions.add(partition);
+        }
+
+        synchronized long totalDeleted() {
+            return deletedRows.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("jobId", id);
+            map.put("owner", ownerKey);
+            map.put("userId", userId);
+            map.put("sellerId", sellerId);
+            map.put("status", status);
+            map.put("phase", phase);
+            map.put("deletedRows", new LinkedHashMap<>(deletedRows));
+            map.put("truncatedPartitions", new ArrayList<>(truncatedPartitions));
+            map.put("durationMs", startedAtMs == 0 ? null
+                : (finishedAtMs > 0 ? finishedAtMs : System.currentTimeMillis()) - startedAtMs);
+            map.put("createdAt", createdAt);
+            map.put("error", error);
+            return map;
+        }
+    }
+}
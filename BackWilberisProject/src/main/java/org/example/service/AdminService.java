@@ -9,6 +9,7 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -19,12 +20,18 @@ public class AdminService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private WildberriesApiService wildberriesApiService;
+
+    @Autowired
+    private AccountPurgeService accountPurgeService;
+
     // Получение статистики системы
     public AdminStatsDto getSystemStats() {
         try {
             System.out.println("📊 AdminService: Получение статистики системы");
             
-            List<User> allUsers = userRepository.findAll();
+            List<User> allUsers = activeUsers();
             
             int totalUsers = allUsers.size();
             int verifiedUsers = (int) allUsers.stream().filter(User::isVerified).count();
@@ -66,7 +73,7 @@ public class AdminService {
         try {
             System.out.println("👥 AdminService: Получение пользователей, поиск: " + search);
             
-            List<User> allUsers = userRepository.findAll();
+            List<User> allUsers = activeUsers();
             
             // Фильтрация по поисковому запросу
             if (search != null && !search.trim().isEmpty()) {
@@ -130,17 +137,18 @@ public class AdminService {
         }
     }
 
-    // Удаление пользователя
-    public void deleteUser(Long userId) {
+    // Удаление пользователя: аккаунт помечается сразу, данные удаляются в фоне
+    public Map<String, Object> deleteUser(Long userId) {
         try {
             System.out.println("🗑️ AdminService: Удаление пользователя ID: " + userId);
             
             User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
             
-            userRepository.delete(user);
+            AccountPurgeService.PurgeJob job = accountPurgeService.deleteUser(user);
             
-            System.out.println("✅ AdminService: Пользователь удален: " + user.getEmail());
+            System.out.println("✅ AdminService: Пользователь " + user.getEmail() + " удален, задание " + job.getId());
+            return job.toMap();
             
         } catch (Exception e) {
             System.out.println("❌ AdminService: Ошибка удаления пользователя: " + e.getMessage());
@@ -148,6 +156,18 @@ public class AdminService {
         }
     }
 
+    // Пересчет данных пользователя из архива ответов WB
+    public Map<String, Long> replayArchive(Long userId, int days) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("Пользователь не найден"));
+        
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(days);
+        System.out.println("♻️ AdminService: Пересчет из архива для " + user.getEmail() + " за " + days + " дней");
+        
+        return wildberriesApiService.replayArchive(user, startDate, endDate);
+    }
+
     // Получение API логов
     public Page<AdminApiLogDto> getApiLogs(Pageable pageable, Long userId) {
         try {
@@ -273,6 +293,13 @@ public class AdminService {
     }
 
     // Вспомогательный метод для преобразования User в AdminUserDto
+    // Пользователи без удаленных (их данные еще могут удаляться в фоне)
+    private List<User> activeUsers() {
+        return userRepository.findAll().stream()
+            .filter(user -> user.getDeletedAt() == null)
+            .collect(Collectors.toList());
+    }
+
     private AdminUserDto convertToAdminUserDto(User user) {
         return new AdminUserDto(
             user.getId(),
@@ -0,0 +1,151 @@
+package org.example.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.entity.AnalyticsData;
+import org.example.repository.AnalyticsDataRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Пакетная запись строк AnalyticsData при загрузке отчетов.
+ * Строки копятся в буфере и пишутся порциями: одна транзакция на порцию,
+ * saveAll уходит в JDBC batch (hibernate.jdbc.batch_size, упорядоченные вставки),
+ * после записи контекст персистентности очищается - память не растет с размером отчета.
+ * Строки с естественным ключом WB (wbRowId и день строки) сливаются с уже сохраненными:
+ * существующая запись обновляется, поэтому повторная синхронизация не плодит дубли.
+ */
+@Component
+public class AnalyticsDataBatchWriter {
+
+    @Autowired
+    private AnalyticsDataRepository analyticsDataRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public AnalyticsDataBatchWriter(PlatformTransactionManager transactionManager,
+                                    @Value("${wildberries.ingest.chunk-size:1000}") int chunkSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Новый буфер записи; после загрузки его нужно закрыть (или вызвать flush)
+     */
+    public Batch open() {
+        return new Batch();
+    }
+
+    private void writeChunk(List<AnalyticsData> rows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            analyticsDataRepository.saveAll(mergeExisting(rows));
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    /**
+     * Строки порции с уже сохраненными ключами получают id существующих записей
+     * (saveAll для них делает merge); повтор ключа внутри порции - побеждает последняя строка.
+     * Ключ включает день строки: таблица секционирована по period_start, и поиск идет только по секциям этих дней
+     */
+    private Collection<AnalyticsData> mergeExisting(List<AnalyticsData> rows) {
+        Map<List<Object>, AnalyticsData> keyed = new LinkedHashMap<>();
+        List<AnalyticsData> result = new ArrayList<>(rows.size());
+        for (AnalyticsData row : rows) {
+            if (row.getWbRowId() == null) {
+                result.add(row);
+            } else {
+                keyed.put(Arrays.asList(row.getUser().getId(), row.getSeller() != null ? row.getSeller().getId() : null,
+                    row.getPeriodType(), row.getWbRowId(), row.getPeriodStart()), row);
+            }
+        }
+
+        // Ключи группируются по владельцу и типу строк - один запрос на группу
+        Map<List<Object>, List<AnalyticsData>> groups = new LinkedHashMap<>();
+        keyed.forEach((key, row) -> groups.computeIfAbsent(key.subList(0, 3), group -> new ArrayList<>()).add(row));
+        groups.values().forEach(group -> {
+            AnalyticsData first = group.get(0);
+            Map<List<Object>, AnalyticsData> byKey = new HashMap<>();
+            Set<String> wbRowIds = new HashSet<>();
+            Set<LocalDate> days = new HashSet<>();
+            for (AnalyticsData row : group) {
+                byKey.put(List.of(row.getWbRowId(), row.getPeriodStart()), row);
+                wbRowIds.add(row.getWbRowId());
+                days.add(row.getPeriodStart());
+            }
+            List<AnalyticsData> existing = first.getSeller() != null
+                ? analyticsDataRepository.findBySellerAndPeriodTypeAndPeriodStartInAndWbRowIdIn(
+                    first.getSeller(), first.getPeriodType(), days, wbRowIds)
+                : analyticsDataRepository.findByUserAndSellerIsNullAndPeriodTypeAndPeriodStartInAndWbRowIdIn(
+                    first.getUser(), first.getPeriodType(), days, wbRowIds);
+            for (AnalyticsData stored : existing) {
+                AnalyticsData row = byKey.get(List.of(stored.getWbRowId(), stored.getPeriodStart()));
+                if (row == null) {
+                    continue;
+                }
+                row.setId(stored.getId());
+                row.setCreatedAt(stored.getCreatedAt());
+                row.setUpdatedAt(LocalDateTime.now());
+            }
+            result.addAll(group);
+        });
+        return result;
+    }
+
+    /**
+     * Буфер строк одной загрузки. Не потокобезопасен: используется потоком синхронизации.
+     */
+    public final class Batch implements AutoCloseable {
+        private List<AnalyticsData> buffer = new ArrayList<>(chunkSize);
+        private long written;
+
+        public void add(AnalyticsData row) {
+            buffer.add(row);
+            if (buffer.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Запись накопленных строк. Вызывается перед сохранением курсора синхронизации,
+         * чтобы курсор не ушел вперед данных.
+         */
+        public void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            writeChunk(buffer);
+            written += buffer.size();
+            buffer = new ArrayList<>(chunkSize);
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Реестр фоновых заданий с опросом статуса.
+ * На владельца (например, "user:1", "seller:5") не больше одного незавершенного задания:
+ * повторная постановка возвращает уже ждущее или выполняющееся. Незавершенные задания
+ * хранятся, сколько бы ни длились; завершенные - retention после завершения.
+ */
+public final class BackgroundJobRegistry<J extends BackgroundJobRegistry.Job> {
+
+    /**
+     * Задание реестра
+     */
+    public interface Job {
+        String getId();
+
+        String getOwnerKey();
+
+        boolean isFinished();
+    }
+
+    /**
+     * Результат постановки: задание и признак, что оно создано этим вызовом
+     */
+    public record Submission<J>(J job, boolean created) {
+    }
+
+    private final Executor executor;
+    private final Cache<String, J> jobs;
+    private final Map<String, J> activeJobs = new ConcurrentHashMap<>();
+
+    public BackgroundJobRegistry(Executor executor, Duration retention) {
+        this.executor = executor;
+        long retentionNanos = retention.toNanos();
+        this.jobs = Caffeine.newBuilder()
+            .expireAfter(new Expiry<String, J>() {
+                @Override
+                public long expireAfterCreate(String key, J job, long currentTime) {
+                    return job.isFinished() ? retentionNanos : Long.MAX_VALUE;
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, J job, long currentTime, long currentDuration) {
+                    return job.isFinished() ? retentionNanos : Long.MAX_VALUE;
+                }
+
+                @Override
+                public long expireAfterRead(String key, J job, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    }
+
+    /**
+     * Постановка задания владельца в очередь исполнителя
+     * @param factory создание задания по ключу владельца, если незавершенного у владельца нет
+     * @param task выполнение задания (статус задания ведет сама задача)
+     * @throws RuntimeException с queueFullMessage, если очередь исполнителя переполнена
+     */
+    public Submission<J> submit(String ownerKey, Function<String, J> factory, Consumer<J> task, String queueFullMessage) {
+        boolean[] created = new boolean[1];
+        J job = activeJobs.computeIfAbsent(ownerKey, key -> {
+            created[0] = true;
+            return factory.apply(key);
+        });
+        if (!created[0]) {
+            return new Submission<>(job, false);
+        }
+
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(ownerKey, job);
+            jobs.invalidate(job.getId());
+            throw new RuntimeException(queueFullMessage);
+        }
+        return new Submission<>(job, true);
+    }
+
+    public J find(String jobId) {
+        return jobs.getIfPresent(jobId);
+    }
+
+    public Collection<J> jobs() {
+        return jobs.asMap().values();
+    }
+
+    public long size() {
+        return jobs.estimatedSize();
+    }
+
+    private void run(J job, Consumer<J> task) {
+        try {
+            task.accept(job);
+        } finally {
+            activeJobs.remove(job.getOwnerKey(), job);
+            // Повторная запись пересчитывает срок: от завершения, а не от постановки
+            jobs.put(job.getId(), job);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.service;
+
+import org.example.entity.Seller;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Инкрементальное обновление агрегатов детализации реализации.
+ * Пересчитываются только дни, строки которых только что загружены, и недели этих дней
+ * (функция refresh_financial_rollups, миграция V4); остальные корзины не трогаются.
+ */
+@Service
+public class FinancialRollupService {
+
+    @Autowired
+    private SyncEventBus syncEventBus;
+
+    /**
+     * Пересчет дневных и недельных агрегатов продавца за дни загруженных строк
+     * на соединении вызывающего, в его транзакции: агрегаты фиксируются вместе со строками.
+     * Транзакции загрузки одного продавца пересчитывают агрегаты по очереди
+     * @return количество обновленных недель
+     */
+    public int refresh(Connection connection, Long sellerId, Collection<LocalDate> days) throws SQLException {
+        if (days.isEmpty()) {
+            return 0;
+        }
+        try (PreparedStatement lock = connection.prepareStatement("SELECT pg_advisory_xact_lock(hashtext(?))")) {
+            lock.setString(1, "financial_rollups:" + sellerId);
+            lock.execute();
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT refresh_financial_rollups(?, ?)")) {
+            statement.setLong(1, sellerId);
+            statement.setArray(2, connection.createArrayOf("date", days.stream().map(Date::valueOf).toArray()));
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Событие о пересчете агрегатов - после фиксации транзакции;
+     * продавец должен быть загружен вместе с пользователем
+     */
+    public void publishRefreshed(Seller seller, int days, int weeks) {
+        syncEventBus.publish(seller.getUser().getId(), seller.getId(), SyncEventBus.ROLLUPS_REBUILT,
+            Map.of("days", days, "weeks", weeks));
+    }
+}
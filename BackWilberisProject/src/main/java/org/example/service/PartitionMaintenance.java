@@ -0,0 +1,171 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Обслуживание помесячных секций analytics_data и financial_report_raw (миграция V3).
+ * Периодически создает секции на несколько месяцев вперед и разбирает секцию DEFAULT:
+ * для каждого месяца, строки которого туда попали, создается своя секция, и строки переезжают в нее.
+ * Старый месяц убирается отсоединением секции - без построчного DELETE.
+ */
+@Component
+public class PartitionMaintenance {
+
+    // Секционированные таблицы и их ключ секционирования
+    private static final Map<String, String> TABLES = Map.of(
+        "analytics_data", "period_start",
+        "financial_report_raw", "operation_date");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final long checkIntervalHours;
+    private final ScheduledExecutorService timer;
+
+    public PartitionMaintenance(@Value("${wildberries.partitions.enabled:true}") boolean enabled,
+                                @Value("${wildberries.partitions.months-ahead:3}") int monthsAhead,
+                                @Value("${wildberries.partitions.check-interval-hours:6}") long checkIntervalHours) {
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.checkIntervalHours = checkIntervalHours;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Первый проход после старта - когда миграции уже применены
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        timer.scheduleWithFixedDelay(this::maintainQuietly, 0, checkIntervalHours, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (Exception e) {
+            System.err.println("❌ Ошибка обслуживания секций: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Секции на горизонт вперед и разбор DEFAULT
+     * @return количество созданных секций
+     */
+    public int maintain() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        int created = 0;
+        for (Map.Entry<String, String> table : TABLES.entrySet()) {
+            created += ensureMonths(table.getKey(), currentMonth, currentMonth.plusMonths(monthsAhead));
+            List<LocalDate> strayMonths = jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('month', " + table.getValue() + ")::date FROM " + table.getKey() + "_default",
+                LocalDate.class);
+            for (LocalDate month : strayMonths) {
+                created += ensureMonths(table.getKey(), month, month);
+            }
+        }
+        if (created > 0) {
+            System.out.println("🗂️ Создано секций: " + created);
+        }
+        return created;
+    }
+
+    /**
+     * Секции таблицы на месяцы периода (существующие не трогаются).
+     * Вызывается перед загрузкой исторического периода, чтобы строки не шли в DEFAULT.
+     */
+    public int ensureMonths(String table, LocalDate from, LocalDate to) {
+        Integer created = jdbcTemplate.queryForObject("SELECT ensure_monthly_partitions(?, ?, ?, ?)", Integer.class,
+            table, keyColumn(table), Date.valueOf(from), Date.valueOf(to));
+        return created != null ? created : 0;
+    }
+
+    /**
+     * Отсоединение секции месяца: строки остаются в отдельной таблице (для архива) или удаляются вместе с ней
+     * @return имя отсоединенной таблицы или null, если секции месяца нет
+     */
+    public String detachMonth(String table, YearMonth month, boolean drop) {
+        keyColumn(table);
+        String partition = table + "_p" + month.format(SUFFIX);
+        Boolean attached = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = to_regclass(?) AND inhparent = to_regclass(?))",
+            Boolean.class, partition, table);
+        if (!Boolean.TRUE.equals(attached)) {
+            return null;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+        if (drop) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        }
+        System.out.println("🗂️ Секция " + partition + (drop ? " удалена" : " отсоединена"));
+        return partition;
+    }
+
+    /**
+     * Месяцы присоединенных помесячных секций таблицы (без DEFAULT), по возрастанию
+     */
+    public List<YearMonth> months(String table) {
+        keyColumn(table);
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                    + "WHERE i.inhparent = to_regclass(?) AND c.relname LIKE ? ORDER BY c.relname",
+                String.class, table, table + "\\_p%").stream()
+            .map(name -> YearMonth.parse(name.substring(name.length() - 6), SUFFIX))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Секции таблиц с оценкой числа строк (по статистике планировщика)
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String table : TABLES.keySet()) {
+            result.put(table, jdbcTemplate.queryForList(
+                "SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bounds, "
+                    + "GREATEST(c.reltuples, 0)::bigint AS estimated_rows "
+                    + "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                    + "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname", table));
+        }
+        return result;
+    }
+
+    private static String keyColumn(String table) {
+        String keyColumn = TABLES.get(table);
+        if (keyColumn == null) {
+            throw new IllegalArgumentException("Таблица не секционирована: " + table);
+        }
+        return keyColumn;
+    }
+}
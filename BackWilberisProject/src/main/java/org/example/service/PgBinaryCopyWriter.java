@@ -0,0 +1,183 @@
+package org.example.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись строк в PostgreSQL через COPY ... FROM STDIN (FORMAT binary).
+ * Значения кодируются в двоичный формат COPY и сразу уходят в поток CopyManager,
+ * строки нигде не накапливаются. Порядок полей строки должен совпадать
+ * со списком колонок в команде COPY.
+ */
+public final class PgBinaryCopyWriter implements AutoCloseable {
+
+    private static final byte[] SIGNATURE = { 'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0 };
+    private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final short NUMERIC_POSITIVE = 0x0000;
+    private static final short NUMERIC_NEGATIVE = 0x4000;
+
+    private final PGCopyOutputStream copy;
+    private final DataOutputStream out;
+    private long rows;
+    private boolean finished;
+
+    public PgBinaryCopyWriter(PGConnection connection, String copySql, int bufferSize) throws SQLException, IOException {
+        this.copy = new PGCopyOutputStream(connection, copySql, bufferSize);
+        this.out = new DataOutputStream(new BufferedOutputStream(copy, bufferSize));
+        out.write(SIGNATURE);
+        out.writeInt(0); // флаги
+        out.writeInt(0); // длина расширения заголовка
+    }
+
+    public void startRow(int fieldCount) throws IOException {
+        out.writeShort(fieldCount);
+        rows++;
+    }
+
+    public void writeNull() throws IOException {
+        out.writeInt(-1);
+    }
+
+    public void writeLong(Long value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(8);
+        out.writeLong(value);
+    }
+
+    public void writeInt(Integer value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(4);
+        out.writeInt(value);
+    }
+
+    public void writeBoolean(Boolean value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(1);
+        out.writeByte(value ? 1 : 0);
+    }
+
+    public void writeText(String value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * timestamp without time zone - микросекунды от 2000-01-01
+     */
+    public void writeTimestamp(LocalDateTime value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        out.writeInt(8);
+        out.writeLong(ChronoUnit.MICROS.between(PG_EPOCH, value));
+    }
+
+    /**
+     * numeric - цифры по основанию 10000, вес первой группы, знак и число знаков после запятой.
+     * Лишние знаки округляет сервер по типу колонки.
+     */
+    public void writeNumeric(BigDecimal value) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        writeNumeric(out, value);
+    }
+
+    /**
+     * Поле numeric (длина и значение) без потока COPY - отдельно для проверки кодирования
+     */
+    static void writeNumeric(DataOutput out, BigDecimal value) throws IOException {
+        BigDecimal normalized = value.scale() < 0 ? value.setScale(0) : value;
+        String plain = normalized.abs().toPlainString();
+        int point = plain.indexOf('.');
+        String integerPart = point < 0 ? plain : plain.substring(0, point);
+        String fractionPart = point < 0 ? "" : plain.substring(point + 1);
+
+        // Целую часть дополняем нулями слева, дробную - справа до групп по 4 цифры
+        int integerPad = (4 - integerPart.length() % 4) % 4;
+        int fractionPad = (4 - fractionPart.length() % 4) % 4;
+        String integerDigits = "0".repeat(integerPad) + integerPart;
+        String fractionDigits = fractionPart + "0".repeat(fractionPad);
+
+        List<Short> groups = new ArrayList<>();
+        for (int i = 0; i < integerDigits.length(); i += 4) {
+            groups.add(Short.parseShort(integerDigits.substring(i, i + 4)));
+        }
+        int weight = groups.size() - 1;
+        for (int i = 0; i < fractionDigits.length(); i += 4) {
+            groups.add(Short.parseShort(fractionDigits.substring(i, i + 4)));
+        }
+        while (!groups.isEmpty() && groups.get(0) == 0) {
+            groups.remove(0);
+            weight--;
+        }
+        while (!groups.isEmpty() && groups.get(groups.size() - 1) == 0) {
+            groups.remove(groups.size() - 1);
+        }
+        if (groups.isEmpty()) {
+            weight = 0;
+        }
+
+        out.writeInt(8 + groups.size() * 2);
+        out.writeShort(groups.size());
+        out.writeShort(weight);
+        out.writeShort(normalized.signum() < 0 ? NUMERIC_NEGATIVE : NUMERIC_POSITIVE);
+        out.writeShort(normalized.scale());
+        for (short group : groups) {
+            out.writeShort(group);
+        }
+    }
+
+    /**
+     * Завершение COPY
+     * @return количество строк, принятых сервером
+     */
+    public long finish() throws IOException, SQLException {
+        out.writeShort(-1);
+        out.flush();
+        finished = true;
+        return copy.endCopy();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Незавершенный COPY отменяется; транзакцию откатывает вызывающий
+     */
+    @Override
+    public void close() throws SQLException {
+        if (!finished && copy.isActive()) {
+            copy.cancelCopy();
+        }
+    }
+}
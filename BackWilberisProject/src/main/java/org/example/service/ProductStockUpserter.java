@@ -0,0 +1,200 @@
+package org.example.service;
+
+import org.example.dto.wildberries.WbStockRecord;
+import org.example.entity.Seller;
+import org.example.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Запись остатков в products одним upsert на порцию.
+ * Строки отчета (по одной на склад) сначала суммируются по nmId, текущие значения
+ * товаров загружаются одним запросом, и в БД уходят только изменившиеся товары:
+ * INSERT ... VALUES (...), (...) ON CONFLICT (user_id, nm_id) DO UPDATE.
+ * Товары, которых нет в полном снимке остатков, помечаются неактивными (is_active = false);
+ * по этой метке и updated_at RetentionCompactor удаляет давно пропавшие товары.
+ */
+@Component
+public class ProductStockUpserter {
+
+    private static final String INSERT_PREFIX = "INSERT INTO products (user_id, seller_id, nm_id, category, brand, "
+        + "vendor_code, current_stock, stock_value, reviews_count, conversion_rate, is_active, created_at, updated_at) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, 0, 0, 0, TRUE, ?, ?)";
+    private static final int[] ROW_TYPES = {
+        Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR,
+        Types.VARCHAR, Types.INTEGER, Types.TIMESTAMP, Types.TIMESTAMP
+    };
+    private static final String ON_CONFLICT = " ON CONFLICT (user_id, nm_id) DO UPDATE SET "
+        + "seller_id = EXCLUDED.seller_id, category = EXCLUDED.category, brand = EXCLUDED.brand, "
+        + "vendor_code = EXCLUDED.vendor_code, current_stock = EXCLUDED.current_stock, is_active = TRUE, "
+        + "updated_at = EXCLUDED.updated_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final int chunkSize;
+
+    public ProductStockUpserter(@Value("${wildberries.ingest.upsert-chunk-size:500}") int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Сумма остатков товара по всем складам и последние непустые атрибуты
+     */
+    public static final class StockTotals {
+        private String category;
+        private String brand;
+        private String vendorCode;
+        private Integer quantity;
+
+        public void add(WbStockRecord stock) {
+            if (stock.subject() != null) {
+                category = stock.subject();
+            }
+            if (stock.brand() != null) {
+                brand = stock.brand();
+            }
+            if (stock.supplierArticle() != null) {
+                vendorCode = stock.supplierArticle();
+            }
+            if (stock.quantity() != null) {
+                quantity = (quantity != null ? quantity : 0) + stock.quantity();
+            }
+        }
+    }
+
+    /**
+     * Накопление строки отчета в итогах по nmId
+     */
+    public static void accumulate(Map<Long, StockTotals> totals, WbStockRecord stock) {
+        if (stock.nmId() == 0) {
+            return;
+        }
+        totals.computeIfAbsent(stock.nmId(), nmId -> new StockTotals()).add(stock);
+    }
+
+    private record ProductState(Long sellerId, String category, String brand, String vendorCode, Integer stock,
+                                boolean active) {
+    }
+
+    /**
+     * Запись итогов остатков в товары пользователя
+     * @param seller продавец, к которому привязываются товары (null - основной ключ пользователя)
+     * @return количество вставленных или измененных товаров
+     */
+    public long upsert(User user, Seller seller, Map<Long, StockTotals> totals) {
+        if (totals.isEmpty()) {
+            return 0;
+        }
+        Map<Long, ProductState> existing = loadExisting(user.getId(), totals.keySet());
+        Long sellerId = seller != null ? seller.getId() : null;
+
+        List<Object[]> changed = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        totals.forEach((nmId, total) -> {
+            ProductState current = existing.get(nmId);
+            // Пустые поля отчета не затирают сохраненные значения
+            ProductState target = current == null
+                ? new ProductState(sellerId, total.category, total.brand, total.vendorCode,
+                    total.quantity != null ? total.quantity : 0, true)
+                : new ProductState(sellerId != null ? sellerId : current.sellerId(),
+                    total.category != null ? total.category : current.category(),
+                    total.brand != null ? total.brand : current.brand(),
+                    total.vendorCode != null ? total.vendorCode : current.vendorCode(),
+                    total.quantity != null ? total.quantity : current.stock(), true);
+            if (Objects.equals(current, target)) {
+                return;
+            }
+            changed.add(new Object[] { user.getId(), target.sellerId(), nmId, target.category(), target.brand(),
+                target.vendorCode(), target.stock(), now, now });
+        });
+
+        for (int from = 0; from < changed.size(); from += chunkSize) {
+            writeChunk(changed.subList(from, Math.min(from + chunkSize, changed.size())));
+        }
+        System.out.println("📦 Остатки: " + totals.size() + " товаров, изменено " + changed.size());
+        return changed.size();
+    }
+
+    /**
+     * Пометка неактивными товаров, которых нет в полном снимке остатков ключа:
+     * товары продавца - по продавцу, товары основного ключа пользователя - без продавца.
+     * Пустой снимок ничего не помечает: он скорее означает сбой отчета, чем пропажу всех товаров
+     * @return количество помеченных товаров
+     */
+    public int deactivateMissing(User user, Seller seller, Collection<Long> snapshotNmIds) {
+        if (snapshotNmIds.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int deactivated = jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement("UPDATE products SET is_active = FALSE, updated_at = ? "
+                + "WHERE user_id = ? AND " + (seller != null ? "seller_id = ?" : "seller_id IS NULL")
+                + " AND is_active IS NOT FALSE AND nm_id <> ALL (?)");
+            int index = 1;
+            statement.setTimestamp(index++, now);
+            statement.setLong(index++, user.getId());
+            if (seller != null) {
+                statement.setLong(index++, seller.getId());
+            }
+            statement.setArray(index, connection.createArrayOf("bigint", snapshotNmIds.toArray()));
+            return statement;
+        });
+        if (deactivated > 0) {
+            System.out.println("📦 Остатки: " + deactivated + " товаров нет в снимке, помечены неактивными");
+        }
+        return deactivated;
+    }
+
+    private Map<Long, ProductState> loadExisting(Long userId, Collection<Long> nmIds) {
+        Map<Long, ProductState> existing = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement("SELECT nm_id, seller_id, category, brand, vendor_code, current_stock, is_active "
+                + "FROM products WHERE user_id = ? AND nm_id = ANY (?)");
+            Array array = connection.createArrayOf("bigint", nmIds.toArray());
+            statement.setLong(1, userId);
+            statement.setArray(2, array);
+            return statement;
+        }, row -> {
+            existing.put(row.getLong("nm_id"), new ProductState(
+                (Long) row.getObject("seller_id", Long.class),
+                row.getString("category"),
+                row.getString("brand"),
+                row.getString("vendor_code"),
+                (Integer) row.getObject("current_stock", Integer.class),
+                // Товар, вернувшийся в снимок, снова становится активным
+                row.getBoolean("is_active")));
+        });
+        return existing;
+    }
+
+    private void writeChunk(List<Object[]> rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows.size() * (ROW.length() + 2) + ON_CONFLICT.length());
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[rows.size() * ROW_TYPES.length];
+        int[] types = new int[args.length];
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+            System.arraycopy(rows.get(i), 0, args, i * ROW_TYPES.length, ROW_TYPES.length);
+            System.arraycopy(ROW_TYPES, 0, types, i * ROW_TYPES.length, ROW_TYPES.length);
+        }
+        sql.append(ON_CONFLICT);
+        jdbcTemplate.update(sql.toString(), args, types);
+    }
+}
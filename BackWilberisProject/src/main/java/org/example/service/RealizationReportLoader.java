@@ -0,0 +1,292 @@
+package org.example.service;
+
+import org.example.dto.wildberries.WbRealizationRecord;
+import org.example.entity.Seller;
+import org.example.entity.SyncWatermark;
+import org.example.repository.SyncWatermarkRepository;
+import org.example.service.wildberries.WbPriorityLanes;
+import org.example.service.wildberries.WbReport;
+import org.example.service.wildberries.WbSyncListener;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.IsoFields;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Загрузка детализации отчета реализации (reportDetailByPeriod) в financial_report_raw.
+ * Страницы запрашиваются по rrdid; строки страницы разбираются потоково и сразу
+ * уходят в COPY ... FROM STDIN (FORMAT binary), минуя JPA; строки, уже загруженные
+ * другим периодом, пропускаются по уникальному ключу (seller_id, rrd_id, operation_date).
+ * Каждая страница пишется в своей транзакции вместе с курсором rrdid в sync_watermarks
+ * и пересчетом дневных и недельных агрегатов ее дней (FinancialRollupService),
+ * поэтому прерванная загрузка продолжается со следующей страницы без дублей и без устаревших агрегатов.
+ */
+@Service
+public class RealizationReportLoader {
+
+    private static final String COLUMNS = "seller_id, rrd_id, realization_report_id, "
+        + "wb_article, supplier_article, operation_type, operation_date, sale_amount, commission_percent, "
+        + "commission_amount, logistics_cost, storage_cost, other_deductions, to_pay_amount, quantity, "
+        + "return_payment_calculated, week_number, is_return_operation, penalty_amount, bonus_amount, "
+        + "report_date, created_at";
+    // Страница копируется во временную таблицу транзакции, а в financial_report_raw попадают
+    // только строки, которых там еще нет (uk_financial_report_raw_seller_rrd): пересекающиеся
+    // периоды загружаются своими курсорами и приносят одни и те же строки
+    private static final String STAGE_SQL = "CREATE TEMP TABLE financial_report_raw_page ON COMMIT DROP AS SELECT "
+        + COLUMNS + " FROM financial_report_raw WITH NO DATA";
+    private static final String COPY_SQL = "COPY financial_report_raw_page (" + COLUMNS + ") FROM STDIN (FORMAT binary)";
+    private static final String INSERT_SQL = "INSERT INTO financial_report_raw (" + COLUMNS + ") SELECT " + COLUMNS
+        + " FROM financial_report_raw_page ON CONFLICT DO NOTHING";
+    private static final int COPY_FIELDS = 22;
+    private static final int OPERATION_TYPE_LENGTH = 50;
+
+    @Autowired
+    private WildberriesApiService wildberriesApiService;
+
+    @Autowired
+    private SyncWatermarkRepository syncWatermarkRepository;
+
+    @Autowired
+    private SyncEventBus syncEventBus;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PartitionMaintenance partitionMaintenance;
+
+    @Autowired
+    private FinancialRollupService financialRollupService;
+
+    private final int pageSize;
+    private final int copyBufferSize;
+
+    public RealizationReportLoader(@Value("${wildberries.realization.page-size:100000}") int pageSize,
+                                   @Value("${wildberries.realization.copy-buffer-kb:64}") int copyBufferKb) {
+        this.pageSize = pageSize;
+        this.copyBufferSize = copyBufferKb * 1024;
+    }
+
+    /**
+     * Загрузка детализации продавца за период; продавец должен быть загружен вместе с пользователем
+     * @return количество загруженных строк
+     */
+    public long load(Seller seller, LocalDate dateFrom, LocalDate dateTo, WbSyncListener downstream) {
+        Long userId = seller.getUser().getId();
+        WbSyncListener listener = syncEventBus.listenerFor(userId, seller.getId(), downstream);
+        listener.onReportStarted(WbReport.REALIZATION);
+        try {
+            // Секции месяцев периода создаются заранее, иначе исторические строки легли бы в DEFAULT
+            partitionMaintenance.ensureMonths("financial_report_raw", dateFrom, dateTo);
+            long loaded = WbPriorityLanes.inBackground(() -> loadPages(seller, dateFrom, dateTo, listener));
+            listener.onReportFinished(WbReport.REALIZATION, loaded);
+            // Загрузка - отдельная задача синхронизации, клиент SSE ждет ее завершения
+            syncEventBus.publish(userId, seller.getId(), SyncEventBus.SYNC_DONE,
+                SyncEventBus.summary(Map.of(WbReport.REALIZATION, loaded)));
+            return loaded;
+        } catch (RuntimeException e) {
+            listener.onReportFailed(WbReport.REALIZATION, e);
+            syncEventBus.publish(userId, seller.getId(), SyncEventBus.SYNC_FAILED,
+                Map.of("message", String.valueOf(e.getMessage())));
+            throw e;
+        }
+    }
+
+    private long loadPages(Seller seller, LocalDate dateFrom, LocalDate dateTo, WbSyncListener listener) {
+        // Курсор привязан к периоду: rrdid другого периода пропустил бы его строки
+        String reportType = WbReport.REALIZATION.getCode() + ":" + dateFrom + ":" + dateTo;
+        SyncWatermark watermark = syncWatermarkRepository.findBySellerAndReportType(seller, reportType)
+            .orElseGet(() -> syncWatermarkRepository.save(new SyncWatermark(seller.getUser(), seller, reportType)));
+        long rrdId = watermark.getLastRrdId() != null ? watermark.getLastRrdId() : 0;
+        if (rrdId > 0) {
+            System.out.println("⏩ Детализация продавца " + seller.getSellerName() + " продолжается с rrdid " + rrdId);
+        }
+
+        long loaded = 0;
+        while (true) {
+            PageCopy page = new PageCopy(seller.getId(), LocalDateTime.now());
+            long pageRows;
+            int rollupWeeks = 0;
+            try {
+                pageRows = wildberriesApiService.streamRealizationReport(seller.getWbApiKey(), dateFrom, dateTo,
+                    rrdId, pageSize, page::write);
+                if (pageRows > 0) {
+                    rollupWeeks = page.commit(watermark.getId());
+                }
+            } finally {
+                page.close();
+            }
+            if (pageRows == 0) {
+                break;
+            }
+            financialRollupService.publishRefreshed(seller, page.days.size(), rollupWeeks);
+            loaded += pageRows;
+            listener.onRowsProcessed(WbReport.REALIZATION, pageRows);
+            System.out.println("📄 Детализация продавца " + seller.getSellerName() + ": " + pageRows
+                + " строк, новых " + page.inserted + ", rrdid " + page.maxRrdId);
+
+            // Неполная страница - строк больше нет
+            if (pageRows < pageSize || page.maxRrdId <= rrdId) {
+                break;
+            }
+            rrdId = page.maxRrdId;
+        }
+        return loaded;
+    }
+
+    /**
+     * COPY одной страницы. Соединение берется при первой строке, поэтому
+     * ожидание квоты и ответа WB не держит транзакцию открытой.
+     */
+    private final class PageCopy {
+        private final Long sellerId;
+        private final LocalDateTime loadedAt;
+        private Connection connection;
+        private PgBinaryCopyWriter writer;
+        private long maxRrdId;
+        private long inserted;
+        private final Set<LocalDate> days = new HashSet<>();
+
+        PageCopy(Long sellerId, LocalDateTime loadedAt) {
+            this.sellerId = sellerId;
+            this.loadedAt = loadedAt;
+        }
+
+        void write(WbRealizationRecord row) {
+            try {
+                if (writer == null) {
+                    connection = dataSource.getConnection();
+                    connection.setAutoCommit(false);
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(STAGE_SQL);
+                    }
+                    writer = new PgBinaryCopyWriter(connection.unwrap(PGConnection.class), COPY_SQL, copyBufferSize);
+                }
+                days.add(writeRow(writer, row));
+                maxRrdId = Math.max(maxRrdId, row.rrdId());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Ошибка COPY детализации: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * @return день операции строки
+         */
+        private LocalDate writeRow(PgBinaryCopyWriter writer, WbRealizationRecord row) throws IOException {
+            String operationType = row.supplierOperName();
+            if (operationType != null && operationType.length() > OPERATION_TYPE_LENGTH) {
+                operationType = operationType.substring(0, OPERATION_TYPE_LENGTH);
+            }
+            BigDecimal toPay = money(row.forPay());
+            // Формула возвратов из FinancialReportRaw: =ЕСЛИ(J:J="возврат";AH2;0)*2
+            boolean isReturn = "возврат".equalsIgnoreCase(operationType);
+            LocalDateTime reportDate = row.createDate() != null ? row.createDate() : loadedAt;
+            // operation_date - ключ секционирования и не может быть пустым
+            LocalDateTime operationDate = row.rrDate() != null ? row.rrDate() : reportDate;
+
+            writer.startRow(COPY_FIELDS);
+            writer.writeLong(sellerId);
+            writer.writeLong(row.rrdId());
+            writer.writeLong(row.realizationReportId());
+            writer.writeText(row.nmId() != 0 ? String.valueOf(row.nmId()) : null);
+            writer.writeText(row.supplierArticle());
+            writer.writeText(operationType);
+            writer.writeTimestamp(operationDate);
+            writer.writeNumeric(money(row.retailAmount()));
+            writer.writeNumeric(money(row.commissionPercent()));
+            writer.writeNumeric(money(row.salesCommission()));
+            writer.writeNumeric(money(row.deliveryRub()));
+            writer.writeNumeric(money(row.storageFee()));
+            writer.writeNumeric(money(row.deduction()));
+            writer.writeNumeric(toPay);
+            writer.writeNumeric(BigDecimal.valueOf(row.quantity()));
+            writer.writeNumeric(isReturn ? toPay.multiply(BigDecimal.valueOf(2)) : BigDecimal.ZERO);
+            writer.writeInt(operationDate.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            writer.writeBoolean(isReturn);
+            writer.writeNumeric(money(row.penalty()));
+            writer.writeNumeric(money(row.additionalPayment()));
+            writer.writeTimestamp(reportDate);
+            writer.writeTimestamp(loadedAt);
+            return operationDate.toLocalDate();
+        }
+
+        /**
+         * Завершение COPY, перенос новых строк, сохранение курсора и пересчет агрегатов дней страницы
+         * в той же транзакции
+         * @return количество обновленных недель агрегатов
+         */
+        int commit(Long watermarkId) {
+            try {
+                writer.finish();
+                try (Statement statement = connection.createStatement()) {
+                    inserted = statement.executeUpdate(INSERT_SQL);
+                }
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE sync_watermarks SET last_rrd_id = ?, rows_synced = rows_synced + ?, updated_at = ? WHERE id = ?")) {
+                    statement.setLong(1, maxRrdId);
+                    statement.setLong(2, inserted);
+                    statement.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+                    statement.setLong(4, watermarkId);
+                    statement.executeUpdate();
+                }
+                // Агрегаты пересчитываются только по дням операций этой страницы
+                int weeks = financialRollupService.refresh(connection, sellerId, days);
+                connection.commit();
+                return weeks;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Ошибка сохранения страницы детализации: " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Освобождение соединения; незакоммиченная страница откатывается
+         */
+        void close() {
+            if (connection == null) {
+                return;
+            }
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                System.err.println("❌ Ошибка отката страницы детализации: " + e.getMessage());
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("❌ Ошибка закрытия соединения: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
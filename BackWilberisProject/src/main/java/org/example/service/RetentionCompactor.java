@@ -0,0 +1,425 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сроки хранения и уплотнение данных аналитики.
+ * Срок задается по таблице (wildberries.retention.days) и может быть переопределен тарифом
+ * пользователя (wildberries.retention.plans, без активной подписки - PLAN_FREE).
+ * Компактор работает только в окне низкой нагрузки: удаляет устаревшие строки порциями по ключу
+ * с паузами, старые помесячные секции - целиком, а из снимков расчетов (юнит-экономика,
+ * планирование поставок) оставляет последний за день по продавцу и артикулу.
+ */
+@Component
+public class RetentionCompactor {
+
+    private static final String FREE_PLAN = "PLAN_FREE";
+
+    // Таблицы со сроком хранения: колонка даты, колонка владельца и ключ строки
+    private static final Map<String, AgedTable> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("analytics_data", new AgedTable("period_start", false, "user_id", "id, period_start", true));
+        TABLES.put("financial_report_raw", new AgedTable("operation_date", false, "seller_id", "id, operation_date", true));
+        TABLES.put("article_daily_rollups", new AgedTable("day", false, "seller_id", "id", false));
+        TABLES.put("unit_economics", new AgedTable("calculation_date", true, "seller_id", "id", false));
+        TABLES.put("supply_planning", new AgedTable("calculation_date", true, "seller_id", "id", false));
+        TABLES.put("products", new AgedTable("updated_at", true, "user_id", "id", false));
+    }
+
+    // Снимки расчетов: каждый расчет пишет новую строку на артикул
+    private static final List<String> SNAPSHOT_TABLES = List.of("unit_economics", "supply_planning");
+
+    // Товар удаляется только неактивным (пропал из снимка остатков, ProductStockUpserter.deactivateMissing;
+    // updated_at - время пропажи) и без ссылок из таблиц продавца
+    private static final String PRODUCT_UNUSED = " AND is_active IS NOT TRUE"
+        + " AND NOT EXISTS (SELECT 1 FROM unit_economics r WHERE r.product_id = products.id)"
+        + " AND NOT EXISTS (SELECT 1 FROM supply_planning r WHERE r.product_id = products.id)"
+        + " AND NOT EXISTS (SELECT 1 FROM promotions_tracking r WHERE r.product_id = products.id)"
+        + " AND NOT EXISTS (SELECT 1 FROM advertising_campaigns r WHERE r.product_id = products.id)"
+        + " AND NOT EXISTS (SELECT 1 FROM weekly_financial_reports r WHERE r.product_id = products.id)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PartitionMaintenance partitionMaintenance;
+
+    private final boolean enabled;
+    private final int windowStartHour;
+    private final int windowEndHour;
+    private final long checkIntervalMinutes;
+    private final int batchSize;
+    private final long pauseMs;
+    private final Map<String, Integer> defaultDays;
+    // Тариф -> таблица -> дни
+    private final Map<String, Map<String, Integer>> planDays = new HashMap<>();
+    private final ScheduledExecutorService timer;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile RunStats currentRun;
+    private volatile Map<String, Object> lastRun = Map.of();
+    private volatile LocalDate lastRunDay;
+
+    public RetentionCompactor(Environment environment,
+                              @Value("${wildberries.retention.enabled:true}") boolean enabled,
+                              @Value("${wildberries.retention.window-start-hour:2}") int windowStartHour,
+                              @Value("${wildberries.retention.window-end-hour:6}") int windowEndHour,
+                              @Value("${wildberries.retention.check-interval-minutes:30}") long checkIntervalMinutes,
+                              @Value("${wildberries.retention.batch-size:5000}") int batchSize,
+                              @Value("${wildberries.retention.pause-ms:100}") long pauseMs) {
+        this.enabled = enabled;
+        this.windowStartHour = windowStartHour;
+        this.windowEndHour = windowEndHour;
+        this.checkIntervalMinutes = checkIntervalMinutes;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+
+        Binder binder = Binder.get(environment);
+        this.defaultDays = binder.bind("wildberries.retention.days", Bindable.mapOf(String.class, Integer.class))
+            .orElseGet(HashMap::new);
+        // Вложенные ключи тарифов приходят как "PLAN_FREE.analytics_data"
+        binder.bind("wildberries.retention.plans", Bindable.mapOf(String.class, Integer.class))
+            .orElseGet(HashMap::new)
+            .forEach((key, days) -> {
+                int dot = key.indexOf('.');
+                if (dot > 0) {
+                    planDays.computeIfAbsent(key.substring(0, dot), plan -> new HashMap<>())
+                        .put(key.substring(dot + 1), days);
+                }
+            });
+        for (String table : defaultDays.keySet()) {
+            if (!TABLES.containsKey(table)) {
+                throw new IllegalArgumentException("Срок хранения для неизвестной таблицы: " + table);
+            }
+        }
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "retention-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        timer.scheduleWithFixedDelay(this::runInWindowQuietly, 1, checkIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Плановый проход: раз в сутки и только в окне низкой нагрузки
+     */
+    private void runInWindowQuietly() {
+        if (!inWindow() || LocalDate.now().equals(lastRunDay)) {
+            return;
+        }
+        try {
+            run(true);
+            lastRunDay = LocalDate.now();
+        } catch (Exception e) {
+            System.err.println("❌ Ошибка компактора хранения: " + e.getMessage());
+        }
+    }
+
+    private boolean inWindow() {
+        int hour = LocalTime.now().getHour();
+        return windowStartHour <= windowEndHour
+            ? hour >= windowStartHour && hour < windowEndHour
+            : hour >= windowStartHour || hour < windowEndHour;
+    }
+
+    /**
+     * Проход компактора; при respectWindow проход прерывается, когда окно закрывается
+     * @return итог прохода (удаленные строки по таблицам, удаленные секции)
+     */
+    public Map<String, Object> run(boolean respectWindow) {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Компактор уже работает");
+        }
+        RunStats stats = new RunStats();
+        currentRun = stats;
+        try {
+            LocalDate today = LocalDate.now();
+            Map<Long, String> userPlans = userPlans();
+            Map<Long, Long> sellerUsers = new LinkedHashMap<>();
+            jdbcTemplate.query("SELECT s.id, s.user_id FROM sellers s JOIN users u ON u.id = s.user_id "
+                    + "WHERE s.deleted_at IS NULL AND u.deleted_at IS NULL",
+                row -> { sellerUsers.put(row.getLong(1), row.getLong(2)); });
+
+            // Старые секции целиком - по самому длинному сроку среди тарифов
+            for (Map.Entry<String, AgedTable> entry : TABLES.entrySet()) {
+                if (entry.getValue().partitioned) {
+                    dropExpiredPartitions(entry.getKey(), today, stats);
+                }
+            }
+
+            // Строки старше срока тарифа владельца
+            for (Map.Entry<String, AgedTable> entry : TABLES.entrySet()) {
+                String table = entry.getKey();
+                AgedTable aged = entry.getValue();
+                Map<Long, String> owners = new LinkedHashMap<>();
+                if ("user_id".equals(aged.ownerColumn)) {
+                    owners.putAll(userPlans);
+                } else {
+                    sellerUsers.forEach((sellerId, userId) -> owners.put(sellerId, userPlans.getOrDefault(userId, FREE_PLAN)));
+                }
+                for (Map.Entry<Long, String> owner : owners.entrySet()) {
+                    Integer days = daysFor(owner.getValue(), table);
+                    if (days == null) {
+                        continue;
+                    }
+                    stats.phase(table);
+                    deleteOlder(table, aged, owner.getKey(), today.minusDays(days), respectWindow, stats);
+                }
+            }
+
+            // Уплотнение снимков: последний за день по продавцу и артикулу (сегодняшние еще не трогаем)
+            for (String table : SNAPSHOT_TABLES) {
+                stats.phase(table + " (снимки)");
+                for (Long sellerId : sellerUsers.keySet()) {
+                    compactSnapshots(table, sellerId, today, respectWindow, stats);
+                }
+            }
+
+            // Освободившееся место переиспользуется, статистика планировщика - по новому объему
+            stats.phase("vacuum");
+            for (String table : stats.touchedTables()) {
+                jdbcTemplate.execute("VACUUM (ANALYZE) " + table);
+            }
+            stats.phase("done");
+        } catch (WindowClosed e) {
+            stats.phase("interrupted");
+            System.out.println("⏸️ Компактор остановлен: окно низкой нагрузки закрылось");
+        } finally {
+            stats.finish();
+            lastRun = stats.toMap();
+            currentRun = null;
+            running.set(false);
+        }
+        System.out.println("🧹 Компактор хранения: удалено " + stats.totalDeleted() + " строк, секций " + stats.droppedCount());
+        return lastRun;
+    }
+
+    /**
+     * Сроки хранения по умолчанию и по тарифам и итог последнего прохода
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("window", windowStartHour + ":00-" + windowEndHour + ":00");
+        result.put("days", new LinkedHashMap<>(defaultDays));
+        result.put("plans", new LinkedHashMap<>(planDays));
+        RunStats current = currentRun;
+        result.put("currentRun", current != null ? current.toMap() : null);
+        result.put("lastRun", lastRun);
+        return result;
+    }
+
+    /**
+     * Тариф активной подписки пользователя (без подписки - PLAN_FREE)
+     */
+    private Map<Long, String> userPlans() {
+        Map<Long, String> plans = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT u.id, (SELECT s.plan_type FROM subscriptions s "
+                + "WHERE s.user_id = u.id AND s.status = 'ACTIVE' AND s.end_date > now() "
+                + "ORDER BY s.end_date DESC LIMIT 1) FROM users u WHERE u.deleted_at IS NULL",
+            row -> { plans.put(row.getLong(1), row.getString(2) != null ? row.getString(2) : FREE_PLAN); });
+        return plans;
+    }
+
+    private Integer daysFor(String plan, String table) {
+        Map<String, Integer> overrides = planDays.get(plan);
+        Integer days = overrides != null ? overrides.get(table) : null;
+        return days != null ? days : defaultDays.get(table);
+    }
+
+    /**
+     * Секции месяцев, которые старше срока хранения любого тарифа, удаляются целиком
+     */
+    private void dropExpiredPartitions(String table, LocalDate today, RunStats stats) {
+        Integer longest = defaultDays.get(table);
+        if (longest == null) {
+            // Без срока по умолчанию у части пользователей данные хранятся бессрочно
+            return;
+        }
+        for (Map<String, Integer> overrides : planDays.values()) {
+            longest = Math.max(longest, overrides.getOrDefault(table, longest));
+        }
+        LocalDate cutoff = today.minusDays(longest);
+        for (YearMonth month : partitionMaintenance.months(table)) {
+            if (!month.atEndOfMonth().isBefore(cutoff)) {
+                break;
+            }
+            stats.phase(table + " (секции)");
+            String partition = partitionMaintenance.detachMonth(table, month, true);
+            if (partition != null) {
+                stats.dropped(partition);
+            }
+        }
+    }
+
+    /**
+     * Порции "DELETE ... WHERE ключ IN (SELECT ключ ... LIMIT n)" по индексу владельца и даты
+     */
+    private void deleteOlder(String table, AgedTable aged, Long ownerId, LocalDate cutoff,
+                             boolean respectWindow, RunStats stats) {
+        String filter = aged.ownerColumn + " = ? AND " + aged.dateColumn + " < ?"
+            + ("products".equals(table) ? PRODUCT_UNUSED : "");
+        String sql = "DELETE FROM " + table + " WHERE (" + aged.keys + ") IN (SELECT " + aged.keys
+            + " FROM " + table + " WHERE " + filter + " LIMIT ?)";
+        Object bound = aged.timestamp ? Timestamp.valueOf(cutoff.atStartOfDay()) : Date.valueOf(cutoff);
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, ownerId, bound, batchSize);
+            stats.deleted(table, deleted);
+            throttle(respectWindow);
+        } while (deleted == batchSize);
+    }
+
+    /**
+     * Из снимков одного дня по продавцу и артикулу остается последний расчет
+     */
+    private void compactSnapshots(String table, Long sellerId, LocalDate today, boolean respectWindow, RunStats stats) {
+        String sql = "DELETE FROM " + table + " WHERE id IN (SELECT id FROM ("
+            + "SELECT id, row_number() OVER (PARTITION BY wb_article, calculation_date::date "
+            + "ORDER BY calculation_date DESC, id DESC) AS position "
+            + "FROM " + table + " WHERE seller_id = ? AND calculation_date < ?) snapshots "
+            + "WHERE position > 1 LIMIT ?)";
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, sellerId, Timestamp.valueOf(today.atStartOfDay()), batchSize);
+            stats.compacted(table, deleted);
+            throttle(respectWindow);
+        } while (deleted == batchSize);
+    }
+
+    private void throttle(boolean respectWindow) {
+        if (respectWindow && !inWindow()) {
+            throw new WindowClosed();
+        }
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Компактор прерван");
+        }
+    }
+
+    private static final class WindowClosed extends RuntimeException {
+    }
+
+    /**
+     * Таблица со сроком хранения: колонка даты, владелец, ключ строки, помесячные секции
+     */
+    private static final class AgedTable {
+        private final String dateColumn;
+        private final boolean timestamp;
+        private final String ownerColumn;
+        private final String keys;
+        private final boolean partitioned;
+
+        AgedTable(String dateColumn, boolean timestamp, String ownerColumn, String keys, boolean partitioned) {
+            this.dateColumn = dateColumn;
+            this.timestamp = timestamp;
+            this.ownerColumn = ownerColumn;
+            this.keys = keys;
+            this.partitioned = partitioned;
+        }
+    }
+
+    /**
+     * Итог прохода компактора
+     */
+    private static final class RunStats {
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private LocalDateTime finishedAt;
+        private String phase = "starting";
+        private final Map<String, Long> deletedRows = new LinkedHashMap<>();
+        private final List<String> droppedPartitions = new ArrayList<>();
+        private long compacted;
+
+        synchronized void phase(String phase) {
+            this.phase = phase;
+        }
+
+        synchronized void deleted(String table, long rows) {
+            if (rows > 0) {
+                deletedRows.merge(table, rows, Long::sum);
+            }
+        }
+
+        synchronized void compacted(String table, long rows) {
+            deleted(table, rows);
+            compacted += rows;
+        }
+
+        synchronized void dropped(String partition) {
+            droppedPartitions.add(partition);
+        }
+
+        synchronized void finish() {
+            finishedAt = LocalDateTime.now();
+        }
+
+        synchronized long totalDeleted() {
+            return deletedRows.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        synchronized int droppedCount() {
+            return droppedPartitions.size();
+        }
+
+        synchronized Set<String> touchedTables() {
+            return new LinkedHashSet<>(deletedRows.keySet());
+        }
+
+        synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("startedAt", startedAt);
+            map.put("finishedAt", finishedAt);
+            map.put("phase", phase);
+            map.put("deletedRows", new LinkedHashMap<>(deletedRows));
+            map.put("compactedSnapshots", compacted);
+            map.put("droppedPartitions", new ArrayList<>(droppedPartitions));
+            return map;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.entity.Seller;
+import org.example.repository.SellerRepository;
+import org.example.service.wildberries.WbApiKeys;
+import org.example.service.wildberries.WbReport;
+import org.example.service.wildberries.WbSyncListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Синхронизация всех активных продавцов с ключом WB.
+ * Каждый продавец синхронизируется целиком (продажи, остатки, заказы, поставки)
+ * в отдельной задаче пула, размер пула - общий предел одновременных синхронизаций.
+ * Продавцы с одним ключом идут по очереди в одной задаче: квота у ключа одна,
+ * и параллельная синхронизация одного ключа только заняла бы слоты остальных.
+ * Ход и ошибки фиксируются по каждому продавцу: в памяти для текущего запуска
+ * и в полях last_sync_* продавца.
+ */
+@Service
+public class SellerSyncService {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_PARTIAL = "PARTIAL";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_SKIPPED = "SKIPPED";
+
+    private static final int SYNC_REPORTS = 4;
+
+    @Autowired
+    private SellerRepository sellerRepository;
+
+    @Autowired
+    private WildberriesApiService wildberriesApiService;
+
+    private final int defaultDays;
+    private final ExecutorService pool;
+
+    // Ключи, по которым сейчас идет синхронизация (хеши)
+    private final Set<String> busyKeys = ConcurrentHashMap.newKeySet();
+
+    private volatile SyncRun currentRun;
+
+    public SellerSyncService(@Value("${wildberries.seller-sync.max-concurrency:50}") int maxConcurrency,
+                             @Value("${wildberries.seller-sync.days:30}") int defaultDays) {
+        this.defaultDays = defaultDays;
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable, "seller-sync-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запуск синхронизации всех активных продавцов. Если запуск уже идет,
+     * возвращается его состояние.
+     * @param days глубина первой загрузки (дальше работают курсоры lastChangeDate)
+     */
+    public synchronized Map<String, Object> startFullSync(Integer days) {
+        SyncRun running = currentRun;
+        if (running != null && running.finishedAt == null) {
+            return running.toMap();
+        }
+
+        List<Seller> sellers = sellerRepository.findActiveWithApiKey();
+        LocalDate startDate = LocalDate.now().minusDays(days != null ? days : defaultDays);
+        SyncRun run = new SyncRun(sellers);
+        currentRun = run;
+        System.out.println("🔄 Синхронизация продавцов: запуск " + run.id + ", продавцов: " + sellers.size());
+
+        Map<String, List<Seller>> byKey = new LinkedHashMap<>();
+        for (Seller seller : sellers) {
+            byKey.computeIfAbsent(WbApiKeys.hash(seller.getWbApiKey()), key -> new ArrayList<>()).add(seller);
+        }
+        if (byKey.isEmpty()) {
+            run.finish();
+            return run.toMap();
+        }
+
+        AtomicInteger remainingKeys = new AtomicInteger(byKey.size());
+        for (List<Seller> group : byKey.values()) {
+            pool.execute(() -> {
+                try {
+                    for (Seller seller : group) {
+                        syncOne(seller, startDate, run.progressOf(seller));
+                    }
+                } finally {
+                    if (remainingKeys.decrementAndGet() == 0) {
+                        run.finish();
+                        System.out.println("✅ Синхронизация продавцов " + run.id + " завершена: " + run.summary());
+                    }
+                }
+            });
+        }
+        return run.toMap();
+    }
+
+    /**
+     * Синхронизация одного продавца в текущем потоке
+     */
+    public SellerProgress syncSeller(Seller seller, int days) {
+        return syncSeller(seller, days, WbSyncListener.NONE);
+    }
+
+    /**
+     * То же с дополнительным получателем хода синхронизации
+     */
+    public SellerProgress syncSeller(Seller seller, int days, WbSyncListener listener) {
+        SellerProgress progress = new SellerProgress(seller, listener);
+        syncOne(seller, LocalDate.now().minusDays(days), progress);
+        return progress;
+    }
+
+    /**
+     * Состояние последнего запуска (null, если запусков не было)
+     */
+    public Map<String, Object> getProgress() {
+        SyncRun run = currentRun;
+        return run != null ? run.toMap() : null;
+    }
+
+    private void syncOne(Seller seller, LocalDate startDate, SellerProgress progress) {
+        String keyHash = WbApiKeys.hash(seller.getWbApiKey());
+        if (!busyKeys.add(keyHash)) {
+            progress.skip("По ключу продавца уже идет синхронизация");
+            return;
+        }
+        try {
+            progress.start();
+            wildberriesApiService.syncSellerData(seller, startDate, progress);
+            progress.complete();
+        } catch (Exception e) {
+            progress.fail(e);
+        } finally {
+            busyKeys.remove(keyHash);
+        }
+
+        try {
+            LocalDateTime syncedAt = STATUS_FAILED.equals(progress.getStatus()) ? null : progress.finishedAt;
+            sellerRepository.updateSyncResult(seller.getId(), syncedAt, progress.getStatus(), progress.errorText());
+        } catch (Exception e) {
+            System.err.println("❌ Не удалось сохранить результат синхронизации продавца " + seller.getId() + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Ход синхронизации одного продавца
+     */
+    public static final class SellerProgress implements WbSyncListener {
+        private final Long sellerId;
+        private final String sellerName;
+        private String status = STATUS_QUEUED;
+        private WbReport currentReport;
+        private long rowsProcessed;
+        private final Map<String, Long> newRows = new LinkedHashMap<>();
+        private final Map<String, String> errors = new LinkedHashMap<>();
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private final WbSyncListener downstream;
+
+        SellerProgress(Seller seller) {
+            this(seller, WbSyncListener.NONE);
+        }
+
+        SellerProgress(Seller seller, WbSyncListener downstream) {
+            this.sellerId = seller.getId();
+            this.sellerName = seller.getSellerName();
+            this.downstream = downstream;
+        }
+
+        synchronized void start() {
+            status = STATUS_RUNNING;
+            startedAt = LocalDateTime.now();
+        }
+
+        synchronized void complete() {
+            currentReport = null;
+            finishedAt = LocalDateTime.now();
+            if (errors.isEmpty()) {
+                status = STATUS_SUCCESS;
+            } else {
+                status = errors.size() >= SYNC_REPORTS ? STATUS_FAILED : STATUS_PARTIAL;
+            }
+        }
+
+        synchronized void fail(Exception e) {
+            currentReport = null;
+            finishedAt = LocalDateTime.now();
+            status = STATUS_FAILED;
+            errors.put("sync", e.getMessage());
+        }
+
+        synchronized void skip(String reason) {
+            finishedAt = LocalDateTime.now();
+            status = STATUS_SKIPPED;
+            errors.put("sync", reason);
+        }
+
+        @Override
+        public void onReportStarted(WbReport report) {
+            synchronized (this) {
+                currentReport = report;
+            }
+            downstream.onReportStarted(report);
+        }
+
+        @Override
+        public void onRowsProcessed(WbReport report, long rows) {
+            synchronized (this) {
+                rowsProcessed += rows;
+            }
+            downstream.onRowsProcessed(report, rows);
+        }
+
+        @Override
+        public void onReportFinished(WbReport report, long rows) {
+            synchronized (this) {
+                newRows.put(report.getCode(), rows);
+            }
+            downstream.onReportFinished(report, rows);
+        }
+
+        @Override
+        public void onReportFailed(WbReport report, Exception error) {
+            synchronized (this) {
+                errors.put(report.getCode(), error.getMessage());
+            }
+            downstream.onReportFailed(report, error);
+        }
+
+        public synchronized String getStatus() {
+            return status;
+        }
+
+        public synchronized boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        synchronized String errorText() {
+            if (errors.isEmpty()) {
+                return null;
+            }
+            String text = errors.toString();
+            return text.length() > 1000 ? text.substring(0, 1000) : text;
+        }
+
+        public synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sellerId", sellerId);
+            map.put("sellerName", sellerName);
+            map.put("status", status);
+            map.put("currentReport", currentReport != null ? currentReport.getCode() : null);
+            map.put("rowsProcessed", rowsProcessed);
+            map.put("newRows", new LinkedHashMap<>(newRows));
+            map.put("errors", new LinkedHashMap<>(errors));
+            map.put("startedAt", startedAt);
+            map.put("finishedAt", finishedAt);
+            return map;
+        }
+    }
+
+    /**
+     * Один запуск синхронизации всех продавцов
+     */
+    private static final class SyncRun {
+        final String id = UUID.randomUUID().toString();
+        final LocalDateTime startedAt = LocalDateTime.now();
+        volatile LocalDateTime finishedAt;
+        final Map<Long, SellerProgress> sellers = new LinkedHashMap<>();
+
+        SyncRun(List<Seller> sellers) {
+            for (Seller seller : sellers) {
+                this.sellers.put(seller.getId(), new SellerProgress(seller));
+            }
+        }
+
+        SellerProgress progressOf(Seller seller) {
+            return sellers.get(seller.getId());
+        }
+
+        void finish() {
+            finishedAt = LocalDateTime.now();
+        }
+
+        Map<String, Long> summary() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (SellerProgress progress : sellers.values()) {
+                counts.merge(progress.getStatus(), 1L, Long::sum);
+            }
+            return counts;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("runId", id);
+            map.put("startedAt", startedAt);
+            map.put("finishedAt", finishedAt);
+            map.put("total", sellers.size());
+            map.put("statuses", summary());
+            List<Map<String, Object>> details = new ArrayList<>();
+            sellers.values().forEach(progress -> details.add(progress.toMap()));
+            map.put("sellers", details);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.service;
+
+import org.example.service.wildberries.WbReport;
+import org.example.service.wildberries.WbSyncListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Внутрипроцессная шина событий хода синхронизации и построения отчетов.
+ * Публикация не делает ввода-вывода: событие только кладется в буферы подписчиков
+ * пользователя. Буфер каждой подписки ограничен - при медленном получателе
+ * старые события вытесняются, и подписчик узнает, сколько их пропущено.
+ */
+@Component
+public class SyncEventBus {
+
+    public static final String REPORT_STARTED = "report-started";
+    public static final String ROWS_INGESTED = "rows-ingested";
+    public static final String REPORT_FETCHED = "report-fetched";
+    public static final String REPORT_FAILED = "report-failed";
+    public static final String ROLLUPS_REBUILT = "rollups-rebuilt";
+    public static final String SYNC_DONE = "sync-done";
+    public static final String SYNC_FAILED = "sync-failed";
+
+    public record Event(long id, String type, Long sellerId, Map<String, Object> data, LocalDateTime at) {
+    }
+
+    private final int bufferSize;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Set<Subscription>> subscribers = new ConcurrentHashMap<>();
+
+    public SyncEventBus(@Value("${wildberries.events.buffer-size:256}") int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Публикация события для пользователя
+     * @param sellerId продавец, если событие относится к его синхронизации
+     */
+    public void publish(Long userId, Long sellerId, String type, Map<String, Object> data) {
+        Set<Subscription> subscriptions = subscribers.get(userId);
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            return;
+        }
+        Event event = new Event(sequence.incrementAndGet(), type, sellerId, data, LocalDateTime.now());
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    public Subscription subscribe(Long userId) {
+        Subscription subscription = new Subscription(userId, bufferSize);
+        subscribers.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        subscribers.computeIfPresent(subscription.userId, (id, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Получатель хода синхронизации, который публикует его в шину
+     * и передает дальше
+     */
+    public WbSyncListener listenerFor(Long userId, Long sellerId, WbSyncListener downstream) {
+        return new WbSyncListener() {
+            @Override
+            public void onReportStarted(WbReport report) {
+                publish(userId, sellerId, REPORT_STARTED, Map.of("report", report.getCode()));
+                downstream.onReportStarted(report);
+            }
+
+            @Override
+            public void onRowsProcessed(WbReport report, long rows) {
+                publish(userId, sellerId, ROWS_INGESTED, Map.of("report", report.getCode(), "rows", rows));
+                downstream.onRowsProcessed(report, rows);
+            }
+
+            @Override
+            public void onReportFinished(WbReport report, long newRows) {
+                publish(userId, sellerId, REPORT_FETCHED, Map.of("report", report.getCode(), "newRows", newRows));
+                downstream.onReportFinished(report, newRows);
+            }
+
+            @Override
+            public void onReportFailed(WbReport report, Exception error) {
+                publish(userId, sellerId, REPORT_FAILED, Map.of("report", report.getCode(),
+                    "message", String.valueOf(error.getMessage())));
+                downstream.onReportFailed(report, error);
+            }
+        };
+    }
+
+    /**
+     * Данные события о завершении синхронизации
+     */
+    static Map<String, Object> summary(Map<WbReport, Long> newRows) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        newRows.forEach((report, rows) -> data.put(report.getCode(), rows));
+        return Map.of("newRows", data);
+    }
+
+    /**
+     * Подписка одного соединения с ограниченным буфером
+     */
+    public static final class Subscription {
+        private final Long userId;
+        private final int capacity;
+        private final ArrayDeque<Event> buffer;
+        private long dropped;
+
+        Subscription(Long userId, int capacity) {
+            this.userId = userId;
+            this.capacity = capacity;
+            this.buffer = new ArrayDeque<>(Math.min(capacity, 64));
+        }
+
+        synchronized void offer(Event event) {
+            if (buffer.size() >= capacity) {
+                buffer.pollFirst();
+                dropped++;
+            }
+            buffer.addLast(event);
+        }
+
+        /**
+         * Забрать накопленные события
+         */
+        public synchronized List<Event> drain() {
+            List<Event> events = new ArrayList<>(buffer);
+            buffer.clear();
+            return events;
+        }
+
+        /**
+         * Сколько событий вытеснено с прошлого вызова
+         */
+        public synchronized long takeDropped() {
+            long count = dropped;
+            dropped = 0;
+            return count;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SSE соединения для событий синхронизации.
+ * Таймер периодически забирает накопленные события из подписок и отдает их пулу отправки.
+ * У соединения не больше одной отправки в работе: медленный клиент занимает один поток пула
+ * и не задерживает остальных, а его события тем временем копятся в ограниченном буфере подписки.
+ * Отправка дольше write-timeout-seconds закрывает соединение. Если событий давно не было,
+ * отправляется heartbeat-комментарий, чтобы прокси не закрывали соединение.
+ * У пользователя не больше max-connections-per-user соединений: новое вытесняет самое старое.
+ */
+@Component
+public class SyncEventStreams {
+
+    @Autowired
+    private SyncEventBus eventBus;
+
+    private final long timeoutMs;
+    private final long flushIntervalMs;
+    private final long heartbeatMs;
+    private final long writeTimeoutMs;
+    private final int maxConnectionsPerUser;
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService senders;
+
+    public SyncEventStreams(@Value("${wildberries.events.timeout-minutes:30}") long timeoutMinutes,
+                            @Value("${wildberries.events.flush-interval-ms:250}") long flushIntervalMs,
+                            @Value("${wildberries.events.heartbeat-seconds:15}") long heartbeatSeconds,
+                            @Value("${wildberries.events.write-timeout-seconds:10}") long writeTimeoutSeconds,
+                            @Value("${wildberries.events.max-connections-per-user:5}") int maxConnectionsPerUser,
+                            @Value("${wildberries.events.send-threads:4}") int sendThreads) {
+        this.timeoutMs = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.flushIntervalMs = flushIntervalMs;
+        this.heartbeatMs = TimeUnit.SECONDS.toMillis(heartbeatSeconds);
+        this.writeTimeoutMs = TimeUnit.SECONDS.toMillis(writeTimeoutSeconds);
+        this.maxConnectionsPerUser = Math.max(1, maxConnectionsPerUser);
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sync-events-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sync-events-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        timer.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Новое SSE соединение для событий пользователя
+     */
+    public SseEmitter open(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Connection connection = new Connection(userId, emitter, eventBus.subscribe(userId));
+        synchronized (this) {
+            // Лишние соединения - обычно забытые вкладки: закрываем самые старые
+            List<Connection> own = connections.stream()
+                .filter(existing -> existing.userId.equals(userId))
+                .sorted(Comparator.comparingLong(existing -> existing.openedAt))
+                .toList();
+            for (int i = 0; i <= own.size() - maxConnectionsPerUser; i++) {
+                close(own.get(i));
+                own.get(i).emitter.complete();
+            }
+            connections.add(connection);
+        }
+        emitter.onCompletion(() -> close(connection));
+        emitter.onTimeout(() -> close(connection));
+        emitter.onError(error -> close(connection));
+
+        try {
+            emitter.send(SseEmitter.event().name("connected").data(Map.of("userId", userId)));
+        } catch (Exception e) {
+            close(connection);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    private void flush() {
+        long now = System.currentTimeMillis();
+        for (Connection connection : connections) {
+            if (connection.sending) {
+                if (now - connection.sendStartedAt > writeTimeoutMs) {
+                    // Клиент не читает поток - не держим его подписку и поток пула
+                    System.out.println("⏱️ SSE клиент пользователя " + connection.userId + " не принимает события, соединение закрыто");
+                    close(connection);
+                    connection.emitter.completeWithError(new IllegalStateException("SSE write timeout"));
+                }
+                continue;
+            }
+
+            long dropped = connection.subscription.takeDropped();
+            List<SyncEventBus.Event> events = connection.subscription.drain();
+            boolean heartbeat = events.isEmpty() && dropped == 0 && now - connection.lastSentAt >= heartbeatMs;
+            if (events.isEmpty() && dropped == 0 && !heartbeat) {
+                continue;
+            }
+
+            connection.sending = true;
+            connection.sendStartedAt = now;
+            connection.lastSentAt = now;
+            try {
+                senders.execute(() -> send(connection, dropped, events, heartbeat));
+            } catch (RejectedExecutionException e) {
+                // Пул остановлен при завершении приложения
+                connection.sending = false;
+            }
+        }
+    }
+
+    private void send(Connection connection, long dropped, List<SyncEventBus.Event> events, boolean heartbeat) {
+        try {
+            if (dropped > 0) {
+                connection.emitter.send(SseEmitter.event().name("events-dropped").data(Map.of("count", dropped)));
+            }
+            for (SyncEventBus.Event event : events) {
+                connection.emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.id()))
+                    .name(event.type())
+                    .data(payload(event)));
+            }
+            if (heartbeat) {
+                connection.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+        } catch (Exception e) {
+            // Клиент отключился - соединение больше не обслуживаем
+            close(connection);
+            connection.emitter.completeWithError(e);
+        } finally {
+            connection.sending = false;
+        }
+    }
+
+    private static Map<String, Object> payload(SyncEventBus.Event event) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("sellerId", event.sellerId());
+        payload.put("at", event.at());
+        payload.putAll(event.data());
+        return payload;
+    }
+
+    private void close(Connection connection) {
+        if (connections.remove(connection)) {
+            eventBus.unsubscribe(connection.subscription);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        senders.shutdownNow();
+        connections.forEach(connection -> connection.emitter.complete());
+        connections.clear();
+    }
+
+    private static final class Connection {
+        final Long userId;
+        final SseEmitter emitter;
+        final SyncEventBus.Subscription subscription;
+        final long openedAt = System.currentTimeMillis();
+        // Поля отправки пишет таймер и поток пула
+        volatile boolean sending;
+        volatile long sendStartedAt;
+        volatile long lastSentAt = System.currentTimeMillis();
+
+        Connection(Long userId, SseEmitter emitter, SyncEventBus.Subscription subscription) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.subscription = subscription;
+        }
+    }
+}
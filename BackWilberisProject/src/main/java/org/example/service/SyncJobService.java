@@ -0,0 +1,273 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.entity.Seller;
+import org.example.entity.User;
+import org.example.service.wildberries.WbReport;
+import org.example.service.wildberries.WbSyncListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновые задания синхронизации с WB.
+ * Запрос только ставит задание в ограниченную очередь и сразу возвращает его id,
+ * загрузку выполняют рабочие потоки. Повторный запрос для того же пользователя
+ * или продавца (для детализации - и того же периода), пока задание ждет или выполняется,
+ * возвращает это же задание.
+ * Незавершенные задания доступны для опроса, сколько бы ни длились,
+ * завершенные - ограниченное время после завершения.
+ */
+@Service
+public class SyncJobService {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    // Отчеты одной синхронизации: продажи, остатки, заказы, поставки
+    private static final int SYNC_REPORTS = 4;
+
+    @Autowired
+    private WildberriesApiService wildberriesApiService;
+
+    @Autowired
+    private SellerSyncService sellerSyncService;
+
+    @Autowired
+    private RealizationReportLoader realizationReportLoader;
+
+    private final ThreadPoolExecutor workers;
+    // Владельцы: "user:1", "seller:5", "realization:5:2024-01-01:2024-01-31"
+    private final BackgroundJobRegistry<SyncJob> jobs;
+
+    // Длительность последней синхронизации владельца - оценка ETA до первого отчета
+    private final Map<String, Long> lastDurationMs = new ConcurrentHashMap<>();
+
+    public SyncJobService(@Value("${wildberries.sync-jobs.workers:4}") int workerCount,
+                          @Value("${wildberries.sync-jobs.queue-capacity:100}") int queueCapacity,
+                          @Value("${wildberries.sync-jobs.retention-minutes:60}") long retentionMinutes) {
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "sync-job-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.jobs = new BackgroundJobRegistry<>(workers, Duration.ofMinutes(retentionMinutes));
+    }
+
+    /**
+     * Постановка синхронизации пользователя (его основной ключ WB)
+     */
+    public SyncJob submitUserSync(User user, int days) {
+        LocalDate startDate = LocalDate.now().minusDays(days);
+        return submit("user:" + user.getId(), user.getId(), null, SYNC_REPORTS,
+            job -> wildberriesApiService.syncAnalyticsData(user, startDate, LocalDate.now(), job));
+    }
+
+    /**
+     * Постановка синхронизации продавца; продавец должен быть загружен вместе с пользователем
+     */
+    public SyncJob submitSellerSync(Seller seller, int days) {
+        return submit("seller:" + seller.getId(), seller.getUser().getId(), seller.getId(), SYNC_REPORTS, job -> {
+            SellerSyncService.SellerProgress progress = sellerSyncService.syncSeller(seller, days, job);
+            if (SellerSyncService.STATUS_FAILED.equals(progress.getStatus())
+                || SellerSyncService.STATUS_SKIPPED.equals(progress.getStatus())) {
+                throw new RuntimeException("Синхронизация продавца не выполнена: " + progress.toMap().get("errors"));
+            }
+        });
+    }
+
+    /**
+     * Постановка загрузки детализации реализации продавца за период (COPY в financial_report_raw).
+     * Задание определяется продавцом и периодом, как и курсор rrdid: запрос другого периода
+     * ставит свое задание, а не получает уже идущее
+     */
+    public SyncJob submitRealizationLoad(Seller seller, LocalDate dateFrom, LocalDate dateTo) {
+        return submit("realization:" + seller.getId() + ":" + dateFrom + ":" + dateTo, seller.getUser().getId(), seller.getId(), 1,
+            job -> realizationReportLoader.load(seller, dateFrom, dateTo, job));
+    }
+
+    /**
+     * Задание по id, если оно принадлежит пользователю
+     */
+    public SyncJob findJob(String jobId, Long userId) {
+        SyncJob job = jobs.find(jobId);
+        return job != null && job.userId.equals(userId) ? job : null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", workers.getActiveCount());
+        stats.put("queued", workers.getQueue().size());
+        stats.put("queueCapacity", workers.getQueue().size() + workers.getQueue().remainingCapacity());
+        stats.put("retainedJobs", jobs.size());
+        return stats;
+    }
+
+    @FunctionalInterface
+    private interface SyncTask {
+        void run(SyncJob job);
+    }
+
+    private SyncJob submit(String ownerKey, Long userId, Long sellerId, int reportsTotal, SyncTask task) {
+        BackgroundJobRegistry.Submission<SyncJob> submission = jobs.submit(ownerKey,
+            key -> new SyncJob(key, userId, sellerId, reportsTotal),
+            job -> execute(job, task),
+            "Очередь синхронизации переполнена, повторите позже");
+        SyncJob job = submission.job();
+        if (!submission.created()) {
+            System.out.println("🔗 Синхронизация " + ownerKey + " уже выполняется, задание " + job.id);
+            return job;
+        }
+        System.out.println("📥 Задание синхронизации " + job.id + " для " + ownerKey + " поставлено в очередь");
+        return job;
+    }
+
+    private void execute(SyncJob job, SyncTask task) {
+        job.start();
+        try {
+            task.run(job);
+            job.finish(null);
+            lastDurationMs.put(job.ownerKey, job.durationMs());
+        } catch (Exception e) {
+            System.err.println("❌ Задание синхронизации " + job.id + " завершилось ошибкой: " + e.getMessage());
+            job.finish(e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Задание синхронизации: фаза, обработанные строки и оценка оставшегося времени
+     */
+    public final class SyncJob implements WbSyncListener, BackgroundJobRegistry.Job {
+        private final String id = UUID.randomUUID().toString();
+        private final String ownerKey;
+        private final Long userId;
+        private final Long sellerId;
+        private final int reportsTotal;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private String status = STATUS_QUEUED;
+        private String phase = "queued";
+        private long rowsProcessed;
+        private final Map<String, Long> newRows = new LinkedHashMap<>();
+        private final Map<String, String> errors = new LinkedHashMap<>();
+        private int reportsDone;
+        private long startedAtMs;
+        private long finishedAtMs;
+        private String error;
+
+        SyncJob(String ownerKey, Long userId, Long sellerId, int reportsTotal) {
+            this.ownerKey = ownerKey;
+            this.userId = userId;
+            this.sellerId = sellerId;
+            this.reportsTotal = reportsTotal;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getOwnerKey() {
+            return ownerKey;
+        }
+
+        @Override
+        public synchronized boolean isFinished() {
+            return STATUS_DONE.equals(status) || STATUS_FAILED.equals(status);
+        }
+
+        synchronized void start() {
+            status = STATUS_RUNNING;
+            phase = "starting";
+            startedAtMs = System.currentTimeMillis();
+        }
+
+        synchronized void finish(String errorMessage) {
+            finishedAtMs = System.currentTimeMillis();
+            error = errorMessage;
+            status = errorMessage == null ? STATUS_DONE : STATUS_FAILED;
+            phase = errorMessage == null ? "done" : "failed";
+        }
+
+        synchronized long durationMs() {
+            return finishedAtMs - startedAtMs;
+        }
+
+        @Override
+        public synchronized void onReportStarted(WbReport report) {
+            phase = report.getCode();
+        }
+
+        @Override
+        public synchronized void onRowsProcessed(WbReport report, long rows) {
+            rowsProcessed += rows;
+        }
+
+        @Override
+        public synchronized void onReportFinished(WbReport report, long rows) {
+            newRows.put(report.getCode(), rows);
+            reportsDone++;
+        }
+
+        @Override
+        public synchronized void onReportFailed(WbReport report, Exception e) {
+            errors.put(report.getCode(), e.getMessage());
+            reportsDone++;
+        }
+
+        /**
+         * Оценка оставшегося времени в секундах: по доле готовых отчетов,
+         * до первого отчета - по длительности прошлой синхронизации владельца
+         */
+        private Long etaSeconds() {
+            if (!STATUS_RUNNING.equals(status)) {
+                return STATUS_QUEUED.equals(status) ? null : 0L;
+            }
+            long elapsed = System.currentTimeMillis() - startedAtMs;
+            if (reportsDone > 0) {
+                long remaining = elapsed * (reportsTotal - Math.min(reportsDone, reportsTotal)) / reportsDone;
+                return remaining / 1000;
+            }
+            Long previous = lastDurationMs.get(ownerKey);
+            return previous != null ? Math.max(0, previous - elapsed) / 1000 : null;
+        }
+
+        public synchronized Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("jobId", id);
+            map.put("sellerId", sellerId);
+            map.put("status", status);
+            map.put("phase", phase);
+            map.put("reportsDone", reportsDone);
+            map.put("reportsTotal", reportsTotal);
+            map.put("rowsProcessed", rowsProcessed);
+            map.put("newRows", new LinkedHashMap<>(newRows));
+            map.put("errors", new LinkedHashMap<>(errors));
+            map.put("etaSeconds", etaSeconds());
+            map.put("createdAt", createdAt);
+            map.put("error", error);
+            return map;
+        }
+    }
+}
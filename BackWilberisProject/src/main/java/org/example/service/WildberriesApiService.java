@@ -2,26 +2,50 @@ package org.example.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.wildberries.WbIncomeRecord;
+import org.example.dto.wildberries.WbOrderRecord;
+import org.example.dto.wildberries.WbRealizationRecord;
+import org.example.dto.wildberries.WbSaleRecord;
+import org.example.dto.wildberries.WbStockRecord;
 import org.example.entity.AnalyticsData;
-import org.example.entity.Product;
+import org.example.entity.Seller;
+import org.example.entity.SyncWatermark;
 import org.example.entity.User;
 import org.example.repository.AnalyticsDataRepository;
 import org.example.repository.ProductRepository;
+import org.example.repository.SyncWatermarkRepository;
+import org.example.service.wildberries.WbApiFamily;
+import org.example.service.wildberries.WbCircuitBreaker;
+import org.example.service.wildberries.WbDaySliceCache;
+import org.example.service.wildberries.WbEndpoints;
+import org.example.service.wildberries.WbHttpTransport;
+import org.example.service.wildberries.WbPayloadArchive;
+import org.example.service.wildberries.WbPriorityLanes;
+import org.example.service.wildberries.WbRateLimiter;
+import org.example.service.wildberries.WbReport;
+import org.example.service.wildberries.WbResponseCache;
+import org.example.service.wildberries.WbRetryScheduler;
+import org.example.service.wildberries.WbSingleFlight;
+import org.example.service.wildberries.WbStatisticsDecoder;
+import org.example.service.wildberries.WbSyncListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 @Service
 public class WildberriesApiService {
@@ -32,13 +56,54 @@ public class WildberriesApiService {
     @Autowired
     private ProductRepository productRepository;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private SyncWatermarkRepository syncWatermarkRepository;
+
+    @Autowired
+    private WbRateLimiter rateLimiter;
+
+    @Autowired
+    private WbSingleFlight singleFlight;
+
+    @Autowired
+    private WbResponseCache responseCache;
+
+    @Autowired
+    private WbDaySliceCache daySliceCache;
+
+    @Autowired
+    private WbPayloadArchive payloadArchive;
+
+    @Autowired
+    private WbHttpTransport httpTransport;
+
+    @Autowired
+    private WbRetryScheduler retryScheduler;
+
+    @Autowired
+    private WbCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private WbPriorityLanes priorityLanes;
+
+    @Autowired
+    private SyncEventBus syncEventBus;
+
+    @Autowired
+    private AnalyticsDataBatchWriter analyticsDataBatchWriter;
+
+    @Autowired
+    private ProductStockUpserter productStockUpserter;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // Базовые URL для продакшена (реальные API Wildberries)
-    private static final String STATISTICS_API = "https://statistics-api.wildberries.ru";
+    private static final String STATISTICS_API = WbEndpoints.STATISTICS_API;
     private static final String ANALYTICS_API = "https://seller-analytics-api.wildberries.ru";
     private static final String ADVERT_API = "https://advert-api.wildberries.ru";
+
+    // Начальная дата снимка остатков: WB отдает по ней все остатки на складах
+    private static final LocalDate STOCKS_SNAPSHOT_FROM = LocalDate.of(2019, 6, 20);
     private static final String FEEDBACKS_API = "https://feedbacks-api.wildberries.ru";
     private static final String COMMON_API = "https://common-api.wildberries.ru";
     private static final String CONTENT_API = "https://content-api.wildberries.ru";
@@ -47,86 +112,211 @@ public class WildberriesApiService {
     private static final String DOCUMENTS_API = "https://documents-api.wildberries.ru";
     private static final String FINANCE_API = "https://finance-api.wildberries.ru";
     
-    // Время последнего запроса для контроля лимитов
-    private static long lastRequestTime = 0;
-    private static final long MIN_REQUEST_INTERVAL = 2000; // Увеличиваем интервал до 2 секунд для безопасности
-    
-    // Счетчик попыток для предотвращения бесконечных циклов
-    private static final int MAX_RETRY_ATTEMPTS = 3;
-    
-    // Флаг блокировки при ожидании восстановления лимитов
-    private static volatile boolean isWaitingForRateLimit = false;
-    private static volatile long rateLimitResetTime = 0;
-    
-    // Кеш для хранения последних успешных ответов
-    private static final Map<String, CachedResponse> responseCache = new ConcurrentHashMap<>();
-    private static final long CACHE_DURATION = 60000; // 1 минута
-    
-    // Глобальная блокировка для предотвращения параллельных запросов к одному эндпоинту
-    private static final ReentrantLock apiLock = new ReentrantLock();
-    
-    // Класс для хранения кешированных ответов
-    private static class CachedResponse {
-        final JsonNode data;
-        final long timestamp;
-        
-        CachedResponse(JsonNode data) {
-            this.data = data;
-            this.timestamp = System.currentTimeMillis();
-        }
-        
-        boolean isExpired() {
-            return System.currentTimeMillis() - timestamp > CACHE_DURATION;
-        }
-    }
-    
     // Backup sandbox URLs для тестирования
     private static final String STATISTICS_API_SANDBOX = "https://statistics-api-sandbox.wildberries.ru";
     private static final String ADVERT_API_SANDBOX = "https://advert-api-sandbox.wildberries.ru";
     private static final String FEEDBACKS_API_SANDBOX = "https://feedbacks-api-sandbox.wildberries.ru";
 
     /**
-     * Метод для контроля лимитов запросов
+     * Выполнение GET запроса к WB с учетом лимитов ключа.
+     * Токен берется из бакета (ключ, семейство хостов), заголовки
+     * X-Ratelimit-* из ответа возвращаются в лимитер. Ожидание квоты и повторы
+     * после 429/5xx выполняет планировщик повторов.
      */
-    private synchronized void rateLimitControl() {
-        long currentTime = System.currentTimeMillis();
+    private ResponseEntity<String> exchange(String apiKey, String url) {
+        WbApiFamily family = WbApiFamily.fromUrl(url);
+        HttpEntity<String> entity = new HttpEntity<>(createHeaders(apiKey));
         
-        // Проверяем, не ждем ли мы восстановления лимитов
-        if (isWaitingForRateLimit && currentTime < rateLimitResetTime) {
-            long waitTime = rateLimitResetTime - currentTime;
-            System.out.println("⏸️ Ожидаем восстановления лимитов еще " + (waitTime / 1000) + " секунд...");
+        return retryScheduler.execute(apiKey, url, () -> {
             try {
-                Thread.sleep(waitTime);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return;
+                ResponseEntity<String> response = httpTransport.getRestTemplate().exchange(url, HttpMethod.GET, entity, String.class);
+                rateLimiter.onResponse(apiKey, family, response.getHeaders());
+                return response;
+            } catch (HttpClientErrorException e) {
+                onClientError(apiKey, family, e);
+                throw e;
             }
-            isWaitingForRateLimit = false;
-        }
+        });
+    }
+    
+    /**
+     * Потоковое выполнение GET запроса: тело ответа отдается декодеру как InputStream
+     * и не собирается в строку. Повтор возможен только до начала разбора тела.
+     */
+    private long stream(String apiKey, String url, WbReport report, LocalDate day, StreamDecoder decoder) {
+        WbApiFamily family = WbApiFamily.fromUrl(url);
         
-        // Обычная проверка интервала между запросами
-        long timeSinceLastRequest = currentTime - lastRequestTime;
-        if (timeSinceLastRequest < MIN_REQUEST_INTERVAL) {
+        Long count = retryScheduler.execute(apiKey, url, () -> {
+            boolean[] decoding = { false };
             try {
-                long sleepTime = MIN_REQUEST_INTERVAL - timeSinceLastRequest;
-                System.out.println("⏳ Ждем " + sleepTime + " мс перед следующим запросом...");
-                Thread.sleep(sleepTime);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                return httpTransport.getRestTemplate().execute(url, HttpMethod.GET,
+                    request -> request.getHeaders().putAll(createHeaders(apiKey)),
+                    response -> {
+                        rateLimiter.onResponse(apiKey, family, response.getHeaders());
+                        decoding[0] = true;
+                        // Тело параллельно сжимается в архив сырых ответов; close() освобождает файл архива
+                        try (InputStream body = payloadArchive.tee(response.getBody(), WbPayloadArchive.Kind.STREAM,
+                                report, apiKey, url, day)) {
+                            return decoder.decode(body);
+                        }
+                    });
+            } catch (HttpClientErrorException e) {
+                onClientError(apiKey, family, e);
+                throw e;
+            } catch (RuntimeException e) {
+                if (decoding[0]) {
+                    // Часть строк уже обработана - повтор продублировал бы их
+                    throw new IllegalStateException("Обрыв ответа WB во время разбора: " + e.getMessage(), e);
+                }
+                throw e;
             }
+        });
+        return count != null ? count : 0;
+    }
+    
+    @FunctionalInterface
+    private interface StreamDecoder {
+        long decode(InputStream body) throws IOException;
+    }
+    
+    private void onClientError(String apiKey, WbApiFamily family, HttpClientErrorException e) {
+        if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+            rateLimiter.onRateLimited(apiKey, family, e.getResponseHeaders());
+        } else {
+            rateLimiter.onResponse(apiKey, family, e.getResponseHeaders());
+        }
+    }
+    
+    // ==================== ПОТОКОВАЯ ЗАГРУЗКА ОТЧЕТОВ ====================
+    
+    /**
+     * Потоковая загрузка продаж: каждая строка сразу уходит потребителю
+     * @return количество строк
+     */
+    public long streamSalesReport(String apiKey, LocalDate startDate, LocalDate endDate, Consumer<WbSaleRecord> consumer) {
+        return stream(apiKey, WbEndpoints.sales(startDate, endDate), WbReport.SALES, startDate,
+            body -> WbStatisticsDecoder.decodeSales(body, consumer));
+    }
+    
+    public long streamOrdersReport(String apiKey, LocalDate dateFrom, Consumer<WbOrderRecord> consumer) {
+        return stream(apiKey, WbEndpoints.orders(dateFrom), WbReport.ORDERS, dateFrom,
+            body -> WbStatisticsDecoder.decodeOrders(body, consumer));
+    }
+    
+    public long streamStocksReport(String apiKey, LocalDate dateFrom, Consumer<WbStockRecord> consumer) {
+        return stream(apiKey, WbEndpoints.stocks(dateFrom), WbReport.STOCKS, dateFrom,
+            body -> WbStatisticsDecoder.decodeStocks(body, consumer));
+    }
+    
+    public long streamIncomesReport(String apiKey, LocalDate dateFrom, Consumer<WbIncomeRecord> consumer) {
+        return stream(apiKey, WbEndpoints.incomes(dateFrom), WbReport.INCOMES, dateFrom,
+            body -> WbStatisticsDecoder.decodeIncomes(body, consumer));
+    }
+    
+    /**
+     * Одна страница детализации отчета реализации: строки с rrd_id больше rrdId
+     * @return количество строк на странице
+     */
+    public long streamRealizationReport(String apiKey, LocalDate dateFrom, LocalDate dateTo, long rrdId, int limit,
+                                        Consumer<WbRealizationRecord> consumer) {
+        return stream(apiKey, WbEndpoints.reportDetailByPeriod(dateFrom, dateTo, rrdId, limit), WbReport.REALIZATION,
+            dateFrom, body -> WbStatisticsDecoder.decodeRealization(body, consumer));
+    }
+    
+    /**
+     * Потоковая загрузка продаж, измененных начиная с lastChangeDate
+     */
+    public long streamSalesSince(String apiKey, LocalDateTime lastChangeDate, Consumer<WbSaleRecord> consumer) {
+        return stream(apiKey, WbEndpoints.salesSince(lastChangeDate), WbReport.SALES, lastChangeDate.toLocalDate(),
+            body -> WbStatisticsDecoder.decodeSales(body, consumer));
+    }
+    
+    public long streamOrdersSince(String apiKey, LocalDateTime lastChangeDate, Consumer<WbOrderRecord> consumer) {
+        return stream(apiKey, WbEndpoints.ordersSince(lastChangeDate), WbReport.ORDERS, lastChangeDate.toLocalDate(),
+            body -> WbStatisticsDecoder.decodeOrders(body, consumer));
+    }
+    
+    public long streamStocksSince(String apiKey, LocalDateTime lastChangeDate, Consumer<WbStockRecord> consumer) {
+        return stream(apiKey, WbEndpoints.stocksSince(lastChangeDate), WbReport.STOCKS, lastChangeDate.toLocalDate(),
+            body -> WbStatisticsDecoder.decodeStocks(body, consumer));
+    }
+    
+    public long streamIncomesSince(String apiKey, LocalDateTime lastChangeDate, Consumer<WbIncomeRecord> consumer) {
+        return stream(apiKey, WbEndpoints.incomesSince(lastChangeDate), WbReport.INCOMES, lastChangeDate.toLocalDate(),
+            body -> WbStatisticsDecoder.decodeIncomes(body, consumer));
+    }
+    
+    /**
+     * Получение отчета через кеш и склейку одинаковых запросов.
+     * Ключ содержит тип отчета, параметры и хеш полного API ключа.
+     */
+    private JsonNode cachedFetch(WbReport report, String apiKey, Supplier<JsonNode> loader, Object... params) {
+        String key = WbSingleFlight.key(report, apiKey, params);
+        
+        JsonNode cached = responseCache.get(key);
+        if (cached != null) {
+            System.out.println("📦 Используем кешированные данные для " + report.getCode());
+            return cached;
         }
         
-        lastRequestTime = System.currentTimeMillis();
+        // Одинаковые одновременные запросы склеиваются в один, разные идут параллельно
+        return singleFlight.execute(key, () -> {
+            // Пока мы ждали, другой поток мог уже заполнить кеш
+            JsonNode fresh = responseCache.peek(key);
+            if (fresh != null) {
+                return fresh;
+            }
+            
+            JsonNode result = loader.get();
+            
+            // Сохраняем в кеш и архив только успешные ответы
+            if (result != null) {
+                responseCache.put(key, report, result);
+                payloadArchive.append(WbPayloadArchive.Kind.RESPONSE, report, apiKey, key, null, result);
+            }
+            return result;
+        });
+    }
+    
+    /**
+     * Загрузка строк "с дня" для дневного кеша: одинаковые запросы склеиваются,
+     * успешный ответ сохраняется в архив
+     */
+    private JsonNode fetchDayRange(WbReport report, String apiKey, LocalDate since, Supplier<JsonNode> loader) {
+        String key = WbSingleFlight.key(report, apiKey, since);
+        return singleFlight.execute(key, () -> {
+            JsonNode result = loader.get();
+            payloadArchive.append(WbPayloadArchive.Kind.DAY_RANGE, report, apiKey, key, since, result);
+            return result;
+        });
     }
     
     /**
      * Очистка кеша (можно вызвать при необходимости)
      */
     public void clearCache() {
-        responseCache.clear();
+        responseCache.invalidateAll();
+        daySliceCache.invalidateAll();
         System.out.println("🧹 Кеш очищен");
     }
     
+    /**
+     * Метрики клиента WB для мониторинга (кеш, лимиты, запросы в полете)
+     */
+    public Map<String, Object> getClientMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cache", responseCache.getStats());
+        metrics.put("dayCache", daySliceCache.getStats());
+        metrics.put("rateLimitBuckets", rateLimiter.getBucketCount());
+        metrics.put("inFlightRequests", singleFlight.getInFlightCount());
+        metrics.put("connectionPools", httpTransport.getPoolStats());
+        metrics.put("retries", retryScheduler.getStats());
+        metrics.put("lanes", priorityLanes.getStats());
+        metrics.put("circuitBreakers", circuitBreaker.getStats());
+        metrics.put("archive", payloadArchive.getStats());
+        return metrics;
+    }
+    
     /**
      * Проверка валидности API ключа через ping endpoints
      */
@@ -134,9 +324,6 @@ public class WildberriesApiService {
         try {
             System.out.println("🔍 Проверка API ключа: " + apiKey.substring(0, Math.min(20, apiKey.length())) + "...");
             
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
             // Список эндпоинтов для проверки (в порядке приоритета)
             String[] pingEndpoints = {
                 COMMON_API + "/ping",
@@ -146,12 +333,7 @@ public class WildberriesApiService {
             for (String endpoint : pingEndpoints) {
                 try {
                     System.out.println("📞 Запрос к: " + endpoint);
-                    ResponseEntity<String> response = restTemplate.exchange(
-                        endpoint,
-                        HttpMethod.GET,
-                        entity,
-                        String.class
-                    );
+                    ResponseEntity<String> response = exchange(apiKey, endpoint);
                     
                     if (response.getStatusCode() == HttpStatus.OK) {
                         System.out.println("✅ API ключ валиден! Эндпоинт: " + endpoint);
@@ -180,9 +362,6 @@ public class WildberriesApiService {
      */
     public boolean testStatisticsAccess(String apiKey) {
         try {
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
             // Тестируем различные Statistics API эндпоинты
             String[] testEndpoints = {
                 STATISTICS_API + "/ping", // Проверка доступности
@@ -195,7 +374,7 @@ public class WildberriesApiService {
                 try {
                     if (endpoint.contains("/ping")) {
                         // Ping эндпоинт без параметров
-                        ResponseEntity<String> response = restTemplate.exchange(endpoint, HttpMethod.GET, entity, String.class);
+                        ResponseEntity<String> response = exchange(apiKey, endpoint);
                         if (response.getStatusCode().is2xxSuccessful()) {
                             System.out.println("✅ Statistics API ping успешен");
                             hasAccess = true;
@@ -206,7 +385,7 @@ public class WildberriesApiService {
                         String dateFrom = yesterday.format(DateTimeFormatter.ISO_LOCAL_DATE);
                         String urlWithParams = endpoint + "?dateFrom=" + dateFrom;
                         
-                        ResponseEntity<String> response = restTemplate.exchange(urlWithParams, HttpMethod.GET, entity, String.class);
+                        ResponseEntity<String> response = exchange(apiKey, urlWithParams);
                         if (response.getStatusCode().is2xxSuccessful()) {
                             System.out.println("✅ Statistics API эндпоинт доступен: " + endpoint);
                             hasAccess = true;
@@ -253,14 +432,15 @@ public class WildberriesApiService {
      * Эндпоинт /api/v5/supplier/balance для получения текущего баланса
      */
     public JsonNode getSellerBalance(String apiKey) {
+        return cachedFetch(WbReport.BALANCE, apiKey, () -> fetchSellerBalance(apiKey));
+    }
+
+    private JsonNode fetchSellerBalance(String apiKey) {
         try {
             String url = FINANCE_API + "/api/v5/supplier/balance";
             System.out.println("🔍 Запрос баланса продавца: " + url);
 
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = exchange(apiKey, url);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 System.out.println("✅ Баланс продавца получен успешно");
@@ -286,65 +466,25 @@ public class WildberriesApiService {
      * Используется эндпоинт /api/v1/supplier/sales согласно документации WB
      */
     public JsonNode getSalesReport(String apiKey, LocalDate startDate, LocalDate endDate) {
-        String cacheKey = "sales_" + apiKey.substring(0, 10) + "_" + startDate + "_" + endDate;
-        
-        // Проверяем кеш
-        CachedResponse cached = responseCache.get(cacheKey);
-        if (cached != null && !cached.isExpired()) {
-            System.out.println("📦 Используем кешированные данные для sales report");
-            return cached.data;
-        }
-        
-        // Получаем блокировку для предотвращения параллельных запросов
-        apiLock.lock();
+        // Период собирается из дневных срезов, у WB догружаются только недостающие дни
         try {
-            // Проверяем кеш еще раз после получения блокировки
-            cached = responseCache.get(cacheKey);
-            if (cached != null && !cached.isExpired()) {
-                System.out.println("📦 Используем кешированные данные для sales report (после блокировки)");
-                return cached.data;
-            }
-            
-            // Делаем запрос
-            JsonNode result = getSalesReportWithRetry(apiKey, startDate, endDate, 0);
-            
-            // Сохраняем в кеш только успешные ответы
-            if (result != null) {
-                responseCache.put(cacheKey, new CachedResponse(result));
-            }
-            
-            return result;
-        } finally {
-            apiLock.unlock();
+            return daySliceCache.getRange(WbReport.SALES, apiKey, startDate, endDate,
+                since -> fetchDayRange(WbReport.SALES, apiKey, since, () -> fetchSalesReport(apiKey, since, null)));
+        } catch (HttpClientErrorException e) {
+            // Отчет продаж недоступен ключу (404/403): запасной ответ - строки заказов,
+            // поэтому он не попадает ни в дневные срезы продаж, ни в архив
+            System.out.println("🔄 Отчет продаж вернул " + e.getStatusCode() + ", пробуем альтернативный эндпоинт...");
+            return getSalesReportFallback(apiKey, startDate, endDate);
         }
     }
     
-    private JsonNode getSalesReportWithRetry(String apiKey, LocalDate startDate, LocalDate endDate, int attemptNumber) {
+    private JsonNode fetchSalesReport(String apiKey, LocalDate startDate, LocalDate endDate) {
         try {
-            // Контроль лимитов запросов
-            rateLimitControl();
-            
-            // Формат даты для WB API: YYYY-MM-DD
-            String dateFrom = startDate.format(DateTimeFormatter.ISO_LOCAL_DATE);
-            
-            // Строим URL с параметрами
-            UriComponentsBuilder builder = UriComponentsBuilder
-                .fromHttpUrl(STATISTICS_API + "/api/v1/supplier/sales")
-                .queryParam("dateFrom", dateFrom);
-            
-            // Добавляем dateTo если указан
-            if (endDate != null && !endDate.equals(startDate)) {
-                String dateTo = endDate.format(DateTimeFormatter.ISO_LOCAL_DATE);
-                builder.queryParam("dateTo", dateTo);
-            }
-            
-            String url = builder.toUriString();
+            String url = WbEndpoints.sales(startDate, endDate);
             System.out.println("🔍 Запрос отчета продаж: " + url);
 
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            // 429 и 5xx уже повторены в exchange() по общей политике
+            ResponseEntity<String> response = exchange(apiKey, url);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 System.out.println("✅ Отчет продаж получен успешно");
@@ -358,55 +498,9 @@ public class WildberriesApiService {
             System.err.println("❌ HTTP ошибка при получении отчета продаж: " + e.getStatusCode());
             System.err.println("Ответ сервера: " + e.getResponseBodyAsString());
             
-            // Обработка 429 Too Many Requests
-            if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
-                // Проверяем количество попыток
-                if (attemptNumber >= MAX_RETRY_ATTEMPTS - 1) {
-                    System.err.println("❌ Превышено максимальное количество попыток (" + MAX_RETRY_ATTEMPTS + ")");
-                    return null;
-                }
-                
-                // Получаем заголовки из ответа
-                HttpHeaders headers = e.getResponseHeaders();
-                String retryAfter = headers != null ? headers.getFirst("X-Ratelimit-Retry") : null;
-                String resetTime = headers != null ? headers.getFirst("X-Ratelimit-Reset") : null;
-                
-                int waitSeconds = 5; // По умолчанию 5 секунд
-                
-                if (retryAfter != null) {
-                    try {
-                        waitSeconds = Integer.parseInt(retryAfter);
-                    } catch (NumberFormatException nfe) {
-                        // Используем значение по умолчанию
-                    }
-                }
-                
-                // Устанавливаем глобальную блокировку
-                isWaitingForRateLimit = true;
-                rateLimitResetTime = System.currentTimeMillis() + (waitSeconds * 1000L);
-                
-                System.out.println("⏳ Превышен лимит запросов (попытка " + (attemptNumber + 1) + "/" + MAX_RETRY_ATTEMPTS + 
-                                 "). Ждем " + waitSeconds + " секунд перед повторной попыткой...");
-                if (resetTime != null) {
-                    System.out.println("   Лимит восстановится через " + resetTime + " секунд");
-                }
-                
-                try {
-                    Thread.sleep(waitSeconds * 1000L); // Ждем указанное количество секунд
-                    isWaitingForRateLimit = false; // Снимаем блокировку
-                    // Рекурсивный вызов для повторной попытки
-                    return getSalesReportWithRetry(apiKey, startDate, endDate, attemptNumber + 1);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    isWaitingForRateLimit = false; // Снимаем блокировку при прерывании
-                    return null;
-                }
-            }
-            
-            // Пробуем альтернативный эндпоинт или sandbox
+            // Недоступность отчета обрабатывает getSalesReport: запасной ответ не кешируется как продажи
             if (e.getStatusCode() == HttpStatus.NOT_FOUND || e.getStatusCode() == HttpStatus.FORBIDDEN) {
-                System.out.println("🔄 Пробуем альтернативный эндпоинт...");
-                return getSalesReportFallback(apiKey, startDate, endDate);
+                throw e;
             }
             
             return null;
@@ -426,10 +520,7 @@ public class WildberriesApiService {
             String dateFrom = startDate.format(DateTimeFormatter.ISO_LOCAL_DATE);
             String url = STATISTICS_API + "/api/v1/supplier/orders?dateFrom=" + dateFrom + "&flag=0";
             
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = exchange(apiKey, url);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 System.out.println("✅ Fallback отчет получен через orders API");
@@ -448,14 +539,15 @@ public class WildberriesApiService {
      * Для продакшен токенов должен работать без проблем
      */
     public JsonNode getSellerInfo(String apiKey) {
+        return cachedFetch(WbReport.SELLER_INFO, apiKey, () -> fetchSellerInfo(apiKey));
+    }
+
+    private JsonNode fetchSellerInfo(String apiKey) {
         try {
             String url = COMMON_API + "/api/v1/seller-info";
             System.out.println("🔍 Запрос информации о продавце: " + url);
 
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = exchange(apiKey, url);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 System.out.println("✅ Информация о продавце получена успешно");
@@ -496,15 +588,15 @@ public class WildberriesApiService {
      * Получение остатков товаров через Statistics API
      */
     public JsonNode getStocksReport(String apiKey, LocalDate dateFrom) {
+        return cachedFetch(WbReport.STOCKS, apiKey, () -> fetchStocksReport(apiKey, dateFrom), dateFrom);
+    }
+
+    private JsonNode fetchStocksReport(String apiKey, LocalDate dateFrom) {
         try {
-            String dateFromStr = dateFrom.format(DateTimeFormatter.ISO_LOCAL_DATE);
-            String url = STATISTICS_API + "/api/v1/supplier/stocks?dateFrom=" + dateFromStr;
+            String url = WbEndpoints.stocks(dateFrom);
             System.out.println("🔍 Запрос остатков: " + url);
 
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = exchange(apiKey, url);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 System.out.println("✅ Отчет остатков получен успешно");
@@ -529,15 +621,15 @@ public class WildberriesApiService {
      * Получение поставок через Statistics API
      */
     public JsonNode getIncomesReport(String apiKey, LocalDate dateFrom) {
+        return cachedFetch(WbReport.INCOMES, apiKey, () -> fetchIncomesReport(apiKey, dateFrom), dateFrom);
+    }
+
+    private JsonNode fetchIncomesReport(String apiKey, LocalDate dateFrom) {
         try {
-            String dateFromStr = dateFrom.format(DateTimeFormatter.ISO_LOCAL_DATE);
-            String url = STATISTICS_API + "/api/v1/supplier/incomes?dateFrom=" + dateFromStr;
+            String url = WbEndpoints.incomes(dateFrom);
             System.out.println("🔍 Запрос поставок: " + url);
 
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = exchange(apiKey, url);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 System.out.println("✅ Отчет поставок получен успешно");
@@ -562,15 +654,16 @@ public class WildberriesApiService {
      * Получение заказов через Statistics API
      */
     public JsonNode getOrdersReportNew(String apiKey, LocalDate dateFrom, int flag) {
+        return cachedFetch(WbReport.ORDERS_NEW, apiKey, () -> fetchOrdersReportNew(apiKey, dateFrom, flag), dateFrom, flag);
+    }
+
+    private JsonNode fetchOrdersReportNew(String apiKey, LocalDate dateFrom, int flag) {
         try {
             String dateFromStr = dateFrom.format(DateTimeFormatter.ISO_LOCAL_DATE);
             String url = STATISTICS_API + "/api/v1/supplier/orders?dateFrom=" + dateFromStr + "&flag=" + flag;
             System.out.println("🔍 Запрос заказов: " + url);
 
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = exchange(apiKey, url);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 System.out.println("✅ Отчет заказов получен успешно");
@@ -595,6 +688,10 @@ public class WildberriesApiService {
      * Получение новостей через Common API
      */
     public JsonNode getNews(String apiKey, LocalDate fromDate, Integer fromID) {
+        return cachedFetch(WbReport.NEWS, apiKey, () -> fetchNews(apiKey, fromDate, fromID), fromDate, fromID);
+    }
+
+    private JsonNode fetchNews(String apiKey, LocalDate fromDate, Integer fromID) {
         try {
             UriComponentsBuilder builder = UriComponentsBuilder
                 .fromHttpUrl(COMMON_API + "/api/communications/v2/news");
@@ -610,10 +707,7 @@ public class WildberriesApiService {
             String url = builder.toUriString();
             System.out.println("🔍 Запрос новостей: " + url);
 
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = exchange(apiKey, url);
             
             if (response.getStatusCode().is2xxSuccessful()) {
                 System.out.println("✅ Новости получены успешно");
@@ -638,14 +732,15 @@ public class WildberriesApiService {
      * Получение заказов
      */
     public JsonNode getOrdersReport(String apiKey, LocalDate dateFrom) {
-        try {
-            String dateFromStr = dateFrom.atStartOfDay().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            String url = STATISTICS_API + "/api/v1/supplier/orders?dateFrom=" + dateFromStr;
+        return daySliceCache.getRange(WbReport.ORDERS, apiKey, dateFrom, LocalDate.now(),
+            since -> fetchDayRange(WbReport.ORDERS, apiKey, since, () -> fetchOrdersReport(apiKey, since)));
+    }
 
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
+    private JsonNode fetchOrdersReport(String apiKey, LocalDate dateFrom) {
+        try {
+            String url = WbEndpoints.orders(dateFrom);
 
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = exchange(apiKey, url);
             return objectMapper.readTree(response.getBody());
             
         } catch (HttpClientErrorException e) {
@@ -662,14 +757,15 @@ public class WildberriesApiService {
      * Получение реализаций (продаж)
      */
     public JsonNode getSalesData(String apiKey, LocalDate dateFrom) {
+        return cachedFetch(WbReport.SALES_DATA, apiKey, () -> fetchSalesData(apiKey, dateFrom), dateFrom);
+    }
+
+    private JsonNode fetchSalesData(String apiKey, LocalDate dateFrom) {
         try {
             String dateFromStr = dateFrom.atStartOfDay().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
             String url = STATISTICS_API + "/api/v1/supplier/sales?dateFrom=" + dateFromStr;
 
-            HttpHeaders headers = createHeaders(apiKey);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> response = exchange(apiKey, url);
             return objectMapper.readTree(response.getBody());
             
         } catch (HttpClientErrorException e) {
@@ -702,48 +798,229 @@ public class WildberriesApiService {
      * Синхронизация данных аналитики за период
      */
     public void syncAnalyticsData(User user, LocalDate startDate, LocalDate endDate) {
+        syncAnalyticsData(user, startDate, endDate, WbSyncListener.NONE);
+    }
+
+    public void syncAnalyticsData(User user, LocalDate startDate, LocalDate endDate, WbSyncListener listener) {
         if (user.getWildberriesApiKey() == null || user.getWildberriesApiKey().trim().isEmpty()) {
             throw new RuntimeException("Wildberries API ключ не найден");
         }
 
+        // Синхронизация идет фоновой полосой: запросы страниц кабинета получают квоту первыми
+        WbPriorityLanes.inBackground(() -> runSync(user, null, user.getWildberriesApiKey(), startDate, listener));
+    }
+
+    /**
+     * Синхронизация отчетов продавца: ключ продавца, данные и курсоры привязаны к продавцу
+     * @return количество новых строк по отчетам
+     */
+    public Map<WbReport, Long> syncSellerData(Seller seller, LocalDate startDate, WbSyncListener listener) {
+        if (seller.getWbApiKey() == null || seller.getWbApiKey().trim().isEmpty()) {
+            throw new RuntimeException("API ключ не установлен для продавца " + seller.getSellerName());
+        }
+
+        return WbPriorityLanes.inBackground(
+            () -> runSync(seller.getUser(), seller, seller.getWbApiKey(), startDate, listener));
+    }
+
+    private Map<WbReport, Long> runSync(User user, Seller seller, String apiKey, LocalDate startDate,
+                                        WbSyncListener downstream) {
+        // Ход синхронизации публикуется в шину событий (SSE) и передается вызывающему
+        Long sellerId = seller != null ? seller.getId() : null;
+        WbSyncListener listener = syncEventBus.listenerFor(user.getId(), sellerId, downstream);
         try {
-            System.out.println("Начинаем синхронизацию данных для пользователя: " + user.getEmail());
+            System.out.println("Начинаем синхронизацию данных для " + ownerOf(user, seller));
             
-            // Проверяем валидность API ключа
-            if (!validateApiKey(user.getWildberriesApiKey())) {
+            // Проверяем валидность API ключа (ключи продавцов проверяются при добавлении)
+            if (seller == null && !validateApiKey(apiKey)) {
                 throw new RuntimeException("Неверный API ключ Wildberries");
             }
 
-            // Получаем отчет по продажам
-            JsonNode salesReport = getSalesReport(user.getWildberriesApiKey(), startDate, endDate);
-            if (salesReport != null) {
-                processSalesReport(user, salesReport, startDate, endDate);
-                System.out.println("Отчет по продажам обработан");
-            }
+            Map<WbReport, Long> newRows = new LinkedHashMap<>();
 
-            // Получаем данные остатков
-            JsonNode stocksReport = getStocksReport(user.getWildberriesApiKey(), startDate);
-            if (stocksReport != null) {
-                processStocksReport(user, stocksReport);
-                System.out.println("Отчет по остаткам обработан");
-            }
+            // Отчеты разбираются потоково: строки сразу уходят в обработку,
+            // ни тело ответа, ни дерево JSON целиком в памяти не держим.
+            // Запрашиваются только строки, измененные после сохраненного курсора lastChangeDate
+            // Строки продаж пишутся пакетами; буфер сбрасывается перед сохранением курсора страницы
+            AnalyticsDataBatchWriter.Batch salesBatch = analyticsDataBatchWriter.open();
+            newRows.put(WbReport.SALES, streamSafely(WbReport.SALES, listener,
+                () -> syncIncrementally(user, seller, WbReport.SALES, startDate, listener,
+                    (since, consumer) -> streamSalesSince(apiKey, since, consumer),
+                    WbSaleRecord::lastChangeDate, WbSaleRecord::date,
+                    sale -> salesBatch.add(toSaleRow(user, seller, sale, startDate)),
+                    salesBatch::flush)));
+            System.out.println("Отчет по продажам обработан: " + newRows.get(WbReport.SALES) + " новых строк");
 
-            // Получаем заказы
-            JsonNode ordersReport = getOrdersReport(user.getWildberriesApiKey(), startDate);
-            if (ordersReport != null) {
-                processOrdersReport(user, ordersReport, startDate, endDate);
-                System.out.println("Отчет по заказам обработан");
-            }
+            // Остатки - снимок: строки по складам суммируются по nmId целиком,
+            // поэтому отчет берется полностью; в БД пишутся только изменившиеся товары,
+            // а товары, пропавшие из снимка, помечаются неактивными
+            newRows.put(WbReport.STOCKS, streamSafely(WbReport.STOCKS, listener, () -> {
+                Map<Long, ProductStockUpserter.StockTotals> stocksByNmId = new HashMap<>();
+                long rows = streamStocksReport(apiKey, STOCKS_SNAPSHOT_FROM,
+                    stock -> ProductStockUpserter.accumulate(stocksByNmId, stock));
+                listener.onRowsProcessed(WbReport.STOCKS, rows);
+                long changed = productStockUpserter.upsert(user, seller, stocksByNmId);
+                productStockUpserter.deactivateMissing(user, seller, stocksByNmId.keySet());
+                return changed;
+            }));
+            System.out.println("Отчет по остаткам обработан: " + newRows.get(WbReport.STOCKS) + " товаров изменено");
+
+            // Строки заказов сливаются по srid; дневные сводки затронутых дней пересчитываются из них
+            Set<LocalDate> orderDays = new TreeSet<>();
+            AnalyticsDataBatchWriter.Batch ordersBatch = analyticsDataBatchWriter.open();
+            newRows.put(WbReport.ORDERS, streamSafely(WbReport.ORDERS, listener,
+                () -> syncIncrementally(user, seller, WbReport.ORDERS, startDate, listener,
+                    (since, consumer) -> streamOrdersSince(apiKey, since, consumer),
+                    WbOrderRecord::lastChangeDate, WbOrderRecord::date,
+                    order -> {
+                        AnalyticsData row = toOrderRow(user, seller, order, startDate);
+                        orderDays.add(row.getPeriodStart());
+                        ordersBatch.add(row);
+                    },
+                    ordersBatch::flush)));
+            // Пересчитываем и при ошибке: курсор уже сдвинут за загруженные страницы
+            rebuildOrdersSummary(user, seller, orderDays);
+            System.out.println("Отчет по заказам обработан: " + newRows.get(WbReport.ORDERS) + " новых строк");
+
+            // Строки поставок сливаются по incomeId и баркоду, как заказы по srid:
+            // повторно присланная строка заменяет сохраненную, а не прибавляется к сводке
+            Set<LocalDate> incomeDays = new TreeSet<>();
+            AnalyticsDataBatchWriter.Batch incomesBatch = analyticsDataBatchWriter.open();
+            newRows.put(WbReport.INCOMES, streamSafely(WbReport.INCOMES, listener,
+                () -> syncIncrementally(user, seller, WbReport.INCOMES, startDate, listener,
+                    (since, consumer) -> streamIncomesSince(apiKey, since, consumer),
+                    WbIncomeRecord::lastChangeDate, WbIncomeRecord::date,
+                    income -> {
+                        AnalyticsData row = toIncomeRow(user, seller, income, startDate);
+                        incomeDays.add(row.getPeriodStart());
+                        incomesBatch.add(row);
+                    },
+                    incomesBatch::flush)));
+            rebuildIncomesSummary(user, seller, incomeDays);
+            System.out.println("Отчет по поставкам обработан: " + newRows.get(WbReport.INCOMES) + " новых строк");
 
             System.out.println("Синхронизация завершена успешно");
+            syncEventBus.publish(user.getId(), sellerId, SyncEventBus.SYNC_DONE, SyncEventBus.summary(newRows));
+            return newRows;
 
         } catch (Exception e) {
+            syncEventBus.publish(user.getId(), sellerId, SyncEventBus.SYNC_FAILED,
+                Map.of("message", String.valueOf(e.getMessage())));
             System.err.println("Ошибка синхронизации данных: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Ошибка синхронизации данных: " + e.getMessage());
         }
     }
 
+    private static String ownerOf(User user, Seller seller) {
+        return seller != null ? "продавца " + seller.getSellerName() : "пользователя " + user.getEmail();
+    }
+
+    /**
+     * Повторная обработка отчетов из архива сырых ответов без обращения к WB.
+     * Строки продаж и заказов за период восстанавливаются из последней полной
+     * загрузки и всех более поздних дельт (последняя версия строки по srid),
+     * затем производные записи за период пересчитываются заново.
+     * @return количество обработанных строк по отчетам
+     */
+    public Map<String, Long> replayArchive(User user, LocalDate startDate, LocalDate endDate) {
+        String apiKey = user.getWildberriesApiKey();
+        if (apiKey == null || apiKey.trim().isEmpty()) {
+            throw new RuntimeException("Wildberries API ключ не найден");
+        }
+        
+        Map<String, Long> processed = new LinkedHashMap<>();
+        
+        Collection<WbSaleRecord> sales = replayRows(apiKey, WbReport.SALES, startDate, endDate,
+            WbStatisticsDecoder::decodeSales, WildberriesApiService::saleRowId, WbSaleRecord::date);
+        if (sales != null) {
+            analyticsDataRepository.deleteByUserAndPeriodTypeInRange(user, "SALES_REPORT", startDate, endDate);
+            try (AnalyticsDataBatchWriter.Batch batch = analyticsDataBatchWriter.open()) {
+                sales.forEach(sale -> batch.add(toSaleRow(user, null, sale, startDate)));
+            }
+            processed.put("sales", (long) sales.size());
+        }
+        
+        Collection<WbOrderRecord> orders = replayRows(apiKey, WbReport.ORDERS, startDate, endDate,
+            WbStatisticsDecoder::decodeOrders, WildberriesApiService::orderRowId, WbOrderRecord::date);
+        if (orders != null) {
+            // Строки заказов сливаются по srid, поэтому удалять их перед повтором не нужно
+            Set<LocalDate> orderDays = new TreeSet<>();
+            try (AnalyticsDataBatchWriter.Batch batch = analyticsDataBatchWriter.open()) {
+                orders.forEach(order -> {
+                    AnalyticsData row = toOrderRow(user, null, order, startDate);
+                    orderDays.add(row.getPeriodStart());
+                    batch.add(row);
+                });
+            }
+            rebuildOrdersSummary(user, null, orderDays);
+            processed.put("orders", (long) orders.size());
+        }
+        
+        // Остатки - снимок, достаточно последнего
+        List<WbPayloadArchive.Entry> stockEntries = payloadArchive.find(apiKey, WbReport.STOCKS);
+        if (!stockEntries.isEmpty()) {
+            WbPayloadArchive.Entry latest = stockEntries.get(stockEntries.size() - 1);
+            try (InputStream body = payloadArchive.openBody(latest)) {
+                Map<Long, ProductStockUpserter.StockTotals> stocksByNmId = new HashMap<>();
+                processed.put("stocks", WbStatisticsDecoder.decodeStocks(body,
+                    stock -> ProductStockUpserter.accumulate(stocksByNmId, stock)));
+                productStockUpserter.upsert(user, null, stocksByNmId);
+            } catch (IOException e) {
+                System.err.println("❌ Ошибка чтения остатков из архива: " + e.getMessage());
+            }
+        }
+        
+        System.out.println("♻️ Отчеты из архива обработаны для " + user.getEmail() + ": " + processed);
+        return processed;
+    }
+    
+    @FunctionalInterface
+    private interface ArchiveDecoder<T> {
+        long decode(InputStream body, Consumer<T> consumer) throws IOException;
+    }
+    
+    /**
+     * Строки отчета за период из архива: последняя загрузка, начатая не позже
+     * начала периода, и все загрузки после нее
+     * @return строки или null, если в архиве нет загрузки, покрывающей период
+     */
+    private <T> Collection<T> replayRows(String apiKey, WbReport report, LocalDate startDate, LocalDate endDate,
+                                         ArchiveDecoder<T> decoder, Function<T, String> idOf,
+                                         Function<T, LocalDateTime> dateOf) {
+        List<WbPayloadArchive.Entry> entries = payloadArchive.find(apiKey, report);
+        entries.removeIf(entry -> entry.kind() == WbPayloadArchive.Kind.RESPONSE);
+        
+        int base = -1;
+        for (int i = 0; i < entries.size(); i++) {
+            if (!entries.get(i).day().isAfter(startDate)) {
+                base = i;
+            }
+        }
+        if (base < 0) {
+            System.out.println("⚠️ В архиве нет загрузки " + report.getCode() + " с " + startDate);
+            return null;
+        }
+        
+        Map<String, T> rows = new LinkedHashMap<>();
+        long[] anonymous = { 0 };
+        for (WbPayloadArchive.Entry entry : entries.subList(base, entries.size())) {
+            try (InputStream body = payloadArchive.openBody(entry)) {
+                decoder.decode(body, row -> {
+                    LocalDateTime date = dateOf.apply(row);
+                    if (date == null || date.toLocalDate().isBefore(startDate) || date.toLocalDate().isAfter(endDate)) {
+                        return;
+                    }
+                    String id = idOf.apply(row);
+                    rows.put(id != null ? id : "#" + anonymous[0]++, row);
+                });
+            } catch (IOException e) {
+                System.err.println("❌ Ошибка чтения архива " + report.getCode() + ": " + e.getMessage());
+            }
+        }
+        return rows.values();
+    }
+
     /**
      * Создание заголовков для запроса с API ключом
      * Использует правильный формат для Wildberries API
@@ -760,118 +1037,258 @@ public class WildberriesApiService {
     }
 
     /**
-     * Обработка отчета по продажам
+     * Потоковая загрузка одного отчета в рамках синхронизации.
+     * Ошибка одного отчета не прерывает синхронизацию остальных.
      */
-    private void processSalesReport(User user, JsonNode salesReport, LocalDate startDate, LocalDate endDate) {
+    private long streamSafely(WbReport report, WbSyncListener listener, LongSupplier loader) {
+        listener.onReportStarted(report);
         try {
-            if (salesReport.isArray()) {
-                for (JsonNode item : salesReport) {
-                    AnalyticsData analyticsData = new AnalyticsData();
-                    analyticsData.setUser(user);
-                    analyticsData.setPeriodStart(startDate);
-                    analyticsData.setPeriodEnd(endDate);
-                    analyticsData.setPeriodType("SALES_REPORT");
-                    
-                    if (item.has("quantity")) {
-                        analyticsData.setSoldQuantity(item.get("quantity").asInt());
-                    }
-                    if (item.has("totalPrice")) {
-                        analyticsData.setSalesAmount(BigDecimal.valueOf(item.get("totalPrice").asDouble()));
-                    }
-                    if (item.has("price")) {
-                        analyticsData.setPrice(BigDecimal.valueOf(item.get("price").asDouble()));
-                    }
-
-                    analyticsData.setCreatedAt(LocalDateTime.now());
-                    analyticsDataRepository.save(analyticsData);
-                }
-            }
+            long newRows = loader.getAsLong();
+            listener.onReportFinished(report, newRows);
+            return newRows;
+        } catch (HttpClientErrorException e) {
+            System.err.println("❌ HTTP ошибка при загрузке отчета " + report.getCode() + ": " + e.getStatusCode());
+            listener.onReportFailed(report, e);
+            return 0;
         } catch (Exception e) {
-            System.err.println("Ошибка обработки отчета продаж: " + e.getMessage());
+            System.err.println("❌ Ошибка загрузки отчета " + report.getCode() + ": " + e.getMessage());
             e.printStackTrace();
+            listener.onReportFailed(report, e);
+            return 0;
         }
     }
 
     /**
-     * Обработка отчета по остаткам
+     * Источник строк отчета, начиная с заданного lastChangeDate
      */
-    private void processStocksReport(User user, JsonNode stocksReport) {
-        try {
-            if (stocksReport.isArray()) {
-                for (JsonNode item : stocksReport) {
-                    Long nmId = item.has("nmId") ? item.get("nmId").asLong() : null;
-                    if (nmId == null) continue;
+    @FunctionalInterface
+    private interface IncrementalSource<T> {
+        long fetch(LocalDateTime since, Consumer<T> consumer);
+    }
 
-                    Optional<Product> existingProduct = productRepository.findByUserAndNmId(user, nmId);
-                    
-                    Product product;
-                    if (existingProduct.isPresent()) {
-                        product = existingProduct.get();
-                    } else {
-                        product = new Product();
-                        product.setUser(user);
-                        product.setNmId(nmId);
-                    }
-                    
-                    if (item.has("subject")) {
-                        product.setCategory(item.get("subject").asText());
-                    }
-                    if (item.has("brand")) {
-                        product.setBrand(item.get("brand").asText());
-                    }
-                    if (item.has("vendorCode")) {
-                        product.setVendorCode(item.get("vendorCode").asText());
-                    }
-                    if (item.has("quantity")) {
-                        product.setStock(item.get("quantity").asInt());
-                    }
+    /**
+     * Инкрементальная загрузка отчета по курсору lastChangeDate.
+     * Без курсора (или если запрошен период раньше уже загруженного) загрузка идет
+     * с начала периода, иначе - только строки, измененные после курсора.
+     * Строки, которые уже были сохранены ранее, в обработку не передаются.
+     * Курсор сохраняется после каждой страницы, поэтому прерванная синхронизация
+     * продолжается с места остановки. У каждого продавца свои курсоры.
+     * @param pageDone запись буферизованных строк страницы; вызывается до сохранения курсора
+     * @return количество новых строк
+     */
+    private <T> long syncIncrementally(User user, Seller seller, WbReport report, LocalDate startDate,
+                                       WbSyncListener listener,
+                                       IncrementalSource<T> source,
+                                       Function<T, LocalDateTime> lastChangeOf,
+                                       Function<T, LocalDateTime> dateOf,
+                                       Consumer<T> sink,
+                                       Runnable pageDone) {
+        SyncWatermark watermark = (seller != null
+                ? syncWatermarkRepository.findBySellerAndReportType(seller, report.getCode())
+                : syncWatermarkRepository.findByUserAndSellerIsNullAndReportType(user, report.getCode()))
+            .orElseGet(() -> new SyncWatermark(user, seller, report.getCode()));
+
+        LocalDateTime storedUntil = watermark.getLastChangeDate();
+        LocalDate coveredFrom = watermark.getCoveredFrom();
+        boolean backfill = storedUntil == null || coveredFrom == null || startDate.isBefore(coveredFrom);
+        LocalDateTime since = backfill ? startDate.atStartOfDay() : storedUntil;
+
+        long newRows = 0;
+        while (true) {
+            LocalDateTime[] maxChange = { since };
+            long[] pageNewRows = { 0 };
 
-                    product.setUpdatedAt(LocalDateTime.now());
-                    productRepository.save(product);
+            long pageRows = source.fetch(since, row -> {
+                LocalDateTime lastChange = lastChangeOf.apply(row);
+                if (lastChange != null && lastChange.isAfter(maxChange[0])) {
+                    maxChange[0] = lastChange;
                 }
+                if (!isAlreadyStored(lastChange, dateOf.apply(row), storedUntil, coveredFrom)) {
+                    sink.accept(row);
+                    pageNewRows[0]++;
+                }
+            });
+            pageDone.run();
+            newRows += pageNewRows[0];
+            listener.onRowsProcessed(report, pageRows);
+
+            if (backfill && (coveredFrom == null || startDate.isBefore(coveredFrom))) {
+                watermark.setCoveredFrom(startDate);
             }
-        } catch (Exception e) {
-            System.err.println("Ошибка обработки отчета остатков: " + e.getMessage());
-            e.printStackTrace();
+            if (watermark.getLastChangeDate() == null || maxChange[0].isAfter(watermark.getLastChangeDate())) {
+                watermark.setLastChangeDate(maxChange[0]);
+            }
+            watermark.setRowsSynced(watermark.getRowsSynced() + pageNewRows[0]);
+            watermark.setUpdatedAt(LocalDateTime.now());
+            watermark = syncWatermarkRepository.save(watermark);
+
+            // Неполная страница - изменений больше нет; курсор не сдвинулся - дальше не продвинемся
+            if (pageRows < WbEndpoints.STATISTICS_PAGE_SIZE || !maxChange[0].isAfter(since)) {
+                break;
+            }
+            since = maxChange[0];
         }
+
+        System.out.println("📌 Курсор " + report.getCode() + " для " + ownerOf(user, seller) + ": " + watermark.getLastChangeDate());
+        return newRows;
     }
 
     /**
-     * Обработка отчета по заказам
+     * Строка уже сохранена, если она не менялась после курсора и попадает
+     * в уже загруженный период. WB возвращает строки с lastChangeDate >= dateFrom,
+     * поэтому граничные строки приходят повторно.
      */
-    private void processOrdersReport(User user, JsonNode ordersReport, LocalDate startDate, LocalDate endDate) {
-        try {
-            if (ordersReport.isArray()) {
-                int totalOrders = 0;
-                BigDecimal totalOrdersAmount = BigDecimal.ZERO;
-                
-                for (JsonNode item : ordersReport) {
-                    totalOrders++;
-                    if (item.has("totalPrice")) {
-                        totalOrdersAmount = totalOrdersAmount.add(BigDecimal.valueOf(item.get("totalPrice").asDouble()));
-                    }
-                }
+    private static boolean isAlreadyStored(LocalDateTime lastChange, LocalDateTime date,
+                                           LocalDateTime storedUntil, LocalDate coveredFrom) {
+        if (storedUntil == null || lastChange == null || lastChange.isAfter(storedUntil)) {
+            return false;
+        }
+        return coveredFrom != null && (date == null || !date.toLocalDate().isBefore(coveredFrom));
+    }
 
-                // Создаем сводную запись по заказам
-                if (totalOrders > 0) {
-                    AnalyticsData analyticsData = new AnalyticsData();
-                    analyticsData.setUser(user);
-                    analyticsData.setPeriodStart(startDate);
-                    analyticsData.setPeriodEnd(endDate);
-                    analyticsData.setPeriodType("ORDERS_SUMMARY");
-                    analyticsData.setOrdersCount(totalOrders);
-                    analyticsData.setSalesAmount(totalOrdersAmount);
-                    analyticsData.setCreatedAt(LocalDateTime.now());
-                    
-                    analyticsDataRepository.save(analyticsData);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Ошибка обработки отчета заказов: " + e.getMessage());
-            e.printStackTrace();
+    private static LocalDate dayOf(LocalDateTime dateTime, LocalDate fallback) {
+        return dateTime != null ? dateTime.toLocalDate() : fallback;
+    }
+
+    /**
+     * Строка AnalyticsData для строки отчета по продажам (записывается пакетно)
+     */
+    private AnalyticsData toSaleRow(User user, Seller seller, WbSaleRecord sale, LocalDate fallbackDay) {
+        // Строка относится к дню продажи, а не к окну синхронизации
+        LocalDate day = dayOf(sale.date(), fallbackDay);
+        AnalyticsData analyticsData = new AnalyticsData();
+        analyticsData.setUser(user);
+        analyticsData.setSeller(seller);
+        analyticsData.setPeriodStart(day);
+        analyticsData.setPeriodEnd(day);
+        analyticsData.setPeriodType("SALES_REPORT");
+        analyticsData.setWbRowId(saleRowId(sale));
+        analyticsData.setSrid(sale.srid());
+        analyticsData.setGNumber(sale.gNumber());
+        
+        if (sale.quantity() != null) {
+            analyticsData.setSoldQuantity(sale.quantity());
+        }
+        analyticsData.setSalesAmount(BigDecimal.valueOf(sale.totalPrice()));
+        if (sale.price() != 0) {
+            analyticsData.setPrice(BigDecimal.valueOf(sale.price()));
+        }
+
+        analyticsData.setCreatedAt(LocalDateTime.now());
+        return analyticsData;
+    }
+
+    /**
+     * Естественный ключ строки продаж: saleID различает продажу и возврат с одним srid
+     */
+    private static String saleRowId(WbSaleRecord sale) {
+        return sale.saleId() != null ? sale.saleId() : sale.srid();
+    }
+
+    /**
+     * Естественный ключ строки заказа: srid, для старых строк без него - odid
+     */
+    private static String orderRowId(WbOrderRecord order) {
+        if (order.srid() != null) {
+            return order.srid();
+        }
+        return order.odid() != null && order.odid() != 0 ? "odid:" + order.odid() : null;
+    }
+
+    /**
+     * Строка AnalyticsData для строки отчета по заказам (записывается пакетно, сливается по srid)
+     */
+    private AnalyticsData toOrderRow(User user, Seller seller, WbOrderRecord order, LocalDate fallbackDay) {
+        LocalDate day = dayOf(order.date(), fallbackDay);
+        AnalyticsData analyticsData = new AnalyticsData(user, seller, day, day, "ORDER_LINE");
+        analyticsData.setWbRowId(orderRowId(order));
+        analyticsData.setSrid(order.srid());
+        analyticsData.setGNumber(order.gNumber());
+        analyticsData.setOdid(order.odid());
+        analyticsData.setOrdersCount(1);
+        analyticsData.setSalesAmount(BigDecimal.valueOf(order.totalPrice()));
+        return analyticsData;
+    }
+
+    /**
+     * Пересчет дневных сводок заказов из строк заказов: значения задаются заново,
+     * поэтому повторная загрузка тех же заказов сводку не меняет
+     */
+    private void rebuildOrdersSummary(User user, Seller seller, Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        List<Object[]> totals = seller != null
+            ? analyticsDataRepository.sumOrderLinesBySeller(seller, days)
+            : analyticsDataRepository.sumOrderLinesByUser(user, days);
+        for (Object[] total : totals) {
+            AnalyticsData analyticsData = findOrCreateDaily(user, seller, "ORDERS_SUMMARY", (LocalDate) total[0]);
+            analyticsData.setOrdersCount(((Number) total[1]).intValue());
+            analyticsData.setSalesAmount(new BigDecimal(String.valueOf(total[2])));
+            analyticsData.setUpdatedAt(LocalDateTime.now());
+            analyticsDataRepository.save(analyticsData);
         }
     }
 
+    /**
+     * Естественный ключ строки поставки: в одной поставке строка на каждый баркод
+     */
+    private static String incomeRowId(WbIncomeRecord income) {
+        return income.incomeId() + ":" + (income.barcode() != null ? income.barcode() : income.nmId());
+    }
+
+    /**
+     * Строка AnalyticsData для строки отчета по поставкам (записывается пакетно, сливается по incomeId и баркоду)
+     */
+    private AnalyticsData toIncomeRow(User user, Seller seller, WbIncomeRecord income, LocalDate fallbackDay) {
+        LocalDate day = dayOf(income.date(), fallbackDay);
+        AnalyticsData analyticsData = new AnalyticsData(user, seller, day, day, "INCOME_LINE");
+        analyticsData.setWbRowId(incomeRowId(income));
+        analyticsData.setPurchasesCount(income.quantity());
+        analyticsData.setSalesAmount(BigDecimal.valueOf(income.totalPrice()));
+        return analyticsData;
+    }
+
+    /**
+     * Пересчет дневных записей поставок из строк поставок: количество задается заново,
+     * поэтому повторно присланные строки и повтор неудачной страницы сводку не раздувают
+     */
+    private void rebuildIncomesSummary(User user, Seller seller, Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        List<Object[]> totals = seller != null
+            ? analyticsDataRepository.sumIncomeLinesBySeller(seller, days)
+            : analyticsDataRepository.sumIncomeLinesByUser(user, days);
+        for (Object[] total : totals) {
+            AnalyticsData analyticsData = findOrCreateDaily(user, seller, "INCOMES_SUMMARY", (LocalDate) total[0]);
+            analyticsData.setPurchasesCount(((Number) total[1]).intValue());
+            analyticsData.setUpdatedAt(LocalDateTime.now());
+            analyticsDataRepository.save(analyticsData);
+        }
+    }
+
+    /**
+     * Дневная сводная запись пользователя или продавца
+     */
+    private AnalyticsData findOrCreateDaily(User user, Seller seller, String periodType, LocalDate day) {
+        Optional<AnalyticsData> existing = seller != null
+            ? analyticsDataRepository.findFirstBySellerAndPeriodTypeAndPeriodStart(seller, periodType, day)
+            : analyticsDataRepository.findFirstByUserAndSellerIsNullAndPeriodTypeAndPeriodStart(user, periodType, day);
+        return existing.orElseGet(() -> {
+            AnalyticsData created = new AnalyticsData();
+            created.setUser(user);
+            created.setSeller(seller);
+            created.setPeriodStart(day);
+            created.setPeriodEnd(day);
+            created.setPeriodType(periodType);
+            created.setOrdersCount(0);
+            created.setSalesAmount(BigDecimal.ZERO);
+            created.setCreatedAt(LocalDateTime.now());
+            return created;
+        });
+    }
+
     // Геттеры и сеттеры
     public AnalyticsDataRepository getAnalyticsDataRepository() {
         return analyticsDataRepository;
@@ -0,0 +1,88 @@
+package org.example.service.wildberries;
+
+/**
+ * Token bucket для одной пары (API ключ, семейство хостов).
+ * Все методы синхронизированы на самом бакете, поэтому ожидание одного
+ * продавца не задерживает остальных.
+ */
+class TokenBucket {
+
+    private final int capacity;
+    private final long refillIntervalMs;
+
+    private double tokens;
+    private long lastRefillTime;
+    private long blockedUntil;
+
+    TokenBucket(int capacity, long refillIntervalMs) {
+        this.capacity = capacity;
+        this.refillIntervalMs = refillIntervalMs;
+        this.tokens = capacity;
+        this.lastRefillTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Пытается взять токен.
+     * @return 0 если токен получен, иначе сколько миллисекунд нужно подождать
+     */
+    synchronized long tryAcquire(long now) {
+        if (now < blockedUntil) {
+            return blockedUntil - now;
+        }
+        refill(now);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) * refillIntervalMs);
+    }
+
+    /**
+     * Взять токен, только если после этого в бакете останется не меньше reserve токенов.
+     * Так фоновые запросы не выбирают квоту, отложенную для интерактивных.
+     * @return 0 если токен получен, иначе сколько миллисекунд нужно подождать
+     */
+    synchronized long tryAcquireAbove(double reserve, long now) {
+        if (now < blockedUntil) {
+            return blockedUntil - now;
+        }
+        refill(now);
+        double required = 1 + Math.min(reserve, capacity - 1);
+        if (tokens >= required) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((required - tokens) * refillIntervalMs);
+    }
+
+    /**
+     * Подстройка под X-Ratelimit-Remaining: WB знает остаток точнее нас
+     */
+    synchronized void syncRemaining(int remaining, long now) {
+        refill(now);
+        tokens = Math.min(tokens, Math.max(0, remaining));
+    }
+
+    /**
+     * Блокировка бакета после 429 на время из X-Ratelimit-Retry
+     */
+    synchronized void blockFor(long millis, long now) {
+        tokens = 0;
+        lastRefillTime = now + millis;
+        blockedUntil = Math.max(blockedUntil, now + millis);
+    }
+
+    synchronized double availableTokens(long now) {
+        refill(now);
+        return tokens;
+    }
+
+    private void refill(long now) {
+        if (now <= lastRefillTime) {
+            return;
+        }
+        double added = (double) (now - lastRefillTime) / refillIntervalMs;
+        tokens = Math.min(capacity, tokens + added);
+        lastRefillTime = now;
+    }
+}
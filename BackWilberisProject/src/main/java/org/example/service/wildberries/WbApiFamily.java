@@ -0,0 +1,49 @@
+package org.example.service.wildberries;
+
+/**
+ * Семейства хостов Wildberries API.
+ * Лимиты WB считаются отдельно для каждого домена, поэтому и токены
+ * выдаются отдельно по каждому семейству.
+ */
+public enum WbApiFamily {
+
+    // burst = сколько запросов можно сделать подряд, refillIntervalMs = через сколько восстанавливается один токен
+    STATISTICS("statistics-api", 5, 12_000),  // 5 запросов в минуту на семейство, всплеск 5 (WB - 1 в минуту на каждый из методов)
+    ADVERT("advert-api", 5, 200),             // 5 запросов в секунду
+    CONTENT("content-api", 5, 600),           // 100 запросов в минуту, всплеск 5
+    FINANCE("finance-api", 1, 60_000),        // баланс - 1 запрос в минуту
+    COMMON("common-api", 3, 10_000);          // ping/seller-info - 3 запроса за 30 секунд
+
+    private final String hostPrefix;
+    private final int burst;
+    private final long refillIntervalMs;
+
+    WbApiFamily(String hostPrefix, int burst, long refillIntervalMs) {
+        this.hostPrefix = hostPrefix;
+        this.burst = burst;
+        this.refillIntervalMs = refillIntervalMs;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public long getRefillIntervalMs() {
+        return refillIntervalMs;
+    }
+
+    /**
+     * Определение семейства по URL запроса.
+     * Неизвестные хосты (feedbacks, marketplace, supplies и т.д.) считаем как COMMON.
+     */
+    public static WbApiFamily fromUrl(String url) {
+        if (url != null) {
+            for (WbApiFamily family : values()) {
+                if (url.contains("://" + family.hostPrefix)) {
+                    return family;
+                }
+            }
+        }
+        return COMMON;
+    }
+}
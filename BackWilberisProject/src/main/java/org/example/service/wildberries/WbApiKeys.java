@@ -0,0 +1,36 @@
+package org.example.service.wildberries;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Утилиты для работы с API ключами WB.
+ * Сам ключ нигде не храним в ключах карт и логах - только его SHA-256.
+ */
+public final class WbApiKeys {
+
+    private WbApiKeys() {
+    }
+
+    /**
+     * SHA-256 от полного API ключа в hex
+     */
+    public static String hash(String apiKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    /**
+     * Короткий отпечаток ключа для логов
+     */
+    public static String fingerprint(String apiKey) {
+        return hash(apiKey).substring(0, 8);
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.service.wildberries;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Автомат защиты для каждого хоста WB.
+ * После серии сбоев хоста (5xx, таймауты, обрывы соединения) запросы к нему
+ * сразу отклоняются, не занимая потоки и соединения. По истечении паузы
+ * пропускается один пробный запрос (half-open): успех замыкает автомат,
+ * сбой снова размыкает его.
+ * 4xx и 429 считаются ответом живого хоста и автомат не размыкают.
+ */
+@Component
+public class WbCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMs;
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    private static final class Circuit {
+        State state = State.CLOSED;
+        int consecutiveFailures;
+        long openedAt;
+        boolean probeInFlight;
+        long probeStartedAt;
+        long rejected;
+
+        synchronized boolean tryAcquire(long now, long openMs) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (now - openedAt < openMs) {
+                        rejected++;
+                        return false;
+                    }
+                    // Пауза прошла - этот запрос становится пробным
+                    state = State.HALF_OPEN;
+                    probeInFlight = true;
+                    probeStartedAt = now;
+                    return true;
+                default:
+                    // Пробный запрос мог быть отменен без результата - не ждем его дольше паузы
+                    if (probeInFlight && now - probeStartedAt < openMs) {
+                        rejected++;
+                        return false;
+                    }
+                    probeInFlight = true;
+                    probeStartedAt = now;
+                    return true;
+            }
+        }
+
+        /**
+         * @return true если автомат был разомкнут и теперь замкнулся
+         */
+        synchronized boolean onSuccess() {
+            boolean recovered = state != State.CLOSED;
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            probeInFlight = false;
+            return recovered;
+        }
+
+        /**
+         * @return true если автомат только что разомкнулся
+         */
+        synchronized boolean onFailure(long now, int threshold) {
+            consecutiveFailures++;
+            probeInFlight = false;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= threshold)) {
+                state = State.OPEN;
+                openedAt = now;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized boolean rejects(long now, long openMs) {
+            if (state == State.OPEN && now - openedAt < openMs) {
+                rejected++;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized long retryInMs(long now, long openMs) {
+            return Math.max(0, openedAt + openMs - now);
+        }
+    }
+
+    public WbCircuitBreaker(@Value("${wildberries.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                            @Value("${wildberries.circuit-breaker.open-seconds:30}") long openSeconds) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openSeconds * 1000;
+    }
+
+    /**
+     * Разрешение на запрос к хосту
+     * @throws WbCircuitOpenException если автомат разомкнут или уже идет пробный запрос
+     */
+    public void acquirePermission(String url) {
+        String host = hostOf(url);
+        Circuit circuit = circuit(host);
+        long now = System.currentTimeMillis();
+        if (!circuit.tryAcquire(now, openMs)) {
+            throw new WbCircuitOpenException(host, circuit.retryInMs(now, openMs));
+        }
+    }
+
+    /**
+     * Быстрая проверка без захвата пробного запроса (до ожидания квоты)
+     * @throws WbCircuitOpenException если автомат разомкнут и пауза еще не истекла
+     */
+    public void checkNotOpen(String url) {
+        String host = hostOf(url);
+        Circuit circuit = circuits.get(host);
+        long now = System.currentTimeMillis();
+        if (circuit != null && circuit.rejects(now, openMs)) {
+            throw new WbCircuitOpenException(host, circuit.retryInMs(now, openMs));
+        }
+    }
+
+    /**
+     * Учет результата запроса, для которого было получено разрешение
+     * @param error ошибка запроса или null при успехе
+     */
+    public void onResult(String url, Throwable error) {
+        String host = hostOf(url);
+        Circuit circuit = circuit(host);
+        if (error != null && WbRetryScheduler.isHostFailure(error)) {
+            if (circuit.onFailure(System.currentTimeMillis(), failureThreshold)) {
+                System.err.println("🔌 Автомат для " + host + " разомкнут: " + error.getMessage());
+            }
+        } else if (circuit.onSuccess()) {
+            System.out.println("🔌 Автомат для " + host + " замкнут");
+        }
+    }
+
+    public State getState(String url) {
+        Circuit circuit = circuits.get(hostOf(url));
+        return circuit != null ? circuit.state() : State.CLOSED;
+    }
+
+    /**
+     * Состояние автоматов по хостам для мониторинга
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        circuits.forEach((host, circuit) -> {
+            synchronized (circuit) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("state", circuit.state.name());
+                stats.put("consecutiveFailures", circuit.consecutiveFailures);
+                stats.put("rejected", circuit.rejected);
+                result.put(host, stats);
+            }
+        });
+        return result;
+    }
+
+    private Circuit circuit(String host) {
+        return circuits.computeIfAbsent(host, h -> new Circuit());
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.service.wildberries;
+
+/**
+ * Запрос не отправлен: автомат для хоста WB разомкнут после серии сбоев
+ */
+public class WbCircuitOpenException extends RuntimeException {
+
+    private final String host;
+
+    public WbCircuitOpenException(String host, long retryInMs) {
+        super("WB " + host + " временно недоступен, следующая проверка через " + (retryInMs / 1000) + " сек");
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
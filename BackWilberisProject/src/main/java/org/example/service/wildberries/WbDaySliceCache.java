@@ -0,0 +1,249 @@
+package org.example.service.wildberries;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Кеш продаж и заказов, нарезанный по календарным дням продавца.
+ * Любой период собирается из уже загруженных дней, у WB запрашивается только
+ * недостающая часть: Statistics API отдает все строки, начиная с dateFrom,
+ * поэтому один запрос от самого раннего недостающего дня заполняет все дни до сегодня.
+ * Закрытые дни живут долго, сегодняшний день - по TTL отчета.
+ */
+@Component
+public class WbDaySliceCache {
+
+    private final Cache<String, Slice> slices;
+    private final Duration closedDayTtl;
+
+    private record Slice(ArrayNode rows, WbReport report, boolean closed, int weight) {
+    }
+
+    public WbDaySliceCache(@Value("${wildberries.day-cache.max-weight-mb:256}") long maxWeightMb,
+                           @Value("${wildberries.day-cache.closed-day-ttl-hours:6}") long closedDayTtlHours) {
+        this.closedDayTtl = Duration.ofHours(closedDayTtlHours);
+        this.slices = Caffeine.newBuilder()
+            .maximumWeight(maxWeightMb * 1024 * 1024)
+            .weigher((String key, Slice slice) -> slice.weight())
+            .expireAfter(new Expiry<String, Slice>() {
+                @Override
+                public long expireAfterCreate(String key, Slice slice, long currentTime) {
+                    return ttlOf(slice).toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Slice slice, long currentTime, long currentDuration) {
+                    return ttlOf(slice).toNanos();
+                }
+
+                @Override
+                public long expireAfterRead(String key, Slice slice, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Строки отчета с датой в периоде [from, to]
+     * @param fetchSince загрузка всех строк, начиная с указанного дня (null при ошибке)
+     * @return массив строк или null, если недостающие дни загрузить не удалось
+     */
+    public JsonNode getRange(WbReport report, String apiKey, LocalDate from, LocalDate to,
+                             Function<LocalDate, JsonNode> fetchSince) {
+        LocalDate end = clampToToday(to);
+        Map<LocalDate, ArrayNode> days = cachedDays(report, apiKey, from, end);
+        LocalDate missingFrom = firstMissing(days, from, end);
+        if (missingFrom == null) {
+            return assemble(days, from, end);
+        }
+
+        JsonNode payload = fetchSince.apply(missingFrom);
+        if (payload == null) {
+            return null;
+        }
+        days.putAll(store(report, apiKey, missingFrom, payload));
+        return assemble(days, from, end);
+    }
+
+    /**
+     * То же для реактивного клиента
+     */
+    public Mono<JsonNode> getRangeAsync(WbReport report, String apiKey, LocalDate from, LocalDate to,
+                                        Function<LocalDate, Mono<JsonNode>> fetchSince) {
+        return Mono.defer(() -> {
+            LocalDate end = clampToToday(to);
+            Map<LocalDate, ArrayNode> days = cachedDays(report, apiKey, from, end);
+            LocalDate missingFrom = firstMissing(days, from, end);
+            if (missingFrom == null) {
+                return Mono.just(assemble(days, from, end));
+            }
+            return fetchSince.apply(missingFrom).map(payload -> {
+                days.putAll(store(report, apiKey, missingFrom, payload));
+                return assemble(days, from, end);
+            });
+        });
+    }
+
+    public void invalidateAll() {
+        slices.invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("days", slices.estimatedSize());
+        stats.put("hitRate", slices.stats().hitRate());
+        stats.put("evictions", slices.stats().evictionCount());
+        return stats;
+    }
+
+    /**
+     * Загрузка ответа из архива при старте. Полными считаются только дни,
+     * закрытые на момент загрузки ответа.
+     */
+    public void preload(WbReport report, String apiKeyHash, LocalDate since, JsonNode payload, LocalDate fetchedOn) {
+        LocalDate lastClosed = fetchedOn.minusDays(1);
+        if (since.isAfter(lastClosed)) {
+            return;
+        }
+        store(report, apiKeyHash, since, lastClosed, payload);
+    }
+
+    private Map<LocalDate, ArrayNode> store(WbReport report, String apiKey, LocalDate since, JsonNode payload) {
+        return store(report, WbApiKeys.hash(apiKey), since, LocalDate.now(), payload);
+    }
+
+    /**
+     * Раскладка ответа по дням. Все дни от since до until считаются загруженными,
+     * в том числе дни без строк. Строки с датой раньше since (старые продажи,
+     * измененные позже) к запрошенным дням не относятся и отбрасываются.
+     * Ответ на пределе строк Statistics API обрезан по lastChangeDate: загруженными считаются
+     * только дни до дня последнего изменения в ответе, остальные отдаются вызывающему,
+     * но не кешируются и будут запрошены снова.
+     */
+    private Map<LocalDate, ArrayNode> store(WbReport report, String apiKeyHash, LocalDate since, LocalDate until,
+                                            JsonNode payload) {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, ArrayNode> fresh = new HashMap<>();
+        for (LocalDate day = since; !day.isAfter(until); day = day.plusDays(1)) {
+            fresh.put(day, JsonNodeFactory.instance.arrayNode());
+        }
+        if (payload.isArray()) {
+            for (JsonNode row : payload) {
+                LocalDate day = dayOf(row);
+                ArrayNode slice = day != null ? fresh.get(day) : null;
+                if (slice != null) {
+                    slice.add(row);
+                }
+            }
+        }
+
+        LocalDate coveredUntil = coveredUntil(payload, until);
+        fresh.forEach((day, rows) -> {
+            if (!day.isAfter(coveredUntil)) {
+                slices.put(key(report, apiKeyHash, day),
+                    new Slice(rows, report, day.isBefore(today), WbResponseCache.estimateWeight(rows)));
+            }
+        });
+        return fresh;
+    }
+
+    /**
+     * Последний полностью загруженный день ответа: until, если ответ не уперся в предел строк,
+     * иначе день перед последним изменением в ответе - строки этого дня могли не поместиться
+     */
+    private static LocalDate coveredUntil(JsonNode payload, LocalDate until) {
+        if (!payload.isArray() || payload.size() < WbEndpoints.STATISTICS_PAGE_SIZE) {
+            return until;
+        }
+        LocalDate lastChange = null;
+        for (JsonNode row : payload) {
+            LocalDate day = dayOf(row, "lastChangeDate");
+            if (day != null && (lastChange == null || day.isAfter(lastChange))) {
+                lastChange = day;
+            }
+        }
+        if (lastChange == null) {
+            return LocalDate.MIN;
+        }
+        LocalDate covered = lastChange.minusDays(1);
+        System.out.println("✂️ Ответ WB обрезан на " + payload.size() + " строках, в кеш дней попадают дни до " + covered);
+        return covered.isBefore(until) ? covered : until;
+    }
+
+    private Map<LocalDate, ArrayNode> cachedDays(WbReport report, String apiKey, LocalDate from, LocalDate to) {
+        String hash = WbApiKeys.hash(apiKey);
+        Map<LocalDate, ArrayNode> days = new HashMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            Slice slice = slices.getIfPresent(key(report, hash, day));
+            if (slice != null) {
+                days.put(day, slice.rows());
+            }
+        }
+        return days;
+    }
+
+    private static LocalDate firstMissing(Map<LocalDate, ArrayNode> days, LocalDate from, LocalDate to) {
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (!days.containsKey(day)) {
+                return day;
+            }
+        }
+        return null;
+    }
+
+    private static JsonNode assemble(Map<LocalDate, ArrayNode> days, LocalDate from, LocalDate to) {
+        ArrayNode result = JsonNodeFactory.instance.arrayNode();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            ArrayNode rows = days.get(day);
+            if (rows != null) {
+                result.addAll(rows);
+            }
+        }
+        return result;
+    }
+
+    private Duration ttlOf(Slice slice) {
+        return slice.closed() ? closedDayTtl : slice.report().getTtl();
+    }
+
+    private static String key(WbReport report, String apiKeyHash, LocalDate day) {
+        return report.getCode() + "|" + apiKeyHash + "|" + day;
+    }
+
+    private static LocalDate dayOf(JsonNode row) {
+        return dayOf(row, "date");
+    }
+
+    private static LocalDate dayOf(JsonNode row, String field) {
+        String date = row.path(field).asText(null);
+        if (date == null || date.length() < 10) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.substring(0, 10));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate clampToToday(LocalDate to) {
+        LocalDate today = LocalDate.now();
+        return to == null || to.isAfter(today) ? today : to;
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.service.wildberries;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * URL отчетов Statistics API. Используются и блокирующим, и реактивным клиентом,
+ * чтобы ключи кеша и запросы у них совпадали.
+ */
+public final class WbEndpoints {
+
+    public static final String STATISTICS_API = "https://statistics-api.wildberries.ru";
+
+    // Максимум строк в одном ответе Statistics API (строки идут по возрастанию lastChangeDate)
+    public static final int STATISTICS_PAGE_SIZE = 80_000;
+
+    private WbEndpoints() {
+    }
+
+    /**
+     * Продажи и возвраты: /api/v1/supplier/sales
+     */
+    public static String sales(LocalDate startDate, LocalDate endDate) {
+        UriComponentsBuilder builder = UriComponentsBuilder
+            .fromHttpUrl(STATISTICS_API + "/api/v1/supplier/sales")
+            .queryParam("dateFrom", startDate.format(DateTimeFormatter.ISO_LOCAL_DATE));
+
+        // Добавляем dateTo если указан
+        if (endDate != null && !endDate.equals(startDate)) {
+            builder.queryParam("dateTo", endDate.format(DateTimeFormatter.ISO_LOCAL_DATE));
+        }
+        return builder.toUriString();
+    }
+
+    /**
+     * Остатки: /api/v1/supplier/stocks
+     */
+    public static String stocks(LocalDate dateFrom) {
+        return STATISTICS_API + "/api/v1/supplier/stocks?dateFrom=" + dateFrom.format(DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+
+    /**
+     * Поставки: /api/v1/supplier/incomes
+     */
+    public static String incomes(LocalDate dateFrom) {
+        return STATISTICS_API + "/api/v1/supplier/incomes?dateFrom=" + dateFrom.format(DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+
+    /**
+     * Заказы: /api/v1/supplier/orders
+     */
+    public static String orders(LocalDate dateFrom) {
+        return STATISTICS_API + "/api/v1/supplier/orders?dateFrom="
+            + dateFrom.atStartOfDay().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    /**
+     * Продажи, измененные начиная с lastChangeDate (flag=0 - курсор по lastChangeDate)
+     */
+    public static String salesSince(LocalDateTime lastChangeDate) {
+        return since("/api/v1/supplier/sales", lastChangeDate);
+    }
+
+    /**
+     * Заказы, измененные начиная с lastChangeDate
+     */
+    public static String ordersSince(LocalDateTime lastChangeDate) {
+        return since("/api/v1/supplier/orders", lastChangeDate);
+    }
+
+    /**
+     * Остатки, измененные начиная с lastChangeDate (у остатков параметра flag нет)
+     */
+    public static String stocksSince(LocalDateTime lastChangeDate) {
+        return STATISTICS_API + "/api/v1/supplier/stocks?dateFrom="
+            + lastChangeDate.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    /**
+     * Поставки, измененные начиная с lastChangeDate
+     */
+    public static String incomesSince(LocalDateTime lastChangeDate) {
+        return STATISTICS_API + "/api/v1/supplier/incomes?dateFrom="
+            + lastChangeDate.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    /**
+     * Детализация отчета реализации: /api/v5/supplier/reportDetailByPeriod.
+     * Страницы идут по rrdid - строки с rrd_id больше переданного, не больше limit строк
+     */
+    public static String reportDetailByPeriod(LocalDate dateFrom, LocalDate dateTo, long rrdId, int limit) {
+        return STATISTICS_API + "/api/v5/supplier/reportDetailByPeriod?dateFrom="
+            + dateFrom.format(DateTimeFormatter.ISO_LOCAL_DATE)
+            + "&dateTo=" + dateTo.format(DateTimeFormatter.ISO_LOCAL_DATE)
+            + "&limit=" + limit + "&rrdid=" + rrdId;
+    }
+
+    private static String since(String path, LocalDateTime lastChangeDate) {
+        return STATISTICS_API + path + "?dateFrom="
+            + lastChangeDate.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + "&flag=0";
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.service.wildberries;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HTTP транспорт к WB для обоих клиентов.
+ * Блокирующий: Apache HttpClient 5 с пулом соединений на хост (keep-alive,
+ * переиспользование TLS сессий) и потоковой распаковкой gzip/deflate.
+ * Реактивный: Reactor Netty с пулом на хост, HTTP/2 через ALPN и сжатием.
+ * Загрузка пулов публикуется в метриках клиента.
+ */
+@Component
+public class WbHttpTransport {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final ConnectionProvider connectionProvider;
+    private final ReactorClientHttpConnector reactorConnector;
+
+    // Метрики реактивных пулов: пул создается на каждый удаленный адрес
+    private final Map<String, ConnectionPoolMetrics> reactivePools = new ConcurrentHashMap<>();
+
+    public WbHttpTransport(@Value("${wildberries.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+                           @Value("${wildberries.http.read-timeout-ms:120000}") long readTimeoutMs,
+                           @Value("${wildberries.http.pool-acquire-timeout-ms:10000}") long acquireTimeoutMs,
+                           @Value("${wildberries.http.max-connections-per-host:20}") int maxPerHost,
+                           @Value("${wildberries.http.max-connections-total:100}") int maxTotal,
+                           @Value("${wildberries.http.idle-timeout-seconds:30}") long idleSeconds,
+                           @Value("${wildberries.http.http2:true}") boolean http2) {
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnPerRoute(maxPerHost)
+            .setMaxConnTotal(maxTotal)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(idleSeconds))
+                .setTimeToLive(TimeValue.ofMinutes(5))
+                .build())
+            .build();
+
+        // Сжатие включено по умолчанию: Accept-Encoding: gzip, x-gzip, deflate,
+        // тело распаковывается потоково при чтении InputStream
+        this.httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofSeconds(idleSeconds))
+            .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+
+        this.connectionProvider = ConnectionProvider.builder("wildberries")
+            .maxConnections(maxPerHost)
+            .pendingAcquireTimeout(Duration.ofMillis(acquireTimeoutMs))
+            .maxIdleTime(Duration.ofSeconds(idleSeconds))
+            .maxLifeTime(Duration.ofMinutes(5))
+            .evictInBackground(Duration.ofSeconds(idleSeconds))
+            .metrics(true, () -> new ConnectionProvider.MeterRegistrar() {
+                @Override
+                public void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+                                            ConnectionPoolMetrics metrics) {
+                    reactivePools.put(remoteAddress.toString(), metrics);
+                }
+
+                @Override
+                public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+                    reactivePools.remove(remoteAddress.toString());
+                }
+            })
+            .build();
+
+        HttpClient reactiveClient = HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeoutMs)
+            .responseTimeout(Duration.ofMillis(readTimeoutMs))
+            .compress(true);
+        if (http2) {
+            reactiveClient = reactiveClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        this.reactorConnector = new ReactorClientHttpConnector(reactiveClient);
+    }
+
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    public ReactorClientHttpConnector getReactorConnector() {
+        return reactorConnector;
+    }
+
+    /**
+     * Загрузка пулов соединений: занято, свободно, ожидают соединения, лимит
+     */
+    public Map<String, Object> getPoolStats() {
+        Map<String, Object> blocking = new LinkedHashMap<>();
+        blocking.put("total", toMap(connectionManager.getTotalStats()));
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            routes.put(route.getTargetHost().getHostName(), toMap(connectionManager.getStats(route)));
+        }
+        blocking.put("hosts", routes);
+
+        Map<String, Object> reactive = new LinkedHashMap<>();
+        reactivePools.forEach((address, metrics) -> {
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("leased", metrics.acquiredSize());
+            pool.put("available", metrics.idleSize());
+            pool.put("pending", metrics.pendingAcquireSize());
+            pool.put("max", metrics.maxAllocatedSize());
+            reactive.put(address, pool);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("blocking", blocking);
+        result.put("reactive", reactive);
+        return result;
+    }
+
+    private static Map<String, Object> toMap(PoolStats stats) {
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("leased", stats.getLeased());
+        pool.put("available", stats.getAvailable());
+        pool.put("pending", stats.getPending());
+        pool.put("max", stats.getMax());
+        return pool;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
+        connectionProvider.dispose();
+    }
+}
@@ -0,0 +1,616 @@
+package org.example.service.wildberries;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Архив сырых ответов WB на диске.
+ * Данные пишутся только в конец сегментов (segment-NNNNNN.dat), каждая запись
+ * сжата gzip. Рядом с сегментом лежит индекс фиксированного размера
+ * (segment-NNNNNN.idx: продавец, отчет, день, время, смещение), который при
+ * старте читается через отображение в память. В памяти записи разложены по
+ * продавцу и отчету. Старые сегменты удаляются по возрасту и общему размеру архива
+ * при старте и при переходе на новый сегмент.
+ * Архив используется для прогрева кешей после рестарта и для повторной обработки
+ * отчетов без обращения к WB. В архиве хранится только хеш API ключа.
+ */
+@Component
+public class WbPayloadArchive {
+
+    /**
+     * Что лежит в записи: ответ для кеша ответов, загрузка "с дня" для дневных срезов
+     * или поток отчета синхронизации
+     */
+    public enum Kind {
+        RESPONSE(0), DAY_RANGE(1), STREAM(2);
+
+        // Код в индексе архива; не меняется при добавлении и перестановке значений
+        private final int id;
+
+        Kind(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        static Kind byId(int id) {
+            for (Kind kind : values()) {
+                if (kind.id == id) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Запись индекса
+     */
+    public record Entry(int segment, long offset, int length, String sellerHash,
+                        WbReport report, Kind kind, LocalDate day, long createdAt) {
+    }
+
+    private static final int RECORD_MAGIC = 0x57424152; // "WBAR"
+    private static final int INDEX_ENTRY_BYTES = 64;
+    private static final int HASH_BYTES = 32;
+    // Версия записи индекса: отчет и вид записи хранятся стабильными WbReport.getId() и Kind.getId()
+    private static final short INDEX_FORMAT = 1;
+
+    @Autowired
+    private WbResponseCache responseCache;
+
+    @Autowired
+    private WbDaySliceCache daySliceCache;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long maxSegmentBytes;
+    private final long warmupMaxAgeMs;
+    private final long maxAgeMs;
+    private final long maxTotalBytes;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Запись на диск идет в одном фоновом потоке, запросы к WB ее не ждут
+    private final ThreadPoolExecutor writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spoolSequence = new AtomicLong();
+
+    // Записи по ключу "продавец:отчет" в порядке записи
+    private final Map<String, List<Entry>> entries = new HashMap<>();
+    // Время самой свежей записи по номеру сегмента - для удаления по возрасту
+    private final TreeMap<Integer, Long> segmentNewest = new TreeMap<>();
+    private int recordCount;
+    private long removedSegments;
+    private int currentSegment;
+    private FileChannel dataChannel;
+    private FileChannel indexChannel;
+
+    public WbPayloadArchive(@Value("${wildberries.archive.enabled:true}") boolean enabled,
+                            @Value("${wildberries.archive.dir:./data/wb-archive}") String dir,
+                            @Value("${wildberries.archive.segment-mb:256}") long segmentMb,
+                            @Value("${wildberries.archive.warmup-max-age-minutes:30}") long warmupMaxAgeMinutes,
+                            @Value("${wildberries.archive.write-queue:256}") int writeQueue,
+                            @Value("${wildberries.archive.max-age-days:30}") long maxAgeDays,
+                            @Value("${wildberries.archive.max-total-mb:10240}") long maxTotalMb) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.maxSegmentBytes = segmentMb * 1024 * 1024;
+        this.warmupMaxAgeMs = TimeUnit.MINUTES.toMillis(warmupMaxAgeMinutes);
+        this.maxAgeMs = TimeUnit.DAYS.toMillis(maxAgeDays);
+        this.maxTotalBytes = maxTotalMb * 1024 * 1024;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(writeQueue),
+            runnable -> {
+                Thread thread = new Thread(runnable, "wb-archive-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> paths = files.sorted().toList();
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".part")) {
+                    // Тело, не перенесенное в сегмент до остановки
+                    Files.deleteIfExists(path);
+                } else if (name.endsWith(".idx")) {
+                    int segment = segmentNumber(path);
+                    loadIndex(segment, path);
+                    currentSegment = Math.max(currentSegment, segment);
+                }
+            }
+        }
+        synchronized (this) {
+            openSegment(Math.max(currentSegment, 1));
+            enforceRetention();
+        }
+        System.out.println("🗄️ Архив WB: " + recordCount + " записей в " + dir.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (dataChannel != null) {
+                dataChannel.close();
+                indexChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Сохранение разобранного ответа (сериализуется и сжимается в фоне)
+     */
+    public void append(Kind kind, WbReport report, String apiKey, String cacheKey, LocalDate day, JsonNode payload) {
+        if (!enabled || payload == null) {
+            return;
+        }
+        String sellerHash = WbApiKeys.hash(apiKey);
+        submit(() -> {
+            try {
+                byte[] compressed = gzip(objectMapper.writeValueAsBytes(payload));
+                writeRecord(kind, report, sellerHash, cacheKey, day, compressed.length,
+                    channel -> writeFully(channel, ByteBuffer.wrap(compressed)));
+            } catch (IOException e) {
+                System.err.println("❌ Ошибка записи в архив WB: " + e.getMessage());
+            }
+        }, () -> { });
+    }
+
+    /**
+     * Копирование потокового ответа в архив по мере чтения.
+     * Сжатые байты пишутся в файл .part рядом с сегментами, а не в память:
+     * сегмент общий для всех загрузок, поэтому в него тело переносится целиком
+     * (transferTo) после того, как дочитано до конца. Поток, закрытый до конца тела
+     * (ошибка разбора или потребителя), не дочитывается, и тело в архив не попадает.
+     */
+    public InputStream tee(InputStream body, Kind kind, WbReport report, String apiKey, String cacheKey, LocalDate day) {
+        if (!enabled) {
+            return body;
+        }
+        String sellerHash = WbApiKeys.hash(apiKey);
+        Path spool = dir.resolve("spool-" + spoolSequence.incrementAndGet() + ".part");
+        try {
+            return new ArchivingInputStream(body, spool, completed -> submit(() -> {
+                try (FileChannel in = FileChannel.open(completed, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    writeRecord(kind, report, sellerHash, cacheKey, day, (int) size, channel -> {
+                        for (long position = 0; position < size; ) {
+                            position += in.transferTo(position, size - position, channel);
+                        }
+                    });
+                } catch (IOException e) {
+                    System.err.println("❌ Ошибка записи в архив WB: " + e.getMessage());
+                } finally {
+                    deleteQuietly(completed);
+                }
+            }, () -> deleteQuietly(completed)));
+        } catch (IOException e) {
+            System.err.println("❌ Ответ WB не будет сохранен в архив: " + e.getMessage());
+            return body;
+        }
+    }
+
+    /**
+     * Записи продавца по отчету в порядке записи
+     */
+    public List<Entry> find(String apiKey, WbReport report) {
+        synchronized (this) {
+            List<Entry> found = entries.get(indexKey(WbApiKeys.hash(apiKey), report));
+            return found != null ? new ArrayList<>(found) : new ArrayList<>();
+        }
+    }
+
+    /**
+     * Распакованное тело записи (JSON как пришел от WB)
+     */
+    public InputStream openBody(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+        try (FileChannel channel = FileChannel.open(segmentPath(entry.segment(), ".dat"), StandardOpenOption.READ)) {
+            long position = entry.offset();
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Запись архива обрезана: " + entry);
+                }
+                position += read;
+            }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        if (in.readInt() != RECORD_MAGIC) {
+            throw new IOException("Поврежденная запись архива: " + entry);
+        }
+        in.readUTF(); // ключ кеша
+        int bodyLength = in.readInt();
+        return new GZIPInputStream(new ByteArrayInputStream(buffer.array(),
+            entry.length() - bodyLength, bodyLength));
+    }
+
+    /**
+     * Прогрев кешей после старта: свежие ответы возвращаются в кеш ответов,
+     * закрытые дни - в дневной кеш. Запросы к WB после рестарта идут только за тем,
+     * чего в архиве нет.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long threshold = System.currentTimeMillis() - warmupMaxAgeMs;
+        List<Entry> recent = new ArrayList<>();
+        synchronized (this) {
+            for (List<Entry> list : entries.values()) {
+                for (Entry entry : list) {
+                    if (entry.kind() != Kind.STREAM && entry.createdAt() >= threshold) {
+                        recent.add(entry);
+                    }
+                }
+            }
+        }
+        recent.sort(Comparator.comparingLong(Entry::createdAt));
+
+        int restored = 0;
+        for (Entry entry : recent) {
+            try {
+                String cacheKey = readCacheKey(entry);
+                JsonNode payload;
+                try (InputStream body = openBody(entry)) {
+                    payload = objectMapper.readTree(body);
+                }
+                if (entry.kind() == Kind.RESPONSE) {
+                    responseCache.put(cacheKey, entry.report(), payload);
+                } else {
+                    LocalDate fetchedOn = Instant.ofEpochMilli(entry.createdAt()).atZone(ZoneId.systemDefault()).toLocalDate();
+                    daySliceCache.preload(entry.report(), entry.sellerHash(), entry.day(), payload, fetchedOn);
+                }
+                restored++;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("⚠️ Пропущена запись архива WB: " + e.getMessage());
+            }
+        }
+        System.out.println("🔥 Кеши WB прогреты из архива: " + restored + " ответов");
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        synchronized (this) {
+            stats.put("records", recordCount);
+            stats.put("segment", currentSegment);
+            stats.put("segments", segmentNewest.size());
+            stats.put("removedSegments", removedSegments);
+        }
+        stats.put("queued", writer.getQueue().size());
+        stats.put("dropped", dropped.get());
+        return stats;
+    }
+
+    /**
+     * Тело записи, которое пишется в сегмент сразу за заголовком
+     */
+    @FunctionalInterface
+    private interface BodyWriter {
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Задача записи; если очередь полна (или архив закрыт), запись отбрасывается
+     */
+    private void submit(Runnable task, Runnable onDropped) {
+        try {
+            writer.execute(task);
+        } catch (RejectedExecutionException e) {
+            dropped.incrementAndGet();
+            onDropped.run();
+        }
+    }
+
+    private synchronized void writeRecord(Kind kind, WbReport report, String sellerHash, String cacheKey,
+                                          LocalDate day, int bodyLength, BodyWriter body) throws IOException {
+        if (dataChannel.size() >= maxSegmentBytes) {
+            dataChannel.close();
+            indexChannel.close();
+            openSegment(currentSegment + 1);
+            enforceRetention();
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(header);
+        out.writeInt(RECORD_MAGIC);
+        out.writeUTF(cacheKey != null ? cacheKey : "");
+        out.writeInt(bodyLength);
+        out.flush();
+
+        // Запись без строки индекса (сбой посреди тела) при чтении не видна
+        long offset = dataChannel.size();
+        writeFully(dataChannel, ByteBuffer.wrap(header.toByteArray()));
+        body.writeTo(dataChannel);
+
+        Entry entry = new Entry(currentSegment, offset, header.size() + bodyLength, sellerHash, report, kind,
+            day != null ? day : LocalDate.now(), System.currentTimeMillis());
+        ByteBuffer index = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        index.put(HexFormat.of().parseHex(sellerHash));
+        index.put((byte) report.getId());
+        index.put((byte) kind.getId());
+        index.putShort(INDEX_FORMAT);
+        index.putInt((int) entry.day().toEpochDay());
+        index.putLong(entry.createdAt());
+        index.putLong(entry.offset());
+        index.putInt(entry.length());
+        index.flip();
+        index.limit(INDEX_ENTRY_BYTES);
+        writeFully(indexChannel, index);
+
+        addEntry(entry);
+    }
+
+    private void addEntry(Entry entry) {
+        entries.computeIfAbsent(indexKey(entry.sellerHash(), entry.report()), key -> new ArrayList<>()).add(entry);
+        segmentNewest.merge(entry.segment(), entry.createdAt(), Math::max);
+        recordCount++;
+    }
+
+    /**
+     * Удаление закрытых сегментов: старше max-age-days или, начиная с самых старых,
+     * пока архив больше max-total-mb. Текущий сегмент не удаляется.
+     */
+    private void enforceRetention() throws IOException {
+        long expiredBefore = System.currentTimeMillis() - maxAgeMs;
+        long total = 0;
+        Map<Integer, Long> sizes = new HashMap<>();
+        for (int segment : segmentNewest.navigableKeySet()) {
+            long size = segmentSize(segment);
+            sizes.put(segment, size);
+            total += size;
+        }
+        for (int segment : new ArrayList<>(segmentNewest.headMap(currentSegment).keySet())) {
+            boolean expired = segmentNewest.get(segment) < expiredBefore;
+            if (!expired && total <= maxTotalBytes) {
+                break;
+            }
+            Files.deleteIfExists(segmentPath(segment, ".idx"));
+            Files.deleteIfExists(segmentPath(segment, ".dat"));
+            total -= sizes.get(segment);
+            removeSegment(segment);
+            System.out.println("🧹 Архив WB: удален сегмент " + segment + (expired ? " (устарел)" : " (превышен размер)"));
+        }
+    }
+
+    private void removeSegment(int segment) {
+        segmentNewest.remove(segment);
+        removedSegments++;
+        Iterator<List<Entry>> lists = entries.values().iterator();
+        while (lists.hasNext()) {
+            List<Entry> list = lists.next();
+            int before = list.size();
+            list.removeIf(entry -> entry.segment() == segment);
+            recordCount -= before - list.size();
+            if (list.isEmpty()) {
+                lists.remove();
+            }
+        }
+    }
+
+    private long segmentSize(int segment) throws IOException {
+        long size = 0;
+        for (String extension : new String[] {".dat", ".idx"}) {
+            Path path = segmentPath(segment, extension);
+            if (Files.exists(path)) {
+                size += Files.size(path);
+            }
+        }
+        return size;
+    }
+
+    private static String indexKey(String sellerHash, WbReport report) {
+        return sellerHash + ":" + report.name();
+    }
+
+    private void loadIndex(int segment, Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            // Недописанная при сбое последняя запись индекса отбрасывается
+            long usable = channel.size() - channel.size() % INDEX_ENTRY_BYTES;
+            if (usable == 0) {
+                return;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, usable);
+            byte[] hash = new byte[HASH_BYTES];
+            for (long position = 0; position < usable; position += INDEX_ENTRY_BYTES) {
+                mapped.position((int) position);
+                mapped.get(hash);
+                WbReport report = WbReport.byId(mapped.get());
+                Kind kind = Kind.byId(mapped.get());
+                short format = mapped.getShort();
+                LocalDate day = LocalDate.ofEpochDay(mapped.getInt());
+                long createdAt = mapped.getLong();
+                long offset = mapped.getLong();
+                int length = mapped.getInt();
+                // Записи другой версии формата или с неизвестным отчетом пропускаются
+                if (format == INDEX_FORMAT && report != null && kind != null) {
+                    addEntry(new Entry(segment, offset, length, HexFormat.of().formatHex(hash),
+                        report, kind, day, createdAt));
+                }
+            }
+        }
+    }
+
+    private void openSegment(int segment) throws IOException {
+        currentSegment = segment;
+        segmentNewest.putIfAbsent(segment, System.currentTimeMillis());
+        dataChannel = FileChannel.open(segmentPath(segment, ".dat"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        indexChannel = FileChannel.open(segmentPath(segment, ".idx"),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Обрезаем хвост индекса, недописанный при прошлом сбое
+        long tail = indexChannel.size() % INDEX_ENTRY_BYTES;
+        if (tail != 0) {
+            indexChannel.truncate(indexChannel.size() - tail);
+        }
+    }
+
+    private String readCacheKey(Entry entry) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(entry.segment(), ".dat"), StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(Math.min(entry.length(), 1024));
+            channel.read(head, entry.offset());
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(head.array()));
+            in.readInt();
+            return in.readUTF();
+        }
+    }
+
+    private Path segmentPath(int segment, String extension) {
+        return dir.resolve(String.format("segment-%06d%s", segment, extension));
+    }
+
+    private static int segmentNumber(Path index) {
+        String name = index.getFileName().toString();
+        return Integer.parseInt(name.substring("segment-".length(), name.length() - ".idx".length()));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("⚠️ Не удалось удалить " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 8));
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(raw);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Поток, который сжимает прочитанные байты в файл и отдает его в архив при достижении конца
+     */
+    private static final class ArchivingInputStream extends FilterInputStream {
+
+        private final Path spool;
+        private final GZIPOutputStream gzip;
+        private final Consumer<Path> onComplete;
+        private boolean finished;
+
+        ArchivingInputStream(InputStream in, Path spool, Consumer<Path> onComplete) throws IOException {
+            super(in);
+            this.spool = spool;
+            this.onComplete = onComplete;
+            this.gzip = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(spool)), 8192);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                finish();
+            } else if (!finished) {
+                gzip.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read < 0) {
+                finish();
+            } else if (!finished) {
+                gzip.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        /**
+         * Закрытие до конца тела - отказ от записи: остаток ответа не дочитывается
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!finished) {
+                    finished = true;
+                    try {
+                        gzip.close();
+                    } finally {
+                        deleteQuietly(spool);
+                    }
+                }
+            } finally {
+                super.close();
+            }
+        }
+
+        private void finish() throws IOException {
+            if (!finished) {
+                finished = true;
+                gzip.close();
+                onComplete.accept(spool);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.example.service.wildberries;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Очереди запросов к WB с приоритетами перед лимитером.
+ * Для каждой пары (API ключ, семейство хостов) токены раздает один диспетчер:
+ * следующий токен всегда получает ожидающий интерактивный запрос (страницы кабинета),
+ * фоновая синхронизация забирает только то, что осталось. Пока по ключу недавно были
+ * интерактивные запросы, фоновым не отдаются последние reserve токенов бакета.
+ * Полоса определяется потоком, из которого запрос отправлен (см. {@link #inBackground}).
+ * Приоритет действует до самого запроса: общей очереди на выполнение после выдачи токена нет.
+ * Блокирующий клиент выполняет запрос в потоке вызывающего ({@link WbRetryScheduler#execute}),
+ * реактивный - продолжает цепочку WebClient, поэтому интерактивный запрос не ждет фоновые загрузки.
+ */
+@Component
+public class WbPriorityLanes {
+
+    public enum Lane {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    // По умолчанию запрос интерактивный: его ждет пользователь
+    private static final ThreadLocal<Lane> CURRENT_LANE = ThreadLocal.withInitial(() -> Lane.INTERACTIVE);
+
+    @Autowired
+    private WbRateLimiter rateLimiter;
+
+    private final int interactiveReserve;
+    private final long interactiveIdleMs;
+
+    private final Map<String, Dispatcher> dispatchers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+
+    private final Map<Lane, AtomicLong> granted = new EnumMap<>(Lane.class);
+
+    public WbPriorityLanes(@Value("${wildberries.lanes.interactive-reserve:1}") int interactiveReserve,
+                           @Value("${wildberries.lanes.interactive-idle-seconds:60}") long interactiveIdleSeconds) {
+        this.interactiveReserve = Math.max(0, interactiveReserve);
+        this.interactiveIdleMs = interactiveIdleSeconds * 1000;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wb-lanes-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Lane lane : Lane.values()) {
+            granted.put(lane, new AtomicLong());
+        }
+    }
+
+    /**
+     * Полоса текущего потока
+     */
+    public static Lane currentLane() {
+        return CURRENT_LANE.get();
+    }
+
+    /**
+     * Выполнение фоновой работы: все запросы к WB из этого потока идут фоновой полосой
+     */
+    public static <T> T inBackground(Supplier<T> work) {
+        Lane previous = CURRENT_LANE.get();
+        CURRENT_LANE.set(Lane.BACKGROUND);
+        try {
+            return work.get();
+        } finally {
+            CURRENT_LANE.set(previous);
+        }
+    }
+
+    public static void inBackground(Runnable work) {
+        inBackground(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Ожидание токена в очереди полосы. Поток не занимается: future завершается,
+     * когда диспетчер выдаст токен. Отмененные и просроченные ожидания пропускаются
+     * и квоту не расходуют.
+     */
+    public CompletableFuture<Void> acquire(String apiKey, WbApiFamily family, Lane lane) {
+        Dispatcher dispatcher = dispatchers.computeIfAbsent(WbApiKeys.hash(apiKey) + ":" + family.name(),
+            key -> new Dispatcher(apiKey, family));
+        CompletableFuture<Void> ticket = new CompletableFuture<>();
+        dispatcher.enqueue(ticket, lane);
+        return ticket;
+    }
+
+    /**
+     * Длина очередей и число выданных токенов по полосам
+     */
+    public Map<String, Object> getStats() {
+        long interactiveQueued = 0;
+        long backgroundQueued = 0;
+        for (Dispatcher dispatcher : dispatchers.values()) {
+            synchronized (dispatcher) {
+                interactiveQueued += dispatcher.interactive.size();
+                backgroundQueued += dispatcher.background.size();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("interactiveQueued", interactiveQueued);
+        stats.put("backgroundQueued", backgroundQueued);
+        stats.put("interactiveGranted", granted.get(Lane.INTERACTIVE).get());
+        stats.put("backgroundGranted", granted.get(Lane.BACKGROUND).get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private final class Dispatcher {
+        final String apiKey;
+        final WbApiFamily family;
+        final Deque<CompletableFuture<Void>> interactive = new ArrayDeque<>();
+        final Deque<CompletableFuture<Void>> background = new ArrayDeque<>();
+        long lastInteractiveAt;
+        // Момент, на который уже запланирована следующая раздача (0 - не запланирована)
+        long timerDeadline;
+
+        Dispatcher(String apiKey, WbApiFamily family) {
+            this.apiKey = apiKey;
+            this.family = family;
+        }
+
+        void enqueue(CompletableFuture<Void> ticket, Lane lane) {
+            synchronized (this) {
+                if (lane == Lane.INTERACTIVE) {
+                    interactive.addLast(ticket);
+                    lastInteractiveAt = System.currentTimeMillis();
+                } else {
+                    background.addLast(ticket);
+                }
+            }
+            dispatch();
+        }
+
+        /**
+         * Раздача доступных токенов. Future завершаются вне блокировки,
+         * чтобы продолжения не выполнялись под ней; интерактивные - первыми.
+         * Продолжения короткие: ожидающий поток просыпается или WebClient отправляет запрос.
+         */
+        void dispatch() {
+            List<CompletableFuture<Void>> ready = new ArrayList<>();
+            synchronized (this) {
+                while (true) {
+                    dropDone(interactive);
+                    dropDone(background);
+
+                    Lane lane;
+                    long waitMs;
+                    if (!interactive.isEmpty()) {
+                        lane = Lane.INTERACTIVE;
+                        waitMs = rateLimiter.tryAcquire(apiKey, family);
+                    } else if (!background.isEmpty()) {
+                        // Интерактивной нагрузки давно не было - фон может брать всю квоту
+                        boolean interactiveIdle = System.currentTimeMillis() - lastInteractiveAt > interactiveIdleMs;
+                        lane = Lane.BACKGROUND;
+                        waitMs = rateLimiter.tryAcquireAbove(apiKey, family, interactiveIdle ? 0 : interactiveReserve);
+                    } else {
+                        break;
+                    }
+
+                    if (waitMs > 0) {
+                        armTimer(waitMs);
+                        break;
+                    }
+                    ready.add(lane == Lane.INTERACTIVE ? interactive.pollFirst() : background.pollFirst());
+                    granted.get(lane).incrementAndGet();
+                }
+            }
+            ready.forEach(ticket -> ticket.complete(null));
+        }
+
+        private void armTimer(long waitMs) {
+            long now = System.currentTimeMillis();
+            long deadline = now + waitMs;
+            if (timerDeadline > now && timerDeadline <= deadline) {
+                return;
+            }
+            timerDeadline = deadline;
+            timer.schedule(() -> {
+                synchronized (this) {
+                    if (timerDeadline == deadline) {
+                        timerDeadline = 0;
+                    }
+                }
+                dispatch();
+            }, waitMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void dropDone(Deque<CompletableFuture<Void>> queue) {
+            while (!queue.isEmpty() && queue.peekFirst().isDone()) {
+                queue.pollFirst();
+            }
+        }
+    }
+}
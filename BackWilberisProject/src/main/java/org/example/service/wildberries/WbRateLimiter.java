@@ -0,0 +1,105 @@
+package org.example.service.wildberries;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ограничение частоты запросов к WB по паре (хеш API ключа, семейство хостов).
+ * Каждый продавец расходует только свою квоту: 429 одного ключа
+ * не останавливает запросы остальных.
+ */
+@Component
+public class WbRateLimiter {
+
+    static final String HEADER_REMAINING = "X-Ratelimit-Remaining";
+    static final String HEADER_RETRY = "X-Ratelimit-Retry";
+    static final String HEADER_RESET = "X-Ratelimit-Reset";
+
+    // Пауза после 429, если WB не прислал X-Ratelimit-Retry
+    private static final long DEFAULT_RETRY_MS = 5000;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Неблокирующая попытка получить токен
+     * @return 0 если токен получен, иначе рекомендуемая пауза в миллисекундах
+     */
+    public long tryAcquire(String apiKey, WbApiFamily family) {
+        return bucket(apiKey, family).tryAcquire(System.currentTimeMillis());
+    }
+
+    /**
+     * Неблокирующая попытка взять токен с сохранением резерва
+     * @return 0 если токен получен, иначе рекомендуемая пауза в миллисекундах
+     */
+    public long tryAcquireAbove(String apiKey, WbApiFamily family, int reserve) {
+        return bucket(apiKey, family).tryAcquireAbove(reserve, System.currentTimeMillis());
+    }
+
+    /**
+     * Учет заголовков успешного ответа
+     */
+    public void onResponse(String apiKey, WbApiFamily family, HttpHeaders headers) {
+        if (headers == null) {
+            return;
+        }
+        Integer remaining = parseInt(headers.getFirst(HEADER_REMAINING));
+        if (remaining != null) {
+            bucket(apiKey, family).syncRemaining(remaining, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Учет ответа 429: бакет ключа блокируется на время из X-Ratelimit-Retry
+     * @return время блокировки в миллисекундах
+     */
+    public long onRateLimited(String apiKey, WbApiFamily family, HttpHeaders headers) {
+        long retryMs = retryDelayMs(headers);
+        bucket(apiKey, family).blockFor(retryMs, System.currentTimeMillis());
+        System.out.println("🚫 429 от WB (" + family + ") для ключа " + WbApiKeys.fingerprint(apiKey)
+            + ", пауза " + (retryMs / 1000) + " сек");
+        return retryMs;
+    }
+
+    /**
+     * Пауза до следующей попытки по заголовкам WB
+     */
+    public static long retryDelayMs(HttpHeaders headers) {
+        if (headers != null) {
+            Integer retry = parseInt(headers.getFirst(HEADER_RETRY));
+            if (retry == null) {
+                retry = parseInt(headers.getFirst(HEADER_RESET));
+            }
+            if (retry != null && retry >= 0) {
+                return retry * 1000L;
+            }
+        }
+        return DEFAULT_RETRY_MS;
+    }
+
+    /**
+     * Количество отслеживаемых бакетов (для мониторинга)
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    private TokenBucket bucket(String apiKey, WbApiFamily family) {
+        String key = WbApiKeys.hash(apiKey) + ":" + family.name();
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(family.getBurst(), family.getRefillIntervalMs()));
+    }
+
+    private static Integer parseInt(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return (int) Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
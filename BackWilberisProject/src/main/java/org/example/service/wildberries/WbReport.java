@@ -0,0 +1,58 @@
+package org.example.service.wildberries;
+
+import java.time.Duration;
+
+/**
+ * Отчеты WB, которые мы запрашиваем, и время жизни их ответов в кеше.
+ * WB обновляет статистику раз в ~30 минут, поэтому TTL статистики небольшие
+ * только для того, чтобы повторные открытия страницы не ходили в API.
+ * id хранится в индексе архива ответов: он не меняется и не переиспользуется,
+ * новые отчеты добавляются в конец со следующим id.
+ */
+public enum WbReport {
+
+    SALES(1, "sales", Duration.ofMinutes(1)),
+    SALES_DATA(2, "sales-data", Duration.ofMinutes(1)),
+    ORDERS(3, "orders", Duration.ofMinutes(1)),
+    ORDERS_NEW(4, "orders-new", Duration.ofMinutes(1)),
+    STOCKS(5, "stocks", Duration.ofMinutes(5)),
+    INCOMES(6, "incomes", Duration.ofMinutes(5)),
+    BALANCE(7, "balance", Duration.ofMinutes(1)),
+    SELLER_INFO(8, "seller-info", Duration.ofHours(1)),
+    NEWS(9, "news", Duration.ofMinutes(10)),
+    REALIZATION(10, "realization", Duration.ofMinutes(30));
+
+    private final int id;
+    private final String code;
+    private final Duration ttl;
+
+    WbReport(int id, String code, Duration ttl) {
+        this.id = id;
+        this.code = code;
+        this.ttl = ttl;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Отчет по id из индекса архива; null - отчет из более новой версии приложения
+     */
+    public static WbReport byId(int id) {
+        for (WbReport report : values()) {
+            if (report.id == id) {
+                return report;
+            }
+        }
+        return null;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+}
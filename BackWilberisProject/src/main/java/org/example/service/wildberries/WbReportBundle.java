@@ -0,0 +1,30 @@
+package org.example.service.wildberries;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Набор отчетов WB, полученных одним параллельным запросом.
+ * Незапрошенные или недоступные отчеты равны null, как и в блокирующем API.
+ */
+public class WbReportBundle {
+
+    private final JsonNode sales;
+    private final JsonNode stocks;
+    private final JsonNode orders;
+    private final JsonNode incomes;
+
+    public WbReportBundle(JsonNode sales, JsonNode stocks, JsonNode orders, JsonNode incomes) {
+        this.sales = sales;
+        this.stocks = stocks;
+        this.orders = orders;
+        this.incomes = incomes;
+    }
+
+    public JsonNode getSales() { return sales; }
+
+    public JsonNode getStocks() { return stocks; }
+
+    public JsonNode getOrders() { return orders; }
+
+    public JsonNode getIncomes() { return incomes; }
+}
@@ -0,0 +1,144 @@
+package org.example.service.wildberries;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный по объему кеш ответов WB.
+ * Вытеснение W-TinyLFU (Caffeine), вес записи - оценка размера JSON в байтах,
+ * TTL берется из типа отчета. Ключи содержат хеш полного API ключа.
+ */
+@Component
+public class WbResponseCache {
+
+    // Примерная стоимость узлов JsonNode в куче
+    private static final int CONTAINER_NODE_BYTES = 56;
+    private static final int VALUE_NODE_BYTES = 24;
+    private static final int STRING_NODE_BYTES = 40;
+
+    private final Cache<String, Entry> cache;
+    private final long maxWeightBytes;
+
+    private static final class Entry {
+        final JsonNode data;
+        final WbReport report;
+        final int weight;
+
+        Entry(JsonNode data, WbReport report, int weight) {
+            this.data = data;
+            this.report = report;
+            this.weight = weight;
+        }
+    }
+
+    public WbResponseCache(@Value("${wildberries.cache.max-weight-mb:512}") long maxWeightMb) {
+        this.maxWeightBytes = maxWeightMb * 1024 * 1024;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxWeightBytes)
+            .weigher((String key, Entry entry) -> entry.weight)
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                    return entry.report.getTtl().toNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                    return entry.report.getTtl().toNanos();
+                }
+
+                @Override
+                public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Получение ответа из кеша (учитывается в статистике попаданий)
+     */
+    public JsonNode get(String key) {
+        Entry entry = cache.getIfPresent(key);
+        return entry != null ? entry.data : null;
+    }
+
+    /**
+     * Повторная проверка без учета в статистике (после ожидания single-flight)
+     */
+    public JsonNode peek(String key) {
+        Entry entry = cache.asMap().get(key);
+        return entry != null ? entry.data : null;
+    }
+
+    public void put(String key, WbReport report, JsonNode data) {
+        cache.put(key, new Entry(data, report, estimateWeight(data)));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Счетчики для подбора размера кеша
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        long weightedSize = cache.policy().eviction()
+            .map(eviction -> eviction.weightedSize().orElse(0L))
+            .orElse(0L);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", cache.estimatedSize());
+        result.put("weightBytes", weightedSize);
+        result.put("maxWeightBytes", maxWeightBytes);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("evictedWeightBytes", stats.evictionWeight());
+        return result;
+    }
+
+    /**
+     * Оценка размера дерева JSON в байтах
+     */
+    static int estimateWeight(JsonNode node) {
+        long weight = weigh(node);
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    private static long weigh(JsonNode node) {
+        if (node == null) {
+            return 0;
+        }
+        if (node.isContainerNode()) {
+            long weight = CONTAINER_NODE_BYTES;
+            if (node.isObject()) {
+                var fields = node.fields();
+                while (fields.hasNext()) {
+                    var field = fields.next();
+                    weight += STRING_NODE_BYTES + 2L * field.getKey().length() + weigh(field.getValue());
+                }
+            } else {
+                for (JsonNode child : node) {
+                    weight += weigh(child);
+                }
+            }
+            return weight;
+        }
+        if (node.isTextual()) {
+            return STRING_NODE_BYTES + 2L * node.textValue().length();
+        }
+        return VALUE_NODE_BYTES;
+    }
+}
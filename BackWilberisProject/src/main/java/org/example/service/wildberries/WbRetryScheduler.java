@@ -0,0 +1,242 @@
+package org.example.service.wildberries;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Единая политика повторов для всех запросов к WB.
+ * Экспоненциальная пауза с джиттером, после 429 - пауза из X-Ratelimit-Retry,
+ * ограничение числа попыток и общего времени на запрос.
+ * Попытка выполняется в потоке вызывающего: отдельного пула для HTTP запросов нет,
+ * поэтому разбор тела и запись в БД не занимают чужие потоки, а число одновременных
+ * запросов равно числу вызывающих. Токен выдает очередь {@link WbPriorityLanes}
+ * (полоса - по потоку вызывающего), вызывающий только ждет его future.
+ * Блокирующий интерактивный запрос занимает поток сервлета на все время ожидания квоты и пауз,
+ * поэтому его бюджет короткий (interactive-budget-ms): при долгом 429 страница сразу получает
+ * отказ (устаревший снимок или 503), а не ждет минуты. Длинный бюджет - у фоновых потоков
+ * синхронизации и у реактивного клиента, паузы которого не занимают потоков.
+ */
+@Component
+public class WbRetryScheduler {
+
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T call();
+    }
+
+    @Autowired
+    private WbPriorityLanes priorityLanes;
+
+    @Autowired
+    private WbCircuitBreaker circuitBreaker;
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final long budgetMs;
+    private final long interactiveBudgetMs;
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public WbRetryScheduler(@Value("${wildberries.retry.max-attempts:4}") int maxAttempts,
+                            @Value("${wildberries.retry.base-delay-ms:500}") long baseDelayMs,
+                            @Value("${wildberries.retry.max-delay-ms:30000}") long maxDelayMs,
+                            @Value("${wildberries.retry.budget-ms:120000}") long budgetMs,
+                            @Value("${wildberries.retry.interactive-budget-ms:10000}") long interactiveBudgetMs) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.budgetMs = budgetMs;
+        this.interactiveBudgetMs = Math.min(interactiveBudgetMs, budgetMs);
+    }
+
+    /**
+     * Выполнение запроса для блокирующего клиента: ожидание токена лимитера, вызов в текущем потоке,
+     * при временной ошибке - пауза и повтор. Ошибка последней попытки пробрасывается как есть.
+     */
+    public <T> T execute(String apiKey, String url, Attempt<T> attempt) {
+        WbApiFamily family = WbApiFamily.fromUrl(url);
+        WbPriorityLanes.Lane lane = WbPriorityLanes.currentLane();
+        long budget = lane == WbPriorityLanes.Lane.INTERACTIVE ? interactiveBudgetMs : budgetMs;
+        long startedAt = System.currentTimeMillis();
+        int failedAttempts = 0;
+
+        while (true) {
+            // Хост заведомо недоступен - отказываем сразу, не расходуя квоту
+            circuitBreaker.checkNotOpen(url);
+            awaitToken(apiKey, family, lane, budget - (System.currentTimeMillis() - startedAt));
+            circuitBreaker.acquirePermission(url);
+
+            try {
+                T value = attempt.call();
+                circuitBreaker.onResult(url, null);
+                return value;
+            } catch (RuntimeException e) {
+                circuitBreaker.onResult(url, e);
+                failedAttempts++;
+                long delay = nextDelayMs(failedAttempts, e, System.currentTimeMillis() - startedAt, budget);
+                if (delay < 0) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                System.out.println("🔁 Повтор запроса к WB (" + family + ", попытка "
+                    + (failedAttempts + 1) + "/" + maxAttempts + ") через " + delay + " мс: " + e.getMessage());
+                pause(delay);
+            }
+        }
+    }
+
+    /**
+     * Ожидание токена в очереди полосы. Если время вышло, ожидание снимается из очереди;
+     * токен, выданный в момент отмены, используется.
+     */
+    private void awaitToken(String apiKey, WbApiFamily family, WbPriorityLanes.Lane lane, long remainingMs) {
+        CompletableFuture<Void> ticket = priorityLanes.acquire(apiKey, family, lane);
+        waiting.incrementAndGet();
+        try {
+            ticket.get(Math.max(1, remainingMs), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (ticket.cancel(false)) {
+                exhausted.incrementAndGet();
+                throw new IllegalStateException("Превышено время ожидания лимита WB (" + family + ")");
+            }
+        } catch (InterruptedException e) {
+            ticket.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание лимита WB прервано (" + family + ")");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка ожидания лимита WB (" + family + ")", e.getCause());
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void pause(long delayMs) {
+        waiting.incrementAndGet();
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Повтор запроса к WB прерван");
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Та же политика для реактивного клиента (таймеры Reactor не занимают потоки)
+     */
+    public Retry reactorRetry() {
+        long startedAt = System.currentTimeMillis();
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            long delay = nextDelayMs((int) signal.totalRetries() + 1, signal.failure(),
+                System.currentTimeMillis() - startedAt, budgetMs);
+            if (delay < 0) {
+                return Mono.error(signal.failure());
+            }
+            retries.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(delay));
+        }));
+    }
+
+    /**
+     * Пауза перед следующей попыткой
+     * @param failedAttempts сколько попыток уже завершились ошибкой
+     * @param budget общее время на запрос
+     * @return пауза в миллисекундах или -1, если повторять не нужно
+     */
+    long nextDelayMs(int failedAttempts, Throwable error, long elapsedMs, long budget) {
+        if (!isRetryable(error)) {
+            return -1;
+        }
+        if (failedAttempts >= maxAttempts) {
+            exhausted.incrementAndGet();
+            return -1;
+        }
+
+        long backoff = Math.min(maxDelayMs, baseDelayMs << Math.min(failedAttempts - 1, 20));
+        // "Equal jitter": половина паузы фиксирована, половина случайна
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+        if (statusOf(error) == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            // WB сообщает, когда квота восстановится - раньше повторять бессмысленно
+            delay = Math.max(delay, WbRateLimiter.retryDelayMs(headersOf(error)));
+        }
+
+        if (elapsedMs + delay > budget) {
+            exhausted.incrementAndGet();
+            return -1;
+        }
+        return delay;
+    }
+
+    /**
+     * Повторяем 429, 5xx и сетевые ошибки; остальные 4xx - ошибка запроса
+     */
+    static boolean isRetryable(Throwable error) {
+        return statusOf(error) == HttpStatus.TOO_MANY_REQUESTS.value() || isHostFailure(error);
+    }
+
+    /**
+     * Сбой самого хоста WB: 5xx, таймаут или обрыв соединения
+     */
+    static boolean isHostFailure(Throwable error) {
+        if (error instanceof ResourceAccessException || error instanceof WebClientRequestException) {
+            return true;
+        }
+        return statusOf(error) >= 500;
+    }
+
+    private static int statusOf(Throwable error) {
+        if (error instanceof HttpStatusCodeException e) {
+            return e.getStatusCode().value();
+        }
+        if (error instanceof WebClientResponseException e) {
+            return e.getStatusCode().value();
+        }
+        return -1;
+    }
+
+    private static HttpHeaders headersOf(Throwable error) {
+        if (error instanceof HttpStatusCodeException e) {
+            return e.getResponseHeaders();
+        }
+        if (error instanceof WebClientResponseException e) {
+            return e.getHeaders();
+        }
+        return null;
+    }
+
+    /**
+     * Счетчики для мониторинга
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("retries", retries.get());
+        stats.put("exhausted", exhausted.get());
+        stats.put("waiting", waiting.get());
+        return stats;
+    }
+}
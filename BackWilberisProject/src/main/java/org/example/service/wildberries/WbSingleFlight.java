@@ -0,0 +1,105 @@
+package org.example.service.wildberries;
+
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Склейка одинаковых одновременных запросов к WB (single-flight).
+ * Первый поток с данным ключом выполняет запрос, остальные ждут его результат.
+ * Запросы с разными ключами выполняются параллельно.
+ */
+@Component
+public class WbSingleFlight {
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Ключ запроса: тип отчета + хеш API ключа + параметры
+     */
+    public static String key(WbReport report, String apiKey, Object... params) {
+        StringBuilder sb = new StringBuilder(report.getCode()).append('|').append(WbApiKeys.hash(apiKey));
+        for (Object param : params) {
+            sb.append('|').append(param);
+        }
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, own);
+
+        if (existing != null) {
+            System.out.println("🔗 Присоединяемся к уже выполняющемуся запросу: " + key.substring(0, key.indexOf('|')));
+            return (T) join(existing);
+        }
+
+        try {
+            T result = loader.get();
+            own.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Включая Error (например, OOM при разборе ответа): ожидающие не должны зависнуть
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Реактивный вариант: общая карта с блокирующим execute(),
+     * поэтому реактивный и обычный вызовы одного отчета тоже склеиваются.
+     * Загрузка подписывается отдельно от вызывающего и доводится до конца, даже если первый
+     * подписчик отменил ожидание (клиент отключился, истек таймаут сборки отчетов):
+     * присоединившиеся к запросу получают результат, а не пустой ответ. Отмена подписчика
+     * не отменяет общий future (fromFuture без отмены).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> executeAsync(String key, Supplier<Mono<T>> loader) {
+        return Mono.defer(() -> {
+            CompletableFuture<Object> own = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, own);
+
+            if (existing != null) {
+                return Mono.fromFuture(existing, true).map(result -> (T) result);
+            }
+
+            // defer: исключение при сборке загрузки тоже завершает future, ожидающие не зависнут
+            Mono.defer(loader)
+                .doFinally(signal -> inFlight.remove(key, own))
+                .subscribe(own::complete, own::completeExceptionally, () -> own.complete(null));
+            return Mono.fromFuture(own, true).map(result -> (T) result);
+        });
+    }
+
+    /**
+     * Количество запросов, выполняющихся прямо сейчас
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание запроса к WB прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
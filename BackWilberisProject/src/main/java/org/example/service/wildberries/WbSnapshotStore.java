@@ -0,0 +1,80 @@
+package org.example.service.wildberries;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Последние успешно построенные ответы аналитики по каждому продавцу.
+ * Пока WB недоступен, контроллеры отдают снимок с пометкой stale и его возрастом
+ * вместо 503.
+ */
+@Component
+public class WbSnapshotStore {
+
+    /**
+     * Снимок ответа и время его построения
+     */
+    public record Snapshot(Object data, Instant takenAt) {
+
+        public long ageSeconds() {
+            return Duration.between(takenAt, Instant.now()).getSeconds();
+        }
+
+        /**
+         * Тело ответа с пометкой устаревших данных
+         */
+        public Map<String, Object> toStaleResponse() {
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("success", true);
+            response.put("data", data);
+            response.put("stale", true);
+            response.put("staleAgeSeconds", ageSeconds());
+            response.put("snapshotAt", takenAt.toString());
+            response.put("message", "API Wildberries временно недоступен, показаны последние сохраненные данные");
+            return response;
+        }
+    }
+
+    private final Cache<String, Snapshot> snapshots;
+
+    public WbSnapshotStore(@Value("${wildberries.snapshots.max-entries:10000}") long maxEntries,
+                           @Value("${wildberries.snapshots.max-age-hours:168}") long maxAgeHours) {
+        this.snapshots = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterWrite(Duration.ofHours(maxAgeHours))
+            .build();
+    }
+
+    /**
+     * Ключ снимка: представление, хеш API ключа продавца и параметры запроса
+     */
+    public static String key(String view, String apiKey, Object... params) {
+        StringBuilder key = new StringBuilder(view).append('|').append(WbApiKeys.hash(apiKey));
+        for (Object param : params) {
+            key.append('|').append(param);
+        }
+        return key.toString();
+    }
+
+    public void save(String key, Object data) {
+        if (data != null) {
+            snapshots.put(key, new Snapshot(data, Instant.now()));
+        }
+    }
+
+    public Optional<Snapshot> find(String key) {
+        return Optional.ofNullable(snapshots.getIfPresent(key));
+    }
+
+    public long size() {
+        return snapshots.estimatedSize();
+    }
+}
@@ -0,0 +1,280 @@
+package org.example.service.wildberries;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.example.dto.wildberries.WbIncomeRecord;
+import org.example.dto.wildberries.WbOrderRecord;
+import org.example.dto.wildberries.WbRealizationRecord;
+import org.example.dto.wildberries.WbSaleRecord;
+import org.example.dto.wildberries.WbStockRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+
+/**
+ * Потоковый разбор массивов Statistics API через JsonParser.
+ * Каждый элемент массива сразу превращается в типизированную запись и
+ * передается потребителю - ни тело ответа, ни дерево JsonNode в памяти не держим.
+ */
+public final class WbStatisticsDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private WbStatisticsDecoder() {
+    }
+
+    @FunctionalInterface
+    private interface RowReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    public static long decodeSales(InputStream in, Consumer<WbSaleRecord> consumer) throws IOException {
+        return decodeArray(in, WbStatisticsDecoder::readSale, consumer);
+    }
+
+    public static long decodeOrders(InputStream in, Consumer<WbOrderRecord> consumer) throws IOException {
+        return decodeArray(in, WbStatisticsDecoder::readOrder, consumer);
+    }
+
+    public static long decodeStocks(InputStream in, Consumer<WbStockRecord> consumer) throws IOException {
+        return decodeArray(in, WbStatisticsDecoder::readStock, consumer);
+    }
+
+    public static long decodeIncomes(InputStream in, Consumer<WbIncomeRecord> consumer) throws IOException {
+        return decodeArray(in, WbStatisticsDecoder::readIncome, consumer);
+    }
+
+    public static long decodeRealization(InputStream in, Consumer<WbRealizationRecord> consumer) throws IOException {
+        return decodeArray(in, WbStatisticsDecoder::readRealization, consumer);
+    }
+
+    /**
+     * Разбор верхнеуровневого массива объектов
+     * @return количество переданных потребителю записей
+     */
+    private static <T> long decodeArray(InputStream in, RowReader<T> reader, Consumer<T> consumer) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_ARRAY) {
+                // WB вместо массива может вернуть null или объект с ошибкой - строк нет
+                return 0;
+            }
+
+            long count = 0;
+            while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                if (token == JsonToken.START_OBJECT) {
+                    consumer.accept(reader.read(parser));
+                    count++;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (token == JsonToken.END_ARRAY) {
+                // Дочитываем завершающие пробелы до конца тела - по концу потока тело уходит в архив
+                parser.nextToken();
+            }
+            return count;
+        }
+    }
+
+    private static WbSaleRecord readSale(JsonParser p) throws IOException {
+        String srid = null, saleId = null, gNumber = null, supplierArticle = null, barcode = null;
+        String subject = null, brand = null, warehouseName = null;
+        LocalDateTime date = null, lastChangeDate = null;
+        long nmId = 0;
+        Integer quantity = null;
+        double totalPrice = 0, price = 0, forPay = 0, finishedPrice = 0, priceWithDisc = 0;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "srid" -> srid = text(p);
+                case "saleID" -> saleId = text(p);
+                case "gNumber" -> gNumber = text(p);
+                case "date" -> date = parseDateTime(text(p));
+                case "lastChangeDate" -> lastChangeDate = parseDateTime(text(p));
+                case "nmId" -> nmId = p.getValueAsLong();
+                case "supplierArticle" -> supplierArticle = text(p);
+                case "barcode" -> barcode = text(p);
+                case "subject" -> subject = text(p);
+                case "brand" -> brand = text(p);
+                case "warehouseName" -> warehouseName = text(p);
+                case "quantity" -> quantity = p.getValueAsInt();
+                case "totalPrice" -> totalPrice = p.getValueAsDouble();
+                case "price" -> price = p.getValueAsDouble();
+                case "forPay" -> forPay = p.getValueAsDouble();
+                case "finishedPrice" -> finishedPrice = p.getValueAsDouble();
+                case "priceWithDisc" -> priceWithDisc = p.getValueAsDouble();
+                default -> p.skipChildren();
+            }
+        }
+        return new WbSaleRecord(srid, saleId, gNumber, date, lastChangeDate, nmId, supplierArticle, barcode,
+            subject, brand, warehouseName, quantity, totalPrice, price, forPay, finishedPrice, priceWithDisc);
+    }
+
+    private static WbOrderRecord readOrder(JsonParser p) throws IOException {
+        String srid = null, gNumber = null, supplierArticle = null, barcode = null;
+        String subject = null, brand = null, warehouseName = null;
+        Long odid = null;
+        LocalDateTime date = null, lastChangeDate = null;
+        long nmId = 0;
+        Integer quantity = null;
+        double totalPrice = 0, discountPercent = 0, finishedPrice = 0, priceWithDisc = 0;
+        boolean isCancel = false;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "srid" -> srid = text(p);
+                case "gNumber" -> gNumber = text(p);
+                case "odid" -> odid = p.getValueAsLong();
+                case "date" -> date = parseDateTime(text(p));
+                case "lastChangeDate" -> lastChangeDate = parseDateTime(text(p));
+                case "nmId" -> nmId = p.getValueAsLong();
+                case "supplierArticle" -> supplierArticle = text(p);
+                case "barcode" -> barcode = text(p);
+                case "subject" -> subject = text(p);
+                case "brand" -> brand = text(p);
+                case "warehouseName" -> warehouseName = text(p);
+                case "quantity" -> quantity = p.getValueAsInt();
+                case "totalPrice" -> totalPrice = p.getValueAsDouble();
+                case "discountPercent" -> discountPercent = p.getValueAsDouble();
+                case "finishedPrice" -> finishedPrice = p.getValueAsDouble();
+                case "priceWithDisc" -> priceWithDisc = p.getValueAsDouble();
+                case "isCancel" -> isCancel = p.getValueAsBoolean();
+                default -> p.skipChildren();
+            }
+        }
+        return new WbOrderRecord(srid, gNumber, odid, date, lastChangeDate, nmId, supplierArticle, barcode,
+            subject, brand, warehouseName, quantity, totalPrice, discountPercent, finishedPrice, priceWithDisc, isCancel);
+    }
+
+    private static WbStockRecord readStock(JsonParser p) throws IOException {
+        String supplierArticle = null, barcode = null, subject = null, brand = null, techSize = null, warehouseName = null;
+        LocalDateTime lastChangeDate = null;
+        long nmId = 0;
+        Integer quantity = null;
+        int quantityFull = 0, inWayToClient = 0, inWayFromClient = 0;
+        double price = 0, discount = 0;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "lastChangeDate" -> lastChangeDate = parseDateTime(text(p));
+                case "nmId" -> nmId = p.getValueAsLong();
+                case "supplierArticle", "vendorCode" -> supplierArticle = text(p);
+                case "barcode" -> barcode = text(p);
+                case "subject" -> subject = text(p);
+                case "brand" -> brand = text(p);
+                case "techSize" -> techSize = text(p);
+                case "warehouseName" -> warehouseName = text(p);
+                case "quantity" -> quantity = p.getValueAsInt();
+                case "quantityFull" -> quantityFull = p.getValueAsInt();
+                case "inWayToClient" -> inWayToClient = p.getValueAsInt();
+                case "inWayFromClient" -> inWayFromClient = p.getValueAsInt();
+                case "Price" -> price = p.getValueAsDouble();
+                case "Discount" -> discount = p.getValueAsDouble();
+                default -> p.skipChildren();
+            }
+        }
+        return new WbStockRecord(lastChangeDate, nmId, supplierArticle, barcode, subject, brand, techSize,
+            warehouseName, quantity, quantityFull, inWayToClient, inWayFromClient, price, discount);
+    }
+
+    private static WbIncomeRecord readIncome(JsonParser p) throws IOException {
+        String number = null, supplierArticle = null, barcode = null, techSize = null, warehouseName = null, status = null;
+        LocalDateTime date = null, lastChangeDate = null, dateClose = null;
+        long incomeId = 0, nmId = 0;
+        int quantity = 0;
+        double totalPrice = 0;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "incomeId" -> incomeId = p.getValueAsLong();
+                case "number" -> number = text(p);
+                case "date" -> date = parseDateTime(text(p));
+                case "lastChangeDate" -> lastChangeDate = parseDateTime(text(p));
+                case "dateClose" -> dateClose = parseDateTime(text(p));
+                case "nmId" -> nmId = p.getValueAsLong();
+                case "supplierArticle" -> supplierArticle = text(p);
+                case "barcode" -> barcode = text(p);
+                case "techSize" -> techSize = text(p);
+                case "warehouseName" -> warehouseName = text(p);
+                case "quantity" -> quantity = p.getValueAsInt();
+                case "totalPrice" -> totalPrice = p.getValueAsDouble();
+                case "status" -> status = text(p);
+                default -> p.skipChildren();
+            }
+        }
+        return new WbIncomeRecord(incomeId, number, date, lastChangeDate, dateClose, nmId, supplierArticle,
+            barcode, techSize, warehouseName, quantity, totalPrice, status);
+    }
+
+    private static WbRealizationRecord readRealization(JsonParser p) throws IOException {
+        String supplierArticle = null, supplierOperName = null;
+        LocalDateTime rrDate = null, createDate = null;
+        long rrdId = 0, realizationReportId = 0, nmId = 0;
+        int quantity = 0;
+        double retailAmount = 0, commissionPercent = 0, salesCommission = 0, deliveryRub = 0;
+        double storageFee = 0, deduction = 0, forPay = 0, penalty = 0, additionalPayment = 0;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "rrd_id" -> rrdId = p.getValueAsLong();
+                case "realizationreport_id" -> realizationReportId = p.getValueAsLong();
+                case "nm_id" -> nmId = p.getValueAsLong();
+                case "sa_name" -> supplierArticle = text(p);
+                case "supplier_oper_name" -> supplierOperName = text(p);
+                case "rr_dt" -> rrDate = parseDateTime(text(p));
+                case "create_dt" -> createDate = parseDateTime(text(p));
+                case "quantity" -> quantity = p.getValueAsInt();
+                case "retail_amount" -> retailAmount = p.getValueAsDouble();
+                case "commission_percent" -> commissionPercent = p.getValueAsDouble();
+                case "ppvz_sales_commission" -> salesCommission = p.getValueAsDouble();
+                case "delivery_rub" -> deliveryRub = p.getValueAsDouble();
+                case "storage_fee" -> storageFee = p.getValueAsDouble();
+                case "deduction" -> deduction = p.getValueAsDouble();
+                case "ppvz_for_pay" -> forPay = p.getValueAsDouble();
+                case "penalty" -> penalty = p.getValueAsDouble();
+                case "additional_payment" -> additionalPayment = p.getValueAsDouble();
+                default -> p.skipChildren();
+            }
+        }
+        return new WbRealizationRecord(rrdId, realizationReportId, nmId, supplierArticle, supplierOperName,
+            rrDate, createDate, quantity, retailAmount, commissionPercent, salesCommission, deliveryRub,
+            storageFee, deduction, forPay, penalty, additionalPayment);
+    }
+
+    private static String text(JsonParser p) throws IOException {
+        return p.currentToken() == JsonToken.VALUE_NULL ? null : p.getValueAsString();
+    }
+
+    /**
+     * Даты WB приходят как "2024-01-31", "2024-01-31T10:15:00" или с зоной/долями секунд
+     */
+    public static LocalDateTime parseDateTime(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                return LocalDate.parse(value).atStartOfDay();
+            }
+            return LocalDateTime.parse(value.length() > 19 ? value.substring(0, 19) : value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.service.wildberries;
+
+/**
+ * Ход синхронизации отчетов WB: какой отчет загружается, сколько строк
+ * обработано, чем закончился. Вызывается из потока синхронизации.
+ */
+public interface WbSyncListener {
+
+    WbSyncListener NONE = new WbSyncListener() {
+    };
+
+    default void onReportStarted(WbReport report) {
+    }
+
+    /**
+     * Очередная порция строк отчета передана в обработку
+     */
+    default void onRowsProcessed(WbReport report, long rows) {
+    }
+
+    default void onReportFinished(WbReport report, long newRows) {
+    }
+
+    default void onReportFailed(WbReport report, Exception error) {
+    }
+}
@@ -0,0 +1,222 @@
+package org.example.service.wildberries;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Неблокирующий клиент Statistics API на WebClient.
+ * Использует те же лимитер, кеш и single-flight, что и WildberriesApiService,
+ * поэтому ответы обоих клиентов взаимозаменяемы.
+ */
+@Service
+public class WildberriesReactiveClient {
+
+    // Сколько контроллер готов ждать параллельную загрузку отчетов
+    public static final Duration FAN_OUT_TIMEOUT = Duration.ofMinutes(2);
+
+    @Autowired
+    private WbRateLimiter rateLimiter;
+
+    @Autowired
+    private WbSingleFlight singleFlight;
+
+    @Autowired
+    private WbResponseCache responseCache;
+
+    @Autowired
+    private WbDaySliceCache daySliceCache;
+
+    @Autowired
+    private WbPayloadArchive payloadArchive;
+
+    @Autowired
+    private WbRetryScheduler retryScheduler;
+
+    @Autowired
+    private WbCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private WbPriorityLanes priorityLanes;
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public WildberriesReactiveClient(WebClient.Builder builder, WbHttpTransport httpTransport,
+                                     @Value("${wildberries.webclient.max-in-memory-mb:256}") int maxInMemoryMb) {
+        this.webClient = builder
+            .clientConnector(httpTransport.getReactorConnector())
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemoryMb * 1024 * 1024))
+            .build();
+    }
+
+    public Mono<JsonNode> getSalesReport(String apiKey, LocalDate startDate, LocalDate endDate) {
+        return daySliceCache.getRangeAsync(WbReport.SALES, apiKey, startDate, endDate,
+                since -> fetchSalesUncached(apiKey, since))
+            // Запасной ответ - строки заказов: он не попадает ни в дневные срезы продаж, ни в архив
+            .onErrorResume(WildberriesReactiveClient::salesUnavailable, e -> {
+                System.out.println("🔄 [reactive] Отчет продаж недоступен, пробуем эндпоинт заказов...");
+                return request(apiKey, WbEndpoints.orders(startDate));
+            });
+    }
+
+    public Mono<JsonNode> getStocksReport(String apiKey, LocalDate dateFrom) {
+        return fetch(WbReport.STOCKS, apiKey, WbEndpoints.stocks(dateFrom), dateFrom);
+    }
+
+    public Mono<JsonNode> getOrdersReport(String apiKey, LocalDate dateFrom) {
+        return daySliceCache.getRangeAsync(WbReport.ORDERS, apiKey, dateFrom, LocalDate.now(),
+            since -> fetchUncached(WbReport.ORDERS, apiKey, WbEndpoints.orders(since), since));
+    }
+
+    public Mono<JsonNode> getIncomesReport(String apiKey, LocalDate dateFrom) {
+        return fetch(WbReport.INCOMES, apiKey, WbEndpoints.incomes(dateFrom), dateFrom);
+    }
+
+    /**
+     * Параллельная загрузка нескольких отчетов за период.
+     * Время ответа равно самому медленному запросу, а не их сумме.
+     */
+    public Mono<WbReportBundle> fetchBundle(String apiKey, LocalDate startDate, LocalDate endDate, WbReport... reports) {
+        Set<WbReport> requested = reports.length == 0 ? EnumSet.noneOf(WbReport.class) : EnumSet.copyOf(Arrays.asList(reports));
+
+        Mono<Optional<JsonNode>> sales = requested.contains(WbReport.SALES)
+            ? optional(getSalesReport(apiKey, startDate, endDate)) : Mono.just(Optional.empty());
+        Mono<Optional<JsonNode>> stocks = requested.contains(WbReport.STOCKS)
+            ? optional(getStocksReport(apiKey, startDate)) : Mono.just(Optional.empty());
+        Mono<Optional<JsonNode>> orders = requested.contains(WbReport.ORDERS)
+            ? optional(getOrdersReport(apiKey, startDate)) : Mono.just(Optional.empty());
+        Mono<Optional<JsonNode>> incomes = requested.contains(WbReport.INCOMES)
+            ? optional(getIncomesReport(apiKey, startDate)) : Mono.just(Optional.empty());
+
+        return Mono.zip(sales, stocks, orders, incomes)
+            .map(t -> new WbReportBundle(
+                t.getT1().orElse(null),
+                t.getT2().orElse(null),
+                t.getT3().orElse(null),
+                t.getT4().orElse(null)));
+    }
+
+    private Mono<JsonNode> fetch(WbReport report, String apiKey, String url, Object... params) {
+        String key = WbSingleFlight.key(report, apiKey, params);
+        return Mono.defer(() -> {
+            JsonNode cached = responseCache.get(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return singleFlight.executeAsync(key, () -> request(apiKey, url)
+                .doOnNext(result -> {
+                    responseCache.put(key, report, result);
+                    payloadArchive.append(WbPayloadArchive.Kind.RESPONSE, report, apiKey, key, null, result);
+                }));
+        });
+    }
+
+    /**
+     * Загрузка в обход кеша ответов (результат раскладывается по дневным срезам)
+     */
+    private Mono<JsonNode> fetchUncached(WbReport report, String apiKey, String url, LocalDate since) {
+        String key = WbSingleFlight.key(report, apiKey, since);
+        return singleFlight.executeAsync(key, () -> request(apiKey, url)
+            .doOnNext(result -> payloadArchive.append(WbPayloadArchive.Kind.DAY_RANGE, report, apiKey, key, since, result)));
+    }
+
+    /**
+     * Продажи в обход кеша ответов. 404/403 не глотается: запасной путь через эндпоинт заказов,
+     * как в WildberriesApiService, выполняет getSalesReport вне дневного кеша
+     */
+    private Mono<JsonNode> fetchSalesUncached(String apiKey, LocalDate since) {
+        String key = WbSingleFlight.key(WbReport.SALES, apiKey, since);
+        String url = WbEndpoints.sales(since, null);
+        return singleFlight.executeAsync(key, () -> exchange(apiKey, url)
+            .onErrorResume(e -> !salesUnavailable(e), e -> logAndSkip(url, e))
+            .doOnNext(result -> payloadArchive.append(WbPayloadArchive.Kind.DAY_RANGE, WbReport.SALES, apiKey, key, since, result)));
+    }
+
+    private static boolean salesUnavailable(Throwable e) {
+        return e instanceof WebClientResponseException response
+            && (response.getStatusCode() == HttpStatus.NOT_FOUND || response.getStatusCode() == HttpStatus.FORBIDDEN);
+    }
+
+    private Mono<JsonNode> request(String apiKey, String url) {
+        return exchange(apiKey, url).onErrorResume(e -> logAndSkip(url, e));
+    }
+
+    private Mono<JsonNode> logAndSkip(String url, Throwable e) {
+        System.err.println("❌ [reactive] Ошибка запроса к WB " + url + ": " + e.getMessage());
+        return Mono.empty();
+    }
+
+    /**
+     * Запрос с лимитером, автоматом и повторами; ошибки не глотает
+     */
+    private Mono<JsonNode> exchange(String apiKey, String url) {
+        WbApiFamily family = WbApiFamily.fromUrl(url);
+        // Полоса фиксируется в потоке, который строит запрос: подписка может произойти в другом
+        WbPriorityLanes.Lane lane = WbPriorityLanes.currentLane();
+
+        return Mono.fromRunnable(() -> circuitBreaker.checkNotOpen(url))
+            .then(acquire(apiKey, family, lane))
+            .then(Mono.defer(() -> {
+                circuitBreaker.acquirePermission(url);
+                System.out.println("🔍 [reactive] Запрос к WB: " + url);
+                return webClient.get()
+                    .uri(URI.create(url))
+                    .header(HttpHeaders.AUTHORIZATION, apiKey)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .retrieve()
+                    .toEntity(String.class)
+                    .doOnNext(response -> circuitBreaker.onResult(url, null))
+                    .doOnError(e -> circuitBreaker.onResult(url, e));
+            }))
+            .doOnNext(response -> rateLimiter.onResponse(apiKey, family, response.getHeaders()))
+            .doOnError(WebClientResponseException.class, e -> {
+                if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                    rateLimiter.onRateLimited(apiKey, family, e.getHeaders());
+                } else {
+                    rateLimiter.onResponse(apiKey, family, e.getHeaders());
+                }
+            })
+            // Общая политика повторов; после 429 бакет ключа заблокирован, повтор дождется его в acquire()
+            .retryWhen(retryScheduler.reactorRetry())
+            .flatMap(this::parse);
+    }
+
+    /**
+     * Неблокирующее ожидание токена в очереди полосы.
+     * При отмене подписки ожидание снимается из очереди и квоту не расходует.
+     */
+    private Mono<Void> acquire(String apiKey, WbApiFamily family, WbPriorityLanes.Lane lane) {
+        return Mono.fromFuture(() -> priorityLanes.acquire(apiKey, family, lane));
+    }
+
+    private Mono<JsonNode> parse(ResponseEntity<String> response) {
+        String body = response.getBody();
+        if (body == null || body.isBlank()) {
+            // Успешный ответ без тела - данных за период нет, это не сбой запроса
+            return Mono.just(objectMapper.createArrayNode());
+        }
+        return Mono.fromCallable(() -> objectMapper.readTree(body));
+    }
+
+    private static Mono<Optional<JsonNode>> optional(Mono<JsonNode> mono) {
+        return mono.map(Optional::of).defaultIfEmpty(Optional.empty());
+    }
+}
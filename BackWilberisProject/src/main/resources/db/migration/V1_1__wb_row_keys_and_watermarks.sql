@@ -0,0 +1,32 @@
+-- Колонки и таблицы инкрементальной синхронизации, которых нет в исходной схеме V1.
+-- Версия 1.1 применяется и на новых базах, и на базах, принятых как baseline версии 1.
+-- IF NOT EXISTS - на базах, принятых как baseline, часть объектов уже могла быть создана Hibernate.
+
+-- Естественные идентификаторы строк WB: wb_row_id - ключ строки, srid и g_number - заказ и корзина
+ALTER TABLE analytics_data ADD COLUMN IF NOT EXISTS wb_row_id VARCHAR(100);
+ALTER TABLE analytics_data ADD COLUMN IF NOT EXISTS srid VARCHAR(100);
+ALTER TABLE analytics_data ADD COLUMN IF NOT EXISTS g_number VARCHAR(50);
+ALTER TABLE analytics_data ADD COLUMN IF NOT EXISTS odid BIGINT;
+
+-- Строки детализации реализации: по rrd_id идут страницы загрузки
+ALTER TABLE financial_report_raw ADD COLUMN IF NOT EXISTS rrd_id BIGINT;
+ALTER TABLE financial_report_raw ADD COLUMN IF NOT EXISTS realization_report_id BIGINT;
+
+-- Итог последней синхронизации продавца по отчетам
+ALTER TABLE sellers ADD COLUMN IF NOT EXISTS last_sync_status VARCHAR(20);
+ALTER TABLE sellers ADD COLUMN IF NOT EXISTS last_sync_error VARCHAR(1000);
+
+-- Курсоры инкрементальной синхронизации (lastChangeDate, rrdid) по отчету
+CREATE TABLE IF NOT EXISTS sync_watermarks (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    seller_id BIGINT,
+    report_type VARCHAR(50) NOT NULL,
+    last_change_date TIMESTAMP(6),
+    last_rrd_id BIGINT,
+    covered_from DATE,
+    rows_synced BIGINT,
+    updated_at TIMESTAMP(6),
+    CONSTRAINT fk_sync_watermarks_seller FOREIGN KEY (seller_id) REFERENCES sellers (id),
+    CONSTRAINT fk_sync_watermarks_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
@@ -0,0 +1,328 @@
+-- Исходная схема: таблицы в том виде, в каком их создавал Hibernate (ddl-auto) до перехода на миграции.
+-- Базы, созданные раньше через ddl-auto, принимают эту версию как baseline
+-- (spring.flyway.baseline-on-migrate), поэтому здесь нет ничего, чего в них не было:
+-- все последующие изменения схемы идут следующими версиями, начиная с V1_1.
+
+CREATE TABLE users (
+    id BIGSERIAL PRIMARY KEY,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    phone_number VARCHAR(255),
+    is_verified BOOLEAN NOT NULL,
+    verification_code VARCHAR(255),
+    verification_expires_at TIMESTAMP(6),
+    wildberries_api_key VARCHAR(1000),
+    telegram_chat_id VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE subscriptions (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    plan_type VARCHAR(255) NOT NULL CHECK (plan_type IN ('PLAN_30_DAYS','PLAN_60_DAYS','PLAN_90_DAYS','PLAN_FREE')),
+    status VARCHAR(255) NOT NULL CHECK (status IN ('ACTIVE','EXPIRED','CANCELLED','PENDING')),
+    price FLOAT(53) NOT NULL,
+    start_date TIMESTAMP(6) NOT NULL,
+    end_date TIMESTAMP(6) NOT NULL,
+    auto_renew BOOLEAN NOT NULL,
+    payment_method VARCHAR(255),
+    payment_transaction_id VARCHAR(255),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE sellers (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    seller_name VARCHAR(255) NOT NULL,
+    inn VARCHAR(20),
+    wb_api_key VARCHAR(1000),
+    wb_seller_id BIGINT,
+    is_active BOOLEAN NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    last_sync_at TIMESTAMP(6)
+);
+
+CREATE TABLE products (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    seller_id BIGINT,
+    nm_id BIGINT NOT NULL,
+    vendor_code VARCHAR(255),
+    brand VARCHAR(255),
+    title VARCHAR(1000),
+    category VARCHAR(255),
+    color VARCHAR(255),
+    size VARCHAR(255),
+    barcode VARCHAR(255),
+    current_price NUMERIC(19,2),
+    discount_price NUMERIC(19,2),
+    cost_price NUMERIC(19,2),
+    current_stock INTEGER,
+    stock_value NUMERIC(19,2),
+    rating NUMERIC(3,2),
+    reviews_count INTEGER,
+    conversion_rate NUMERIC(5,2),
+    photo_url VARCHAR(500),
+    is_active BOOLEAN,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE analytics_data (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    seller_id BIGINT,
+    period_start DATE,
+    period_end DATE,
+    period_type VARCHAR(255),
+    orders_count INTEGER,
+    purchases_count INTEGER,
+    wb_sales_amount NUMERIC(19,2),
+    to_pay_amount NUMERIC(19,2),
+    to_transfer_for_goods NUMERIC(19,2),
+    logistics_cost NUMERIC(19,2),
+    commission_wb NUMERIC(19,2),
+    penalty_amount NUMERIC(19,2),
+    additional_payment NUMERIC(19,2),
+    storage_cost NUMERIC(19,2),
+    deduction_amount NUMERIC(19,2),
+    acceptance_cost NUMERIC(19,2),
+    buyouts_count INTEGER,
+    buyouts_amount NUMERIC(19,2),
+    to_cart_count INTEGER,
+    views_count INTEGER,
+    sales_amount NUMERIC(19,2),
+    net_profit NUMERIC(19,2),
+    profit_margin NUMERIC(5,2),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE financial_report_raw (
+    id BIGSERIAL PRIMARY KEY,
+    seller_id BIGINT NOT NULL,
+    wb_article VARCHAR(100),
+    supplier_article VARCHAR(100),
+    operation_type VARCHAR(50),
+    operation_date TIMESTAMP(6),
+    sale_amount NUMERIC(12,2),
+    commission_percent NUMERIC(5,2),
+    commission_amount NUMERIC(12,2),
+    logistics_cost NUMERIC(12,2),
+    storage_cost NUMERIC(12,2),
+    other_deductions NUMERIC(12,2),
+    to_pay_amount NUMERIC(12,2),
+    quantity NUMERIC(8,0),
+    return_payment_calculated NUMERIC(12,2),
+    week_number INTEGER,
+    is_return_operation BOOLEAN,
+    penalty_amount NUMERIC(12,2),
+    bonus_amount NUMERIC(12,2),
+    report_date TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE weekly_financial_reports (
+    id BIGSERIAL PRIMARY KEY,
+    seller_id BIGINT NOT NULL,
+    product_id BIGINT,
+    week_number INTEGER NOT NULL,
+    date_period DATE NOT NULL,
+    buyout_quantity NUMERIC(10,0),
+    wb_sales NUMERIC(12,2),
+    to_recalculation_for_goods NUMERIC(12,2),
+    logistics NUMERIC(12,2),
+    storage NUMERIC(12,2),
+    acceptance NUMERIC(12,2),
+    penalty NUMERIC(12,2),
+    deductions_advertising NUMERIC(12,2),
+    to_payout NUMERIC(12,2),
+    tax NUMERIC(12,2),
+    other_expenses NUMERIC(12,2),
+    cost_of_goods_sold NUMERIC(12,2),
+    net_profit NUMERIC(12,2),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE unit_economics (
+    id BIGSERIAL PRIMARY KEY,
+    seller_id BIGINT NOT NULL,
+    product_id BIGINT,
+    wb_article VARCHAR(100),
+    supplier_article VARCHAR(100),
+    cost_price NUMERIC(12,2),
+    delivery_to_wb NUMERIC(12,2),
+    gross_profit NUMERIC(12,2),
+    mp_price_before NUMERIC(12,2),
+    mp_discount NUMERIC(12,2),
+    price_before_spp NUMERIC(12,2),
+    spp_percent NUMERIC(5,2),
+    price_after_spp NUMERIC(12,2),
+    break_even_point_before_spp NUMERIC(12,2),
+    buyout NUMERIC(12,2),
+    mp_commission_percent NUMERIC(5,2),
+    first_liter_delivery_cost NUMERIC(12,2),
+    next_liter_delivery_cost NUMERIC(12,2),
+    height NUMERIC(8,2),
+    width NUMERIC(8,2),
+    length NUMERIC(8,2),
+    total_volume_liters NUMERIC(8,3),
+    warehouse_coefficient NUMERIC(5,2),
+    logistics_mp NUMERIC(12,2),
+    logistics_with_buyout NUMERIC(12,2),
+    final_logistics_with_index NUMERIC(12,2),
+    storage_mp NUMERIC(12,2),
+    mp_commission_rub NUMERIC(12,2),
+    total_mp NUMERIC(12,2),
+    total_to_pay NUMERIC(12,2),
+    tax NUMERIC(12,2),
+    revenue_after_tax NUMERIC(12,2),
+    final_gross_profit NUMERIC(12,2),
+    markup_from_final_price NUMERIC(5,2),
+    final_marginality NUMERIC(5,2),
+    gross_profitability_final NUMERIC(5,2),
+    roi NUMERIC(5,2),
+    calculation_date TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE supply_planning (
+    id BIGSERIAL PRIMARY KEY,
+    seller_id BIGINT NOT NULL,
+    product_id BIGINT,
+    row_number INTEGER NOT NULL,
+    wb_article VARCHAR(100),
+    supplier_article VARCHAR(100),
+    goods_in_transit_quantity NUMERIC(10,0),
+    goods_on_sale_quantity NUMERIC(10,0),
+    total_stock_balance NUMERIC(10,0),
+    average_orders_per_day NUMERIC(8,2),
+    turnover_days NUMERIC(8,2),
+    coverage_plan_30_days NUMERIC(10,0),
+    demand_for_30_days NUMERIC(10,0),
+    seasonality_coefficient NUMERIC(5,2),
+    demand_for_30_days_with_seasonality NUMERIC(10,0),
+    calculation_date TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE promotions_tracking (
+    id BIGSERIAL PRIMARY KEY,
+    seller_id BIGINT NOT NULL,
+    product_id BIGINT,
+    row_number INTEGER NOT NULL,
+    wb_article VARCHAR(100),
+    supplier_article VARCHAR(100),
+    grouping VARCHAR(200),
+    abc_analysis VARCHAR(50),
+    subgroup_f_preparation_d_sale VARCHAR(100),
+    gross_profit NUMERIC(12,2),
+    current_price NUMERIC(12,2),
+    action VARCHAR(200),
+    price_for_promotion_participation NUMERIC(12,2),
+    gross_profit_in_promotion NUMERIC(12,2),
+    turnover_days NUMERIC(8,2),
+    wb_stock_balance NUMERIC(10,0),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE advertising_campaigns (
+    id BIGSERIAL PRIMARY KEY,
+    seller_id BIGINT NOT NULL,
+    product_id BIGINT,
+    row_number INTEGER NOT NULL,
+    wb_article VARCHAR(100),
+    supplier_article VARCHAR(100),
+    grouping VARCHAR(200),
+    indicator VARCHAR(100),
+    week_1_period VARCHAR(50),
+    week_1_value NUMERIC(12,2),
+    week_2_period VARCHAR(50),
+    week_2_value NUMERIC(12,2),
+    week_3_period VARCHAR(50),
+    week_3_value NUMERIC(12,2),
+    week_4_period VARCHAR(50),
+    week_4_value NUMERIC(12,2),
+    week_5_period VARCHAR(50),
+    week_5_value NUMERIC(12,2),
+    calculation NUMERIC(12,2),
+    report_period_start DATE NOT NULL,
+    report_period_end DATE NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE current_prices (
+    id BIGSERIAL PRIMARY KEY,
+    seller_id BIGINT NOT NULL,
+    wb_article VARCHAR(100) NOT NULL,
+    supplier_article VARCHAR(100),
+    wb_price NUMERIC(12,2),
+    our_set_price NUMERIC(12,2),
+    our_discount_percent NUMERIC(5,2),
+    final_price NUMERIC(12,2),
+    competitor_price NUMERIC(12,2),
+    min_price NUMERIC(12,2),
+    max_price NUMERIC(12,2),
+    recommended_price NUMERIC(12,2),
+    price_status VARCHAR(50),
+    is_promotion_active BOOLEAN,
+    price_update_date TIMESTAMP(6),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE wildberries_card_data (
+    id BIGSERIAL PRIMARY KEY,
+    seller_id BIGINT NOT NULL,
+    wb_article VARCHAR(100) NOT NULL,
+    supplier_article VARCHAR(100),
+    product_name VARCHAR(500),
+    brand VARCHAR(200),
+    category VARCHAR(200),
+    subject VARCHAR(200),
+    cluster_group VARCHAR(100),
+    size VARCHAR(100),
+    color VARCHAR(100),
+    barcode VARCHAR(50),
+    status VARCHAR(50),
+    is_active BOOLEAN,
+    length_cm NUMERIC(8,2),
+    width_cm NUMERIC(8,2),
+    height_cm NUMERIC(8,2),
+    weight_g NUMERIC(8,2),
+    upload_date TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+-- Внешние ключи
+ALTER TABLE advertising_campaigns ADD CONSTRAINT fk_advertising_campaigns_product FOREIGN KEY (product_id) REFERENCES products (id);
+ALTER TABLE advertising_campaigns ADD CONSTRAINT fk_advertising_campaigns_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE analytics_data ADD CONSTRAINT fk_analytics_data_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE analytics_data ADD CONSTRAINT fk_analytics_data_user FOREIGN KEY (user_id) REFERENCES users (id);
+ALTER TABLE current_prices ADD CONSTRAINT fk_current_prices_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE financial_report_raw ADD CONSTRAINT fk_financial_report_raw_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE products ADD CONSTRAINT fk_products_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE products ADD CONSTRAINT fk_products_user FOREIGN KEY (user_id) REFERENCES users (id);
+ALTER TABLE promotions_tracking ADD CONSTRAINT fk_promotions_tracking_product FOREIGN KEY (product_id) REFERENCES products (id);
+ALTER TABLE promotions_tracking ADD CONSTRAINT fk_promotions_tracking_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE sellers ADD CONSTRAINT fk_sellers_user FOREIGN KEY (user_id) REFERENCES users (id);
+ALTER TABLE subscriptions ADD CONSTRAINT fk_subscriptions_user FOREIGN KEY (user_id) REFERENCES users (id);
+ALTER TABLE supply_planning ADD CONSTRAINT fk_supply_planning_product FOREIGN KEY (product_id) REFERENCES products (id);
+ALTER TABLE supply_planning ADD CONSTRAINT fk_supply_planning_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE unit_economics ADD CONSTRAINT fk_unit_economics_product FOREIGN KEY (product_id) REFERENCES products (id);
+ALTER TABLE unit_economics ADD CONSTRAINT fk_unit_economics_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE weekly_financial_reports ADD CONSTRAINT fk_weekly_financial_reports_product FOREIGN KEY (product_id) REFERENCES products (id);
+ALTER TABLE weekly_financial_reports ADD CONSTRAINT fk_weekly_financial_reports_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE wildberries_card_data ADD CONSTRAINT fk_wildberries_card_data_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
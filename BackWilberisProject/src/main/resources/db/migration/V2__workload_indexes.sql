@@ -0,0 +1,58 @@
+-- Индексы под фактические условия запросов репозиториев.
+-- Составные индексы начинаются с колонки владельца (seller_id / user_id), по которой
+-- отбирают все запросы, и продолжаются колонкой фильтра или сортировки.
+-- IF NOT EXISTS - на базах, принятых как baseline, часть объектов уже могла быть создана Hibernate.
+
+-- Строка по артикулу продавца: findBySellerAndWbArticle
+CREATE INDEX IF NOT EXISTS idx_unit_economics_seller_article ON unit_economics (seller_id, wb_article);
+CREATE INDEX IF NOT EXISTS idx_supply_planning_seller_article ON supply_planning (seller_id, wb_article);
+CREATE INDEX IF NOT EXISTS idx_promotions_tracking_seller_article ON promotions_tracking (seller_id, wb_article);
+-- findBySellerAndWbArticleAndIndicator; префикс (seller_id, wb_article) обслуживает и поиск по артикулу
+CREATE INDEX IF NOT EXISTS idx_advertising_campaigns_seller_article ON advertising_campaigns (seller_id, wb_article, indicator);
+
+-- Недельные отчеты продавца за период: findBySellerAndDateRange, findBySellerOrderByDatePeriodDesc
+CREATE INDEX IF NOT EXISTS idx_weekly_financial_reports_seller_period ON weekly_financial_reports (seller_id, date_period);
+
+-- Аналитика пользователя за период: findByUserAndDateRange, findByUserAndPeriodStartGreaterThanEqual, findLast8WeeksByUser
+CREATE INDEX IF NOT EXISTS idx_analytics_data_user_period ON analytics_data (user_id, period_start);
+-- Дневные сводки и строки заказов продавца: findFirstBySellerAndPeriodTypeAndPeriodStart, sumOrderLinesBySeller
+CREATE INDEX IF NOT EXISTS idx_analytics_data_seller_type_period ON analytics_data (seller_id, period_type, period_start)
+    WHERE seller_id IS NOT NULL;
+
+-- Естественный ключ строк WB. NULL в seller_id не равны друг другу, поэтому общий UNIQUE
+-- не защищает строки, загруженные по ключу пользователя; заменяем его двумя частичными индексами
+ALTER TABLE analytics_data DROP CONSTRAINT IF EXISTS uk_analytics_data_wb_row;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_analytics_data_user_wb_row ON analytics_data (user_id, period_type, wb_row_id)
+    WHERE seller_id IS NULL AND wb_row_id IS NOT NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_analytics_data_seller_wb_row ON analytics_data (seller_id, period_type, wb_row_id)
+    WHERE seller_id IS NOT NULL AND wb_row_id IS NOT NULL;
+
+-- Один товар на nmId у пользователя (upsert остатков ON CONFLICT (user_id, nm_id))
+CREATE UNIQUE INDEX IF NOT EXISTS uk_products_user_nm_id ON products (user_id, nm_id);
+
+-- Детализация реализации продавца по строкам отчета
+CREATE INDEX IF NOT EXISTS idx_financial_report_raw_seller_rrd ON financial_report_raw (seller_id, rrd_id);
+
+-- Один курсор синхронизации на отчет у продавца или у ключа пользователя
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sync_watermarks_seller_report ON sync_watermarks (seller_id, report_type)
+    WHERE seller_id IS NOT NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_sync_watermarks_user_report ON sync_watermarks (user_id, report_type)
+    WHERE seller_id IS NULL;
+
+-- Продавцы пользователя: findByUser, findByUserAndIsActiveTrue, countActiveByUser
+CREATE INDEX IF NOT EXISTS idx_sellers_user ON sellers (user_id);
+
+-- Подписки пользователя и поиск истекающих: findByUserAndStatus, findExpiringSubscriptions
+CREATE INDEX IF NOT EXISTS idx_subscriptions_user_status ON subscriptions (user_id, status);
+CREATE INDEX IF NOT EXISTS idx_subscriptions_status_end_date ON subscriptions (status, end_date);
+
+-- Подтверждение регистрации и привязка Telegram: findByVerificationCode, findByTelegramChatId
+CREATE INDEX IF NOT EXISTS idx_users_verification_code ON users (verification_code) WHERE verification_code IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_users_telegram_chat_id ON users (telegram_chat_id) WHERE telegram_chat_id IS NOT NULL;
+
+-- Идентификаторы analytics_data выдаются из последовательности пачками по 50 (pooled):
+-- продвигаем ее за существующие строки, созданные до перехода с IDENTITY
+CREATE SEQUENCE IF NOT EXISTS analytics_data_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('analytics_data_seq', GREATEST(
+    (SELECT last_value FROM analytics_data_seq),
+    (SELECT COALESCE(MAX(id), 0) + 50 FROM analytics_data)));
@@ -0,0 +1,177 @@
+-- Помесячное секционирование фактовых таблиц: analytics_data по period_start,
+-- financial_report_raw по operation_date. Запросы с условием на дату читают только
+-- секции нужных месяцев, а старый месяц убирается DETACH PARTITION вместо массового DELETE.
+-- Ключ секционирования обязан входить в первичный ключ и уникальные индексы,
+-- поэтому даты становятся NOT NULL, а естественный ключ строк WB дополняется period_start.
+-- Строки вне созданных месяцев попадают в секцию DEFAULT; ensure_monthly_partitions
+-- переносит их в месячную секцию при ее создании (вызывается приложением по расписанию).
+
+CREATE OR REPLACE FUNCTION ensure_monthly_partitions(parent_table TEXT, key_column TEXT, first_month DATE, last_month DATE)
+RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    month_start DATE := date_trunc('month', first_month)::DATE;
+    month_end DATE;
+    partition_name TEXT;
+    default_name TEXT := parent_table || '_default';
+    created INTEGER := 0;
+BEGIN
+    -- Несколько экземпляров приложения не создают одну секцию одновременно
+    PERFORM pg_advisory_xact_lock(hashtext('monthly_partitions:' || parent_table));
+    WHILE month_start <= last_month LOOP
+        month_end := (month_start + INTERVAL '1 month')::DATE;
+        partition_name := parent_table || '_p' || to_char(month_start, 'YYYYMM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', partition_name, parent_table);
+            IF to_regclass(default_name) IS NOT NULL THEN
+                -- Строки месяца, уже попавшие в DEFAULT, переезжают в новую секцию;
+                -- запись в DEFAULT на это время блокируется, иначе ATTACH не пройдет проверку
+                EXECUTE format('LOCK TABLE %I IN EXCLUSIVE MODE', default_name);
+                EXECUTE format('WITH moved AS (DELETE FROM %I WHERE %I >= %L AND %I < %L RETURNING *) '
+                    || 'INSERT INTO %I SELECT * FROM moved',
+                    default_name, key_column, month_start, key_column, month_end, partition_name);
+            END IF;
+            EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                parent_table, partition_name, month_start, month_end);
+            created := created + 1;
+        END IF;
+        month_start := month_end;
+    END LOOP;
+    RETURN created;
+END;
+$$;
+
+-- analytics_data
+
+ALTER TABLE analytics_data RENAME TO analytics_data_legacy;
+
+CREATE TABLE analytics_data (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    seller_id BIGINT,
+    wb_row_id VARCHAR(100),
+    srid VARCHAR(100),
+    g_number VARCHAR(50),
+    odid BIGINT,
+    period_start DATE NOT NULL,
+    period_end DATE,
+    period_type VARCHAR(255),
+    orders_count INTEGER,
+    purchases_count INTEGER,
+    wb_sales_amount NUMERIC(19,2),
+    to_pay_amount NUMERIC(19,2),
+    to_transfer_for_goods NUMERIC(19,2),
+    logistics_cost NUMERIC(19,2),
+    commission_wb NUMERIC(19,2),
+    penalty_amount NUMERIC(19,2),
+    additional_payment NUMERIC(19,2),
+    storage_cost NUMERIC(19,2),
+    deduction_amount NUMERIC(19,2),
+    acceptance_cost NUMERIC(19,2),
+    buyouts_count INTEGER,
+    buyouts_amount NUMERIC(19,2),
+    to_cart_count INTEGER,
+    views_count INTEGER,
+    sales_amount NUMERIC(19,2),
+    net_profit NUMERIC(19,2),
+    profit_margin NUMERIC(5,2),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+) PARTITION BY RANGE (period_start);
+
+CREATE TABLE analytics_data_default PARTITION OF analytics_data DEFAULT;
+
+SELECT ensure_monthly_partitions('analytics_data', 'period_start',
+    LEAST(CURRENT_DATE, (SELECT MIN(COALESCE(period_start, period_end, created_at::DATE)) FROM analytics_data_legacy)),
+    (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+-- Строки без даты периода (их не создает ни одна загрузка) относим к дате создания
+INSERT INTO analytics_data (id, user_id, seller_id, wb_row_id, srid, g_number, odid, period_start, period_end,
+    period_type, orders_count, purchases_count, wb_sales_amount, to_pay_amount, to_transfer_for_goods,
+    logistics_cost, commission_wb, penalty_amount, additional_payment, storage_cost, deduction_amount,
+    acceptance_cost, buyouts_count, buyouts_amount, to_cart_count, views_count, sales_amount, net_profit,
+    profit_margin, created_at, updated_at)
+SELECT id, user_id, seller_id, wb_row_id, srid, g_number, odid,
+    COALESCE(period_start, period_end, created_at::DATE, CURRENT_DATE), period_end,
+    period_type, orders_count, purchases_count, wb_sales_amount, to_pay_amount, to_transfer_for_goods,
+    logistics_cost, commission_wb, penalty_amount, additional_payment, storage_cost, deduction_amount,
+    acceptance_cost, buyouts_count, buyouts_amount, to_cart_count, views_count, sales_amount, net_profit,
+    profit_margin, created_at, updated_at
+FROM analytics_data_legacy;
+
+DROP TABLE analytics_data_legacy;
+
+-- Индексы создаются после переноса строк и наследуются каждой секцией
+ALTER TABLE analytics_data ADD CONSTRAINT analytics_data_pkey PRIMARY KEY (id, period_start);
+ALTER TABLE analytics_data ADD CONSTRAINT fk_analytics_data_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+ALTER TABLE analytics_data ADD CONSTRAINT fk_analytics_data_user FOREIGN KEY (user_id) REFERENCES users (id);
+CREATE INDEX idx_analytics_data_user_period ON analytics_data (user_id, period_start);
+CREATE INDEX idx_analytics_data_seller_type_period ON analytics_data (seller_id, period_type, period_start)
+    WHERE seller_id IS NOT NULL;
+-- Строка WB относится к своему дню, поэтому день входит в естественный ключ
+CREATE UNIQUE INDEX uk_analytics_data_user_wb_row ON analytics_data (user_id, period_type, wb_row_id, period_start)
+    WHERE seller_id IS NULL AND wb_row_id IS NOT NULL;
+CREATE UNIQUE INDEX uk_analytics_data_seller_wb_row ON analytics_data (seller_id, period_type, wb_row_id, period_start)
+    WHERE seller_id IS NOT NULL AND wb_row_id IS NOT NULL;
+
+-- financial_report_raw
+
+ALTER TABLE financial_report_raw RENAME TO financial_report_raw_legacy;
+
+-- Идентичность на секционированной таблице недоступна (PostgreSQL < 17):
+-- id берется из отдельной последовательности значением по умолчанию
+CREATE SEQUENCE financial_report_raw_seq;
+SELECT setval('financial_report_raw_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM financial_report_raw_legacy), false);
+
+CREATE TABLE financial_report_raw (
+    id BIGINT NOT NULL DEFAULT nextval('financial_report_raw_seq'),
+    seller_id BIGINT NOT NULL,
+    rrd_id BIGINT,
+    realization_report_id BIGINT,
+    wb_article VARCHAR(100),
+    supplier_article VARCHAR(100),
+    operation_type VARCHAR(50),
+    operation_date TIMESTAMP(6) NOT NULL,
+    sale_amount NUMERIC(12,2),
+    commission_percent NUMERIC(5,2),
+    commission_amount NUMERIC(12,2),
+    logistics_cost NUMERIC(12,2),
+    storage_cost NUMERIC(12,2),
+    other_deductions NUMERIC(12,2),
+    to_pay_amount NUMERIC(12,2),
+    quantity NUMERIC(8,0),
+    return_payment_calculated NUMERIC(12,2),
+    week_number INTEGER,
+    is_return_operation BOOLEAN,
+    penalty_amount NUMERIC(12,2),
+    bonus_amount NUMERIC(12,2),
+    report_date TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+) PARTITION BY RANGE (operation_date);
+
+ALTER SEQUENCE financial_report_raw_seq OWNED BY financial_report_raw.id;
+
+CREATE TABLE financial_report_raw_default PARTITION OF financial_report_raw DEFAULT;
+
+SELECT ensure_monthly_partitions('financial_report_raw', 'operation_date',
+    LEAST(CURRENT_DATE, (SELECT MIN(COALESCE(operation_date, report_date))::DATE FROM financial_report_raw_legacy)),
+    (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+-- Операции без даты относим к дате отчета
+INSERT INTO financial_report_raw (id, seller_id, rrd_id, realization_report_id, wb_article, supplier_article,
+    operation_type, operation_date, sale_amount, commission_percent, commission_amount, logistics_cost,
+    storage_cost, other_deductions, to_pay_amount, quantity, return_payment_calculated, week_number,
+    is_return_operation, penalty_amount, bonus_amount, report_date, created_at, updated_at)
+SELECT id, seller_id, rrd_id, realization_report_id, wb_article, supplier_article,
+    operation_type, COALESCE(operation_date, report_date), sale_amount, commission_percent, commission_amount,
+    logistics_cost, storage_cost, other_deductions, to_pay_amount, quantity, return_payment_calculated,
+    week_number, is_return_operation, penalty_amount, bonus_amount, report_date, created_at, updated_at
+FROM financial_report_raw_legacy;
+
+DROP TABLE financial_report_raw_legacy;
+
+ALTER TABLE financial_report_raw ADD CONSTRAINT financial_report_raw_pkey PRIMARY KEY (id, operation_date);
+ALTER TABLE financial_report_raw ADD CONSTRAINT fk_financial_report_raw_seller FOREIGN KEY (seller_id) REFERENCES sellers (id);
+CREATE INDEX idx_financial_report_raw_seller_rrd ON financial_report_raw (seller_id, rrd_id);
+CREATE INDEX idx_financial_report_raw_seller_date ON financial_report_raw (seller_id, operation_date);
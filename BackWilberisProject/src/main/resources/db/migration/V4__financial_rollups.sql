@@ -0,0 +1,127 @@
+-- Агрегаты детализации реализации: дневные по артикулу продавца (article_daily_rollups)
+-- и недельные по продавцу (weekly_financial_reports, строки без product_id).
+-- Загрузка детализации после каждой страницы пересчитывает только затронутые дни и недели
+-- функцией refresh_financial_rollups; недельный отчет и сводная таблица читают готовые строки по индексу.
+
+CREATE TABLE article_daily_rollups (
+    id BIGSERIAL PRIMARY KEY,
+    seller_id BIGINT NOT NULL,
+    wb_article VARCHAR(100) NOT NULL,
+    day DATE NOT NULL,
+    buyout_quantity NUMERIC(10,0),
+    wb_sales NUMERIC(14,2),
+    to_recalculation_for_goods NUMERIC(14,2),
+    logistics NUMERIC(14,2),
+    storage NUMERIC(14,2),
+    penalty NUMERIC(14,2),
+    deductions NUMERIC(14,2),
+    bonus NUMERIC(14,2),
+    to_payout NUMERIC(14,2),
+    cost_of_goods_sold NUMERIC(14,2),
+    net_profit NUMERIC(14,2),
+    rows_count INTEGER NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT fk_article_daily_rollups_seller FOREIGN KEY (seller_id) REFERENCES sellers (id)
+);
+
+-- Операции без артикула (хранение, штрафы по продавцу) собираются под пустым артикулом
+CREATE UNIQUE INDEX uk_article_daily_rollups_seller_day_article ON article_daily_rollups (seller_id, day, wb_article);
+
+-- Одна недельная строка продавца на неделю (date_period - понедельник)
+DELETE FROM weekly_financial_reports w
+USING weekly_financial_reports newer
+WHERE w.product_id IS NULL AND newer.product_id IS NULL
+  AND w.seller_id = newer.seller_id AND w.date_period = newer.date_period AND w.id < newer.id;
+CREATE UNIQUE INDEX uk_weekly_financial_reports_seller_week ON weekly_financial_reports (seller_id, date_period)
+    WHERE product_id IS NULL;
+
+CREATE OR REPLACE FUNCTION refresh_financial_rollups(p_seller_id BIGINT, p_days DATE[])
+RETURNS INTEGER
+LANGUAGE plpgsql AS $$
+DECLARE
+    first_day DATE := (SELECT MIN(d) FROM unnest(p_days) d);
+    last_day DATE := (SELECT MAX(d) FROM unnest(p_days) d);
+    weeks DATE[] := ARRAY(SELECT DISTINCT date_trunc('week', d)::DATE FROM unnest(p_days) d);
+    week_count INTEGER;
+BEGIN
+    IF first_day IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    -- Дневные корзины затронутых дней собираются заново из строк детализации
+    DELETE FROM article_daily_rollups WHERE seller_id = p_seller_id AND day = ANY (p_days);
+    INSERT INTO article_daily_rollups (seller_id, wb_article, day, buyout_quantity, wb_sales,
+        to_recalculation_for_goods, logistics, storage, penalty, deductions, bonus, to_payout,
+        cost_of_goods_sold, net_profit, rows_count, updated_at)
+    SELECT g.seller_id, g.wb_article, g.day, g.buyout_quantity, g.wb_sales,
+        g.to_recalculation_for_goods, g.logistics, g.storage, g.penalty, g.deductions, g.bonus,
+        g.to_recalculation_for_goods - g.logistics - g.storage - g.penalty - g.deductions + g.bonus,
+        g.buyout_quantity * COALESCE(cost.cost_price, 0),
+        g.to_recalculation_for_goods - g.logistics - g.storage - g.penalty - g.deductions + g.bonus
+            - g.buyout_quantity * COALESCE(cost.cost_price, 0),
+        g.rows_count, now()
+    FROM (
+        SELECT f.seller_id, COALESCE(f.wb_article, '') AS wb_article, f.operation_date::DATE AS day,
+            -- Возврат уменьшает выкуп, продажи и перечисление за товар
+            COALESCE(SUM(CASE WHEN f.is_return_operation THEN -f.quantity
+                              WHEN f.operation_type IN ('Продажа', 'продажа') THEN f.quantity ELSE 0 END), 0) AS buyout_quantity,
+            COALESCE(SUM(CASE WHEN f.is_return_operation THEN -f.sale_amount
+                              WHEN f.operation_type IN ('Продажа', 'продажа') THEN f.sale_amount ELSE 0 END), 0) AS wb_sales,
+            COALESCE(SUM(CASE WHEN f.is_return_operation THEN -f.to_pay_amount ELSE f.to_pay_amount END), 0) AS to_recalculation_for_goods,
+            COALESCE(SUM(f.logistics_cost), 0) AS logistics,
+            COALESCE(SUM(f.storage_cost), 0) AS storage,
+            COALESCE(SUM(f.penalty_amount), 0) AS penalty,
+            COALESCE(SUM(f.other_deductions), 0) AS deductions,
+            COALESCE(SUM(f.bonus_amount), 0) AS bonus,
+            COUNT(*) AS rows_count
+        FROM financial_report_raw f
+        WHERE f.seller_id = p_seller_id
+          AND f.operation_date >= first_day AND f.operation_date < last_day + 1
+          AND f.operation_date::DATE = ANY (p_days)
+        GROUP BY 1, 2, 3
+    ) g
+    -- Себестоимость - из последнего расчета юнит-экономики артикула
+    LEFT JOIN LATERAL (
+        SELECT u.cost_price FROM unit_economics u
+        WHERE u.seller_id = g.seller_id AND u.wb_article = g.wb_article
+        ORDER BY u.calculation_date DESC LIMIT 1
+    ) cost ON TRUE;
+
+    -- Недельные итоги продавца - сумма дневных корзин затронутых недель
+    INSERT INTO weekly_financial_reports (seller_id, week_number, date_period, buyout_quantity, wb_sales,
+        to_recalculation_for_goods, logistics, storage, penalty, deductions_advertising, to_payout,
+        cost_of_goods_sold, net_profit, created_at, updated_at)
+    SELECT p_seller_id, EXTRACT(WEEK FROM w.week_start)::INTEGER, w.week_start,
+        COALESCE(SUM(r.buyout_quantity), 0), COALESCE(SUM(r.wb_sales), 0), COALESCE(SUM(r.to_recalculation_for_goods), 0),
+        COALESCE(SUM(r.logistics), 0), COALESCE(SUM(r.storage), 0), COALESCE(SUM(r.penalty), 0),
+        COALESCE(SUM(r.deductions), 0), COALESCE(SUM(r.to_payout), 0), COALESCE(SUM(r.cost_of_goods_sold), 0),
+        COALESCE(SUM(r.net_profit), 0), now(), now()
+    FROM unnest(weeks) AS w (week_start)
+    LEFT JOIN article_daily_rollups r
+        ON r.seller_id = p_seller_id AND r.day >= w.week_start AND r.day < w.week_start + 7
+    GROUP BY w.week_start
+    ON CONFLICT (seller_id, date_period) WHERE product_id IS NULL DO UPDATE SET
+        week_number = EXCLUDED.week_number,
+        buyout_quantity = EXCLUDED.buyout_quantity,
+        wb_sales = EXCLUDED.wb_sales,
+        to_recalculation_for_goods = EXCLUDED.to_recalculation_for_goods,
+        logistics = EXCLUDED.logistics,
+        storage = EXCLUDED.storage,
+        penalty = EXCLUDED.penalty,
+        deductions_advertising = EXCLUDED.deductions_advertising,
+        to_payout = EXCLUDED.to_payout,
+        cost_of_goods_sold = EXCLUDED.cost_of_goods_sold,
+        net_profit = EXCLUDED.net_profit,
+        updated_at = EXCLUDED.updated_at;
+    GET DIAGNOSTICS week_count = ROW_COUNT;
+    RETURN week_count;
+END;
+$$;
+
+-- Агрегаты по уже загруженной детализации
+SELECT refresh_financial_rollups(s.seller_id, s.days)
+FROM (
+    SELECT seller_id, array_agg(DISTINCT operation_date::DATE) AS days
+    FROM financial_report_raw
+    GROUP BY seller_id
+) s;
@@ -0,0 +1,12 @@
+-- Мягкое удаление аккаунтов и продавцов: запись помечается сразу, строки дочерних таблиц
+-- удаляет фоновое задание порциями (AccountPurgeService), последней удаляется сама запись.
+-- Незавершенные удаления продолжаются после рестарта - по этим меткам.
+
+ALTER TABLE users ADD COLUMN deleted_at TIMESTAMP(6);
+ALTER TABLE sellers ADD COLUMN deleted_at TIMESTAMP(6);
+
+-- Порции удаления выбираются по владельцу: таблицам продавца без индекса по seller_id он нужен,
+-- иначе каждая порция читала бы таблицу целиком
+CREATE INDEX IF NOT EXISTS idx_products_seller ON products (seller_id);
+CREATE INDEX IF NOT EXISTS idx_current_prices_seller ON current_prices (seller_id);
+CREATE INDEX IF NOT EXISTS idx_wildberries_card_data_seller ON wildberries_card_data (seller_id);
@@ -0,0 +1,28 @@
+-- Строка детализации реализации уникальна по rrdid у продавца. Загрузки пересекающихся периодов
+-- начинают каждая со своего курсора и получают одни и те же строки; без уникального ключа
+-- они копировались повторно и удваивали суммы агрегатов. Страница теперь пишется через
+-- временную таблицу и INSERT ... ON CONFLICT DO NOTHING (RealizationReportLoader).
+-- operation_date - ключ секционирования и обязан входить в уникальный индекс.
+
+-- Уже загруженные повторы удаляются (остается первая строка), агрегаты их дней пересчитываются
+CREATE TEMP TABLE duplicate_realization_days ON COMMIT DROP AS
+SELECT DISTINCT f.seller_id, f.operation_date::DATE AS day
+FROM financial_report_raw f
+WHERE f.rrd_id IS NOT NULL AND EXISTS (
+    SELECT 1 FROM financial_report_raw first_row
+    WHERE first_row.seller_id = f.seller_id AND first_row.rrd_id = f.rrd_id
+      AND first_row.operation_date = f.operation_date AND first_row.id < f.id);
+
+DELETE FROM financial_report_raw f
+USING financial_report_raw first_row
+WHERE f.rrd_id IS NOT NULL
+  AND first_row.seller_id = f.seller_id AND first_row.rrd_id = f.rrd_id
+  AND first_row.operation_date = f.operation_date AND first_row.id < f.id;
+
+SELECT refresh_financial_rollups(seller_id, array_agg(day))
+FROM duplicate_realization_days
+GROUP BY seller_id;
+
+-- Индекс (seller_id, rrd_id) покрывается префиксом уникального
+DROP INDEX IF EXISTS idx_financial_report_raw_seller_rrd;
+CREATE UNIQUE INDEX uk_financial_report_raw_seller_rrd ON financial_report_raw (seller_id, rrd_id, operation_date);
@@ -0,0 +1,151 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Классы ABC по доле, накопленной до товара, и учет возвратов
+ */
+class AbcAnalysisEngineTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AbcAnalysisEngine engine = new AbcAnalysisEngine();
+
+    @Test
+    void classIsDecidedByShareAccumulatedBeforeTheItem() throws Exception {
+        // Доли 60, 20, 10, 5, 3, 2: до товаров накоплено 0, 60, 80, 90, 95, 98
+        List<Map<String, Object>> items = items(engine.analyze(json("""
+            [{"nmId": 1, "forPay": 60, "subject": "Платья"},
+             {"nmId": 2, "forPay": 20, "subject": "Платья"},
+             {"nmId": 3, "forPay": 10, "subject": "Платья"},
+             {"nmId": 4, "forPay": 5, "subject": "Платья"},
+             {"nmId": 5, "forPay": 3, "subject": "Платья"},
+             {"nmId": 6, "forPay": 2, "subject": "Платья"}]
+            """)));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), items.stream().map(item -> item.get("nmId")).toList());
+        // Ровно 80% и ровно 95% до товара - уже следующий класс
+        assertEquals(List.of("A", "A", "B", "B", "C", "C"), items.stream().map(item -> item.get("classTotal")).toList());
+        assertEquals(List.of("A", "A", "B", "B", "C", "C"), items.stream().map(item -> item.get("classInGroup")).toList());
+        assertEquals(100.0, (double) items.get(5).get("cumulativePercentTotal"), 1e-9);
+    }
+
+    @Test
+    void summaryTotalsMatchClasses() throws Exception {
+        Map<String, Object> summary = summary(engine.analyze(json("""
+            [{"nmId": 1, "forPay": 60}, {"nmId": 2, "forPay": 20}, {"nmId": 3, "forPay": 10},
+             {"nmId": 4, "forPay": 5}, {"nmId": 5, "forPay": 3}, {"nmId": 6, "forPay": 2}]
+            """)));
+
+        assertEquals(6, summary.get("totalItems"));
+        assertEquals(100.0, (double) summary.get("totalRevenue"), 1e-9);
+        assertClass(summary, "classA", 2, 80.0);
+        assertClass(summary, "classB", 2, 15.0);
+        assertClass(summary, "classC", 2, 5.0);
+    }
+
+    @Test
+    void largestItemIsAlwaysClassA() throws Exception {
+        List<Map<String, Object>> items = items(engine.analyze(json("""
+            [{"nmId": 1, "forPay": 99}, {"nmId": 2, "forPay": 1}]
+            """)));
+
+        assertEquals("A", items.get(0).get("classTotal"));
+        assertEquals("C", items.get(1).get("classTotal"));
+    }
+
+    @Test
+    void classesAreComputedWithinSubject() throws Exception {
+        List<Map<String, Object>> items = items(engine.analyze(json("""
+            [{"nmId": 1, "forPay": 90, "subject": "Платья"},
+             {"nmId": 2, "forPay": 6, "subject": "Платья"},
+             {"nmId": 3, "forPay": 4, "subject": "Юбки"}]
+            """)));
+
+        Map<String, Object> skirt = items.get(2);
+        assertEquals(3L, skirt.get("nmId"));
+        assertEquals("C", skirt.get("classTotal"));
+        // Единственный товар предмета - A внутри предмета
+        assertEquals("A", skirt.get("classInGroup"));
+        assertEquals(100.0, (double) skirt.get("revenuePercentInGroup"), 1e-9);
+    }
+
+    @Test
+    void salesReturnsReduceRevenueAndOrders() throws Exception {
+        // Возврат в отчете продаж: saleID "R..." и/или отрицательная сумма
+        List<Map<String, Object>> items = items(engine.analyze(json("""
+            [{"nmId": 1, "saleID": "S1", "forPay": 100},
+             {"nmId": 1, "saleID": "S2", "forPay": 100},
+             {"nmId": 1, "saleID": "R1", "forPay": -100},
+             {"nmId": 2, "saleID": "S3", "forPay": 50},
+             {"nmId": 2, "saleID": "R2", "forPay": 20}]
+            """)));
+
+        Map<String, Object> first = items.get(0);
+        assertEquals(1L, first.get("nmId"));
+        assertEquals(100.0, (double) first.get("revenue"), 1e-9);
+        assertEquals(1L, first.get("ordersCount"));
+        assertEquals(100.0, (double) first.get("avgPrice"), 1e-9);
+
+        Map<String, Object> second = items.get(1);
+        assertEquals(30.0, (double) second.get("revenue"), 1e-9);
+        assertEquals(0L, second.get("ordersCount"));
+        assertEquals(0.0, (double) second.get("avgPrice"), 1e-9);
+    }
+
+    @Test
+    void realizationReturnsUseDocumentType() throws Exception {
+        // В детализации сумма возврата положительная, возврат определяется по doc_type_name
+        List<Map<String, Object>> items = items(engine.analyze(json("""
+            [{"nmid": 7, "ppvz_for_pay": 300, "quantity": 3, "doc_type_name": "Продажа",
+              "sa_name": "DRESS-7", "subject_name": "Платья", "brand_name": "Бренд"},
+             {"nmid": 7, "ppvz_for_pay": 100, "quantity": 1, "doc_type_name": "Возврат"}]
+            """)));
+
+        Map<String, Object> item = items.get(0);
+        assertEquals(7L, item.get("nmId"));
+        assertEquals("DRESS-7", item.get("vendorCode"));
+        assertEquals("Платья", item.get("subject"));
+        assertEquals("Бренд", item.get("brandName"));
+        assertEquals(200.0, (double) item.get("revenue"), 1e-9);
+        assertEquals(2L, item.get("ordersCount"));
+    }
+
+    @Test
+    void emptyOrMissingInputGivesEmptyResult() throws Exception {
+        for (JsonNode lines : new JsonNode[] { null, json("[]"), json("{\"error\": true}") }) {
+            Map<String, Object> result = engine.analyze(lines);
+            assertTrue(items(result).isEmpty());
+            assertEquals(0, summary(result).get("totalItems"));
+            assertEquals(0.0, (double) summary(result).get("totalRevenue"), 1e-9);
+        }
+    }
+
+    private JsonNode json(String text) throws Exception {
+        return objectMapper.readTree(text);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> items(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("items");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> summary(Map<String, Object> result) {
+        return (Map<String, Object>) result.get("summary");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void assertClass(Map<String, Object> summary, String name, int count, double percent) {
+        Map<String, Object> totals = (Map<String, Object>) summary.get(name);
+        assertEquals(count, totals.get("count"), name);
+        assertEquals(percent, (double) totals.get("percent"), 1e-9, name);
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Двоичное кодирование numeric для COPY: группы по основанию 10000, вес, знак, число знаков после запятой
+ */
+class PgBinaryCopyWriterTest {
+
+    private static final int POSITIVE = 0x0000;
+    private static final int NEGATIVE = 0x4000;
+
+    @Test
+    void zeroHasNoDigitGroups() throws IOException {
+        assertNumeric(BigDecimal.ZERO, 0, POSITIVE, 0);
+    }
+
+    @Test
+    void zeroKeepsScale() throws IOException {
+        assertNumeric(new BigDecimal("0.00"), 0, POSITIVE, 2);
+    }
+
+    @Test
+    void integerWithinOneGroup() throws IOException {
+        assertNumeric(new BigDecimal("42"), 0, POSITIVE, 0, 42);
+    }
+
+    @Test
+    void multiGroupValueIsSplitFromThePoint() throws IOException {
+        // 1|2345 . 6780
+        assertNumeric(new BigDecimal("12345.678"), 1, POSITIVE, 3, 1, 2345, 6780);
+    }
+
+    @Test
+    void trailingZeroGroupsAreDropped() throws IOException {
+        // 1|0000 . 00 - значащая только старшая группа
+        assertNumeric(new BigDecimal("10000.00"), 1, POSITIVE, 2, 1);
+    }
+
+    @Test
+    void valueBelowOneHasNegativeWeight() throws IOException {
+        // 0.0500 - первая значащая группа сразу после запятой
+        assertNumeric(new BigDecimal("0.05"), -1, POSITIVE, 2, 500);
+    }
+
+    @Test
+    void leadingZeroFractionGroupsShiftWeight() throws IOException {
+        // 0.0000 1234
+        assertNumeric(new BigDecimal("0.00001234"), -2, POSITIVE, 8, 1234);
+    }
+
+    @Test
+    void negativeValueSetsSignOnly() throws IOException {
+        assertNumeric(new BigDecimal("-12345.678"), 1, NEGATIVE, 3, 1, 2345, 6780);
+        assertNumeric(new BigDecimal("-0.05"), -1, NEGATIVE, 2, 500);
+    }
+
+    @Test
+    void negativeScaleIsWrittenAsInteger() throws IOException {
+        // 1E+5 = 10|0000
+        assertNumeric(new BigDecimal("1E+5"), 1, POSITIVE, 0, 10);
+    }
+
+    @Test
+    void encodedValuesDecodeBack() throws IOException {
+        String[] values = { "0", "1", "-1", "9999", "10000", "123456789.123456789", "-0.0001",
+            "0.1", "1234.5", "-98765432109876543210.01", "100000000", "0.00000001" };
+        for (String value : values) {
+            BigDecimal expected = new BigDecimal(value);
+            assertEquals(expected, decode(encode(expected)), value);
+        }
+    }
+
+    private static void assertNumeric(BigDecimal value, int weight, int sign, int scale, int... groups) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encode(value)));
+        assertEquals(8 + groups.length * 2, in.readInt(), "длина поля");
+        assertEquals(groups.length, in.readShort(), "число групп");
+        assertEquals(weight, in.readShort(), "вес");
+        assertEquals(sign, in.readShort(), "знак");
+        assertEquals(scale, in.readShort(), "знаков после запятой");
+        int[] actual = new int[groups.length];
+        for (int i = 0; i < groups.length; i++) {
+            actual[i] = in.readShort();
+        }
+        assertArrayEquals(groups, actual, "группы");
+        assertEquals(0, in.available(), "лишние байты");
+    }
+
+    private static byte[] encode(BigDecimal value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            PgBinaryCopyWriter.writeNumeric(out, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Разбор так же, как его выполняет сервер (numeric_recv)
+     */
+    private static BigDecimal decode(byte[] field) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(field));
+        in.readInt();
+        int count = in.readShort();
+        int weight = in.readShort();
+        int sign = in.readShort();
+        int scale = in.readShort();
+        BigDecimal result = BigDecimal.ZERO;
+        for (int i = 0; i < count; i++) {
+            result = result.add(BigDecimal.valueOf(in.readShort()).scaleByPowerOfTen(4 * (weight - i)));
+        }
+        result = result.setScale(scale);
+        return sign == NEGATIVE ? result.negate() : result;
+    }
+}
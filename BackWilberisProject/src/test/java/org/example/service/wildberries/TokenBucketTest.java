@@ -0,0 +1,86 @@
+package org.example.service.wildberries;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Token bucket: выдача и пополнение токенов, резерв для интерактивных запросов,
+ * подстройка под X-Ratelimit-Remaining и блокировка после 429.
+ * Время передается явно, от момента создания бакета.
+ */
+class TokenBucketTest {
+
+    private static final int CAPACITY = 3;
+    private static final long INTERVAL_MS = 1000;
+
+    private TokenBucket bucket;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        bucket = new TokenBucket(CAPACITY, INTERVAL_MS);
+        start = System.currentTimeMillis();
+    }
+
+    @Test
+    void fullBucketGivesCapacityTokensThenWaitsForRefill() {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(0, bucket.tryAcquire(start));
+        }
+        assertEquals(INTERVAL_MS, bucket.tryAcquire(start));
+        assertEquals(INTERVAL_MS / 2, bucket.tryAcquire(start + INTERVAL_MS / 2));
+        assertEquals(0, bucket.tryAcquire(start + INTERVAL_MS));
+        assertEquals(INTERVAL_MS, bucket.tryAcquire(start + INTERVAL_MS));
+    }
+
+    @Test
+    void refillIsCappedAtCapacity() {
+        bucket.tryAcquire(start);
+        assertEquals(CAPACITY, bucket.availableTokens(start + 100 * INTERVAL_MS), 1e-9);
+    }
+
+    @Test
+    void backgroundAcquireLeavesReserve() {
+        assertEquals(0, bucket.tryAcquireAbove(1, start));
+        assertEquals(0, bucket.tryAcquireAbove(1, start));
+        // Остался один токен - он отложен для интерактивных запросов
+        assertEquals(INTERVAL_MS, bucket.tryAcquireAbove(1, start));
+        assertEquals(0, bucket.tryAcquire(start));
+    }
+
+    @Test
+    void reserveIsLimitedToLeaveOneTokenForBackground() {
+        // Резерв больше емкости: фоновый запрос все равно проходит на полном бакете
+        assertEquals(0, bucket.tryAcquireAbove(10, start));
+        assertEquals(INTERVAL_MS, bucket.tryAcquireAbove(10, start));
+    }
+
+    @Test
+    void remainingHeaderOnlyLowersTokens() {
+        bucket.syncRemaining(1, start);
+        assertEquals(1, bucket.availableTokens(start), 1e-9);
+        bucket.syncRemaining(5, start);
+        assertEquals(1, bucket.availableTokens(start), 1e-9);
+        bucket.syncRemaining(-1, start);
+        assertEquals(0, bucket.availableTokens(start), 1e-9);
+    }
+
+    @Test
+    void blockAfterRateLimitEmptiesBucketUntilRetryPassed() {
+        bucket.blockFor(5000, start);
+        assertEquals(4000, bucket.tryAcquire(start + 1000));
+        assertEquals(4000, bucket.tryAcquireAbove(1, start + 1000));
+        // После блокировки бакет пустой и пополняется с момента ее окончания
+        assertEquals(INTERVAL_MS, bucket.tryAcquire(start + 5000));
+        assertEquals(0, bucket.tryAcquire(start + 5000 + INTERVAL_MS));
+    }
+
+    @Test
+    void shorterBlockDoesNotShortenActiveBlock() {
+        bucket.blockFor(5000, start);
+        bucket.blockFor(1000, start);
+        assertEquals(3000, bucket.tryAcquire(start + 2000));
+    }
+}